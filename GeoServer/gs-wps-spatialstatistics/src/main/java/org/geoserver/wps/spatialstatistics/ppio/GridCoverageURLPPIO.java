@@ -87,6 +87,9 @@ public class GridCoverageURLPPIO extends CDataPPIO {
                 File fileToSave = resourceManager.getOutputResource(null, fileName).file();
 
                 RasterExportOperation op = new RasterExportOperation();
+                op.setCloudOptimized(true);
+                op.setTileWidth(512);
+                op.setTileHEight(512);
                 op.saveAsGeoTiff(coverage, fileToSave.getAbsolutePath());
 
                 URL url = new URL(resourceManager.getOutputResourceUrl(fileName, "image/tiff"));
@@ -119,6 +119,7 @@ public class BufferStatisticsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             PointStatisticsOperation operation = new PointStatisticsOperation();
+            operation.setProgressListener(monitor);
             operation.setBufferDistance(distance);
             operation.setDistanceUnit(distanceUnit);
             resultFc = operation.execute(inputFeatures, countField, statisticsFields,
@@ -53,12 +53,20 @@ public class CentralFeatureProcess extends AbstractStatisticsProcess {
     public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
             DistanceMethod distanceMethod, String weightField, String selfPotentialWeightField,
             String caseField, ProgressListener monitor) {
+        return process(inputFeatures, distanceMethod, weightField, selfPotentialWeightField,
+                caseField, Double.valueOf(0.0), monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            DistanceMethod distanceMethod, String weightField, String selfPotentialWeightField,
+            String caseField, Double tolerance, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(CentralFeatureProcessFactory.inputFeatures.key, inputFeatures);
         map.put(CentralFeatureProcessFactory.distanceMethod.key, distanceMethod);
         map.put(CentralFeatureProcessFactory.weightField.key, weightField);
         map.put(CentralFeatureProcessFactory.selfPotentialWeightField.key, selfPotentialWeightField);
         map.put(CentralFeatureProcessFactory.caseField.key, caseField);
+        map.put(CentralFeatureProcessFactory.tolerance.key, tolerance);
 
         Process process = new CentralFeatureProcess(null);
         Map<String, Object> resultMap;
@@ -90,12 +98,16 @@ public class CentralFeatureProcess extends AbstractStatisticsProcess {
                 CentralFeatureProcessFactory.selfPotentialWeightField, null);
         String caseField = (String) Params.getValue(input, CentralFeatureProcessFactory.caseField,
                 null);
+        Double tolerance = (Double) Params.getValue(input, CentralFeatureProcessFactory.tolerance,
+                CentralFeatureProcessFactory.tolerance.sample);
 
         // start process
         SimpleFeatureCollection resultFc = null;
         try {
             CentralFeatureOperation process = new CentralFeatureOperation();
+            process.setProgressListener(monitor);
             process.setDistanceMethod(distanceMethod);
+            process.setTolerance(tolerance.doubleValue());
             resultFc = process.execute(inputFeatures, weightField, selfPotentialWeightField,
                     caseField);
         } catch (IOException e) {
@@ -101,6 +101,12 @@ public class CentralFeatureProcessFactory extends SpatialStatisticsProcessFactor
             getResource("CentralFeature.caseField.description"), false, 0, 1, null, new KVP(
                     Params.FIELD, "inputFeatures.All"));
 
+    /** tolerance */
+    public static final Parameter<Double> tolerance = new Parameter<Double>("tolerance",
+            Double.class, getResource("CentralFeature.tolerance.title"),
+            getResource("CentralFeature.tolerance.description"), false, 0, 1,
+            Double.valueOf(0.0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -109,6 +115,7 @@ public class CentralFeatureProcessFactory extends SpatialStatisticsProcessFactor
         parameterInfo.put(weightField.key, weightField);
         parameterInfo.put(selfPotentialWeightField.key, selfPotentialWeightField);
         parameterInfo.put(caseField.key, caseField);
+        parameterInfo.put(tolerance.key, tolerance);
         return parameterInfo;
     }
 
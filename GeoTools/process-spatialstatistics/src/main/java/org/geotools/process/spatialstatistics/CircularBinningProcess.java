@@ -106,6 +106,7 @@ public class CircularBinningProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             CircularBinningOperation process = new CircularBinningOperation();
+            process.setProgressListener(monitor);
             process.setOnlyValidGrid(validGrid);
             resultFc = process.execute(features, weight, bbox, radius);
         } catch (IOException e) {
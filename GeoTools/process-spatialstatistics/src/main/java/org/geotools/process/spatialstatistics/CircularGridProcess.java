@@ -95,6 +95,7 @@ public class CircularGridProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             CircularGridOperation operation = new CircularGridOperation();
+            operation.setProgressListener(monitor);
             operation.setBoundsSource(boundsSource);
             operation.setCircularType(circularType);
             resultFc = operation.execute(gridBounds, radius);
@@ -84,6 +84,7 @@ public class ClipWithFeaturesProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             ClipWithFeaturesOperation operation = new ClipWithFeaturesOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, clipFeatures);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -88,6 +88,7 @@ public class CollectEventsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             CollectEventsOperation operation = new CollectEventsOperation();
+            operation.setProgressListener(monitor);
             if (tolerance != null && tolerance > 0) {
                 operation.setTolerance(tolerance);
             }
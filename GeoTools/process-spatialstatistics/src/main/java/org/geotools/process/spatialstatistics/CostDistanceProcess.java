@@ -0,0 +1,101 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterCostDistanceOperation;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Calculates the least accumulative cost distance for each cell to the nearest source over a cost surface.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CostDistanceProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(CostDistanceProcess.class);
+
+    public CostDistanceProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static GridCoverage2D process(SimpleFeatureCollection inputFeatures,
+            GridCoverage2D costCoverage, Double maximumDistance, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(CostDistanceProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(CostDistanceProcessFactory.costCoverage.key, costCoverage);
+        map.put(CostDistanceProcessFactory.maximumDistance.key, maximumDistance);
+
+        Process process = new CostDistanceProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+
+            return (GridCoverage2D) resultMap.get(CostDistanceProcessFactory.RESULT.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                CostDistanceProcessFactory.inputFeatures, null);
+        GridCoverage2D costCoverage = (GridCoverage2D) Params.getValue(input,
+                CostDistanceProcessFactory.costCoverage, null);
+        if (inputFeatures == null || costCoverage == null) {
+            throw new NullPointerException("inputFeatures, costCoverage parameters required");
+        }
+
+        Double maximumDistance = (Double) Params.getValue(input,
+                CostDistanceProcessFactory.maximumDistance,
+                CostDistanceProcessFactory.maximumDistance.sample);
+        if (maximumDistance == null || maximumDistance <= 0 || maximumDistance.isNaN()) {
+            maximumDistance = Double.MAX_VALUE;
+        }
+
+        // start process
+        RasterCostDistanceOperation process = new RasterCostDistanceOperation();
+        process.setProgressListener(monitor);
+        GridCoverage2D resultGc = process.execute(inputFeatures, costCoverage, maximumDistance);
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(CostDistanceProcessFactory.RESULT.key, resultGc);
+        resultMap.put(CostDistanceProcessFactory.BACKLINK.key, process.getBacklinkCoverage());
+        return resultMap;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.Parameter;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.InternationalString;
+
+/**
+ * CostDistanceProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CostDistanceProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(CostDistanceProcessFactory.class);
+
+    private static final String PROCESS_NAME = "CostDistance";
+
+    /*
+     * CostDistance(SimpleFeatureCollection inputFeatures, GridCoverage2D costCoverage, Double maximumDistance): GridCoverage2D, GridCoverage2D
+     */
+
+    public CostDistanceProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new CostDistanceProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("CostDistance.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("CostDistance.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class,
+            getResource("CostDistance.inputFeatures.title"),
+            getResource("CostDistance.inputFeatures.description"), true, 1, 1, null, null);
+
+    /** costCoverage */
+    public static final Parameter<GridCoverage2D> costCoverage = new Parameter<GridCoverage2D>(
+            "costCoverage", GridCoverage2D.class, getResource("CostDistance.costCoverage.title"),
+            getResource("CostDistance.costCoverage.description"), true, 1, 1, null, null);
+
+    /** maximumDistance */
+    public static final Parameter<Double> maximumDistance = new Parameter<Double>(
+            "maximumDistance", Double.class, getResource("CostDistance.maximumDistance.title"),
+            getResource("CostDistance.maximumDistance.description"), false, 0, 1,
+            Double.MAX_VALUE, null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(costCoverage.key, costCoverage);
+        parameterInfo.put(maximumDistance.key, maximumDistance);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<GridCoverage2D> RESULT = new Parameter<GridCoverage2D>("result",
+            GridCoverage2D.class, getResource("CostDistance.result.title"),
+            getResource("CostDistance.result.description"));
+
+    /** backlink */
+    public static final Parameter<GridCoverage2D> BACKLINK = new Parameter<GridCoverage2D>(
+            "backlink", GridCoverage2D.class, getResource("CostDistance.backlink.title"),
+            getResource("CostDistance.backlink.description"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+        resultInfo.put(BACKLINK.key, BACKLINK);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.CostPathType;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterCostPathOperation;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Calculates the least-cost path from destinations to the nearest source.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CostPathProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(CostPathProcess.class);
+
+    public CostPathProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static GridCoverage2D process(SimpleFeatureCollection inputFeatures,
+            GridCoverage2D costDistanceCoverage, GridCoverage2D backlinkCoverage,
+            CostPathType pathType, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(CostPathProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(CostPathProcessFactory.costDistanceCoverage.key, costDistanceCoverage);
+        map.put(CostPathProcessFactory.backlinkCoverage.key, backlinkCoverage);
+        map.put(CostPathProcessFactory.pathType.key, pathType);
+
+        Process process = new CostPathProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+
+            return (GridCoverage2D) resultMap.get(CostPathProcessFactory.RESULT.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                CostPathProcessFactory.inputFeatures, null);
+        GridCoverage2D costDistanceCoverage = (GridCoverage2D) Params.getValue(input,
+                CostPathProcessFactory.costDistanceCoverage, null);
+        GridCoverage2D backlinkCoverage = (GridCoverage2D) Params.getValue(input,
+                CostPathProcessFactory.backlinkCoverage, null);
+        if (inputFeatures == null || costDistanceCoverage == null || backlinkCoverage == null) {
+            throw new NullPointerException(
+                    "inputFeatures, costDistanceCoverage, backlinkCoverage parameters required");
+        }
+
+        CostPathType pathType = (CostPathType) Params.getValue(input,
+                CostPathProcessFactory.pathType, CostPathProcessFactory.pathType.sample);
+
+        // start process
+        RasterCostPathOperation process = new RasterCostPathOperation();
+        process.setProgressListener(monitor);
+        GridCoverage2D resultGc = process.execute(inputFeatures, costDistanceCoverage,
+                backlinkCoverage, pathType);
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(CostPathProcessFactory.RESULT.key, resultGc);
+        return resultMap;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.Parameter;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.enumeration.CostPathType;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.InternationalString;
+
+/**
+ * CostPathProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CostPathProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(CostPathProcessFactory.class);
+
+    private static final String PROCESS_NAME = "CostPath";
+
+    /*
+     * CostPath(SimpleFeatureCollection inputFeatures, GridCoverage2D costDistanceCoverage, GridCoverage2D backlinkCoverage, CostPathType pathType): GridCoverage2D
+     */
+
+    public CostPathProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new CostPathProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("CostPath.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("CostPath.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class,
+            getResource("CostPath.inputFeatures.title"),
+            getResource("CostPath.inputFeatures.description"), true, 1, 1, null, null);
+
+    /** costDistanceCoverage */
+    public static final Parameter<GridCoverage2D> costDistanceCoverage = new Parameter<GridCoverage2D>(
+            "costDistanceCoverage", GridCoverage2D.class,
+            getResource("CostPath.costDistanceCoverage.title"),
+            getResource("CostPath.costDistanceCoverage.description"), true, 1, 1, null, null);
+
+    /** backlinkCoverage */
+    public static final Parameter<GridCoverage2D> backlinkCoverage = new Parameter<GridCoverage2D>(
+            "backlinkCoverage", GridCoverage2D.class,
+            getResource("CostPath.backlinkCoverage.title"),
+            getResource("CostPath.backlinkCoverage.description"), true, 1, 1, null, null);
+
+    /** pathType */
+    public static final Parameter<CostPathType> pathType = new Parameter<CostPathType>(
+            "pathType", CostPathType.class, getResource("CostPath.pathType.title"),
+            getResource("CostPath.pathType.description"), false, 0, 1, CostPathType.EachCell,
+            null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(costDistanceCoverage.key, costDistanceCoverage);
+        parameterInfo.put(backlinkCoverage.key, backlinkCoverage);
+        parameterInfo.put(pathType.key, pathType);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<GridCoverage2D> RESULT = new Parameter<GridCoverage2D>("result",
+            GridCoverage2D.class, getResource("CostPath.result.title"),
+            getResource("CostPath.result.description"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
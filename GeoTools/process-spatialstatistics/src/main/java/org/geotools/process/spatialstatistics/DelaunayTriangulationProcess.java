@@ -85,6 +85,7 @@ public class DelaunayTriangulationProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             DelaunayTrangulationOperation operation = new DelaunayTrangulationOperation();
+            operation.setProgressListener(monitor);
             if (clipArea != null) {
                 operation.setClipArea(clipArea);
             }
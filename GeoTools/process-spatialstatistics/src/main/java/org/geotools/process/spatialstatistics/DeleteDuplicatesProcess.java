@@ -80,6 +80,7 @@ public class DeleteDuplicatesProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             DeleteDuplicateFeaturesOperation operation = new DeleteDuplicateFeaturesOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -87,6 +87,7 @@ public class DirectionalMeanProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             LinearDirectionalMeanOperation process = new LinearDirectionalMeanOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(inputFeatures, orientationOnly, caseField);
         } catch (IOException e) {
             throw new ProcessException(e);
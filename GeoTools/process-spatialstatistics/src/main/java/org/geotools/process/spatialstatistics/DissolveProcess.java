@@ -90,6 +90,7 @@ public class DissolveProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             DissolveOperation operation = new DissolveOperation();
+            operation.setProgressListener(monitor);
             operation.setUseMultiPart(useMultiPart);
             resultFc = operation.execute(inputFeatures, dissolveField, statisticsFields);
         } catch (IOException e) {
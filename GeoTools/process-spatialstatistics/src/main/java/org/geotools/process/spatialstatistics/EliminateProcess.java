@@ -87,6 +87,7 @@ public class EliminateProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             EliminateOperation operation = new EliminateOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, option, exception);
         } catch (IOException e) {
             throw new ProcessException(e);
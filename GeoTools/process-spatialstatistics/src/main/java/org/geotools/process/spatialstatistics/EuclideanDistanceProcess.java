@@ -82,6 +82,12 @@ public class EuclideanDistanceProcess extends AbstractStatisticsProcess {
             throw new NullPointerException("inputFeatures parameters required");
         }
 
+        Boolean outputAllocation = (Boolean) Params.getValue(input,
+                EuclideanDistanceProcessFactory.outputAllocation,
+                EuclideanDistanceProcessFactory.outputAllocation.sample);
+        Boolean outputDirection = (Boolean) Params.getValue(input,
+                EuclideanDistanceProcessFactory.outputDirection,
+                EuclideanDistanceProcessFactory.outputDirection.sample);
         Double maximumDistance = (Double) Params.getValue(input,
                 EuclideanDistanceProcessFactory.maximumDistance,
                 EuclideanDistanceProcessFactory.maximumDistance.sample);
@@ -105,15 +111,22 @@ public class EuclideanDistanceProcess extends AbstractStatisticsProcess {
 
         GridCoverage2D resultGc = null;
         RasterEuclideanDistanceOperation process = new RasterEuclideanDistanceOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
+        process.setOutputAllocation(outputAllocation.booleanValue());
+        process.setOutputDirection(outputDirection.booleanValue());
 
         resultGc = process.execute(inputFeatures, maximumDistance);
         // end process
 
         Map<String, Object> resultMap = new HashMap<String, Object>();
         resultMap.put(EuclideanDistanceProcessFactory.RESULT.key, resultGc);
+        resultMap.put(EuclideanDistanceProcessFactory.ALLOCATION.key,
+                process.getAllocationCoverage());
+        resultMap.put(EuclideanDistanceProcessFactory.DIRECTION.key,
+                process.getDirectionCoverage());
         return resultMap;
     }
 }
@@ -45,7 +45,7 @@ public class EuclideanDistanceProcessFactory extends SpatialStatisticsProcessFac
     private static final String PROCESS_NAME = "EuclideanDistance";
 
     /*
-     * EuclideanDistance(SimpleFeatureCollection inputFeatures, Double maximumDistance, Double cellSize, ReferencedEnvelope extent): GridCoverage2D
+     * EuclideanDistance(SimpleFeatureCollection inputFeatures, Double maximumDistance, Double cellSize, ReferencedEnvelope extent, Boolean outputAllocation, Boolean outputDirection): GridCoverage2D
      */
 
     public EuclideanDistanceProcessFactory() {
@@ -91,6 +91,20 @@ public class EuclideanDistanceProcessFactory extends SpatialStatisticsProcessFac
             "extent", ReferencedEnvelope.class, getResource("EuclideanDistance.extent.title"),
             getResource("EuclideanDistance.extent.description"), false, 0, 1, null, null);
 
+    /** outputAllocation */
+    public static final Parameter<Boolean> outputAllocation = new Parameter<Boolean>(
+            "outputAllocation", Boolean.class,
+            getResource("EuclideanDistance.outputAllocation.title"),
+            getResource("EuclideanDistance.outputAllocation.description"), false, 0, 1,
+            Boolean.FALSE, null);
+
+    /** outputDirection */
+    public static final Parameter<Boolean> outputDirection = new Parameter<Boolean>(
+            "outputDirection", Boolean.class,
+            getResource("EuclideanDistance.outputDirection.title"),
+            getResource("EuclideanDistance.outputDirection.description"), false, 0, 1,
+            Boolean.FALSE, null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -98,6 +112,8 @@ public class EuclideanDistanceProcessFactory extends SpatialStatisticsProcessFac
         parameterInfo.put(maximumDistance.key, maximumDistance);
         parameterInfo.put(cellSize.key, cellSize);
         parameterInfo.put(extent.key, extent);
+        parameterInfo.put(outputAllocation.key, outputAllocation);
+        parameterInfo.put(outputDirection.key, outputDirection);
         return parameterInfo;
     }
 
@@ -106,9 +122,21 @@ public class EuclideanDistanceProcessFactory extends SpatialStatisticsProcessFac
             GridCoverage2D.class, getResource("EuclideanDistance.result.title"),
             getResource("EuclideanDistance.result.description"));
 
+    /** allocation */
+    public static final Parameter<GridCoverage2D> ALLOCATION = new Parameter<GridCoverage2D>(
+            "allocation", GridCoverage2D.class, getResource("EuclideanDistance.allocation.title"),
+            getResource("EuclideanDistance.allocation.description"));
+
+    /** direction */
+    public static final Parameter<GridCoverage2D> DIRECTION = new Parameter<GridCoverage2D>(
+            "direction", GridCoverage2D.class, getResource("EuclideanDistance.direction.title"),
+            getResource("EuclideanDistance.direction.description"));
+
     static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
     static {
         resultInfo.put(RESULT.key, RESULT);
+        resultInfo.put(ALLOCATION.key, ALLOCATION);
+        resultInfo.put(DIRECTION.key, DIRECTION);
     }
 
     @Override
@@ -91,6 +91,7 @@ public class ExtendLineProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             ExtendLineOperation operation = new ExtendLineOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, length, extendTo);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -96,6 +96,7 @@ public class ExtractValuesToPointsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             RasterExtractValuesToPointsOperation process = new RasterExtractValuesToPointsOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(pointFeatures, valueField, valueCoverage, valueType);
         } catch (Exception e) {
             throw new ProcessException(e);
@@ -86,6 +86,7 @@ public class FeatureToLineProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             FeatureToLineOperation operation = new FeatureToLineOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, preserveAttributes);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -89,6 +89,7 @@ public class FeatureToPolygonProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             FeatureToPolygonOperation operation = new FeatureToPolygonOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, tolerance, labelFeatures);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -53,11 +53,18 @@ public class FeaturesToRasterProcess extends AbstractStatisticsProcess {
 
     public static GridCoverage2D process(SimpleFeatureCollection inputFeatures, String inputField,
             Double cellSize, ReferencedEnvelope extent, ProgressListener monitor) {
+        return process(inputFeatures, inputField, cellSize, extent, Boolean.FALSE, monitor);
+    }
+
+    public static GridCoverage2D process(SimpleFeatureCollection inputFeatures, String inputField,
+            Double cellSize, ReferencedEnvelope extent, Boolean allTouched,
+            ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(FeaturesToRasterProcessFactory.inputFeatures.key, inputFeatures);
         map.put(FeaturesToRasterProcessFactory.inputField.key, inputField);
         map.put(FeaturesToRasterProcessFactory.cellSize.key, cellSize);
         map.put(FeaturesToRasterProcessFactory.extent.key, extent);
+        map.put(FeaturesToRasterProcessFactory.allTouched.key, allTouched);
 
         Process process = new FeaturesToRasterProcess(null);
         Map<String, Object> resultMap;
@@ -94,6 +101,10 @@ public class FeaturesToRasterProcess extends AbstractStatisticsProcess {
         ReferencedEnvelope extent = (ReferencedEnvelope) Params.getValue(input,
                 FeaturesToRasterProcessFactory.extent, null);
 
+        Boolean allTouched = (Boolean) Params.getValue(input,
+                FeaturesToRasterProcessFactory.allTouched,
+                FeaturesToRasterProcessFactory.allTouched.sample);
+
         // start process
         ReferencedEnvelope boundingBox = extent == null ? inputFeatures.getBounds() : extent;
 
@@ -104,9 +115,11 @@ public class FeaturesToRasterProcess extends AbstractStatisticsProcess {
         }
 
         FeaturesToRasterOperation process = new FeaturesToRasterOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
+        process.setAllTouched(allTouched.booleanValue());
 
         GridCoverage2D resultGc = process.execute(inputFeatures, inputField);
         // end process
@@ -47,7 +47,7 @@ public class FeaturesToRasterProcessFactory extends SpatialStatisticsProcessFact
     private static final String PROCESS_NAME = "FeaturesToRaster";
 
     /*
-     * FeaturesToRaster(SimpleFeatureCollection inputFeatures, String inputField, Double cellSize, ReferencedEnvelope extent): GridCoverage2D
+     * FeaturesToRaster(SimpleFeatureCollection inputFeatures, String inputField, Double cellSize, ReferencedEnvelope extent, Boolean allTouched): GridCoverage2D
      */
 
     public FeaturesToRasterProcessFactory() {
@@ -92,6 +92,12 @@ public class FeaturesToRasterProcessFactory extends SpatialStatisticsProcessFact
             "extent", ReferencedEnvelope.class, getResource("FeaturesToRaster.extent.title"),
             getResource("FeaturesToRaster.extent.description"), false, 0, 1, null, null);
 
+    /** allTouched */
+    public static final Parameter<Boolean> allTouched = new Parameter<Boolean>("allTouched",
+            Boolean.class, getResource("FeaturesToRaster.allTouched.title"),
+            getResource("FeaturesToRaster.allTouched.description"), false, 0, 1, Boolean.FALSE,
+            null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -99,6 +105,7 @@ public class FeaturesToRasterProcessFactory extends SpatialStatisticsProcessFact
         parameterInfo.put(inputField.key, inputField);
         parameterInfo.put(cellSize.key, cellSize);
         parameterInfo.put(extent.key, extent);
+        parameterInfo.put(allTouched.key, allTouched);
         return parameterInfo;
     }
 
@@ -96,6 +96,7 @@ public class FishnetSizeProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             FishnetOperation operation = new FishnetOperation();
+            operation.setProgressListener(monitor);
             operation.setBoundaryInside(boundaryInside);
             operation.setFishnetType(FishnetType.Rectangle);
             operation.setBoundsSource(boundsSource);
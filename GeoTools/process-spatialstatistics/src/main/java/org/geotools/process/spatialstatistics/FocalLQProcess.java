@@ -99,6 +99,7 @@ public class FocalLQProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             FocalLQOperation process = new FocalLQOperation();
+            process.setProgressListener(monitor);
             process.setSpatialConceptType(spatialConcept);
             process.setDistanceType(distanceMethod);
             process.setDistanceBand(searchDistance);
@@ -0,0 +1,130 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.relationship.GWROperation;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Performs Geographically Weighted Regression (GWR).
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class GWRProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(GWRProcess.class);
+
+    public GWRProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String dependentVariable, String explanatoryVariables, KernelType kernelType,
+            Boolean adaptive, Double bandwidth, ProgressListener monitor) {
+        return process(inputFeatures, dependentVariable, explanatoryVariables, kernelType,
+                adaptive, bandwidth, null, monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String dependentVariable, String explanatoryVariables, KernelType kernelType,
+            Boolean adaptive, Double bandwidth, Integer maxNeighbors, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(GWRProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(GWRProcessFactory.dependentVariable.key, dependentVariable);
+        map.put(GWRProcessFactory.explanatoryVariables.key, explanatoryVariables);
+        map.put(GWRProcessFactory.kernelType.key, kernelType);
+        map.put(GWRProcessFactory.adaptive.key, adaptive);
+        map.put(GWRProcessFactory.bandwidth.key, bandwidth);
+        map.put(GWRProcessFactory.maxNeighbors.key, maxNeighbors);
+
+        Process process = new GWRProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+            return (SimpleFeatureCollection) resultMap.get(GWRProcessFactory.result.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                GWRProcessFactory.inputFeatures, null);
+        String dependentVariable = (String) Params.getValue(input,
+                GWRProcessFactory.dependentVariable, null);
+        String explanatoryVariables = (String) Params.getValue(input,
+                GWRProcessFactory.explanatoryVariables, null);
+        if (inputFeatures == null || dependentVariable == null || dependentVariable.isEmpty()
+                || explanatoryVariables == null || explanatoryVariables.isEmpty()) {
+            throw new NullPointerException(
+                    "inputFeatures, dependentVariable, explanatoryVariables parameters required");
+        }
+
+        KernelType kernelType = (KernelType) Params.getValue(input, GWRProcessFactory.kernelType,
+                GWRProcessFactory.kernelType.sample);
+        Boolean adaptive = (Boolean) Params.getValue(input, GWRProcessFactory.adaptive,
+                GWRProcessFactory.adaptive.sample);
+        Double bandwidth = (Double) Params.getValue(input, GWRProcessFactory.bandwidth,
+                GWRProcessFactory.bandwidth.sample);
+        Integer maxNeighbors = (Integer) Params.getValue(input, GWRProcessFactory.maxNeighbors,
+                GWRProcessFactory.maxNeighbors.sample);
+
+        // start process
+        SimpleFeatureCollection resultFc = null;
+        try {
+            GWROperation operation = new GWROperation();
+            operation.setProgressListener(monitor);
+            operation.setKernelType(kernelType);
+            operation.setAdaptive(adaptive);
+            operation.setBandwidth(bandwidth);
+            operation.setMaxNeighbors(maxNeighbors);
+            resultFc = operation.execute(inputFeatures, dependentVariable, explanatoryVariables);
+        } catch (IOException e) {
+            throw new ProcessException(e);
+        } catch (IllegalArgumentException e) {
+            throw new ProcessException(e);
+        }
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(GWRProcessFactory.result.key, resultFc);
+        return resultMap;
+    }
+
+}
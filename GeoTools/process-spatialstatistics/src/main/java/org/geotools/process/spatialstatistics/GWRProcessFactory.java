@@ -0,0 +1,140 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.data.Parameter;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.relationship.GWROperation;
+import org.geotools.util.KVP;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.InternationalString;
+
+/**
+ * GWRProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class GWRProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(GWRProcessFactory.class);
+
+    private static final String PROCESS_NAME = "GeographicallyWeightedRegression";
+
+    /*
+     * GeographicallyWeightedRegression(SimpleFeatureCollection inputFeatures, String dependentVariable, String explanatoryVariables, KernelType kernelType, Boolean adaptive, Double bandwidth, Integer maxNeighbors): SimpleFeatureCollection
+     */
+
+    public GWRProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new GWRProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("GWR.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("GWR.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class, getResource("GWR.inputFeatures.title"),
+            getResource("GWR.inputFeatures.description"), true, 1, 1, null, null);
+
+    /** dependentVariable */
+    public static final Parameter<String> dependentVariable = new Parameter<String>(
+            "dependentVariable", String.class, getResource("GWR.dependentVariable.title"),
+            getResource("GWR.dependentVariable.description"), true, 1, 1, null, new KVP(
+                    Params.FIELD, "inputFeatures.Number"));
+
+    /** explanatoryVariables */
+    public static final Parameter<String> explanatoryVariables = new Parameter<String>(
+            "explanatoryVariables", String.class, getResource("GWR.explanatoryVariables.title"),
+            getResource("GWR.explanatoryVariables.description"), true, 1, 1, null, new KVP(
+                    Params.FIELDS, "inputFeatures.Number"));
+
+    /** kernelType */
+    public static final Parameter<KernelType> kernelType = new Parameter<KernelType>("kernelType",
+            KernelType.class, getResource("GWR.kernelType.title"),
+            getResource("GWR.kernelType.description"), false, 0, 1, KernelType.Quartic, null);
+
+    /** adaptive */
+    public static final Parameter<Boolean> adaptive = new Parameter<Boolean>("adaptive",
+            Boolean.class, getResource("GWR.adaptive.title"),
+            getResource("GWR.adaptive.description"), false, 0, 1, Boolean.FALSE, null);
+
+    /** bandwidth */
+    public static final Parameter<Double> bandwidth = new Parameter<Double>("bandwidth",
+            Double.class, getResource("GWR.bandwidth.title"),
+            getResource("GWR.bandwidth.description"), false, 0, 1, Double.valueOf(0.0), null);
+
+    /** maxNeighbors */
+    public static final Parameter<Integer> maxNeighbors = new Parameter<Integer>("maxNeighbors",
+            Integer.class, getResource("GWR.maxNeighbors.title"),
+            getResource("GWR.maxNeighbors.description"), false, 0, 1,
+            Integer.valueOf(GWROperation.DEFAULT_MAX_NEIGHBORS), null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(dependentVariable.key, dependentVariable);
+        parameterInfo.put(explanatoryVariables.key, explanatoryVariables);
+        parameterInfo.put(kernelType.key, kernelType);
+        parameterInfo.put(adaptive.key, adaptive);
+        parameterInfo.put(bandwidth.key, bandwidth);
+        parameterInfo.put(maxNeighbors.key, maxNeighbors);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<SimpleFeatureCollection> result = new Parameter<SimpleFeatureCollection>(
+            "result", SimpleFeatureCollection.class, getResource("GWR.result.title"),
+            getResource("GWR.result.description"), true, 1, 1, null, new KVP(Params.STYLES,
+                    "OLS.StdResid"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(result.key, result);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
@@ -55,6 +55,14 @@ public class GeometryToRasterProcess extends AbstractStatisticsProcess {
     public static GridCoverage2D process(Geometry inputGeometry,
             CoordinateReferenceSystem forcedCRS, Number defaultValue, RasterPixelType pixelType,
             Double cellSize, ReferencedEnvelope extent, ProgressListener monitor) {
+        return process(inputGeometry, forcedCRS, defaultValue, pixelType, cellSize, extent,
+                Boolean.FALSE, monitor);
+    }
+
+    public static GridCoverage2D process(Geometry inputGeometry,
+            CoordinateReferenceSystem forcedCRS, Number defaultValue, RasterPixelType pixelType,
+            Double cellSize, ReferencedEnvelope extent, Boolean allTouched,
+            ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(GeometryToRasterProcessFactory.inputGeometry.key, inputGeometry);
         map.put(GeometryToRasterProcessFactory.forcedCRS.key, forcedCRS);
@@ -62,6 +70,7 @@ public class GeometryToRasterProcess extends AbstractStatisticsProcess {
         map.put(GeometryToRasterProcessFactory.pixelType.key, pixelType);
         map.put(GeometryToRasterProcessFactory.cellSize.key, cellSize);
         map.put(GeometryToRasterProcessFactory.extent.key, extent);
+        map.put(GeometryToRasterProcessFactory.allTouched.key, allTouched);
 
         Process process = new GeometryToRasterProcess(null);
         Map<String, Object> resultMap;
@@ -112,6 +121,10 @@ public class GeometryToRasterProcess extends AbstractStatisticsProcess {
         ReferencedEnvelope extent = (ReferencedEnvelope) Params.getValue(input,
                 GeometryToRasterProcessFactory.extent, null);
 
+        Boolean allTouched = (Boolean) Params.getValue(input,
+                GeometryToRasterProcessFactory.allTouched,
+                GeometryToRasterProcessFactory.allTouched.sample);
+
         // start process
         if (extent == null) {
             extent = new ReferencedEnvelope(inputGeometry.getEnvelopeInternal(), forcedCRS);
@@ -124,9 +137,11 @@ public class GeometryToRasterProcess extends AbstractStatisticsProcess {
         }
 
         GeometryToRasterOperation process = new GeometryToRasterOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(extent);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
+        process.setAllTouched(allTouched.booleanValue());
 
         GridCoverage2D resultGc = process
                 .execute(inputGeometry, forcedCRS, defaultValue, pixelType);
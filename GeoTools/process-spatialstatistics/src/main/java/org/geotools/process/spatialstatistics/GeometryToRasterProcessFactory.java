@@ -48,7 +48,7 @@ public class GeometryToRasterProcessFactory extends SpatialStatisticsProcessFact
 
     /*
      * GeometryToRaster(Geometry inputGeometry, CoordinateReferenceSystem forcedCRS, Number defaultValue, RasterPixelType pixelType, Double cellSize,
-     * ReferencedEnvelope extent): GridCoverage2D
+     * ReferencedEnvelope extent, Boolean allTouched): GridCoverage2D
      */
 
     public GeometryToRasterProcessFactory() {
@@ -103,6 +103,12 @@ public class GeometryToRasterProcessFactory extends SpatialStatisticsProcessFact
             "extent", ReferencedEnvelope.class, getResource("GeometryToRaster.extent.title"),
             getResource("GeometryToRaster.extent.description"), false, 0, 1, null, null);
 
+    /** allTouched */
+    public static final Parameter<Boolean> allTouched = new Parameter<Boolean>("allTouched",
+            Boolean.class, getResource("GeometryToRaster.allTouched.title"),
+            getResource("GeometryToRaster.allTouched.description"), false, 0, 1, Boolean.FALSE,
+            null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -112,6 +118,7 @@ public class GeometryToRasterProcessFactory extends SpatialStatisticsProcessFact
         parameterInfo.put(pixelType.key, pixelType);
         parameterInfo.put(cellSize.key, cellSize);
         parameterInfo.put(extent.key, extent);
+        parameterInfo.put(allTouched.key, allTouched);
         return parameterInfo;
     }
 
@@ -121,6 +121,7 @@ public class GlobalGStatisticsProcess extends AbstractStatisticsProcess {
         String typeName = inputFeatures.getSchema().getTypeName();
 
         GlobalGStatisticOperation process = new GlobalGStatisticOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -120,6 +120,7 @@ public class GlobalGearysCProcess extends AbstractStatisticsProcess {
         String typeName = inputFeatures.getSchema().getTypeName();
 
         GlobalGearysCOperation process = new GlobalGearysCOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -134,6 +134,7 @@ public class GlobalLeesLProcess extends AbstractStatisticsProcess {
         String typeName = inputFeatures.getSchema().getTypeName();
 
         GlobalLeesLOperation process = new GlobalLeesLOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -128,6 +128,7 @@ public class GlobalLeesSProcess extends AbstractStatisticsProcess {
         String typeName = inputFeatures.getSchema().getTypeName();
 
         GlobalLeesSOperation process = new GlobalLeesSOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
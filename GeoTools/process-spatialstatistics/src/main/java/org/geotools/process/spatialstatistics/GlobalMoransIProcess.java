@@ -120,6 +120,7 @@ public class GlobalMoransIProcess extends AbstractStatisticsProcess {
         String typeName = inputFeatures.getSchema().getTypeName();
 
         GlobalMoranIStatisticOperation process = new GlobalMoranIStatisticOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -94,6 +94,7 @@ public class HexagonProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             HexagonOperation operation = new HexagonOperation();
+            operation.setProgressListener(monitor);
             operation.setBoundsSource(boundsSource);
             operation.setOrientation(orientation);
             resultFc = operation.execute(gridBounds, sideLen);
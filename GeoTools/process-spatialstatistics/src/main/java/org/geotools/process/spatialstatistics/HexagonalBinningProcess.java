@@ -106,6 +106,7 @@ public class HexagonalBinningProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             HexagonalBinningOperation process = new HexagonalBinningOperation();
+            process.setProgressListener(monitor);
             process.setOnlyValidGrid(validGrid);
             resultFc = process.execute(features, weight, bbox, size);
         } catch (IOException e) {
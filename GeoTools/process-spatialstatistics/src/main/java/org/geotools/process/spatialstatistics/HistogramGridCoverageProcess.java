@@ -25,11 +25,11 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.Process;
 import org.geotools.process.ProcessException;
 import org.geotools.process.ProcessFactory;
-import org.geotools.process.spatialstatistics.core.DataHistogram;
 import org.geotools.process.spatialstatistics.core.FormatUtils;
 import org.geotools.process.spatialstatistics.core.HistogramGridCoverage;
 import org.geotools.process.spatialstatistics.core.HistogramProcessResult;
 import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.core.RasterResolution;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterCropOperation;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
 import org.geotools.util.logging.Logging;
@@ -56,10 +56,17 @@ public class HistogramGridCoverageProcess extends AbstractStatisticsProcess {
 
     public static HistogramProcessResult process(GridCoverage2D inputCoverage, Geometry cropShape,
             Integer bandIndex, ProgressListener monitor) {
+        return HistogramGridCoverageProcess.process(inputCoverage, cropShape, bandIndex,
+                Integer.valueOf(0), monitor);
+    }
+
+    public static HistogramProcessResult process(GridCoverage2D inputCoverage, Geometry cropShape,
+            Integer bandIndex, Integer targetPixels, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(HistogramGridCoverageProcessFactory.inputCoverage.key, inputCoverage);
         map.put(HistogramGridCoverageProcessFactory.cropShape.key, cropShape);
         map.put(HistogramGridCoverageProcessFactory.bandIndex.key, bandIndex);
+        map.put(HistogramGridCoverageProcessFactory.targetPixels.key, targetPixels);
 
         Process process = new HistogramGridCoverageProcess(null);
         Map<String, Object> resultMap;
@@ -89,12 +96,16 @@ public class HistogramGridCoverageProcess extends AbstractStatisticsProcess {
         Integer bandIndex = (Integer) Params.getValue(input,
                 HistogramGridCoverageProcessFactory.bandIndex,
                 HistogramGridCoverageProcessFactory.bandIndex.sample);
+        Integer targetPixels = (Integer) Params.getValue(input,
+                HistogramGridCoverageProcessFactory.targetPixels,
+                HistogramGridCoverageProcessFactory.targetPixels.sample);
 
         // start process
         // 1. crop raster
         GridCoverage2D cropedCoverage = inputCoverage;
         if (cropShape != null) {
             RasterCropOperation cropOperation = new RasterCropOperation();
+            cropOperation.setProgressListener(monitor);
             cropedCoverage = cropOperation.execute(inputCoverage, cropShape);
         }
 
@@ -111,7 +122,9 @@ public class HistogramGridCoverageProcess extends AbstractStatisticsProcess {
             double cellSize = RasterHelper.getCellSize(cropedCoverage);
             result.setCellSize(FormatUtils.format(cellSize)); // 6 digit
 
-            DataHistogram process = new HistogramGridCoverage();
+            HistogramGridCoverage process = new HistogramGridCoverage();
+            process.setResolution(RasterResolution.targetPixels(targetPixels.longValue()));
+            process.setProgressListener(monitor);
             process.calculateHistogram(cropedCoverage, bandIndex, noData);
             result.putValues(process.getArrayValues(), process.getArrayFrequencies());
         }
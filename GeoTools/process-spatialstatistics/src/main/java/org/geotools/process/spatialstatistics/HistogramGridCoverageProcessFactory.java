@@ -46,7 +46,8 @@ public class HistogramGridCoverageProcessFactory extends SpatialStatisticsProces
     private static final String PROCESS_NAME = "HistogramGridCoverage";
 
     /*
-     * HistogramGridCoverage(GridCoverage2D inputCoverage, Geometry cropShape, Integer bandIndex): GridCoverage2D
+     * HistogramGridCoverage(GridCoverage2D inputCoverage, Geometry cropShape, Integer bandIndex,
+     * Integer targetPixels): GridCoverage2D
      */
 
     public HistogramGridCoverageProcessFactory() {
@@ -85,12 +86,19 @@ public class HistogramGridCoverageProcessFactory extends SpatialStatisticsProces
             Geometry.class, getResource("HistogramGridCoverage.cropShape.title"),
             getResource("HistogramGridCoverage.cropShape.description"), false, 0, 1, null, null);
 
+    /** targetPixels */
+    public static final Parameter<Integer> targetPixels = new Parameter<Integer>("targetPixels",
+            Integer.class, getResource("HistogramGridCoverage.targetPixels.title"),
+            getResource("HistogramGridCoverage.targetPixels.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
         parameterInfo.put(inputCoverage.key, inputCoverage);
         parameterInfo.put(bandIndex.key, bandIndex);
         parameterInfo.put(cropShape.key, cropShape);
+        parameterInfo.put(targetPixels.key, targetPixels);
         return parameterInfo;
     }
 
@@ -118,6 +118,7 @@ public class HubLinesByDistanceProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             HubLinesByDistanceOperation operation = new HubLinesByDistanceOperation();
+            operation.setProgressListener(monitor);
             operation.setUseBezierCurve(useBezierCurve);
             resultFc = operation.execute(hubFeatures, hubIdField, spokeFeatures, useCentroid,
                     preserveAttributes, maximumDistance, distanceUnit);
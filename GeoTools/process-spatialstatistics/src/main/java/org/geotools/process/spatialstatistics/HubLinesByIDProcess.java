@@ -110,6 +110,7 @@ public class HubLinesByIDProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             HubLinesByIDOperation operation = new HubLinesByIDOperation();
+            operation.setProgressListener(monitor);
             operation.setUseBezierCurve(useBezierCurve);
             resultFc = operation.execute(hubFeatures, hubIdField, spokeFeatures, spokeIdField,
                     useCentroid, preserveAttributes, maximumDistance);
@@ -141,6 +141,7 @@ public class IDWProcess extends AbstractStatisticsProcess {
 
         GridCoverage2D resultGc = null;
         RasterInterpolationIDWOperation process = new RasterInterpolationIDWOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
 
         if (cellSize > 0) {
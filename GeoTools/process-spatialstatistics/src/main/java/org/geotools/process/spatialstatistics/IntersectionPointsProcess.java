@@ -89,6 +89,7 @@ public class IntersectionPointsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             IntersectionPointsOperation operation = new IntersectionPointsOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, intersectFeatures, intersectIDField);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -94,6 +94,7 @@ public class JoinCountStatisticsProcess extends AbstractStatisticsProcess {
         JoinCount joinCount = new JoinCount(typeName, contiguityType);
         try {
             JoinCountStatisticsOperation operation = new JoinCountStatisticsOperation();
+            operation.setProgressListener(monitor);
             joinCount = operation.execute(inputFeatures, blackExpression, contiguityType);
         } catch (IOException e) {
             throw new ProcessException(e);
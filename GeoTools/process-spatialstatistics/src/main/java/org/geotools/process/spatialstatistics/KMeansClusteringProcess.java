@@ -102,6 +102,7 @@ public class KMeansClusteringProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             KMeansClusterOperation operator = new KMeansClusterOperation();
+            operator.setProgressListener(monitor);
             if (asCircle) {
                 resultFc = operator.executeAsCircle(inputFeatures, targetField, numberOfClusters);
             } else {
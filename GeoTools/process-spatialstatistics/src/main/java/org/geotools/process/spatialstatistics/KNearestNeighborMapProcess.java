@@ -91,6 +91,7 @@ public class KNearestNeighborMapProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             KNearestNeighborMapOperation process = new KNearestNeighborMapOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(inputFeatures, neighbor, convexHull);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -111,6 +111,7 @@ public class KernelDensityProcess extends AbstractStatisticsProcess {
 
         GridCoverage2D resultGc = null;
         RasterKernelDensityOperation process = new RasterKernelDensityOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
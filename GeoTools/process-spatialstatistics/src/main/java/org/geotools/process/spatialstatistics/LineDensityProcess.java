@@ -111,6 +111,7 @@ public class LineDensityProcess extends AbstractStatisticsProcess {
 
         GridCoverage2D resultGc = null;
         RasterLineDensityOperation process = new RasterLineDensityOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
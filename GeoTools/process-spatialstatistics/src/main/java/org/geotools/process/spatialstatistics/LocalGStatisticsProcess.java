@@ -119,6 +119,7 @@ public class LocalGStatisticsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
 
         LocalGStatisticOperation process = new LocalGStatisticOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
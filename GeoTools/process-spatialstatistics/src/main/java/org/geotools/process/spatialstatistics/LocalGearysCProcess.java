@@ -118,6 +118,7 @@ public class LocalGearysCProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
 
         LocalGearysCOperation process = new LocalGearysCOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -132,6 +132,7 @@ public class LocalLeesLProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
 
         LocalLeesLOperation process = new LocalLeesLOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -126,6 +126,7 @@ public class LocalLeesSProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
 
         LocalLeesSOperation process = new LocalLeesSOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
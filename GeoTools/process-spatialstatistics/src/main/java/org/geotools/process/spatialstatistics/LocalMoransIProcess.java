@@ -119,6 +119,7 @@ public class LocalMoransIProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
 
         LocalMoranIStatisticOperation process = new LocalMoranIStatisticOperation();
+        process.setProgressListener(monitor);
         process.setSpatialConceptType(spatialConcept);
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
@@ -89,6 +89,7 @@ public class MeanCenterProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             MeanCenterOperation operation = new MeanCenterOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, weightField, caseField, dimensionField);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -27,6 +27,7 @@ import org.geotools.process.Process;
 import org.geotools.process.ProcessException;
 import org.geotools.process.ProcessFactory;
 import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.distribution.MedianCenter;
 import org.geotools.process.spatialstatistics.distribution.MedianCenterOperation;
 import org.geotools.util.logging.Logging;
 import org.opengis.util.ProgressListener;
@@ -51,11 +52,21 @@ public class MedianCenterProcess extends AbstractStatisticsProcess {
 
     public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
             String weightField, String caseField, String attributeFields, ProgressListener monitor) {
+        return process(inputFeatures, weightField, caseField, attributeFields,
+                Double.valueOf(MedianCenter.DEFAULT_TOLERANCE),
+                Integer.valueOf(MedianCenter.DEFAULT_MAX_ITERATIONS), monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String weightField, String caseField, String attributeFields, Double tolerance,
+            Integer maxIterations, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(MedianCenterProcessFactory.inputFeatures.key, inputFeatures);
         map.put(MedianCenterProcessFactory.weightField.key, weightField);
         map.put(MedianCenterProcessFactory.caseField.key, caseField);
         map.put(MedianCenterProcessFactory.attributeFields.key, attributeFields);
+        map.put(MedianCenterProcessFactory.tolerance.key, tolerance);
+        map.put(MedianCenterProcessFactory.maxIterations.key, maxIterations);
 
         Process process = new MedianCenterProcess(null);
         Map<String, Object> resultMap;
@@ -84,6 +95,11 @@ public class MedianCenterProcess extends AbstractStatisticsProcess {
                 null);
         String attributeFields = (String) Params.getValue(input,
                 MedianCenterProcessFactory.attributeFields, null);
+        Double tolerance = (Double) Params.getValue(input, MedianCenterProcessFactory.tolerance,
+                MedianCenterProcessFactory.tolerance.sample);
+        Integer maxIterations = (Integer) Params.getValue(input,
+                MedianCenterProcessFactory.maxIterations,
+                MedianCenterProcessFactory.maxIterations.sample);
 
         // start process
         String[] attFields = null;
@@ -97,6 +113,9 @@ public class MedianCenterProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             MedianCenterOperation operation = new MedianCenterOperation();
+            operation.setProgressListener(monitor);
+            operation.setTolerance(tolerance.doubleValue());
+            operation.setMaxIterations(maxIterations.intValue());
             resultFc = operation.execute(inputFeatures, weightField, caseField, attFields);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -28,6 +28,7 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.NameImpl;
 import org.geotools.process.Process;
 import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.distribution.MedianCenter;
 import org.geotools.util.KVP;
 import org.geotools.util.logging.Logging;
 import org.opengis.util.InternationalString;
@@ -90,6 +91,18 @@ public class MedianCenterProcessFactory extends SpatialStatisticsProcessFactory
             "attributeFields", String.class, getResource("MedianCenter.attributeFields.title"),
             getResource("MedianCenter.attributeFields.description"), false, 0, 1, null, null);
 
+    /** tolerance */
+    public static final Parameter<Double> tolerance = new Parameter<Double>("tolerance",
+            Double.class, getResource("MedianCenter.tolerance.title"),
+            getResource("MedianCenter.tolerance.description"), false, 0, 1,
+            Double.valueOf(MedianCenter.DEFAULT_TOLERANCE), null);
+
+    /** maxIterations */
+    public static final Parameter<Integer> maxIterations = new Parameter<Integer>(
+            "maxIterations", Integer.class, getResource("MedianCenter.maxIterations.title"),
+            getResource("MedianCenter.maxIterations.description"), false, 0, 1,
+            Integer.valueOf(MedianCenter.DEFAULT_MAX_ITERATIONS), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -97,6 +110,8 @@ public class MedianCenterProcessFactory extends SpatialStatisticsProcessFactory
         parameterInfo.put(weightField.key, weightField);
         parameterInfo.put(caseField.key, caseField);
         parameterInfo.put(attributeFields.key, attributeFields);
+        parameterInfo.put(tolerance.key, tolerance);
+        parameterInfo.put(maxIterations.key, maxIterations);
         return parameterInfo;
     }
 
@@ -82,6 +82,7 @@ public class MergeFeaturesProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             MergeFeaturesOperation operation = new MergeFeaturesOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(features, null);
         } catch (IOException e) {
             throw new ProcessException(e);
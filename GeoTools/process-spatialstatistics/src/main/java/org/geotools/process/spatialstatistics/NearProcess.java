@@ -95,6 +95,7 @@ public class NearProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             NearOperation operation = new NearOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, nearFeatures, nearIdField, maximumDistance,
                     distanceUnit);
         } catch (IOException e) {
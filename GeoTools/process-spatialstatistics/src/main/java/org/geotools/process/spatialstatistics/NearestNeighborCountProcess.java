@@ -112,6 +112,7 @@ public class NearestNeighborCountProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             NearestNeighborCountOperation operation = new NearestNeighborCountOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, countField, nearFeatures, searchRadius,
                     radiusUnit);
         } catch (IOException e) {
@@ -85,6 +85,7 @@ public class NearestNeighborProcess extends AbstractStatisticsProcess {
 
         // start process
         NNIOperation operation = new NNIOperation();
+        operation.setProgressListener(monitor);
         operation.setDistanceType(distanceMethod);
         if (area == null) {
             area = Double.valueOf(0.0d);
@@ -89,6 +89,7 @@ public class OLSProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection olsFeatures = null;
         try {
             OLSOperation operation = new OLSOperation();
+            operation.setProgressListener(monitor);
             report = operation.execute(inputFeatures, dependentVariable, explanatoryVariables);
             olsFeatures = operation.getResidualFeatures();
         } catch (IOException e) {
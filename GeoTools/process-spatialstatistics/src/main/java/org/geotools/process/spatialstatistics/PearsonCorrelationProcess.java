@@ -83,6 +83,7 @@ public class PearsonCorrelationProcess extends AbstractStatisticsProcess {
 
         // start process
         PearsonOperation operation = new PearsonOperation();
+        operation.setProgressListener(monitor);
         PearsonResult ret = operation.execute(inputFeatures, inputFields);
         // end process
 
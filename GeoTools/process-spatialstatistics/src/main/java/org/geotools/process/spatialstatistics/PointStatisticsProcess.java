@@ -52,11 +52,19 @@ public class PointStatisticsProcess extends AbstractStatisticsProcess {
     public static SimpleFeatureCollection process(SimpleFeatureCollection polygonFeatures,
             SimpleFeatureCollection pointFeatures, String countField, String statisticsFields,
             ProgressListener monitor) {
+        return process(polygonFeatures, pointFeatures, countField, statisticsFields,
+                Boolean.FALSE, monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection polygonFeatures,
+            SimpleFeatureCollection pointFeatures, String countField, String statisticsFields,
+            Boolean parallel, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(PointStatisticsProcessFactory.polygonFeatures.key, polygonFeatures);
         map.put(PointStatisticsProcessFactory.pointFeatures.key, pointFeatures);
         map.put(PointStatisticsProcessFactory.countField.key, countField);
         map.put(PointStatisticsProcessFactory.statisticsFields.key, statisticsFields);
+        map.put(PointStatisticsProcessFactory.parallel.key, parallel);
 
         Process process = new PointStatisticsProcess(null);
         Map<String, Object> resultMap;
@@ -84,6 +92,8 @@ public class PointStatisticsProcess extends AbstractStatisticsProcess {
         String statisticsFields = (String) Params.getValue(input,
                 PointStatisticsProcessFactory.statisticsFields,
                 PointStatisticsProcessFactory.statisticsFields.sample);
+        Boolean parallel = (Boolean) Params.getValue(input, PointStatisticsProcessFactory.parallel,
+                PointStatisticsProcessFactory.parallel.sample);
         if (polygonFeatures == null || pointFeatures == null) {
             throw new NullPointerException("polygonFeatures and pointFeatures parameters required");
         }
@@ -92,7 +102,9 @@ public class PointStatisticsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             PointStatisticsOperation operation = new PointStatisticsOperation();
+            operation.setProgressListener(monitor);
             operation.setBufferDistance(0.0);
+            operation.setParallel(parallel.booleanValue());
             resultFc = operation.execute(polygonFeatures, countField, statisticsFields,
                     pointFeatures);
         } catch (IOException e) {
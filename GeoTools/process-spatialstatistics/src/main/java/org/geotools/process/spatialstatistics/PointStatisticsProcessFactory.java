@@ -93,6 +93,11 @@ public class PointStatisticsProcessFactory extends SpatialStatisticsProcessFacto
             getResource("PointStatistics.statisticsFields.title"),
             getResource("PointStatistics.statisticsFields.description"), false, 0, 1, null, null);
 
+    /** parallel */
+    public static final Parameter<Boolean> parallel = new Parameter<Boolean>("parallel",
+            Boolean.class, getResource("PointStatistics.parallel.title"),
+            getResource("PointStatistics.parallel.description"), false, 0, 1, Boolean.FALSE, null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -100,6 +105,7 @@ public class PointStatisticsProcessFactory extends SpatialStatisticsProcessFacto
         parameterInfo.put(pointFeatures.key, pointFeatures);
         parameterInfo.put(countField.key, countField);
         parameterInfo.put(statisticsFields.key, statisticsFields);
+        parameterInfo.put(parallel.key, parallel);
         return parameterInfo;
     }
 
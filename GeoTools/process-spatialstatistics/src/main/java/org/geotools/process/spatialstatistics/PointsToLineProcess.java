@@ -104,6 +104,7 @@ public class PointsToLineProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             PointsToLineOperation operation = new PointsToLineOperation();
+            operation.setProgressListener(monitor);
             operation.setUseBezierCurve(useBezierCurve);
             operation.setCloseLine(closeLine);
             operation.setGeodesicLine(geodesicLine);
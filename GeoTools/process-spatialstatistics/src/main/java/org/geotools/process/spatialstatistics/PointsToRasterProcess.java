@@ -105,6 +105,7 @@ public class PointsToRasterProcess extends AbstractStatisticsProcess {
         }
 
         PointsToRasterOperation process = new PointsToRasterOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
         process.getRasterEnvironment().setCellSizeX(cellSize);
         process.getRasterEnvironment().setCellSizeY(cellSize);
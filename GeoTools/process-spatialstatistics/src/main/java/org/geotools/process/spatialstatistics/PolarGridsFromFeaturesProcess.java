@@ -117,6 +117,7 @@ public class PolarGridsFromFeaturesProcess extends AbstractStatisticsProcess
         SimpleFeatureCollection resultFc = null;
         try {
             PolarGridsOperation operation = new PolarGridsOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(origin, bufferRadius, radiusUnit, sides, radialType);
         } catch (IOException e) {
             throw new ProcessException(e);
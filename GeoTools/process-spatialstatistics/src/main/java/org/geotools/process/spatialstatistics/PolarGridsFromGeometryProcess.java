@@ -118,6 +118,7 @@ public class PolarGridsFromGeometryProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             PolarGridsOperation operation = new PolarGridsOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(origin, forcedCRS, bufferRadius, radiusUnit, sides,
                     radialType);
         } catch (IOException e) {
@@ -80,6 +80,7 @@ public class QuadratAnalysisProcess extends AbstractStatisticsProcess {
 
         // start process
         QuadratOperation operator = new QuadratOperation();
+        operator.setProgressListener(monitor);
         QuadratResult result = operator.execute(inputFeatures, cellSize);
         // end process
 
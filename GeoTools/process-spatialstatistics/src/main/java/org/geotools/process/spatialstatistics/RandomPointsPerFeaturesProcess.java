@@ -52,9 +52,15 @@ public class RandomPointsPerFeaturesProcess extends AbstractStatisticsProcess {
 
     public static SimpleFeatureCollection process(SimpleFeatureCollection polygonFeatures,
             Expression expression, ProgressListener monitor) {
+        return process(polygonFeatures, expression, null, monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection polygonFeatures,
+            Expression expression, Long seed, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(RandomPointsPerFeaturesProcessFactory.polygonFeatures.key, polygonFeatures);
         map.put(RandomPointsPerFeaturesProcessFactory.expression.key, expression);
+        map.put(RandomPointsPerFeaturesProcessFactory.seed.key, seed);
 
         Process process = new RandomPointsPerFeaturesProcess(null);
         Map<String, Object> resultMap;
@@ -81,10 +87,17 @@ public class RandomPointsPerFeaturesProcess extends AbstractStatisticsProcess {
             throw new NullPointerException("polygonFeatures, expression parameters required");
         }
 
+        Long seed = (Long) Params.getValue(input, RandomPointsPerFeaturesProcessFactory.seed,
+                null);
+
         // start process
         SimpleFeatureCollection resultFc = null;
         try {
             RandomPointsOperation operator = new RandomPointsOperation();
+            operator.setProgressListener(monitor);
+            if (seed != null) {
+                operator.setRandomSeed(seed.longValue());
+            }
             resultFc = operator.executeperFeatures(polygonFeatures, expression);
         } catch (IOException e) {
             throw new ProcessException(e);
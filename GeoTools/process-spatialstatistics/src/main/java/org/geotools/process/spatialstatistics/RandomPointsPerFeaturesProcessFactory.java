@@ -80,11 +80,17 @@ public class RandomPointsPerFeaturesProcessFactory extends SpatialStatisticsProc
             getResource("RandomPointsPerFeatures.expression.description"), true, 1, 1, null,
             new KVP(Params.FIELD, "polygonFeatures.Number"));
 
+    /** seed */
+    public static final Parameter<Long> seed = new Parameter<Long>("seed", Long.class,
+            getResource("RandomPointsPerFeatures.seed.title"),
+            getResource("RandomPointsPerFeatures.seed.description"), false, 0, 1, null, null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
         parameterInfo.put(polygonFeatures.key, polygonFeatures);
         parameterInfo.put(expression.key, expression);
+        parameterInfo.put(seed.key, seed);
         return parameterInfo;
     }
 
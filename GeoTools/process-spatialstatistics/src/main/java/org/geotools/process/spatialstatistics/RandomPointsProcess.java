@@ -52,9 +52,15 @@ public class RandomPointsProcess extends AbstractStatisticsProcess {
 
     public static SimpleFeatureCollection process(Integer pointCount, ReferencedEnvelope extent,
             ProgressListener monitor) {
+        return process(pointCount, extent, null, monitor);
+    }
+
+    public static SimpleFeatureCollection process(Integer pointCount, ReferencedEnvelope extent,
+            Long seed, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(RandomPointsProcessFactory.pointCount.key, pointCount);
         map.put(RandomPointsProcessFactory.extent.key, extent);
+        map.put(RandomPointsProcessFactory.seed.key, seed);
 
         Process process = new RandomPointsProcess(null);
         Map<String, Object> resultMap;
@@ -70,9 +76,15 @@ public class RandomPointsProcess extends AbstractStatisticsProcess {
 
     public static SimpleFeatureCollection process(Integer pointCount,
             SimpleFeatureCollection inputFeatures, ProgressListener monitor) {
+        return process(pointCount, inputFeatures, null, monitor);
+    }
+
+    public static SimpleFeatureCollection process(Integer pointCount,
+            SimpleFeatureCollection inputFeatures, Long seed, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(RandomPointsProcessFactory.pointCount.key, pointCount);
         map.put(RandomPointsProcessFactory.polygonFeatures.key, inputFeatures);
+        map.put(RandomPointsProcessFactory.seed.key, seed);
 
         Process process = new RandomPointsProcess(null);
         Map<String, Object> resultMap;
@@ -103,10 +115,16 @@ public class RandomPointsProcess extends AbstractStatisticsProcess {
             throw new NullPointerException("extent or polygonFeatures parameters required");
         }
 
+        Long seed = (Long) Params.getValue(input, RandomPointsProcessFactory.seed, null);
+
         // start process
         SimpleFeatureCollection resultFc = null;
         try {
             RandomPointsOperation operator = new RandomPointsOperation();
+            operator.setProgressListener(monitor);
+            if (seed != null) {
+                operator.setRandomSeed(seed.longValue());
+            }
             if (polygonFeatures == null) {
                 resultFc = operator.execute(extent, pointCount);
             } else {
@@ -45,8 +45,8 @@ public class RandomPointsProcessFactory extends SpatialStatisticsProcessFactory
 
     private static final String PROCESS_NAME = "RandomPoints";
 
-    // RandomPoints(Integer pointCount, ReferenceEnvelope extent): SimpleFeatureCollection
-    // RandomPoints(Integer pointCount, SimpleFeatureCollection polygonFeatures): SimpleFeatureCollection
+    // RandomPoints(Integer pointCount, ReferenceEnvelope extent, Long seed): SimpleFeatureCollection
+    // RandomPoints(Integer pointCount, SimpleFeatureCollection polygonFeatures, Long seed): SimpleFeatureCollection
 
     public RandomPointsProcessFactory() {
         super(new NameImpl(NAMESPACE, PROCESS_NAME));
@@ -84,12 +84,18 @@ public class RandomPointsProcessFactory extends SpatialStatisticsProcessFactory
             Integer.class, getResource("RandomPoints.pointCount.title"),
             getResource("RandomPoints.pointCount.description"), true, 1, 1, 1000, null);
 
+    /** seed */
+    public static final Parameter<Long> seed = new Parameter<Long>("seed", Long.class,
+            getResource("RandomPoints.seed.title"), getResource("RandomPoints.seed.description"),
+            false, 0, 1, null, null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
         parameterInfo.put(extent.key, extent);
         parameterInfo.put(polygonFeatures.key, polygonFeatures);
         parameterInfo.put(pointCount.key, pointCount);
+        parameterInfo.put(seed.key, seed);
         return parameterInfo;
     }
 
@@ -77,6 +77,7 @@ public class RasterAspectProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterAspectOperation process = new RasterAspectOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
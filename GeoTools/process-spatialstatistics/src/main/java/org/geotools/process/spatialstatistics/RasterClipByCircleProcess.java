@@ -99,6 +99,7 @@ public class RasterClipByCircleProcess extends AbstractStatisticsProcess {
         }
 
         RasterClipOperation cropOperation = new RasterClipOperation();
+        cropOperation.setProgressListener(monitor);
         GridCoverage2D cropedCoverage = cropOperation.execute(inputCoverage, cropShape);
         // end process
 
@@ -105,6 +105,7 @@ public class RasterClipByExtentProcess extends AbstractStatisticsProcess {
         }
 
         RasterClipOperation cropOperation = new RasterClipOperation();
+        cropOperation.setProgressListener(monitor);
         GridCoverage2D cropedCoverage = cropOperation.execute(inputCoverage, extent);
         // end process
 
@@ -106,6 +106,7 @@ public class RasterClipByFeaturesProcess extends AbstractStatisticsProcess {
         GridCoverage2D cropedCoverage = inputCoverage;
         if (!cropShape.isEmpty()) {
             RasterClipOperation cropOperation = new RasterClipOperation();
+            cropOperation.setProgressListener(monitor);
             cropedCoverage = cropOperation.execute(inputCoverage, cropShape);
         }
         // end process
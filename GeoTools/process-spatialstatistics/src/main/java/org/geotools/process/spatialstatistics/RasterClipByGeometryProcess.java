@@ -85,6 +85,7 @@ public class RasterClipByGeometryProcess extends AbstractStatisticsProcess {
         cropShape = transformGeometry(cropShape, tCrs);
 
         RasterClipOperation cropOperation = new RasterClipOperation();
+        cropOperation.setProgressListener(monitor);
         GridCoverage2D cropedCoverage = cropOperation.execute(inputCoverage, cropShape);
         // end process
 
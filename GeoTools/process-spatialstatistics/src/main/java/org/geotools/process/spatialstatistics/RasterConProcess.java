@@ -89,6 +89,7 @@ public class RasterConProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterConditionalOperation process = new RasterConditionalOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D cropedCoverage = process.execute(inputCoverage, bandIndex, filter,
                 trueValue, falseValue);
         // end process
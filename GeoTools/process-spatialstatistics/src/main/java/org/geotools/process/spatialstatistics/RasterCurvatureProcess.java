@@ -86,6 +86,7 @@ public class RasterCurvatureProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterCurvatureOperation process = new RasterCurvatureOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, zFactor);
         // end process
 
@@ -26,6 +26,7 @@ import org.geotools.process.Process;
 import org.geotools.process.ProcessException;
 import org.geotools.process.ProcessFactory;
 import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.core.RasterResolution;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterDescribeOperation;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterDescribeOperation.RasterDescribeResult;
 import org.geotools.util.logging.Logging;
@@ -51,9 +52,15 @@ public class RasterDescribeProcess extends AbstractStatisticsProcess {
 
     public static GridCoverage2D process(GridCoverage2D inputCoverage, Boolean detailed,
             ProgressListener monitor) {
+        return RasterDescribeProcess.process(inputCoverage, detailed, Integer.valueOf(0), monitor);
+    }
+
+    public static GridCoverage2D process(GridCoverage2D inputCoverage, Boolean detailed,
+            Integer targetPixels, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(RasterDescribeProcessFactory.inputCoverage.key, inputCoverage);
         map.put(RasterDescribeProcessFactory.detailed.key, detailed);
+        map.put(RasterDescribeProcessFactory.targetPixels.key, targetPixels);
 
         Process process = new RasterDescribeProcess(null);
         Map<String, Object> resultMap;
@@ -79,9 +86,13 @@ public class RasterDescribeProcess extends AbstractStatisticsProcess {
 
         Boolean detailed = (Boolean) Params.getValue(input, RasterDescribeProcessFactory.detailed,
                 RasterDescribeProcessFactory.detailed.sample);
+        Integer targetPixels = (Integer) Params.getValue(input,
+                RasterDescribeProcessFactory.targetPixels,
+                RasterDescribeProcessFactory.targetPixels.sample);
 
         // start process
         RasterDescribeOperation process = new RasterDescribeOperation();
+        process.setResolution(RasterResolution.targetPixels(targetPixels.longValue()));
         RasterDescribeResult description = process.execute(inputCoverage, detailed);
         // end process
 
@@ -44,7 +44,8 @@ public class RasterDescribeProcessFactory extends SpatialStatisticsProcessFactor
     private static final String PROCESS_NAME = "RasterDescribe";
 
     /*
-     * RasterDescribe(GridCoverage2D inputCoverage, Boolean detailed): RasterDescribeResult
+     * RasterDescribe(GridCoverage2D inputCoverage, Boolean detailed, Integer targetPixels):
+     * RasterDescribeResult
      */
 
     public RasterDescribeProcessFactory() {
@@ -77,11 +78,18 @@ public class RasterDescribeProcessFactory extends SpatialStatisticsProcessFactor
             Boolean.class, getResource("RasterDescribe.detailed.title"),
             getResource("RasterDescribe.detailed.description"), false, 0, 1, Boolean.FALSE, null);
 
+    /** targetPixels */
+    public static final Parameter<Integer> targetPixels = new Parameter<Integer>("targetPixels",
+            Integer.class, getResource("RasterDescribe.targetPixels.title"),
+            getResource("RasterDescribe.targetPixels.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
         parameterInfo.put(inputCoverage.key, inputCoverage);
         parameterInfo.put(detailed.key, detailed);
+        parameterInfo.put(targetPixels.key, targetPixels);
         return parameterInfo;
     }
 
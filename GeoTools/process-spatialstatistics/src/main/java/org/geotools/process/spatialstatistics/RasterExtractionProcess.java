@@ -85,6 +85,7 @@ public class RasterExtractionProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterExtractionOperation process = new RasterExtractionOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, bandIndex, filter);
         // end process
 
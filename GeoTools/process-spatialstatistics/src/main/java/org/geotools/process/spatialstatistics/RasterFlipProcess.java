@@ -76,6 +76,7 @@ public class RasterFlipProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterFlipOperation process = new RasterFlipOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.Parameter;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.InternationalString;
+
+/**
+ * RasterFlowAccumulationProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterFlowAccumulationProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(RasterFlowAccumulationProcessFactory.class);
+
+    private static final String PROCESS_NAME = "RasterFlowAccumulation";
+
+    /*
+     * RasterFlowAccumulation(GridCoverage2D inputCoverage, GridCoverage2D weightCoverage): GridCoverage2D
+     */
+
+    public RasterFlowAccumulationProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new RasterFlowAccumulationProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("RasterFlowAccumulation.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("RasterFlowAccumulation.description");
+    }
+
+    /** inputCoverage */
+    public static final Parameter<GridCoverage2D> inputCoverage = new Parameter<GridCoverage2D>(
+            "inputCoverage", GridCoverage2D.class, getResource("RasterFlowAccumulation.inputCoverage.title"),
+            getResource("RasterFlowAccumulation.inputCoverage.description"), true, 1, 1, null, null);
+
+    /** weightCoverage */
+    public static final Parameter<GridCoverage2D> weightCoverage = new Parameter<GridCoverage2D>(
+            "weightCoverage", GridCoverage2D.class, getResource("RasterFlowAccumulation.weightCoverage.title"),
+            getResource("RasterFlowAccumulation.weightCoverage.description"), false, 0, 1, null, null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputCoverage.key, inputCoverage);
+        parameterInfo.put(weightCoverage.key, weightCoverage);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<GridCoverage2D> RESULT = new Parameter<GridCoverage2D>("result",
+            GridCoverage2D.class, getResource("RasterFlowAccumulation.result.title"),
+            getResource("RasterFlowAccumulation.result.description"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
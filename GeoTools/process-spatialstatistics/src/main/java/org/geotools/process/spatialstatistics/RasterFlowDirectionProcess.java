@@ -76,6 +76,7 @@ public class RasterFlowDirectionProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterFlowDirectionOperation process = new RasterFlowDirectionOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
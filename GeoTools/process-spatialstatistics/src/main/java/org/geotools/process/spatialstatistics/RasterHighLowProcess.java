@@ -97,6 +97,7 @@ public class RasterHighLowProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             RasterHighLowPointsOperation process = new RasterHighLowPointsOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(inputCoverage, bandIndex, cropShape, valueType);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -89,6 +89,7 @@ public class RasterHillshadeProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterHillshadeOperation process = new RasterHillshadeOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, azimuth, altitude, zFactor);
         // end process
 
@@ -84,6 +84,7 @@ public class RasterMathProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterMathOperation process = new RasterMathOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, bandIndex, expression);
         // end process
 
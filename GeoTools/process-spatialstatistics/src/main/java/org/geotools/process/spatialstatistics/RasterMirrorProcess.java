@@ -76,6 +76,7 @@ public class RasterMirrorProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterMirrorOperation process = new RasterMirrorOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
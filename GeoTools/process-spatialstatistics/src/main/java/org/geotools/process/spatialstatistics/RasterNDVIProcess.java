@@ -86,6 +86,7 @@ public class RasterNDVIProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterNDVIOperation process = new RasterNDVIOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(nirCoverage, nirIndex, redCoverage, redIndex);
         // end process
 
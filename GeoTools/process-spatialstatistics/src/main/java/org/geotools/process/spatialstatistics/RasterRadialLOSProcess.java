@@ -118,6 +118,7 @@ public class RasterRadialLOSProcess extends AbstractStatisticsProcess {
         observerPoint = transformGeometry(observerPoint, crs);
 
         RadialLOSOperation process = new RadialLOSOperation();
+        process.setProgressListener(monitor);
         SimpleFeatureCollection resultSfc = process.execute(inputCoverage, observerPoint,
                 observerOffset, radius, sides, useCurvature, useRefraction, refractionFactor);
         // end process
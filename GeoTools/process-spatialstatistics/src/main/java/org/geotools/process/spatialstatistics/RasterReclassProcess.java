@@ -50,11 +50,18 @@ public class RasterReclassProcess extends AbstractStatisticsProcess {
 
     public static GridCoverage2D process(GridCoverage2D inputCoverage, Integer bandIndex,
             String ranges, Boolean retainMissingValues, ProgressListener monitor) {
+        return process(inputCoverage, bandIndex, ranges, retainMissingValues, Boolean.FALSE,
+                monitor);
+    }
+
+    public static GridCoverage2D process(GridCoverage2D inputCoverage, Integer bandIndex,
+            String ranges, Boolean retainMissingValues, Boolean lazy, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(RasterReclassProcessFactory.inputCoverage.key, inputCoverage);
         map.put(RasterReclassProcessFactory.bandIndex.key, bandIndex);
         map.put(RasterReclassProcessFactory.ranges.key, ranges);
         map.put(RasterReclassProcessFactory.retainMissingValues.key, retainMissingValues);
+        map.put(RasterReclassProcessFactory.lazy.key, lazy);
 
         Process process = new RasterReclassProcess(null);
         Map<String, Object> resultMap;
@@ -80,12 +87,16 @@ public class RasterReclassProcess extends AbstractStatisticsProcess {
         Boolean retainMissingValues = (Boolean) Params.getValue(input,
                 RasterReclassProcessFactory.retainMissingValues,
                 RasterReclassProcessFactory.retainMissingValues.sample);
+        Boolean lazy = (Boolean) Params.getValue(input, RasterReclassProcessFactory.lazy,
+                RasterReclassProcessFactory.lazy.sample);
         if (inputCoverage == null || ranges == null || ranges.isEmpty()) {
             throw new NullPointerException("inputCoverage, ranges parameters required");
         }
 
         // start process
         RasterReclassOperation process = new RasterReclassOperation();
+        process.setProgressListener(monitor);
+        process.setLazy(lazy.booleanValue());
         GridCoverage2D cropedCoverage = process.execute(inputCoverage, bandIndex, ranges,
                 retainMissingValues);
         // end process
@@ -89,6 +89,11 @@ public class RasterReclassProcessFactory extends SpatialStatisticsProcessFactory
             getResource("RasterReclass.retainMissingValues.description"), false, 0, 1,
             Boolean.TRUE, null);
 
+    /** lazy */
+    public static final Parameter<Boolean> lazy = new Parameter<Boolean>("lazy", Boolean.class,
+            getResource("RasterReclass.lazy.title"),
+            getResource("RasterReclass.lazy.description"), false, 0, 1, Boolean.FALSE, null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -96,6 +101,7 @@ public class RasterReclassProcessFactory extends SpatialStatisticsProcessFactory
         parameterInfo.put(bandIndex.key, bandIndex);
         parameterInfo.put(ranges.key, ranges);
         parameterInfo.put(retainMissingValues.key, retainMissingValues);
+        parameterInfo.put(lazy.key, lazy);
         return parameterInfo;
     }
 
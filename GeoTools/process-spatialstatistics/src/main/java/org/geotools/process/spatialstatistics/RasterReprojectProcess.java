@@ -96,6 +96,7 @@ public class RasterReprojectProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterReprojectOperation process = new RasterReprojectOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, targetCRS, resamplingType,
                 cellSize, cellSize, forcedCRS);
         // end process
@@ -90,6 +90,7 @@ public class RasterResampleProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterResampleOperation process = new RasterResampleOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, cellSize, cellSize, resamplingType);
         // end process
 
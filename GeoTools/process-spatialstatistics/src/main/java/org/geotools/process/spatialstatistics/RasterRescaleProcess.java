@@ -88,6 +88,7 @@ public class RasterRescaleProcess extends AbstractStatisticsProcess {
         if (xScale != 0d || yScale != 0d) {
             // start process
             RasterRescaleOperation process = new RasterRescaleOperation();
+            process.setProgressListener(monitor);
             extractedGC = process.execute(inputCoverage, xScale, yScale);
             // end process
         }
@@ -109,6 +109,7 @@ public class RasterRotateProcess extends AbstractStatisticsProcess {
             }
 
             RasterRotateOperation process = new RasterRotateOperation();
+            process.setProgressListener(monitor);
             process.setInterpolation(interpolation);
 
             if (anchorPoint == null) {
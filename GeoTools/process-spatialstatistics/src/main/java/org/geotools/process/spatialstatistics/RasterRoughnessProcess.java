@@ -77,6 +77,7 @@ public class RasterRoughnessProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterRoughnessOperation process = new RasterRoughnessOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
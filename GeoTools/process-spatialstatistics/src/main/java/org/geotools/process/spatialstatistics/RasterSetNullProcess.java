@@ -92,6 +92,7 @@ public class RasterSetNullProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterSetNullOperation process = new RasterSetNullOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D cropedCoverage = process.execute(inputCoverage, bandIndex, filter,
                 replaceNoData, newValue);
         // end process
@@ -88,6 +88,7 @@ public class RasterShiftProcess extends AbstractStatisticsProcess {
         if (xShift != 0d || yShift != 0d) {
             // start process
             RasterShiftOperation process = new RasterShiftOperation();
+            process.setProgressListener(monitor);
             extractedGC = process.execute(inputCoverage, xShift, yShift);
             // end process
         }
@@ -86,6 +86,7 @@ public class RasterSlopeProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterSlopeOperation process = new RasterSlopeOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage, slopeType, zFactor);
         // end process
 
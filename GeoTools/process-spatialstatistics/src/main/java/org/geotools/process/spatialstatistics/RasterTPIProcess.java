@@ -77,6 +77,7 @@ public class RasterTPIProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterTPIOperation process = new RasterTPIOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
@@ -78,6 +78,7 @@ public class RasterTRIProcess extends AbstractStatisticsProcess {
 
         // start process
         RasterTRIOperation process = new RasterTRIOperation();
+        process.setProgressListener(monitor);
         GridCoverage2D extractedGC = process.execute(inputCoverage);
         // end process
 
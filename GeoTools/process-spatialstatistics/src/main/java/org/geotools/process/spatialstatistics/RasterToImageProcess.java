@@ -17,6 +17,7 @@
 package org.geotools.process.spatialstatistics;
 
 import java.awt.Color;
+import java.awt.image.RenderedImage;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -29,10 +30,14 @@ import org.geotools.process.ProcessException;
 import org.geotools.process.ProcessFactory;
 import org.geotools.process.spatialstatistics.core.MapToImageParam;
 import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.core.RasterPyramid;
 import org.geotools.process.spatialstatistics.styler.SSStyleBuilder;
+import org.geotools.referencing.CRS;
 import org.geotools.styling.Style;
 import org.geotools.util.logging.Logging;
+import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
 import org.opengis.util.ProgressListener;
 
 /**
@@ -131,7 +136,7 @@ public class RasterToImageProcess extends AbstractStatisticsProcess {
 
         // start process
         MapToImageParam mapImage = new MapToImageParam();
-        mapImage.setInputCoverage(coverage);
+        mapImage.setInputCoverage(getPreviewCoverage(coverage, mapExtent, width, height));
         mapImage.setStyle(style);
         mapImage.setBackgroundColor(backgroundColor);
         mapImage.setWidth(width);
@@ -147,6 +152,40 @@ public class RasterToImageProcess extends AbstractStatisticsProcess {
         return resultMap;
     }
 
+    /**
+     * Returns the window of the coarsest overview whose cells are still smaller than the pixels of
+     * the map.
+     */
+    private GridCoverage2D getPreviewCoverage(GridCoverage2D coverage,
+            ReferencedEnvelope mapExtent, int width, int height) {
+        try {
+            ReferencedEnvelope view = mapExtent;
+            CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem();
+            CoordinateReferenceSystem mapCrs = mapExtent.getCoordinateReferenceSystem();
+            if (crs != null && mapCrs != null && !CRS.equalsIgnoreMetadata(crs, mapCrs)) {
+                view = mapExtent.transform(crs, true);
+            }
+
+            RenderedImage image = coverage.getRenderedImage();
+            double cellSizeX = coverage.getEnvelope().getSpan(0) / image.getWidth();
+            double cellSizeY = coverage.getEnvelope().getSpan(1) / image.getHeight();
+            double pixelSizeX = view.getWidth() / width;
+            double pixelSizeY = view.getHeight() / height;
+
+            int level = 0;
+            while (level < 30 && cellSizeX * (1L << (level + 1)) <= pixelSizeX
+                    && cellSizeY * (1L << (level + 1)) <= pixelSizeY) {
+                level++;
+            }
+            return RasterPyramid.getOverview(coverage, level, view);
+        } catch (TransformException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        } catch (FactoryException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+        return coverage;
+    }
+
     private ReferencedEnvelope getBoundingBox(String bBox, CoordinateReferenceSystem crs) {
         if (bBox == null || bBox.isEmpty()) {
             return new ReferencedEnvelope();
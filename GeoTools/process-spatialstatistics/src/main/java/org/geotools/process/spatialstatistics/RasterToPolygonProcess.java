@@ -93,6 +93,7 @@ public class RasterToPolygonProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc;
         try {
             RasterToPolygonOperation process = new RasterToPolygonOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(inputCoverage, bandIndex, weeding, valueField);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -106,6 +106,7 @@ public class RasterZonalStatisticsProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection result = null;
         try {
             RasterZonalOperation process = new RasterZonalOperation();
+            process.setProgressListener(monitor);
             result = process.execute(zoneFeatures, targetField, valueCoverage, bandIndex,
                     statisticsType);
         } catch (IOException e) {
@@ -111,6 +111,7 @@ public class RectangularBinningProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             RectangularBinningOperation process = new RectangularBinningOperation();
+            process.setProgressListener(monitor);
             process.setOnlyValidGrid(validGrid);
             resultFc = process.execute(features, weight, bbox, width, height);
         } catch (IOException e) {
@@ -89,6 +89,7 @@ public class RingMapProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection anchorFc = null;
         try {
             RingMapsOperation operation = new RingMapsOperation();
+            operation.setProgressListener(monitor);
             if (operation.execute(inputFeatures, fields, targetField, ringGap)) {
                 ringFc = operation.getRingFc();
                 anchorFc = operation.getAnchorFc();
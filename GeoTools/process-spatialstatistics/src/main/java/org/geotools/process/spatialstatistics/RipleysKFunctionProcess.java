@@ -0,0 +1,113 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation.RipleysKResult;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Determines whether features exhibit statistically significant clustering or dispersion over a range of distances (Ripley's K function).
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RipleysKFunctionProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(RipleysKFunctionProcess.class);
+
+    public RipleysKFunctionProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static RipleysKResult process(SimpleFeatureCollection inputFeatures,
+            Integer numberOfBands, Double beginDistance, Double distanceIncrement,
+            Boolean edgeCorrection, Integer permutations, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(RipleysKFunctionProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(RipleysKFunctionProcessFactory.numberOfBands.key, numberOfBands);
+        map.put(RipleysKFunctionProcessFactory.beginDistance.key, beginDistance);
+        map.put(RipleysKFunctionProcessFactory.distanceIncrement.key, distanceIncrement);
+        map.put(RipleysKFunctionProcessFactory.edgeCorrection.key, edgeCorrection);
+        map.put(RipleysKFunctionProcessFactory.permutations.key, permutations);
+
+        Process process = new RipleysKFunctionProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+            return (RipleysKResult) resultMap.get(RipleysKFunctionProcessFactory.RESULT.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                RipleysKFunctionProcessFactory.inputFeatures, null);
+        if (inputFeatures == null) {
+            throw new NullPointerException("inputFeatures parameters required");
+        }
+        Integer numberOfBands = (Integer) Params.getValue(input,
+                RipleysKFunctionProcessFactory.numberOfBands,
+                RipleysKFunctionProcessFactory.numberOfBands.sample);
+        Double beginDistance = (Double) Params.getValue(input,
+                RipleysKFunctionProcessFactory.beginDistance, Double.valueOf(0.0));
+        Double distanceIncrement = (Double) Params.getValue(input,
+                RipleysKFunctionProcessFactory.distanceIncrement, Double.valueOf(0.0));
+        Boolean edgeCorrection = (Boolean) Params.getValue(input,
+                RipleysKFunctionProcessFactory.edgeCorrection,
+                RipleysKFunctionProcessFactory.edgeCorrection.sample);
+        Integer permutations = (Integer) Params.getValue(input,
+                RipleysKFunctionProcessFactory.permutations,
+                RipleysKFunctionProcessFactory.permutations.sample);
+
+        // start process
+        RipleysKFunctionOperation operation = new RipleysKFunctionOperation();
+        operation.setProgressListener(monitor);
+        operation.setNumberOfBands(numberOfBands);
+        operation.setBeginDistance(beginDistance);
+        operation.setDistanceIncrement(distanceIncrement);
+        operation.setEdgeCorrection(edgeCorrection);
+        operation.setPermutations(permutations);
+        RipleysKResult result = operation.execute(inputFeatures);
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(RipleysKFunctionProcessFactory.RESULT.key, result);
+        return resultMap;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.data.Parameter;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation.RipleysKResult;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.InternationalString;
+
+/**
+ * RipleysKFunctionProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RipleysKFunctionProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(RipleysKFunctionProcessFactory.class);
+
+    private static final String PROCESS_NAME = "RipleysKFunction";
+
+    /*
+     * RipleysKFunction(SimpleFeatureCollection inputFeatures, Integer numberOfBands, Double beginDistance, Double distanceIncrement, Boolean edgeCorrection, Integer permutations): XML
+     */
+
+    public RipleysKFunctionProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new RipleysKFunctionProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("RipleysKFunction.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("RipleysKFunction.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class,
+            getResource("RipleysKFunction.inputFeatures.title"),
+            getResource("RipleysKFunction.inputFeatures.description"), true, 1, 1, null, null);
+
+    /** numberOfBands */
+    public static final Parameter<Integer> numberOfBands = new Parameter<Integer>(
+            "numberOfBands", Integer.class, getResource("RipleysKFunction.numberOfBands.title"),
+            getResource("RipleysKFunction.numberOfBands.description"), false, 0, 1,
+            Integer.valueOf(10), null);
+
+    /** beginDistance */
+    public static final Parameter<Double> beginDistance = new Parameter<Double>("beginDistance",
+            Double.class, getResource("RipleysKFunction.beginDistance.title"),
+            getResource("RipleysKFunction.beginDistance.description"), false, 0, 1,
+            Double.valueOf(0.0), null);
+
+    /** distanceIncrement */
+    public static final Parameter<Double> distanceIncrement = new Parameter<Double>(
+            "distanceIncrement", Double.class,
+            getResource("RipleysKFunction.distanceIncrement.title"),
+            getResource("RipleysKFunction.distanceIncrement.description"), false, 0, 1,
+            Double.valueOf(0.0), null);
+
+    /** edgeCorrection */
+    public static final Parameter<Boolean> edgeCorrection = new Parameter<Boolean>(
+            "edgeCorrection", Boolean.class, getResource("RipleysKFunction.edgeCorrection.title"),
+            getResource("RipleysKFunction.edgeCorrection.description"), false, 0, 1,
+            Boolean.TRUE, null);
+
+    /** permutations */
+    public static final Parameter<Integer> permutations = new Parameter<Integer>("permutations",
+            Integer.class, getResource("RipleysKFunction.permutations.title"),
+            getResource("RipleysKFunction.permutations.description"), false, 0, 1,
+            Integer.valueOf(9), null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(numberOfBands.key, numberOfBands);
+        parameterInfo.put(beginDistance.key, beginDistance);
+        parameterInfo.put(distanceIncrement.key, distanceIncrement);
+        parameterInfo.put(edgeCorrection.key, edgeCorrection);
+        parameterInfo.put(permutations.key, permutations);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<RipleysKResult> RESULT = new Parameter<RipleysKResult>(
+            "result", RipleysKResult.class, getResource("RipleysKFunction.result.title"),
+            getResource("RipleysKFunction.result.description"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
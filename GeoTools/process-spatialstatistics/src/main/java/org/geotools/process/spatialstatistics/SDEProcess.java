@@ -96,6 +96,7 @@ public class SDEProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             StandardDeviationalEllipseOperation process = new StandardDeviationalEllipseOperation();
+            process.setProgressListener(monitor);
             process.setStdDeviation(stdDeviation);
             resultFc = process.execute(inputFeatures, weightField, caseField);
         } catch (IOException e) {
@@ -95,6 +95,7 @@ public class SDProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             StandardDistanceOperation process = new StandardDistanceOperation();
+            process.setProgressListener(monitor);
             process.setStdDeviation(stdDeviation);
             resultFc = process.execute(inputFeatures, weightField, caseField);
         } catch (IOException e) {
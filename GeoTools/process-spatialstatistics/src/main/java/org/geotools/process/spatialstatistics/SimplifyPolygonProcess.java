@@ -99,6 +99,7 @@ public class SimplifyPolygonProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = inputFeatures;
         if (tolerance > 0d) {
             SimplifyPolygonFeaturesOperation process = new SimplifyPolygonFeaturesOperation();
+            process.setProgressListener(monitor);
             try {
                 resultFc = process.execute(inputFeatures, tolerance, preserveTopology, minimumArea);
             } catch (IOException e) {
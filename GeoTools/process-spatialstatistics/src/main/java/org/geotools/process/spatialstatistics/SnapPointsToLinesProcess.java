@@ -90,6 +90,7 @@ public class SnapPointsToLinesProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             SnapPointsToLinesOperation operation = new SnapPointsToLinesOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(pointFeatures, lineFeatures, tolerance);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -102,6 +102,7 @@ public class SpatialJoinProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             SpatialJoinOperation operation = new SpatialJoinOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, joinFeatures, joinType, searchRadius,
                     radiusUnit);
         } catch (IOException e) {
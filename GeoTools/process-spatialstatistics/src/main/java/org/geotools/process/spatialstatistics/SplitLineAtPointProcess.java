@@ -89,6 +89,7 @@ public class SplitLineAtPointProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             SplitLineAtPointOperation operation = new SplitLineAtPointOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(lineFeatures, pointFeatures, tolerance);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -91,6 +91,7 @@ public class StandardizedScoresProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             StandardizedScoresOperation process = new StandardizedScoresOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(inputFeatures, xField, yField, targetField);
         } catch (IOException e) {
             throw new ProcessException(e);
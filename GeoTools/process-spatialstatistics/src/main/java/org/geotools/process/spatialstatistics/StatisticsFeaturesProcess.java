@@ -90,6 +90,7 @@ public class StatisticsFeaturesProcess extends AbstractStatisticsProcess {
 
         // start process
         DataStatisticsOperation operator = new DataStatisticsOperation();
+        operator.setProgressListener(monitor);
         DataStatisticsResult result = operator.execute(inputFeatures, inputFields, caseField);
         // end process
 
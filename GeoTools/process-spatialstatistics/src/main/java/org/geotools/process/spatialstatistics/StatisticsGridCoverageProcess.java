@@ -87,6 +87,7 @@ public class StatisticsGridCoverageProcess extends AbstractStatisticsProcess {
 
         // start process
         DataStatisticsOperation operator = new DataStatisticsOperation();
+        operator.setProgressListener(monitor);
         DataStatisticsResult result = operator.execute(inputCoverage, cropShape, bandIndex);
         // end process
 
@@ -90,6 +90,7 @@ public class SumLineLengthProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             CalculateSumLineLengthOperation process = new CalculateSumLineLengthOperation();
+            process.setProgressListener(monitor);
             resultFc = process.execute(polygons, lengthField, countField, lines);
         } catch (IOException e) {
             throw new ProcessException(e);
@@ -107,6 +107,7 @@ public class TPSProcess extends AbstractStatisticsProcess {
 
         GridCoverage2D resultGc = null;
         RasterInterpolationTPSOperation process = new RasterInterpolationTPSOperation();
+        process.setProgressListener(monitor);
         process.getRasterEnvironment().setExtent(boundingBox);
 
         if (cellSize > 0) {
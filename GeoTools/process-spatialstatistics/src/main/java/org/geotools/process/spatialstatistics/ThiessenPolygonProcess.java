@@ -91,6 +91,7 @@ public class ThiessenPolygonProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             ThiessenPolygonOperation operation = new ThiessenPolygonOperation();
+            operation.setProgressListener(monitor);
             operation.setAttributeMode(attributes);
             if (clipArea != null) {
                 operation.setClipArea(clipArea);
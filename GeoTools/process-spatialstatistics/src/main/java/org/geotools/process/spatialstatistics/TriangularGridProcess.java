@@ -95,6 +95,7 @@ public class TriangularGridProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             TriangularGridOperation operation = new TriangularGridOperation();
+            operation.setProgressListener(monitor);
             operation.setBoundsSource(boundsSource);
             operation.setOrientation(orientation);
             resultFc = operation.execute(gridBounds, size);
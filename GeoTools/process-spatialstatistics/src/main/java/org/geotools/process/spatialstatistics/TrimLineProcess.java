@@ -91,6 +91,7 @@ public class TrimLineProcess extends AbstractStatisticsProcess {
         SimpleFeatureCollection resultFc = null;
         try {
             TrimLineOperation operation = new TrimLineOperation();
+            operation.setProgressListener(monitor);
             resultFc = operation.execute(inputFeatures, dangleLength, deleteShort);
         } catch (IOException e) {
             throw new ProcessException(e);
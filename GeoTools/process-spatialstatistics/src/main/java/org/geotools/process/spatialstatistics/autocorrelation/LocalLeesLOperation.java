@@ -24,6 +24,7 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FormatUtils;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
@@ -103,7 +104,9 @@ public class LocalLeesLOperation extends AbstractStatisticsOperation {
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
+        ProgressTracker tracker = new ProgressTracker(progressListener, featureCount);
         for (int i = 0; i < featureCount; i++) {
+            tracker.worked(1);
             SpatialEvent source = swMatrix.getEvents().get(i);
 
             // initialize working variables.
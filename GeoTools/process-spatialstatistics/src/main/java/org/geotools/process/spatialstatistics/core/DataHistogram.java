@@ -36,15 +36,19 @@ public abstract class DataHistogram {
 
     private long maxSampleSize = 999999;
 
-    private int missingValueCount = 0;
+    private int maxBinCount = 256;
 
-    protected int count = 0;
+    private long missingValueCount = 0;
+
+    protected long count = 0;
 
     protected double sumOfVals = 0;
 
+    protected StreamingStatistics statistics = null;
+
     String normalProperty = null;
 
-    public int getCount() {
+    public long getCount() {
         return count;
     }
 
@@ -60,6 +64,30 @@ public abstract class DataHistogram {
         this.maxSampleSize = sampleSize;
     }
 
+    public int getMaxBinCount() {
+        return maxBinCount;
+    }
+
+    /**
+     * Sets the number of equal interval bins used when the data has more distinct values than
+     * bins. Data with fewer distinct values is counted exactly.
+     */
+    public void setMaxBinCount(int maxBinCount) {
+        this.maxBinCount = Math.max(1, maxBinCount);
+    }
+
+    /**
+     * Returns the approximate value below which the given fraction (0 - 1) of the values fall, or
+     * NaN if no histogram was calculated.
+     */
+    public double getQuantile(double fraction) {
+        return statistics == null ? Double.NaN : statistics.getQuantile(fraction);
+    }
+
+    public StreamingStatistics getStatistics() {
+        return statistics;
+    }
+
     public long getMissingValueCount() {
         return missingValueCount;
     }
@@ -17,7 +17,11 @@
 package org.geotools.process.spatialstatistics.core;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,17 +32,30 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.store.ContentFeatureCollection;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.collection.AbstractFeatureCollection;
 import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
 import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.index.strtree.STRtree;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.Intersects;
 
 /**
  * Utility class for FeatureCollection
@@ -106,21 +123,257 @@ public class DataUtils {
             throw new UnsupportedOperationException();
         }
 
-        @SuppressWarnings("unchecked")
+        /**
+         * Returns a lazy view of the features that pass the filter. Nothing is copied: the view
+         * queries the spatial index each time it is iterated and tests the candidates in place.
+         */
         public SimpleFeatureCollection subCollection(Filter filter) {
-            // split out the spatial part of the filter
-            SpatialIndexFeatureCollection ret = new SpatialIndexFeatureCollection(schema);
-            Envelope env = new Envelope();
-            env = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, env);
-            for (Iterator<SimpleFeature> iter = (Iterator<SimpleFeature>) index.query(env)
-                    .iterator(); iter.hasNext();) {
-                SimpleFeature sample = iter.next();
-                if (filter.evaluate(sample)) {
-                    ret.add(sample);
+            if (filter == Filter.INCLUDE) {
+                return this;
+            }
+            return new SpatialIndexSubCollection(this, filter);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<SimpleFeature> query(Envelope searchEnv) {
+            return index.query(searchEnv);
+        }
+    }
+
+    /**
+     * Non-copying view over the hits of a {@link SpatialIndexFeatureCollection2} query.
+     * <p>
+     * BBOX and Intersects filters against a geometry literal, alone or combined with And, are
+     * evaluated with a PreparedGeometry. Any other part of the filter is evaluated as usual.
+     */
+    static class SpatialIndexSubCollection extends AbstractFeatureCollection {
+        private final SpatialIndexFeatureCollection2 source;
+
+        private final Filter filter;
+
+        private final Envelope searchEnv;
+
+        private final List<Polygon> rectangles = new ArrayList<Polygon>();
+
+        private final List<PreparedGeometry> intersects = new ArrayList<PreparedGeometry>();
+
+        private final List<Filter> residuals = new ArrayList<Filter>();
+
+        private String geomField;
+
+        private boolean exclude = false;
+
+        public SpatialIndexSubCollection(SpatialIndexFeatureCollection2 source, Filter filter) {
+            super(source.getSchema());
+            this.source = source;
+            this.filter = filter;
+
+            Envelope env = split(filter, new Envelope());
+
+            // a bbox that covers an intersects literal is implied by it, e.g. the usual
+            // bbox(geom, envelope(g)) and intersects(geom, g)
+            for (Iterator<Polygon> iter = rectangles.iterator(); iter.hasNext();) {
+                Envelope rectangle = iter.next().getEnvelopeInternal();
+                for (PreparedGeometry prepared : intersects) {
+                    if (rectangle.covers(prepared.getGeometry().getEnvelopeInternal())) {
+                        iter.remove();
+                        break;
+                    }
+                }
+            }
+
+            if (env.isNull() && !exclude) {
+                // no spatial constraint could be extracted
+                env = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                        new Envelope());
+                if (env == null) {
+                    env = new Envelope(-Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                            Double.MAX_VALUE);
+                }
+            }
+            this.searchEnv = env;
+        }
+
+        private Envelope split(Filter child, Envelope env) {
+            if (child == Filter.INCLUDE) {
+                return env;
+            } else if (child == Filter.EXCLUDE) {
+                exclude = true;
+                return env;
+            } else if (child instanceof And) {
+                for (Filter grandChild : ((And) child).getChildren()) {
+                    env = split(grandChild, env);
+                }
+                return env;
+            }
+
+            Geometry literal = null;
+            if (child instanceof BBOX) {
+                BBOX bbox = (BBOX) child;
+                if (isDefaultGeometry(bbox.getExpression1())) {
+                    Envelope bounds = ReferencedEnvelope.reference(bbox.getBounds());
+                    literal = bounds == null ? null : JTS.toGeometry(bounds);
+                }
+            } else if (child instanceof Intersects) {
+                Intersects spatial = (Intersects) child;
+                if (isDefaultGeometry(spatial.getExpression1())
+                        && spatial.getExpression2() instanceof Literal) {
+                    literal = spatial.getExpression2().evaluate(null, Geometry.class);
+                } else if (isDefaultGeometry(spatial.getExpression2())
+                        && spatial.getExpression1() instanceof Literal) {
+                    literal = spatial.getExpression1().evaluate(null, Geometry.class);
+                }
+            }
+
+            if (literal == null) {
+                residuals.add(child);
+                return env;
+            } else if (literal.isEmpty()) {
+                exclude = true;
+                return env;
+            }
+
+            Envelope literalEnv = literal.getEnvelopeInternal();
+            if (env.isNull()) {
+                env = new Envelope(literalEnv);
+            } else {
+                env = env.intersection(literalEnv);
+                exclude |= env.isNull();
+            }
+
+            if (literal instanceof Polygon && literal.isRectangle()) {
+                rectangles.add((Polygon) literal);
+            } else {
+                intersects.add(PreparedGeometryFactory.prepare(literal));
+            }
+            return env;
+        }
+
+        private boolean isDefaultGeometry(Expression expression) {
+            if (!(expression instanceof PropertyName)) {
+                return false;
+            }
+
+            String name = ((PropertyName) expression).getPropertyName();
+            GeometryDescriptor descriptor = getSchema().getGeometryDescriptor();
+            if (descriptor == null) {
+                return false;
+            }
+
+            if (geomField == null) {
+                geomField = descriptor.getLocalName();
+            }
+            return name == null || name.length() == 0 || geomField.equals(name)
+                    || name.endsWith(":" + geomField);
+        }
+
+        private boolean accept(SimpleFeature feature) {
+            if (intersects.size() > 0 || rectangles.size() > 0) {
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    return false;
+                }
+
+                Envelope geomEnv = geometry.getEnvelopeInternal();
+                for (Polygon rectangle : rectangles) {
+                    Envelope rectEnv = rectangle.getEnvelopeInternal();
+                    if (!rectEnv.intersects(geomEnv)) {
+                        return false;
+                    } else if (!rectEnv.covers(geomEnv) && !rectangle.intersects(geometry)) {
+                        return false;
+                    }
+                }
+
+                for (PreparedGeometry prepared : intersects) {
+                    if (!prepared.intersects(geometry)) {
+                        return false;
+                    }
+                }
+            }
+
+            for (Filter residual : residuals) {
+                if (!residual.evaluate(feature)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected Iterator<SimpleFeature> openIterator() {
+            if (exclude) {
+                return Collections.<SimpleFeature> emptyIterator();
+            }
+
+            final Iterator<SimpleFeature> candidates = source.query(searchEnv).iterator();
+            return new Iterator<SimpleFeature>() {
+                private SimpleFeature next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && candidates.hasNext()) {
+                        SimpleFeature candidate = candidates.next();
+                        if (accept(candidate)) {
+                            next = candidate;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public SimpleFeature next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    SimpleFeature current = next;
+                    next = null;
+                    return current;
                 }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public SimpleFeatureCollection subCollection(Filter subFilter) {
+            if (subFilter == Filter.INCLUDE) {
+                return this;
             }
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+            return new SpatialIndexSubCollection(source, ff.and(filter, subFilter));
+        }
 
-            return ret;
+        @Override
+        public SimpleFeatureCollection sort(SortBy order) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            Iterator<SimpleFeature> iter = openIterator();
+            while (iter.hasNext()) {
+                iter.next();
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public ReferencedEnvelope getBounds() {
+            ReferencedEnvelope bounds = new ReferencedEnvelope(getSchema()
+                    .getCoordinateReferenceSystem());
+            Iterator<SimpleFeature> iter = openIterator();
+            while (iter.hasNext()) {
+                Geometry geometry = (Geometry) iter.next().getDefaultGeometry();
+                if (geometry != null) {
+                    bounds.expandToInclude(geometry.getEnvelopeInternal());
+                }
+            }
+            return bounds;
         }
     }
 }
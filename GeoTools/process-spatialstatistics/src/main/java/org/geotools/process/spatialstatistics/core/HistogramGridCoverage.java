@@ -16,20 +16,33 @@
  */
 package org.geotools.process.spatialstatistics.core;
 
-import java.util.Iterator;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
 
 /**
  * Histogram GridCoverage
+ * <p>
+ * The image is read in strips that are processed in parallel. The first pass accumulates the
+ * statistics, a quantile sketch and the distinct values up to the maximum bin count. Only if there
+ * are more distinct values, a second pass counts whole number rasters exactly (range up to 65536)
+ * or any other raster into equal interval bins. Memory is bounded by the bin count, not by the
+ * number of pixels.
+ * <p>
+ * Large coverages can be read from an overview, see {@link #setResolution(RasterResolution)}. The
+ * frequencies then refer to the pixels of that overview.
+ * <p>
+ * A {@link ProgressListener} set with {@link #setProgressListener(ProgressListener)} receives
+ * the progress per strip row and stops both passes when it is canceled.
  * 
  * @author Minpa Lee
  * @since 1.0
@@ -38,12 +51,32 @@ import org.geotools.util.logging.Logging;
 public class HistogramGridCoverage extends DataHistogram {
     protected static final Logger LOGGER = Logging.getLogger(HistogramGridCoverage.class);
 
+    static final int INTEGER_BIN_LIMIT = 65536;
+
+    static final int STRIP_SAMPLES = 1 << 20;
+
     private GridCoverage2D coverage = null;
 
     private int bandIndex = 0;
 
     private double noData = 0.0d;
 
+    private RasterResolution resolution = RasterResolution.EXACT;
+
+    private ProgressListener monitor = null;
+
+    public void setProgressListener(ProgressListener monitor) {
+        this.monitor = monitor;
+    }
+
+    public RasterResolution getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(RasterResolution resolution) {
+        this.resolution = resolution == null ? RasterResolution.EXACT : resolution;
+    }
+
     @Override
     public boolean calculateHistogram(GridCoverage2D coverage, int bandIndex, double noData) {
         this.coverage = coverage;
@@ -56,56 +89,242 @@ public class HistogramGridCoverage extends DataHistogram {
     private boolean calculate() {
         count = 0;
         sumOfVals = 0;
+        statistics = null;
+        doubleArrayValues = new double[0];
+        longArrayFrequencies = new int[0];
 
         int bandCount = coverage.getNumSampleDimensions();
         if (bandIndex >= bandCount) {
             throw new ArrayIndexOutOfBoundsException("Process failed during execution");
         }
 
-        SortedMap<Double, Integer> valueCountsMap = new TreeMap<Double, Integer>();
-
-        // 1. Iteration
-        PlanarImage inputImage = (PlanarImage) coverage.getRenderedImage();
-        RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
+        final RenderedImage image = resolution.select(coverage).getRenderedImage();
+        final List<Rectangle> strips = getStrips(image);
+        final ProgressTracker tracker = new ProgressTracker(monitor, 2L * image.getHeight());
 
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                double sampleValue = readIter.getSampleDouble(bandIndex);
-                if (!SSUtils.compareDouble(noData, sampleValue)) {
-                    if (valueCountsMap.containsKey(sampleValue)) {
-                        int cnt = valueCountsMap.get(sampleValue);
-                        valueCountsMap.put(sampleValue, new Integer(cnt + 1));
-                    } else {
-                        valueCountsMap.put(sampleValue, new Integer(1));
+        // 1. statistics, quantiles and distinct values
+        List<Callable<DistinctCounter>> tasks = new ArrayList<Callable<DistinctCounter>>();
+        for (final Rectangle strip : strips) {
+            tasks.add(new Callable<DistinctCounter>() {
+                @Override
+                public DistinctCounter call() throws Exception {
+                    DistinctCounter counter = new DistinctCounter(getMaxBinCount());
+                    double[] samples = readStrip(image, strip);
+                    for (int index = 0; index < samples.length; index++) {
+                        if (index % strip.width == 0) {
+                            tracker.worked(1);
+                        }
+                        if (isValid(samples[index])) {
+                            counter.add(samples[index]);
+                        }
                     }
-
-                    count++;
-                    sumOfVals += sampleValue;
+                    return counter;
                 }
-                readIter.nextPixel();
-            }
-            readIter.nextLine();
+            });
         }
 
-        if (valueCountsMap.size() == 0) {
+        DistinctCounter distinct = new DistinctCounter(getMaxBinCount());
+        for (DistinctCounter part : ParallelUtils.invokeAll(tasks, monitor)) {
+            distinct.merge(part);
+        }
+
+        statistics = distinct.statistics;
+        count = statistics.getCount();
+        sumOfVals = statistics.getSum();
+        if (count == 0) {
             return false;
         }
 
-        doubleArrayValues = new double[valueCountsMap.size()];
-        longArrayFrequencies = new int[valueCountsMap.size()];
+        if (!distinct.isOverflow()) {
+            distinct.toArrays(this);
+            return true;
+        }
+
+        // 2. fixed bins
+        final double minimum = statistics.getMinimum();
+        final double maximum = statistics.getMaximum();
+        final boolean exact = statistics.isIntegral()
+                && maximum - minimum < INTEGER_BIN_LIMIT;
+        final int numBins = exact ? (int) (maximum - minimum) + 1 : getMaxBinCount();
+        final double binWidth = exact ? 1.0 : (maximum - minimum) / numBins;
 
-        Iterator<Double> iterator = valueCountsMap.keySet().iterator();
-        int k = 0;
-        while (iterator.hasNext()) {
-            final double key = iterator.next();
-            doubleArrayValues[k] = key;
-            longArrayFrequencies[k] = valueCountsMap.get(key);
-            k++;
+        List<Callable<int[]>> binTasks = new ArrayList<Callable<int[]>>();
+        for (final Rectangle strip : strips) {
+            binTasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() throws Exception {
+                    int[] bins = new int[numBins];
+                    double[] samples = readStrip(image, strip);
+                    for (int index = 0; index < samples.length; index++) {
+                        if (index % strip.width == 0) {
+                            tracker.worked(1);
+                        }
+                        if (isValid(samples[index])) {
+                            int bin = (int) ((samples[index] - minimum) / binWidth);
+                            bins[Math.min(bin, numBins - 1)]++;
+                        }
+                    }
+                    return bins;
+                }
+            });
+        }
+
+        int[] frequencies = new int[numBins];
+        for (int[] bins : ParallelUtils.invokeAll(binTasks, monitor)) {
+            for (int bin = 0; bin < numBins; bin++) {
+                frequencies[bin] += bins[bin];
+            }
+        }
+
+        if (exact) {
+            // whole numbers: report the values that occur
+            int size = 0;
+            doubleArrayValues = new double[numBins];
+            longArrayFrequencies = new int[numBins];
+            for (int bin = 0; bin < numBins; bin++) {
+                if (frequencies[bin] > 0) {
+                    doubleArrayValues[size] = minimum + bin;
+                    longArrayFrequencies[size++] = frequencies[bin];
+                }
+            }
+            doubleArrayValues = Arrays.copyOf(doubleArrayValues, size);
+            longArrayFrequencies = Arrays.copyOf(longArrayFrequencies, size);
+        } else {
+            // intervals: report the center of each bin
+            doubleArrayValues = new double[numBins];
+            for (int bin = 0; bin < numBins; bin++) {
+                doubleArrayValues[bin] = minimum + (bin + 0.5) * binWidth;
+            }
+            longArrayFrequencies = frequencies;
         }
 
         return true;
     }
 
+    private boolean isValid(double sampleValue) {
+        return !Double.isNaN(sampleValue) && !SSUtils.compareDouble(noData, sampleValue);
+    }
+
+    private double[] readStrip(RenderedImage image, Rectangle strip) {
+        final Raster raster;
+        synchronized (image) {
+            raster = image.getData(strip);
+        }
+        return raster.getSamples(strip.x, strip.y, strip.width, strip.height, bandIndex,
+                (double[]) null);
+    }
+
+    static List<Rectangle> getStrips(RenderedImage image) {
+        final int width = image.getWidth();
+        final int rows = Math.max(1, STRIP_SAMPLES / Math.max(1, width));
+
+        List<Rectangle> strips = new ArrayList<Rectangle>();
+        for (int y = 0; y < image.getHeight(); y += rows) {
+            strips.add(new Rectangle(image.getMinX(), image.getMinY() + y, width, Math.min(rows,
+                    image.getHeight() - y)));
+        }
+        return strips;
+    }
+
+    /**
+     * Counts distinct values until more than a limit are found, while accumulating the
+     * statistics of all values.
+     */
+    static final class DistinctCounter {
+        final StreamingStatistics statistics = new StreamingStatistics();
+
+        private final int limit;
+
+        private double[] keys;
+
+        private int[] counts;
+
+        private int size = 0;
+
+        private boolean overflow = false;
+
+        DistinctCounter(int limit) {
+            this.limit = limit;
+
+            int capacity = Integer.highestOneBit(Math.max(2, limit) * 2 - 1) << 1;
+            this.keys = new double[capacity];
+            this.counts = new int[capacity];
+        }
+
+        boolean isOverflow() {
+            return overflow;
+        }
+
+        void add(double value) {
+            statistics.add(value);
+            increment(value, 1);
+        }
+
+        void merge(DistinctCounter other) {
+            statistics.merge(other.statistics);
+            if (other.overflow) {
+                overflow = true;
+                keys = null;
+                counts = null;
+                return;
+            }
+
+            for (int slot = 0; slot < other.keys.length && !overflow; slot++) {
+                if (other.counts[slot] > 0) {
+                    increment(other.keys[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        private void increment(double value, int frequency) {
+            if (overflow) {
+                return;
+            }
+
+            value = value == 0 ? 0.0 : value; // -0.0
+            final int slot = find(value);
+
+            if (counts[slot] == 0) {
+                if (size == limit) {
+                    overflow = true;
+                    keys = null;
+                    counts = null;
+                    return;
+                }
+                keys[slot] = value;
+                size++;
+            }
+            counts[slot] += frequency;
+        }
+
+        // linear probing: the slot of the value, or the empty slot where it belongs
+        private int find(double value) {
+            final int mask = keys.length - 1;
+            long bits = Double.doubleToLongBits(value);
+            int slot = (int) (((bits ^ (bits >>> 32)) * 0x9E3779B9L) >>> 16) & mask;
+            while (counts[slot] > 0 && keys[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void toArrays(DataHistogram histogram) {
+            double[] values = new double[size];
+            int index = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (counts[slot] > 0) {
+                    values[index++] = keys[slot];
+                }
+            }
+            Arrays.sort(values);
+
+            int[] frequencies = new int[size];
+            for (int i = 0; i < size; i++) {
+                frequencies[i] = counts[find(values[i])];
+            }
+
+            histogram.doubleArrayValues = values;
+            histogram.longArrayFrequencies = frequencies;
+        }
+    }
 }
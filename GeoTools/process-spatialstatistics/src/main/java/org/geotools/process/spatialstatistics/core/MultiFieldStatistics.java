@@ -0,0 +1,317 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Single pass statistics engine for several fields.
+ * <p>
+ * The feature collection is read once. Attribute values are buffered in batches, then each field
+ * (and each pair of fields for the co-moments) is accumulated concurrently, so results are the
+ * same as sequential accumulation in feature order. Produces per-field and per-case summaries and
+ * the covariance and Pearson correlation matrices of pairwise complete observations.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class MultiFieldStatistics {
+    protected static final Logger LOGGER = Logging.getLogger(MultiFieldStatistics.class);
+
+    static final int BATCH_SIZE = 4096;
+
+    public static final String NULL_CASE = "Null";
+
+    private final SimpleFeatureType schema;
+
+    private final List<String> fields;
+
+    private final int[] attributeIndexes;
+
+    private final int caseIndex;
+
+    private final boolean summaries;
+
+    private final boolean comoments;
+
+    // case value -> case index, visitors[case][field]
+    private final Map<String, Integer> caseLookup = new HashMap<String, Integer>();
+
+    private final List<String> caseValues = new ArrayList<String>();
+
+    private final List<StatisticsVisitor[]> visitors = new ArrayList<StatisticsVisitor[]>();
+
+    // pairwise co-moments, pair index = a * numFields + b (a < b)
+    private int[] pairCounts;
+
+    private double[] meanA;
+
+    private double[] meanB;
+
+    private double[] m2A;
+
+    private double[] m2B;
+
+    private double[] coMoments;
+
+    /**
+     * @param schema feature type
+     * @param fields numeric fields
+     * @param caseField case field, null for all features
+     * @param summaries accumulate per-field (and per-case) summaries
+     * @param comoments accumulate the co-moments of all field pairs
+     */
+    public MultiFieldStatistics(SimpleFeatureType schema, List<String> fields, String caseField,
+            boolean summaries, boolean comoments) {
+        this.schema = schema;
+        this.fields = new ArrayList<String>(fields);
+        this.summaries = summaries;
+        this.comoments = comoments;
+
+        this.attributeIndexes = new int[fields.size()];
+        for (int k = 0; k < fields.size(); k++) {
+            attributeIndexes[k] = schema.indexOf(FeatureTypes.validateProperty(schema,
+                    fields.get(k)));
+        }
+
+        caseField = FeatureTypes.validateProperty(schema, caseField);
+        this.caseIndex = caseField == null ? -1 : schema.indexOf(caseField);
+
+        if (comoments) {
+            final int size = fields.size() * fields.size();
+            pairCounts = new int[size];
+            meanA = new double[size];
+            meanB = new double[size];
+            m2A = new double[size];
+            m2B = new double[size];
+            coMoments = new double[size];
+        }
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void visit(SimpleFeatureCollection features) {
+        final int numFields = fields.size();
+        final Object[] values = new Object[BATCH_SIZE * numFields];
+        final int[] cases = new int[BATCH_SIZE];
+
+        int batchCount = 0;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                for (int field = 0; field < numFields; field++) {
+                    values[batchCount * numFields + field] = feature
+                            .getAttribute(attributeIndexes[field]);
+                }
+                cases[batchCount] = getCase(feature);
+
+                if (++batchCount == BATCH_SIZE) {
+                    accumulate(values, cases, batchCount);
+                    batchCount = 0;
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        if (batchCount > 0) {
+            accumulate(values, cases, batchCount);
+        }
+    }
+
+    private int getCase(SimpleFeature feature) {
+        String caseValue = null;
+        if (caseIndex == -1) {
+            caseValue = NULL_CASE;
+        } else {
+            Object value = feature.getAttribute(caseIndex);
+            caseValue = value == null ? NULL_CASE : value.toString();
+        }
+
+        Integer index = caseLookup.get(caseValue);
+        if (index == null) {
+            index = Integer.valueOf(caseValues.size());
+            caseLookup.put(caseValue, index);
+            caseValues.add(caseValue);
+
+            if (summaries) {
+                StatisticsVisitor[] caseVisitors = new StatisticsVisitor[fields.size()];
+                for (int field = 0; field < caseVisitors.length; field++) {
+                    caseVisitors[field] = new StatisticsVisitor(schema, attributeIndexes[field]);
+                }
+                visitors.add(caseVisitors);
+            }
+        }
+        return index.intValue();
+    }
+
+    private void accumulate(final Object[] values, final int[] cases, final int batchCount) {
+        final int numFields = fields.size();
+
+        if (summaries) {
+            ParallelUtils.forEach(numFields, 1, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int field = start; field < end; field++) {
+                        for (int row = 0; row < batchCount; row++) {
+                            visitors.get(cases[row])[field].visit(values[row * numFields
+                                    + field]);
+                        }
+                    }
+                }
+            });
+        }
+
+        if (comoments && numFields > 1) {
+            final double[] numbers = new double[batchCount * numFields];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = toDouble(values[i]);
+            }
+
+            ParallelUtils.forEach(numFields - 1, 1, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int a = start; a < end; a++) {
+                        for (int b = a + 1; b < numFields; b++) {
+                            final int pair = a * numFields + b;
+                            for (int row = 0; row < batchCount; row++) {
+                                final double x = numbers[row * numFields + a];
+                                final double y = numbers[row * numFields + b];
+                                if (Double.isNaN(x) || Double.isNaN(y)) {
+                                    continue;
+                                }
+
+                                // Welford's online co-moment update
+                                final int n = ++pairCounts[pair];
+                                final double dx = x - meanA[pair];
+                                meanA[pair] += dx / n;
+                                final double dy = y - meanB[pair];
+                                meanB[pair] += dy / n;
+                                m2A[pair] += dx * (x - meanA[pair]);
+                                m2B[pair] += dy * (y - meanB[pair]);
+                                coMoments[pair] += dx * (y - meanB[pair]);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private double toDouble(Object value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+
+        double dblVal = Double.NaN;
+        if (value instanceof Number) {
+            dblVal = ((Number) value).doubleValue();
+        } else {
+            Double converted = Converters.convert(value, Double.class);
+            dblVal = converted == null ? Double.NaN : converted.doubleValue();
+        }
+        return Double.isInfinite(dblVal) ? Double.NaN : dblVal;
+    }
+
+    /**
+     * Returns the case values in ascending order.
+     */
+    public List<String> getCaseValues() {
+        List<String> sorted = new ArrayList<String>(caseValues);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    public StatisticsVisitorResult getResult(int field) {
+        return getResult(NULL_CASE, field);
+    }
+
+    public StatisticsVisitorResult getResult(String caseValue, int field) {
+        Integer index = caseLookup.get(caseValue);
+        if (index == null) {
+            return new StatisticsVisitorResult();
+        }
+        return visitors.get(index.intValue())[field].getResult();
+    }
+
+    /**
+     * Returns the number of pairwise complete observations of two fields.
+     */
+    public int getCount(int field1, int field2) {
+        return field1 == field2 ? 0 : pairCounts[pairIndex(field1, field2)];
+    }
+
+    /**
+     * Returns the population covariance of two fields.
+     */
+    public double getCovariance(int field1, int field2) {
+        if (field1 == field2) {
+            throw new IllegalArgumentException("Use the variance of the field summary");
+        }
+
+        final int pair = pairIndex(field1, field2);
+        return pairCounts[pair] == 0 ? 0d : coMoments[pair] / pairCounts[pair];
+    }
+
+    /**
+     * Returns the Pearson correlation coefficient of two fields, 0 if undefined.
+     */
+    public double getCorrelation(int field1, int field2) {
+        if (field1 == field2) {
+            return 1d;
+        }
+
+        final int pair = pairIndex(field1, field2);
+        if (pairCounts[pair] == 0) {
+            return 0d;
+        }
+
+        double den = Math.sqrt(m2A[pair] * m2B[pair]);
+        return den == 0 ? 0d : coMoments[pair] / den;
+    }
+
+    public double[][] getCorrelationMatrix() {
+        final int numFields = fields.size();
+        double[][] matrix = new double[numFields][numFields];
+        for (int a = 0; a < numFields; a++) {
+            for (int b = 0; b < numFields; b++) {
+                matrix[a][b] = getCorrelation(a, b);
+            }
+        }
+        return matrix;
+    }
+
+    private int pairIndex(int field1, int field2) {
+        return field1 < field2 ? field1 * fields.size() + field2 : field2 * fields.size() + field1;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.geotools.process.ProcessException;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Utility class for running independent tasks on the common fork/join pool.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class ParallelUtils {
+    protected static final Logger LOGGER = Logging.getLogger(ParallelUtils.class);
+
+    /** Minimum number of items per task */
+    public static final int DEFAULT_GRAIN_SIZE = 1024;
+
+    /**
+     * Processes the half-open range [start, end) of item indexes
+     */
+    public interface RangeTask {
+        public void run(int start, int end);
+    }
+
+    public static int getParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Splits [0, count) into contiguous ranges and runs them concurrently. Runs in the calling
+     * thread when the range is smaller than the grain size or only one processor is available.
+     */
+    public static void forEach(int count, int grainSize, final RangeTask task) {
+        forEach(count, grainSize, task, null);
+    }
+
+    /**
+     * Same as {@link #forEach(int, int, RangeTask)}, but ranges that have not started yet are
+     * skipped once the listener is canceled, and a {@link ProcessException} is thrown.
+     */
+    public static void forEach(int count, int grainSize, final RangeTask task,
+            ProgressListener monitor) {
+        if (count <= 0) {
+            return;
+        }
+
+        final int parallelism = getParallelism();
+        grainSize = Math.max(1, grainSize);
+        if (parallelism == 1 || count <= grainSize) {
+            ProgressTracker.checkCanceled(monitor);
+            task.run(0, count);
+            return;
+        }
+
+        int parts = Math.min(parallelism * 4, (count + grainSize - 1) / grainSize);
+        int step = (count + parts - 1) / parts;
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(parts);
+        for (int start = 0; start < count; start += step) {
+            final int from = start;
+            final int to = Math.min(count, start + step);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    task.run(from, to);
+                    return null;
+                }
+            });
+        }
+
+        invokeAll(tasks, monitor);
+    }
+
+    public static void forEach(int count, RangeTask task) {
+        forEach(count, DEFAULT_GRAIN_SIZE, task);
+    }
+
+    /**
+     * Runs all tasks and returns their results in submission order.
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        return invokeAll(tasks, null);
+    }
+
+    /**
+     * Same as {@link #invokeAll(List)}, but tasks that have not started yet are skipped once the
+     * listener is canceled, and a {@link ProcessException} is thrown.
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks, ProgressListener monitor) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.size() == 0) {
+            return results;
+        }
+
+        if (monitor != null) {
+            final ProgressListener listener = monitor;
+            List<Callable<T>> checked = new ArrayList<Callable<T>>(tasks.size());
+            for (final Callable<T> task : tasks) {
+                checked.add(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        ProgressTracker.checkCanceled(listener);
+                        return task.call();
+                    }
+                });
+            }
+            tasks = checked;
+        }
+
+        try {
+            if (tasks.size() == 1 || getParallelism() == 1) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ProcessException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ProcessException(e);
+        }
+
+        return results;
+    }
+}
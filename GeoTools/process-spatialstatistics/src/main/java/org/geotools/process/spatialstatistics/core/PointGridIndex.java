@@ -0,0 +1,272 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Uniform grid index over point coordinates held in primitive arrays.
+ * <p>
+ * Points are bucketed with a counting sort into cells of roughly two points each, so building
+ * the index is linear and queries only visit the cells around the query point. The index is
+ * immutable once built and may be queried concurrently.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class PointGridIndex {
+    protected static final Logger LOGGER = Logging.getLogger(PointGridIndex.class);
+
+    static final int POINTS_PER_CELL = 2;
+
+    /**
+     * Receives the points found within a search radius.
+     */
+    public interface NeighborVisitor {
+        public void visit(int source, int target, double distance);
+    }
+
+    private final double[] x;
+
+    private final double[] y;
+
+    private final int size;
+
+    private final Envelope extent;
+
+    private double cellSize;
+
+    private int columns;
+
+    private int rows;
+
+    private int[] cellStart;
+
+    private int[] items;
+
+    public PointGridIndex(double[] x, double[] y, int size) {
+        this(x, y, size, 0d);
+    }
+
+    /**
+     * @param cellSize the size of a grid cell, if 0 the size is derived from the point density
+     */
+    public PointGridIndex(double[] x, double[] y, int size, double cellSize) {
+        this.x = x;
+        this.y = y;
+        this.size = size;
+
+        this.extent = new Envelope();
+        for (int index = 0; index < size; index++) {
+            extent.expandToInclude(x[index], y[index]);
+        }
+
+        build(cellSize);
+    }
+
+    private void build(double cellSize) {
+        final double width = extent.getWidth();
+        final double height = extent.getHeight();
+        final int target = Math.max(1, size / POINTS_PER_CELL);
+
+        if (cellSize <= 0 || Double.isNaN(cellSize) || Double.isInfinite(cellSize)) {
+            if (width > 0 && height > 0) {
+                cellSize = Math.sqrt(width * height / target);
+            } else {
+                cellSize = Math.max(width, height) / target;
+            }
+        }
+
+        if (!(cellSize > 0)) {
+            cellSize = 1.0; // empty, single or coincident points
+        }
+
+        // keep the number of cells proportional to the number of points
+        while (gridSize(width, cellSize) * gridSize(height, cellSize) > 4L * target + 16) {
+            cellSize *= 2.0;
+        }
+
+        this.cellSize = cellSize;
+        this.columns = (int) gridSize(width, cellSize);
+        this.rows = (int) gridSize(height, cellSize);
+
+        // counting sort of the points by cell
+        final int[] cells = new int[size];
+        cellStart = new int[columns * rows + 1];
+        for (int index = 0; index < size; index++) {
+            cells[index] = row(y[index]) * columns + column(x[index]);
+            cellStart[cells[index] + 1]++;
+        }
+
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+
+        items = new int[size];
+        final int[] next = new int[columns * rows];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        for (int index = 0; index < size; index++) {
+            items[next[cells[index]]++] = index;
+        }
+    }
+
+    private long gridSize(double length, double cellSize) {
+        return (long) Math.floor(length / cellSize) + 1;
+    }
+
+    private int column(double xVal) {
+        int col = (int) ((xVal - extent.getMinX()) / cellSize);
+        return col < 0 ? 0 : (col >= columns ? columns - 1 : col);
+    }
+
+    private int row(double yVal) {
+        int row = (int) ((yVal - extent.getMinY()) / cellSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Envelope getExtent() {
+        return extent;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private double distance(int source, int target, DistanceMethod distanceMethod) {
+        double dx = x[source] - x[target];
+        double dy = y[source] - y[target];
+        if (distanceMethod == DistanceMethod.Manhattan) {
+            return Math.abs(dx) + Math.abs(dy);
+        }
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns the index of the nearest other point, or -1 if there is none.
+     */
+    public int nearest(int source, DistanceMethod distanceMethod) {
+        final int col = column(x[source]);
+        final int row = row(y[source]);
+        final int maxRing = Math.max(columns, rows);
+
+        int nearest = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every point in the ring is at least (ring - 1) cells away on some axis
+            if (nearest != -1 && (ring - 1) * cellSize >= minDistance) {
+                break;
+            }
+
+            final int minRow = Math.max(0, row - ring);
+            final int maxRow = Math.min(rows - 1, row + ring);
+            for (int r = minRow; r <= maxRow; r++) {
+                boolean fullRow = r == row - ring || r == row + ring;
+                int step = fullRow ? 1 : 2 * ring;
+                for (int c = col - ring; c <= col + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+
+                    final int cell = r * columns + c;
+                    for (int pos = cellStart[cell]; pos < cellStart[cell + 1]; pos++) {
+                        final int target = items[pos];
+                        if (target == source) {
+                            continue;
+                        }
+
+                        double distance = distance(source, target, distanceMethod);
+                        if (distance < minDistance) {
+                            minDistance = distance;
+                            nearest = target;
+                        }
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Computes the distance from every point to its nearest neighbor in one parallel pass. Points
+     * without a neighbor get NaN.
+     */
+    public double[] getNearestDistances(final DistanceMethod distanceMethod,
+            ProgressListener monitor) {
+        final double[] distances = new double[size];
+        final ProgressTracker tracker = new ProgressTracker(monitor, size);
+
+        ParallelUtils.forEach(size, ParallelUtils.DEFAULT_GRAIN_SIZE,
+                new ParallelUtils.RangeTask() {
+                    @Override
+                    public void run(int start, int end) {
+                        for (int source = start; source < end; source++) {
+                            int nearest = nearest(source, distanceMethod);
+                            distances[source] = nearest == -1 ? Double.NaN
+                                    : distance(source, nearest, distanceMethod);
+                        }
+                        tracker.worked(end - start);
+                    }
+                }, monitor);
+
+        return distances;
+    }
+
+    /**
+     * Visits every other point whose Euclidean distance to the source point is less than or equal
+     * to the radius.
+     */
+    public void visitNeighbors(int source, double radius, NeighborVisitor visitor) {
+        final double xVal = x[source];
+        final double yVal = y[source];
+        final double radius2 = radius * radius;
+
+        final int minCol = column(xVal - radius);
+        final int maxCol = column(xVal + radius);
+        final int minRow = row(yVal - radius);
+        final int maxRow = row(yVal + radius);
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                final int cell = r * columns + c;
+                for (int pos = cellStart[cell]; pos < cellStart[cell + 1]; pos++) {
+                    final int target = items[pos];
+                    if (target == source) {
+                        continue;
+                    }
+
+                    double dx = xVal - x[target];
+                    double dy = yVal - y[target];
+                    double dist2 = dx * dx + dy * dy;
+                    if (dist2 <= radius2) {
+                        visitor.visit(source, target, Math.sqrt(dist2));
+                    }
+                }
+            }
+        }
+    }
+}
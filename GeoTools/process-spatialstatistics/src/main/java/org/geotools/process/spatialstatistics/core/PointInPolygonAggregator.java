@@ -0,0 +1,322 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.enumeration.StaticsType;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Point-in-polygon aggregation engine.
+ * <p>
+ * Polygons are prepared and indexed once, then the point layer is streamed a single time and
+ * every point is assigned to the polygon(s) it intersects. Statistics are accumulated in primitive
+ * arrays indexed by polygon and field, so the cost is one scan of the points regardless of the
+ * number of polygons.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class PointInPolygonAggregator {
+    protected static final Logger LOGGER = Logging.getLogger(PointInPolygonAggregator.class);
+
+    static final int BATCH_SIZE = 8192;
+
+    static final String CASE_ALL = "ALL";
+
+    private final STRtree spatialIndex = new STRtree();
+
+    private final List<PreparedGeometry> polygons = new ArrayList<PreparedGeometry>();
+
+    private final List<String> fields = new ArrayList<String>();
+
+    private int[] attributeIndexes;
+
+    private boolean[] numericFields;
+
+    private boolean keepFirstLast = false;
+
+    private boolean parallel = false;
+
+    // accumulators: [polygon] and [polygon * fields.size() + field]
+    private int[] featureCounts;
+
+    private int[] counts;
+
+    private double[] sums;
+
+    private double[] sumOfSqrs;
+
+    private double[] minimums;
+
+    private double[] maximums;
+
+    private Object[] firstValues;
+
+    private Object[] lastValues;
+
+    public PointInPolygonAggregator(SimpleFeatureType pointSchema, List<StatisticsField> statFields) {
+        for (StatisticsField field : statFields) {
+            if (!fields.contains(field.getSrcField())) {
+                fields.add(field.getSrcField());
+            }
+
+            StaticsType statType = field.getStatType();
+            if (statType == StaticsType.First || statType == StaticsType.Last) {
+                keepFirstLast = true;
+            }
+        }
+
+        attributeIndexes = new int[fields.size()];
+        numericFields = new boolean[fields.size()];
+        for (int index = 0; index < fields.size(); index++) {
+            String propertyName = FeatureTypes.validateProperty(pointSchema, fields.get(index));
+            attributeIndexes[index] = propertyName == null ? -1 : pointSchema.indexOf(propertyName);
+            if (attributeIndexes[index] == -1) {
+                // null or unknown field: ALL case, only the points are counted
+                continue;
+            }
+
+            Class<?> binding = pointSchema.getDescriptor(propertyName).getType().getBinding();
+            numericFields[index] = Number.class.isAssignableFrom(binding);
+        }
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * If true, point-in-polygon tests are evaluated concurrently per batch of points. Statistics
+     * are still accumulated in point order, so FIRST and LAST values are deterministic.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Adds a polygon to the engine and returns its index.
+     */
+    public int addPolygon(Geometry polygon) {
+        int index = polygons.size();
+        polygons.add(PreparedGeometryFactory.prepare(polygon));
+        spatialIndex.insert(polygon.getEnvelopeInternal(), Integer.valueOf(index));
+        return index;
+    }
+
+    public int getPolygonCount() {
+        return polygons.size();
+    }
+
+    /**
+     * Streams the point features once and accumulates statistics for all polygons.
+     */
+    public void aggregate(SimpleFeatureCollection points) {
+        final int numPolygons = polygons.size();
+        final int size = numPolygons * fields.size();
+
+        featureCounts = new int[numPolygons];
+        counts = new int[size];
+        sums = new double[size];
+        sumOfSqrs = new double[size];
+        minimums = new double[size];
+        maximums = new double[size];
+        Arrays.fill(minimums, Double.MAX_VALUE);
+        Arrays.fill(maximums, -Double.MAX_VALUE);
+        if (keepFirstLast) {
+            firstValues = new Object[size];
+            lastValues = new Object[size];
+        }
+
+        if (numPolygons == 0) {
+            return;
+        }
+
+        spatialIndex.build();
+
+        final int numFields = fields.size();
+        final Geometry[] geometries = new Geometry[parallel ? BATCH_SIZE : 1];
+        final Object[] values = new Object[geometries.length * numFields];
+        final int[][] hits = new int[geometries.length][];
+
+        int batchCount = 0;
+        SimpleFeatureIterator featureIter = points.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                geometries[batchCount] = geometry;
+                for (int field = 0; field < numFields; field++) {
+                    int attrIndex = attributeIndexes[field];
+                    values[batchCount * numFields + field] = attrIndex == -1 ? CASE_ALL
+                            : feature.getAttribute(attrIndex);
+                }
+
+                if (++batchCount == geometries.length) {
+                    processBatch(geometries, values, hits, batchCount);
+                    batchCount = 0;
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        if (batchCount > 0) {
+            processBatch(geometries, values, hits, batchCount);
+        }
+    }
+
+    private void processBatch(final Geometry[] geometries, Object[] values, final int[][] hits,
+            int batchCount) {
+        if (batchCount == 1) {
+            hits[0] = locate(geometries[0]);
+        } else {
+            ParallelUtils.forEach(batchCount, 256, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        hits[i] = locate(geometries[i]);
+                    }
+                }
+            });
+        }
+
+        final int numFields = fields.size();
+        for (int i = 0; i < batchCount; i++) {
+            geometries[i] = null;
+            int[] polygonIndexes = hits[i];
+            if (polygonIndexes == null) {
+                continue;
+            }
+
+            for (int polygon : polygonIndexes) {
+                featureCounts[polygon]++;
+                for (int field = 0; field < numFields; field++) {
+                    accumulate(polygon * numFields + field, field, values[i * numFields + field]);
+                }
+            }
+        }
+    }
+
+    private int[] locate(Geometry geometry) {
+        @SuppressWarnings("unchecked")
+        List<Integer> candidates = spatialIndex.query(geometry.getEnvelopeInternal());
+        if (candidates.size() == 0) {
+            return null;
+        }
+
+        int[] buffer = new int[candidates.size()];
+        int found = 0;
+        for (Integer candidate : candidates) {
+            if (polygons.get(candidate.intValue()).intersects(geometry)) {
+                buffer[found++] = candidate.intValue();
+            }
+        }
+
+        if (found == 0) {
+            return null;
+        }
+        return found == buffer.length ? buffer : Arrays.copyOf(buffer, found);
+    }
+
+    private void accumulate(int slot, int field, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        if (numericFields[field]) {
+            double curVal = ((Number) value).doubleValue();
+            if (Double.isNaN(curVal) || Double.isInfinite(curVal)) {
+                return;
+            }
+
+            sums[slot] += curVal;
+            sumOfSqrs[slot] += curVal * curVal;
+            if (curVal < minimums[slot]) {
+                minimums[slot] = curVal;
+            }
+            if (curVal > maximums[slot]) {
+                maximums[slot] = curVal;
+            }
+        }
+
+        if (keepFirstLast && attributeIndexes[field] != -1) {
+            if (firstValues[slot] == null) {
+                firstValues[slot] = value;
+            }
+            lastValues[slot] = value;
+        }
+
+        counts[slot]++;
+    }
+
+    /**
+     * Returns the number of point features that intersect the polygon.
+     */
+    public int getCount(int polygon) {
+        return featureCounts[polygon];
+    }
+
+    public StatisticsVisitorResult getResult(int polygon, String srcField) {
+        int field = fields.indexOf(srcField);
+        if (field == -1) {
+            throw new IllegalArgumentException(srcField + " is not an aggregated field!");
+        }
+
+        int slot = polygon * fields.size() + field;
+        StatisticsVisitorResult sr = new StatisticsVisitorResult();
+        int count = counts[slot];
+        sr.setCount(count);
+        if (keepFirstLast) {
+            sr.setFirstValue(firstValues[slot]);
+            sr.setLastValue(lastValues[slot]);
+        }
+
+        if (numericFields[field] && count > 0) {
+            sr.setMinimum(minimums[slot]);
+            sr.setMaximum(maximums[slot]);
+            sr.setSum(sums[slot]);
+
+            // Population Standard Deviation
+            double variance = (sumOfSqrs[slot] - Math.pow(sums[slot], 2.0) / count) / count;
+            sr.setVariance(variance);
+        }
+
+        return sr;
+    }
+
+    public Object getValue(int polygon, StatisticsField field) {
+        return getResult(polygon, field.getSrcField()).getValue(field.getStatType());
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.algorithm.locate.IndexedPointInAreaLocator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Location;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.triangulate.ConformingDelaunayTriangulationBuilder;
+
+/**
+ * Generates uniformly distributed random points inside a polygonal mask.
+ * <p>
+ * Each polygon is triangulated once with a conforming Delaunay triangulation constrained by its
+ * rings, and only the triangles inside the polygon are kept. A point is generated by picking a
+ * triangle by cumulative area and sampling uniformly inside it, so no candidate is rejected
+ * however thin or irregular the mask is. Polygons that cannot be triangulated fall back to
+ * rejection sampling within their envelope. Instances are immutable once built and can be shared
+ * by threads that use their own {@link Random}.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class PolygonPointSampler {
+    protected static final Logger LOGGER = Logging.getLogger(PolygonPointSampler.class);
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    // triangle vertices: ax, ay, bx, by, cx, cy
+    private double[] triangles = new double[6 * 64];
+
+    private int triangleCount = 0;
+
+    private final List<Polygon> rejectionParts = new ArrayList<Polygon>();
+
+    private final List<IndexedPointInAreaLocator> rejectionLocators = new ArrayList<IndexedPointInAreaLocator>();
+
+    // cumulative area of the triangles followed by the rejection parts
+    private double[] cumulativeAreas;
+
+    private double area = 0d;
+
+    public PolygonPointSampler(Envelope extent) {
+        addTriangle(extent.getMinX(), extent.getMinY(), extent.getMaxX(), extent.getMinY(),
+                extent.getMaxX(), extent.getMaxY());
+        addTriangle(extent.getMinX(), extent.getMinY(), extent.getMaxX(), extent.getMaxY(),
+                extent.getMinX(), extent.getMaxY());
+        buildIndex();
+    }
+
+    public PolygonPointSampler(Geometry mask) {
+        for (int index = 0; index < mask.getNumGeometries(); index++) {
+            Geometry part = mask.getGeometryN(index);
+            if (part instanceof Polygon && !part.isEmpty()) {
+                addPolygon((Polygon) part);
+            } else if (part.getNumGeometries() > 1) {
+                addParts(part);
+            }
+        }
+        buildIndex();
+    }
+
+    private void addParts(Geometry collection) {
+        for (int index = 0; index < collection.getNumGeometries(); index++) {
+            Geometry part = collection.getGeometryN(index);
+            if (part instanceof Polygon && !part.isEmpty()) {
+                addPolygon((Polygon) part);
+            }
+        }
+    }
+
+    private void addPolygon(Polygon polygon) {
+        IndexedPointInAreaLocator locator = new IndexedPointInAreaLocator(polygon);
+        try {
+            ConformingDelaunayTriangulationBuilder builder = new ConformingDelaunayTriangulationBuilder();
+            builder.setSites(polygon);
+            builder.setConstraints(polygon);
+
+            Geometry triangulation = builder.getTriangles(gf);
+            Coordinate center = new Coordinate();
+            for (int index = 0; index < triangulation.getNumGeometries(); index++) {
+                Coordinate[] coords = triangulation.getGeometryN(index).getCoordinates();
+
+                // triangles do not cross the rings, the center tells inside from outside
+                center.x = (coords[0].x + coords[1].x + coords[2].x) / 3.0;
+                center.y = (coords[0].y + coords[1].y + coords[2].y) / 3.0;
+                if (locator.locate(center) == Location.INTERIOR) {
+                    addTriangle(coords[0].x, coords[0].y, coords[1].x, coords[1].y, coords[2].x,
+                            coords[2].y);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Triangulation failed, using rejection sampling: "
+                    + e.getMessage(), e);
+            rejectionParts.add(polygon);
+            rejectionLocators.add(locator);
+        }
+    }
+
+    private void addTriangle(double ax, double ay, double bx, double by, double cx, double cy) {
+        if (triangleCount * 6 == triangles.length) {
+            double[] expanded = new double[triangles.length * 2];
+            System.arraycopy(triangles, 0, expanded, 0, triangles.length);
+            triangles = expanded;
+        }
+
+        int offset = triangleCount * 6;
+        triangles[offset] = ax;
+        triangles[offset + 1] = ay;
+        triangles[offset + 2] = bx;
+        triangles[offset + 3] = by;
+        triangles[offset + 4] = cx;
+        triangles[offset + 5] = cy;
+        triangleCount++;
+    }
+
+    private void buildIndex() {
+        cumulativeAreas = new double[triangleCount + rejectionParts.size()];
+        double sum = 0d;
+        for (int index = 0; index < triangleCount; index++) {
+            int o = index * 6;
+            double abx = triangles[o + 2] - triangles[o];
+            double aby = triangles[o + 3] - triangles[o + 1];
+            double acx = triangles[o + 4] - triangles[o];
+            double acy = triangles[o + 5] - triangles[o + 1];
+            sum += Math.abs(abx * acy - acx * aby) / 2.0;
+            cumulativeAreas[index] = sum;
+        }
+
+        for (int index = 0; index < rejectionParts.size(); index++) {
+            sum += rejectionParts.get(index).getArea();
+            cumulativeAreas[triangleCount + index] = sum;
+        }
+        area = sum;
+    }
+
+    public double getArea() {
+        return area;
+    }
+
+    public boolean isEmpty() {
+        return !(area > 0);
+    }
+
+    /**
+     * Writes numPoints random points into coords as x, y pairs starting at offset.
+     */
+    public void sample(Random random, int numPoints, double[] coords, int offset) {
+        if (isEmpty()) {
+            throw new IllegalStateException("The mask has no area!");
+        }
+
+        for (int k = 0; k < numPoints; k++) {
+            int part = find(random.nextDouble() * area);
+            int pos = offset + k * 2;
+            if (part < triangleCount) {
+                // uniform point in the triangle, reflected into it when outside
+                double r1 = random.nextDouble();
+                double r2 = random.nextDouble();
+                if (r1 + r2 > 1.0) {
+                    r1 = 1.0 - r1;
+                    r2 = 1.0 - r2;
+                }
+
+                int o = part * 6;
+                coords[pos] = triangles[o] + r1 * (triangles[o + 2] - triangles[o]) + r2
+                        * (triangles[o + 4] - triangles[o]);
+                coords[pos + 1] = triangles[o + 1] + r1 * (triangles[o + 3] - triangles[o + 1])
+                        + r2 * (triangles[o + 5] - triangles[o + 1]);
+            } else {
+                sampleRejection(random, part - triangleCount, coords, pos);
+            }
+        }
+    }
+
+    private void sampleRejection(Random random, int part, double[] coords, int pos) {
+        Envelope extent = rejectionParts.get(part).getEnvelopeInternal();
+        IndexedPointInAreaLocator locator = rejectionLocators.get(part);
+        Coordinate candidate = new Coordinate();
+        do {
+            candidate.x = extent.getMinX() + random.nextDouble() * extent.getWidth();
+            candidate.y = extent.getMinY() + random.nextDouble() * extent.getHeight();
+        } while (locator.locate(candidate) != Location.INTERIOR);
+
+        coords[pos] = candidate.x;
+        coords[pos + 1] = candidate.y;
+    }
+
+    private int find(double value) {
+        int low = 0;
+        int high = cumulativeAreas.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeAreas[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
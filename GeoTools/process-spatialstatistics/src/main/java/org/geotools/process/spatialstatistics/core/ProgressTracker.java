@@ -0,0 +1,112 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.geotools.process.ProcessException;
+import org.geotools.util.logging.Logging;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Reports the progress of a fixed amount of work to a {@link ProgressListener} and stops the work
+ * when the listener is canceled.
+ * <p>
+ * Operations call {@link #worked(long)} per feature batch, tile or iteration. The listener is
+ * only notified when the completed percentage changes, and cancellation surfaces as a
+ * {@link ProcessException} thrown from the worker, so the calling process and its parallel tasks
+ * unwind and release their resources. Instances are thread safe.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ProgressTracker {
+    protected static final Logger LOGGER = Logging.getLogger(ProgressTracker.class);
+
+    public static final String CANCELED_MESSAGE = "Process canceled";
+
+    /** Number of features or cells between two cancellation checks in tight loops */
+    public static final int CHECK_INTERVAL = 256;
+
+    private final ProgressListener listener;
+
+    private final float start;
+
+    private final float span;
+
+    private final long total;
+
+    private final AtomicLong done = new AtomicLong();
+
+    private volatile int lastPercent = -1;
+
+    public ProgressTracker(ProgressListener listener, long total) {
+        this(listener, total, 0f, 100f);
+    }
+
+    /**
+     * @param start the percentage reported when no work is done
+     * @param end the percentage reported when all the work is done
+     */
+    public ProgressTracker(ProgressListener listener, long total, float start, float end) {
+        this.listener = listener;
+        this.total = Math.max(1, total);
+        this.start = start;
+        this.span = end - start;
+    }
+
+    public void worked(long units) {
+        checkCanceled(listener);
+
+        long current = done.addAndGet(units);
+        int percent = (int) Math.min(100, current * 100 / total);
+        if (percent > lastPercent && listener != null) {
+            synchronized (this) {
+                if (percent > lastPercent) {
+                    lastPercent = percent;
+                    listener.progress(start + span * percent / 100f);
+                }
+            }
+        }
+    }
+
+    public void checkCanceled() {
+        checkCanceled(listener);
+    }
+
+    public boolean isCanceled() {
+        return listener != null && listener.isCanceled();
+    }
+
+    /**
+     * Throws a {@link ProcessException} if the listener has been canceled.
+     */
+    public static void checkCanceled(ProgressListener listener) {
+        if (listener != null && listener.isCanceled()) {
+            throw new ProcessException(CANCELED_MESSAGE);
+        }
+    }
+
+    /**
+     * Returns true if the exception was thrown because a listener has been canceled.
+     */
+    public static boolean isCancellation(Throwable e) {
+        return e instanceof ProcessException && CANCELED_MESSAGE.equals(e.getMessage());
+    }
+}
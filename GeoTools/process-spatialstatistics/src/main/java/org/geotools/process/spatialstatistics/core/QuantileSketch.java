@@ -0,0 +1,252 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Mergeable quantile sketch (KLL) with a memory footprint of O(k log(n / k)) values.
+ * <p>
+ * Values are kept in a stack of compactors. A full compactor is sorted and every other value is
+ * promoted to the next level with twice the weight, so ranks are approximated within about
+ * 2 / k of the total count. Sketches built over disjoint parts of the data, e.g. image tiles,
+ * can be merged.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class QuantileSketch {
+    protected static final Logger LOGGER = Logging.getLogger(QuantileSketch.class);
+
+    public static final int DEFAULT_K = 200;
+
+    private static final double DECAY = 2.0 / 3.0;
+
+    private final int k;
+
+    private double[][] levels = new double[1][];
+
+    private int[] sizes = new int[1];
+
+    private int numLevels = 1;
+
+    private long count = 0;
+
+    private double minimum = Double.NaN;
+
+    private double maximum = Double.NaN;
+
+    // deterministic coin for the compaction offset
+    private long seed = 0x2545F4914F6CDD1DL;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        this.k = Math.max(8, k);
+        this.levels[0] = new double[this.k];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMinimum() {
+        return minimum;
+    }
+
+    public double getMaximum() {
+        return maximum;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        if (count == 0) {
+            minimum = maximum = value;
+        } else if (value < minimum) {
+            minimum = value;
+        } else if (value > maximum) {
+            maximum = value;
+        }
+        count++;
+
+        append(0, value);
+        if (sizes[0] >= capacity(0)) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds the values of another sketch to this one.
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+
+        if (count == 0) {
+            minimum = other.minimum;
+            maximum = other.maximum;
+        } else {
+            minimum = Math.min(minimum, other.minimum);
+            maximum = Math.max(maximum, other.maximum);
+        }
+        count += other.count;
+
+        for (int level = 0; level < other.numLevels; level++) {
+            while (numLevels <= level) {
+                addLevel();
+            }
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Returns the approximate value below which the given fraction (0 - 1) of the values fall, or
+     * NaN if the sketch is empty.
+     */
+    public double getQuantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        } else if (fraction <= 0) {
+            return minimum;
+        } else if (fraction >= 1) {
+            return maximum;
+        }
+
+        // merge the sorted levels into a single weighted sequence
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int level = 0; level < numLevels; level++) {
+            int size = sizes[level];
+            if (size == 0) {
+                continue;
+            }
+
+            double[] sorted = Arrays.copyOf(levels[level], size);
+            Arrays.sort(sorted);
+
+            double[] mergedValues = new double[values.length + size];
+            long[] mergedWeights = new long[values.length + size];
+            int i = 0, j = 0, m = 0;
+            while (i < values.length || j < size) {
+                if (j == size || (i < values.length && values[i] <= sorted[j])) {
+                    mergedValues[m] = values[i];
+                    mergedWeights[m++] = weights[i++];
+                } else {
+                    mergedValues[m] = sorted[j++];
+                    mergedWeights[m++] = 1L << level;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+
+        long total = 0;
+        for (long weight : weights) {
+            total += weight;
+        }
+
+        final double target = fraction * total;
+        long cumulative = 0;
+        for (int i = 0; i < values.length; i++) {
+            cumulative += weights[i];
+            if (cumulative >= target) {
+                return values[i];
+            }
+        }
+        return maximum;
+    }
+
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    private int capacity(int level) {
+        int depth = numLevels - level - 1;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new double[Math.max(2, k / 2)];
+        numLevels++;
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels[level];
+        if (sizes[level] == items.length) {
+            items = levels[level] = Arrays.copyOf(items, items.length * 2);
+        }
+        items[sizes[level]++] = value;
+    }
+
+    private void compress() {
+        for (int level = 0; level < numLevels; level++) {
+            int size = sizes[level];
+            if (size < capacity(level)) {
+                continue;
+            }
+
+            if (level + 1 == numLevels) {
+                addLevel();
+            }
+
+            // with an odd count the first or last item stays behind, so the weight is preserved
+            double[] items = levels[level];
+            Arrays.sort(items, 0, size);
+            int from = 0, to = size;
+            if ((size & 1) == 1) {
+                if (nextBit() == 0) {
+                    from = 1;
+                } else {
+                    to = size - 1;
+                }
+            }
+
+            for (int i = from + nextBit(); i < to; i += 2) {
+                append(level + 1, items[i]);
+            }
+
+            items[0] = from == 1 ? items[0] : items[size - 1];
+            sizes[level] = size & 1;
+        }
+    }
+
+    private int nextBit() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) (seed & 1);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.coverage.grid.io.OverviewPolicy;
+import org.geotools.gce.geotiff.GeoTiffFormat;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.util.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.opengis.geometry.Envelope;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+
+/**
+ * Overviews of grid coverages.
+ * <p>
+ * When the coverage was read from a GeoTIFF that has overviews, the level is read from the file.
+ * Otherwise it is decimated (nearest neighbour, so values and NoData are preserved) from the full
+ * resolution coverage, reading one row of every step rows. Levels are not cached, so callers that
+ * use a level repeatedly should keep it. Windows of a level, as used for previews, only read the
+ * pixels of the window.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterPyramid {
+    protected static final Logger LOGGER = Logging.getLogger(RasterPyramid.class);
+
+    private RasterPyramid() {
+    }
+
+    /**
+     * Returns the level at which the image is one pixel wide and high.
+     */
+    public static int getMaximumLevel(int width, int height) {
+        int size = Math.max(1, Math.max(width, height));
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Returns the overview of a coverage, or the coverage itself for level 0.
+     */
+    public static GridCoverage2D getOverview(GridCoverage2D coverage, int level) {
+        RenderedImage image = coverage.getRenderedImage();
+        level = Math.min(level, getMaximumLevel(image.getWidth(), image.getHeight()));
+        if (level <= 0) {
+            return coverage;
+        }
+
+        Rectangle bounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        GridCoverage2D overview = readOverview(coverage, level, bounds, coverage.getEnvelope());
+        if (overview == null) {
+            overview = decimate(coverage, coverage, 1 << level, bounds, coverage.getEnvelope());
+        }
+        return overview;
+    }
+
+    /**
+     * Returns the part of an overview that covers the view envelope, given in the coordinate
+     * reference system of the coverage. Only the pixels of the window are read, so the size of the
+     * result depends on the view and the level, not on the size of the coverage.
+     */
+    public static GridCoverage2D getOverview(GridCoverage2D coverage, int level, Envelope view) {
+        RenderedImage image = coverage.getRenderedImage();
+        level = Math.min(level, getMaximumLevel(image.getWidth(), image.getHeight()));
+        if (level <= 0 || view == null) {
+            return level <= 0 ? coverage : getOverview(coverage, level);
+        }
+
+        // pixel window of the view, aligned to the cells of the level
+        final int step = 1 << level;
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final Envelope extent = coverage.getEnvelope();
+        final double cellSizeX = extent.getSpan(0) / width;
+        final double cellSizeY = extent.getSpan(1) / height;
+
+        double minCol = Math.floor((view.getMinimum(0) - extent.getMinimum(0)) / cellSizeX);
+        double maxCol = Math.ceil((view.getMaximum(0) - extent.getMinimum(0)) / cellSizeX);
+        double minRow = Math.floor((extent.getMaximum(1) - view.getMaximum(1)) / cellSizeY);
+        double maxRow = Math.ceil((extent.getMaximum(1) - view.getMinimum(1)) / cellSizeY);
+
+        int col0 = (int) Math.max(0, Math.min(width, minCol)) / step * step;
+        int row0 = (int) Math.max(0, Math.min(height, minRow)) / step * step;
+        int col1 = (int) Math.max(0, Math.min(width, maxCol));
+        int row1 = (int) Math.max(0, Math.min(height, maxRow));
+        if (col1 <= col0 || row1 <= row0) {
+            return coverage; // nothing to render
+        }
+        col1 = Math.min(width, (col1 + step - 1) / step * step);
+        row1 = Math.min(height, (row1 + step - 1) / step * step);
+
+        GeneralEnvelope window = new GeneralEnvelope(coverage.getCoordinateReferenceSystem());
+        window.setRange(0, extent.getMinimum(0) + col0 * cellSizeX, extent.getMinimum(0) + col1
+                * cellSizeX);
+        window.setRange(1, extent.getMaximum(1) - row1 * cellSizeY, extent.getMaximum(1) - row0
+                * cellSizeY);
+
+        Rectangle bounds = new Rectangle(col0, row0, col1 - col0, row1 - row0);
+        GridCoverage2D overview = readOverview(coverage, level, bounds, window);
+        if (overview == null) {
+            overview = decimate(coverage, coverage, step, bounds, window);
+        }
+        return overview;
+    }
+
+    /**
+     * Reads an overview from the GeoTIFF file the coverage was read from, if it has overviews.
+     */
+    private static GridCoverage2D readOverview(GridCoverage2D coverage, int level,
+            Rectangle bounds, Envelope window) {
+        Object source = coverage.getProperty(GridCoverage2DReader.FILE_SOURCE_PROPERTY);
+        if (source == null) {
+            return null;
+        }
+
+        File file = source instanceof File ? (File) source : new File(source.toString());
+        if (!file.isFile() || !new GeoTiffFormat().accepts(file)) {
+            return null;
+        }
+
+        GeoTiffReader reader = null;
+        try {
+            Hints hints = new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.TRUE);
+            reader = new GeoTiffReader(file, hints);
+
+            double[][] resolutions = reader.getResolutionLevels();
+            if (resolutions == null || resolutions.length <= 1) {
+                return null;
+            }
+
+            int step = 1 << level;
+            GridEnvelope2D range = new GridEnvelope2D(0, 0, (bounds.width + step - 1) / step,
+                    (bounds.height + step - 1) / step);
+
+            ParameterValue<GridGeometry2D> gridGeometry = AbstractGridFormat.READ_GRIDGEOMETRY2D
+                    .createValue();
+            gridGeometry.setValue(new GridGeometry2D(range, window));
+
+            ParameterValue<OverviewPolicy> policy = AbstractGridFormat.OVERVIEW_POLICY
+                    .createValue();
+            policy.setValue(OverviewPolicy.NEAREST);
+
+            GridCoverage2D overview = reader.read(new GeneralParameterValue[] { gridGeometry,
+                    policy });
+            if (overview == null) {
+                return null;
+            }
+
+            // load the pixels before the reader is disposed
+            RenderedImage overviewImage = overview.getRenderedImage();
+            return createCoverage(coverage, overview, overviewImage.getData(),
+                    overviewImage.getSampleModel(), overviewImage, window);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, e.getMessage(), e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Keeps every step-th pixel of every step-th row of the source within the pixel bounds.
+     */
+    private static GridCoverage2D decimate(GridCoverage2D coverage, GridCoverage2D source,
+            int step, Rectangle bounds, Envelope window) {
+        final RenderedImage image = source.getRenderedImage();
+        final int width = bounds.width;
+        final int height = bounds.height;
+        final int bands = image.getSampleModel().getNumBands();
+        final int outWidth = (width + step - 1) / step;
+        final int outHeight = (height + step - 1) / step;
+
+        SampleModel sampleModel = image.getSampleModel().createCompatibleSampleModel(outWidth,
+                outHeight);
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, null);
+
+        double[] samples = null;
+        double[] decimated = new double[outWidth];
+        for (int row = 0; row < outHeight; row++) {
+            Rectangle line = new Rectangle(image.getMinX() + bounds.x, image.getMinY() + bounds.y
+                    + row * step, width, 1);
+            Raster data = image.getData(line);
+            for (int band = 0; band < bands; band++) {
+                samples = data.getSamples(line.x, line.y, width, 1, band, samples);
+                for (int col = 0; col < outWidth; col++) {
+                    decimated[col] = samples[col * step];
+                }
+                raster.setSamples(0, row, outWidth, 1, band, decimated);
+            }
+        }
+
+        return createCoverage(coverage, source, raster, sampleModel, image, window);
+    }
+
+    private static GridCoverage2D createCoverage(GridCoverage2D coverage, GridCoverage2D source,
+            Raster raster, SampleModel sampleModel, RenderedImage image, Envelope envelope) {
+        TiledImage tiledImage = new TiledImage(0, 0, raster.getWidth(), raster.getHeight(), 0, 0,
+                sampleModel.createCompatibleSampleModel(raster.getWidth(), raster.getHeight()),
+                image.getColorModel());
+        tiledImage.setData(raster.createTranslatedChild(0, 0));
+
+        GridCoverageFactory factory = CoverageFactoryFinder.getGridCoverageFactory(null);
+        return factory.create(coverage.getName(), tiledImage, envelope,
+                source.getSampleDimensions(), null, coverage.getProperties());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.awt.image.RenderedImage;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Resolution policy for operations that can work on a coarser version of a coverage, such as
+ * statistics, histograms, styling and previews.
+ * <p>
+ * Each overview level halves the width and the height of the previous level. Overviews are read
+ * from the GeoTIFF the coverage was loaded from when it has them, otherwise they are decimated by
+ * {@link RasterPyramid}.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public final class RasterResolution {
+    protected static final Logger LOGGER = Logging.getLogger(RasterResolution.class);
+
+    /** Default pixel count of approximate statistics and previews, 4096 x 4096 */
+    public static final long DEFAULT_TARGET_PIXELS = 1L << 24;
+
+    /** Reads every pixel of the full resolution coverage */
+    public static final RasterResolution EXACT = new RasterResolution(0, 0);
+
+    /** Reads the finest level with at most {@link #DEFAULT_TARGET_PIXELS} pixels */
+    public static final RasterResolution PREVIEW = new RasterResolution(0, DEFAULT_TARGET_PIXELS);
+
+    private final int overviewLevel;
+
+    private final long targetPixels;
+
+    private RasterResolution(int overviewLevel, long targetPixels) {
+        this.overviewLevel = overviewLevel;
+        this.targetPixels = targetPixels;
+    }
+
+    /**
+     * @param level the overview level, 0 is the full resolution
+     */
+    public static RasterResolution overviewLevel(int level) {
+        return level <= 0 ? EXACT : new RasterResolution(level, 0);
+    }
+
+    /**
+     * @param pixels the maximum number of pixels of the level to read
+     */
+    public static RasterResolution targetPixels(long pixels) {
+        return pixels <= 0 ? EXACT : new RasterResolution(0, pixels);
+    }
+
+    public boolean isExact() {
+        return overviewLevel == 0 && targetPixels == 0;
+    }
+
+    public int getOverviewLevel() {
+        return overviewLevel;
+    }
+
+    public long getTargetPixels() {
+        return targetPixels;
+    }
+
+    /**
+     * Returns the overview level of a full resolution image of the given size.
+     */
+    public int getLevel(int width, int height) {
+        if (targetPixels == 0) {
+            return Math.min(overviewLevel, RasterPyramid.getMaximumLevel(width, height));
+        }
+
+        int level = 0;
+        long pixels = (long) width * height;
+        while (pixels > targetPixels && level < RasterPyramid.getMaximumLevel(width, height)) {
+            level++;
+            long step = 1L << level;
+            pixels = ((width + step - 1) / step) * ((height + step - 1) / step);
+        }
+        return level;
+    }
+
+    /**
+     * Returns the coverage itself or its overview selected by this policy.
+     */
+    public GridCoverage2D select(GridCoverage2D coverage) {
+        if (isExact() || coverage == null) {
+            return coverage;
+        }
+
+        RenderedImage image = coverage.getRenderedImage();
+        return RasterPyramid.getOverview(coverage, getLevel(image.getWidth(), image.getHeight()));
+    }
+
+    @Override
+    public String toString() {
+        if (isExact()) {
+            return "EXACT";
+        }
+        return targetPixels > 0 ? "TARGET_PIXELS(" + targetPixels + ")" : "OVERVIEW_LEVEL("
+                + overviewLevel + ")";
+    }
+}
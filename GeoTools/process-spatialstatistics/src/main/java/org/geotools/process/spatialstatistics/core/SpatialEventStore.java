@@ -0,0 +1,502 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Columnar store of spatial events (feature centroids) shared by the distribution and pattern
+ * operations.
+ * <p>
+ * Coordinates, weights and case indexes are kept in primitive arrays instead of one object per
+ * feature. Case values are kept in a dictionary and referenced by index. After
+ * {@link #groupByCase()} the events of every case occupy a contiguous range of the arrays.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class SpatialEventStore {
+    protected static final Logger LOGGER = Logging.getLogger(SpatialEventStore.class);
+
+    public static final String CASE_ALL = "ALL";
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private int size = 0;
+
+    private double[] x;
+
+    private double[] y;
+
+    private double[] z; // allocated on first non-NaN z value
+
+    private double[] weight;
+
+    private int[] caseIndex; // allocated on first case other than the first one
+
+    private int[] featureIndex; // allocated by groupByCase
+
+    private double[][] values;
+
+    private String[] ids;
+
+    private final List<Object> caseValues = new ArrayList<Object>();
+
+    private final Map<Object, Integer> caseLookup = new HashMap<Object, Integer>();
+
+    private int[] caseOffsets;
+
+    private Envelope extent = new Envelope();
+
+    public SpatialEventStore() {
+        this(DEFAULT_CAPACITY, 0, false);
+    }
+
+    public SpatialEventStore(int capacity, int numValues, boolean keepIDs) {
+        capacity = Math.max(16, capacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        weight = new double[capacity];
+        values = new double[numValues][];
+        for (int k = 0; k < numValues; k++) {
+            values[k] = new double[capacity];
+        }
+        if (keepIDs) {
+            ids = new String[capacity];
+        }
+    }
+
+    /**
+     * Loads the centroids of the features using weight 1.0 and a single case.
+     */
+    public static SpatialEventStore load(SimpleFeatureCollection features) {
+        return load(features, null, 1.0d, null, null, false);
+    }
+
+    /**
+     * Loads the geometric centroids ({@link Geometry#getCentroid()}) of the features using weight
+     * 1.0 and a single case, as the pattern operations do. {@link #load(SimpleFeatureCollection)}
+     * loads the true centroids of multipart geometries instead.
+     */
+    public static SpatialEventStore loadCentroids(SimpleFeatureCollection features) {
+        return load(features, null, 1.0d, null, null, false, false);
+    }
+
+    public static SpatialEventStore load(SimpleFeatureCollection features, String weightField,
+            String caseField) {
+        return load(features, weightField, 1.0d, caseField, null, false);
+    }
+
+    /**
+     * Loads the centroids of the features.
+     *
+     * @param features input features
+     * @param weightField weight field, null means {@code defaultWeight} for all events
+     * @param defaultWeight used when weight is null, NaN or infinite
+     * @param caseField case field, null means all events belong to the {@link #CASE_ALL} case
+     * @param valueFields additional numeric fields; null, NaN or infinite values are stored as NaN
+     * @param keepIDs keep feature ids
+     * @return SpatialEventStore
+     */
+    public static SpatialEventStore load(SimpleFeatureCollection features, String weightField,
+            double defaultWeight, String caseField, String[] valueFields, boolean keepIDs) {
+        return load(features, weightField, defaultWeight, caseField, valueFields, keepIDs, true);
+    }
+
+    private static SpatialEventStore load(SimpleFeatureCollection features, String weightField,
+            double defaultWeight, String caseField, String[] valueFields, boolean keepIDs,
+            boolean trueCentroid) {
+        SimpleFeatureType schema = features.getSchema();
+        weightField = FeatureTypes.validateProperty(schema, weightField);
+        caseField = FeatureTypes.validateProperty(schema, caseField);
+
+        int idxWeight = weightField == null ? -1 : schema.indexOf(weightField);
+        int idxCase = caseField == null ? -1 : schema.indexOf(caseField);
+        int[] idxValues = new int[valueFields == null ? 0 : valueFields.length];
+        for (int k = 0; k < idxValues.length; k++) {
+            String field = FeatureTypes.validateProperty(schema, valueFields[k]);
+            idxValues[k] = field == null ? -1 : schema.indexOf(field);
+        }
+
+        SpatialEventStore store = new SpatialEventStore(DEFAULT_CAPACITY, idxValues.length,
+                keepIDs);
+        double[] vals = new double[idxValues.length];
+
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                Coordinate coordinate = trueCentroid ? getTrueCentroid(geometry) : geometry
+                        .getCentroid().getCoordinate();
+
+                double weightVal = defaultWeight;
+                if (idxWeight != -1) {
+                    weightVal = toDouble(feature.getAttribute(idxWeight), defaultWeight);
+                }
+
+                Object caseVal = idxCase == -1 ? CASE_ALL : feature.getAttribute(idxCase);
+
+                for (int k = 0; k < idxValues.length; k++) {
+                    vals[k] = idxValues[k] == -1 ? Double.NaN : toDouble(
+                            feature.getAttribute(idxValues[k]), Double.NaN);
+                }
+
+                int index = store.add(coordinate.x, coordinate.y, coordinate.z, weightVal,
+                        caseVal, vals);
+                if (keepIDs) {
+                    store.ids[index] = feature.getID();
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        store.trimToSize();
+        return store;
+    }
+
+    private static double toDouble(Object value, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        double dblVal = defaultValue;
+        if (value instanceof Number) {
+            dblVal = ((Number) value).doubleValue();
+        } else {
+            Double converted = Converters.convert(value, Double.class);
+            dblVal = converted == null ? defaultValue : converted.doubleValue();
+        }
+
+        if (Double.isNaN(dblVal) || Double.isInfinite(dblVal)) {
+            return defaultValue;
+        }
+        return dblVal;
+    }
+
+    /**
+     * The center of gravity for a geometry. For multipart geometries the centroid is the mean
+     * center of the parts weighted by 1 for points, length for lines and area for polygons.
+     */
+    public static Coordinate getTrueCentroid(Geometry inputGeometry) {
+        double sumX = 0.0;
+        double sumY = 0.0;
+        double weightSum = 0.0;
+
+        if (inputGeometry instanceof Point) {
+            return ((Point) inputGeometry).getCoordinate();
+        } else if (inputGeometry instanceof LineString) {
+            return inputGeometry.getCentroid().getCoordinate();
+        } else if (inputGeometry instanceof Polygon) {
+            return inputGeometry.getCentroid().getCoordinate();
+        } else if (inputGeometry instanceof MultiPoint) {
+            MultiPoint mp = (MultiPoint) inputGeometry;
+            for (int k = 0; k < mp.getNumGeometries(); k++) {
+                Coordinate cen = mp.getGeometryN(k).getCoordinate();
+
+                weightSum += 1;
+                sumX += cen.x;
+                sumY += cen.y;
+            }
+            return new Coordinate(sumX / weightSum, sumY / weightSum);
+        } else if (inputGeometry instanceof MultiLineString) {
+            MultiLineString ml = (MultiLineString) inputGeometry;
+            for (int k = 0; k < ml.getNumGeometries(); k++) {
+                Geometry lineString = ml.getGeometryN(k);
+                Coordinate cen = lineString.getCentroid().getCoordinate();
+                final double length = lineString.getLength();
+
+                weightSum += length;
+                sumX += cen.x * length;
+                sumY += cen.y * length;
+            }
+            return new Coordinate(sumX / weightSum, sumY / weightSum);
+        } else if (inputGeometry instanceof MultiPolygon) {
+            MultiPolygon mp = (MultiPolygon) inputGeometry;
+            for (int k = 0; k < mp.getNumGeometries(); k++) {
+                Geometry polygon = mp.getGeometryN(k);
+                Coordinate cen = polygon.getCentroid().getCoordinate();
+                final double area = polygon.getArea();
+
+                weightSum += area;
+                sumX += cen.x * area;
+                sumY += cen.y * area;
+            }
+            return new Coordinate(sumX / weightSum, sumY / weightSum);
+        } else if (inputGeometry instanceof GeometryCollection) {
+            GeometryCollection gc = (GeometryCollection) inputGeometry;
+            for (int k = 0; k < gc.getNumGeometries(); k++) {
+                Coordinate cen = getTrueCentroid(gc.getGeometryN(k));
+
+                weightSum += 1;
+                sumX += cen.x;
+                sumY += cen.y;
+            }
+            return new Coordinate(sumX / weightSum, sumY / weightSum);
+        }
+
+        return inputGeometry.getCentroid().getCoordinate();
+    }
+
+    public int add(double xVal, double yVal, double weightVal) {
+        return add(xVal, yVal, Double.NaN, weightVal, CASE_ALL, null);
+    }
+
+    /**
+     * Appends an event and returns its index.
+     */
+    public int add(double xVal, double yVal, double zVal, double weightVal, Object caseVal,
+            double[] vals) {
+        if (caseOffsets != null) {
+            throw new IllegalStateException("Events can not be added after groupByCase!");
+        }
+
+        if (size == x.length) {
+            grow(size + (size >> 1) + 1);
+        }
+
+        final int index = size;
+        x[index] = xVal;
+        y[index] = yVal;
+        weight[index] = weightVal;
+        extent.expandToInclude(xVal, yVal);
+
+        if (!Double.isNaN(zVal)) {
+            if (z == null) {
+                z = new double[x.length];
+                Arrays.fill(z, Double.NaN);
+            }
+            z[index] = zVal;
+        } else if (z != null) {
+            z[index] = Double.NaN;
+        }
+
+        int caseIdx = getCaseIndex(caseVal == null ? CASE_ALL : caseVal);
+        if (caseIdx != 0 && caseIndex == null) {
+            caseIndex = new int[x.length];
+        }
+        if (caseIndex != null) {
+            caseIndex[index] = caseIdx;
+        }
+
+        for (int k = 0; k < values.length; k++) {
+            values[k][index] = vals == null ? Double.NaN : vals[k];
+        }
+
+        size++;
+        return index;
+    }
+
+    private int getCaseIndex(Object caseVal) {
+        Integer caseIdx = caseLookup.get(caseVal);
+        if (caseIdx == null) {
+            caseIdx = Integer.valueOf(caseValues.size());
+            caseValues.add(caseVal);
+            caseLookup.put(caseVal, caseIdx);
+        }
+        return caseIdx.intValue();
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        if (z != null) {
+            z = Arrays.copyOf(z, capacity);
+        }
+        if (caseIndex != null) {
+            caseIndex = Arrays.copyOf(caseIndex, capacity);
+        }
+        if (ids != null) {
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        for (int k = 0; k < values.length; k++) {
+            values[k] = Arrays.copyOf(values[k], capacity);
+        }
+    }
+
+    public void trimToSize() {
+        if (size < x.length) {
+            grow(size);
+        }
+    }
+
+    /**
+     * Reorders the events so that the events of each case occupy a contiguous range, keeping the
+     * original order within a case. Use {@link #getCaseStart(int)} and {@link #getCaseEnd(int)}
+     * to get the ranges and {@link #getFeatureIndex(int)} to map an event back to its load order.
+     */
+    public synchronized void groupByCase() {
+        if (caseOffsets != null) {
+            return;
+        }
+
+        final int numCases = Math.max(1, caseValues.size());
+        caseOffsets = new int[numCases + 1];
+        if (caseIndex == null) {
+            caseOffsets[1] = size;
+            for (int c = 2; c <= numCases; c++) {
+                caseOffsets[c] = size;
+            }
+            return;
+        }
+
+        // stable counting sort
+        for (int i = 0; i < size; i++) {
+            caseOffsets[caseIndex[i] + 1]++;
+        }
+        for (int c = 0; c < numCases; c++) {
+            caseOffsets[c + 1] += caseOffsets[c];
+        }
+
+        int[] next = Arrays.copyOf(caseOffsets, numCases);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[next[caseIndex[i]]++] = i;
+        }
+
+        x = permute(x, order);
+        y = permute(y, order);
+        weight = permute(weight, order);
+        if (z != null) {
+            z = permute(z, order);
+        }
+        for (int k = 0; k < values.length; k++) {
+            values[k] = permute(values[k], order);
+        }
+        if (ids != null) {
+            String[] sorted = new String[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ids[order[i]];
+            }
+            ids = sorted;
+        }
+
+        int[] sortedCase = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedCase[i] = caseIndex[order[i]];
+        }
+        caseIndex = sortedCase;
+        featureIndex = order;
+    }
+
+    private double[] permute(double[] source, int[] order) {
+        double[] sorted = new double[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = source[order[i]];
+        }
+        return sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double getZ(int index) {
+        return z == null ? Double.NaN : z[index];
+    }
+
+    public boolean hasZ() {
+        return z != null;
+    }
+
+    public double[] getWeight() {
+        return weight;
+    }
+
+    public double[] getValues(int column) {
+        return values[column];
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    public String getID(int index) {
+        return ids == null ? null : ids[index];
+    }
+
+    public int getCaseIndex(int index) {
+        return caseIndex == null ? 0 : caseIndex[index];
+    }
+
+    public int getCaseCount() {
+        return caseValues.size();
+    }
+
+    public Object getCaseValue(int caseIdx) {
+        return caseValues.get(caseIdx);
+    }
+
+    public int getCaseStart(int caseIdx) {
+        groupByCase();
+        return caseOffsets[caseIdx];
+    }
+
+    public int getCaseEnd(int caseIdx) {
+        groupByCase();
+        return caseOffsets[caseIdx + 1];
+    }
+
+    /**
+     * Returns the load order of the event, i.e. its position among the features with a non-empty
+     * geometry.
+     */
+    public int getFeatureIndex(int index) {
+        return featureIndex == null ? index : featureIndex[index];
+    }
+
+    public Envelope getExtent() {
+        return extent;
+    }
+}
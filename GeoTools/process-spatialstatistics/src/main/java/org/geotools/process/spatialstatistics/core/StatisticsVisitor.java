@@ -120,6 +120,13 @@ public class StatisticsVisitor {
         }
     }
 
+    /**
+     * Visits the band of the coverage, or of its overview selected by the resolution policy.
+     */
+    public void visit(GridCoverage2D inputCoverage, Integer bandIndex, RasterResolution resolution) {
+        visit(resolution.select(inputCoverage), bandIndex);
+    }
+
     public void visit(SimpleFeatureCollection features) {
         reset();
 
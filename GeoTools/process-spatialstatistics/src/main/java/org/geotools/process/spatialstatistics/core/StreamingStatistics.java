@@ -0,0 +1,142 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Constant memory accumulator of count, sum, sum of squares, range and quantiles.
+ * <p>
+ * Instances are not thread safe: each task accumulates its own part of the data and the parts
+ * are merged afterwards.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class StreamingStatistics {
+    protected static final Logger LOGGER = Logging.getLogger(StreamingStatistics.class);
+
+    private long count = 0;
+
+    private double sum = 0;
+
+    private double sumOfSqrs = 0;
+
+    private double minimum = Double.MAX_VALUE;
+
+    private double maximum = -Double.MAX_VALUE;
+
+    private boolean integral = true;
+
+    private final QuantileSketch sketch;
+
+    public StreamingStatistics() {
+        this(true);
+    }
+
+    /**
+     * @param quantiles if true, a {@link QuantileSketch} is also maintained
+     */
+    public StreamingStatistics(boolean quantiles) {
+        this.sketch = quantiles ? new QuantileSketch() : null;
+    }
+
+    public void add(double value) {
+        sum += value;
+        sumOfSqrs += value * value;
+        if (value < minimum) {
+            minimum = value;
+        }
+        if (value > maximum) {
+            maximum = value;
+        }
+        if (integral && value != Math.rint(value)) {
+            integral = false;
+        }
+        if (sketch != null) {
+            sketch.add(value);
+        }
+        count++;
+    }
+
+    public void merge(StreamingStatistics other) {
+        count += other.count;
+        sum += other.sum;
+        sumOfSqrs += other.sumOfSqrs;
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+        integral &= other.integral;
+        if (sketch != null) {
+            sketch.merge(other.sketch);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMinimum() {
+        return count == 0 ? Double.NaN : minimum;
+    }
+
+    public double getMaximum() {
+        return count == 0 ? Double.NaN : maximum;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Population variance
+     */
+    public double getVariance() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return Math.max(0, (sumOfSqrs - (sum * sum) / count) / count);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns true if every value added so far is a whole number.
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * Returns the approximate quantile (0 - 1), or NaN if quantiles are not maintained.
+     */
+    public double getQuantile(double fraction) {
+        return sketch == null ? Double.NaN : sketch.getQuantile(fraction);
+    }
+
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+}
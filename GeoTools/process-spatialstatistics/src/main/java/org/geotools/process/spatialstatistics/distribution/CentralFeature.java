@@ -17,10 +17,14 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.geotools.geometry.jts.JTSFactoryFinder;
-import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.util.factory.GeoTools;
 import org.locationtech.jts.geom.Coordinate;
@@ -29,6 +33,15 @@ import org.locationtech.jts.geom.Point;
 
 /**
  * CentralFeature
+ * <p>
+ * The central feature minimizes the weighted sum of distances to all other features. Events are
+ * aggregated into grid cells and every candidate gets a lower bound (Jensen's inequality on the
+ * cell centroids) and an upper bound (cell dispersion) of its total distance. Only candidates whose
+ * lower bound is below the best upper bound are evaluated exactly, in ascending order of their
+ * lower bound, so large inputs are no longer O(n<sup>2</sup>).
+ * <p>
+ * If a relative tolerance is set, the candidate with the smallest upper bound is returned without
+ * the exact pass when its guaranteed error is within the tolerance.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -36,76 +49,364 @@ import org.locationtech.jts.geom.Point;
  */
 public class CentralFeature {
 
-    class Event {
-        int oid;
+    static final int BRUTE_FORCE_THRESHOLD = 2048;
 
-        public double x;
+    static final int MAX_CELLS = 1024;
 
-        public double y;
+    static final int EVENTS_PER_CELL = 64;
 
-        public double weight = 1.0;
+    private DistanceMethod distanceMethod = DistanceMethod.Euclidean;
 
-        public double potential = 0.0;
+    private final SpatialEventStore events;
 
-        public Event() {
-        }
+    private final int start;
 
-        public Event(int oid, double x, double y, double weight, double potential) {
-            this.oid = oid;
-            this.x = x;
-            this.y = y;
-            this.weight = weight;
-            this.potential = potential;
-        }
-    }
+    private int end;
 
-    private DistanceMethod distanceMethod = DistanceMethod.Euclidean;
+    private final int potentialColumn;
 
-    private int numFeatures = 0;
+    private double tolerance = 0d;
 
-    private List<Event> events = new ArrayList<Event>();
+    private double errorBound = 0d;
 
     private GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
+    public CentralFeature() {
+        this.events = new SpatialEventStore(SpatialEventStore.DEFAULT_CAPACITY, 1, false);
+        this.start = 0;
+        this.end = 0;
+        this.potentialColumn = 0;
+    }
+
+    /**
+     * Uses the events [start, end) of the event store.
+     * 
+     * @param potentialColumn value column of the self potential field, -1 if none
+     */
+    public CentralFeature(SpatialEventStore events, int start, int end, int potentialColumn) {
+        this.events = events;
+        this.start = start;
+        this.end = end;
+        this.potentialColumn = potentialColumn;
+    }
+
     public void addValue(Coordinate coordinate, double weight, double potential) {
-        events.add(new Event(numFeatures, coordinate.x, coordinate.y, weight, potential));
-        numFeatures++;
+        events.add(coordinate.x, coordinate.y, Double.NaN, weight, SpatialEventStore.CASE_ALL,
+                new double[] { potential });
+        end = events.size();
     }
 
     public void addValue(Point point, double weight, double potential) {
         addValue(point.getCoordinate(), weight, potential);
     }
 
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the accepted relative error of the total distance of the returned event. 0 (default)
+     * always returns the exact central feature.
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = Math.max(0d, tolerance);
+    }
+
+    /**
+     * Returns the upper bound of the difference between the total distance of the returned event
+     * and that of the exact central feature, 0 if the result is exact.
+     */
+    public double getErrorBound() {
+        return errorBound;
+    }
+
     public Point getCentralEvent() {
-        double minDistance = Double.MAX_VALUE;
-        Event centralEvent = new Event();
-
-        for (Event ce : events) {
-            double curDistance = 0d;
-            for (Event de : events) {
-                double dij = 0d;
-                if (ce.oid == de.oid) {
-                    dij = ce.potential;
-                } else {
-                    switch (distanceMethod) {
-                    case Euclidean:
-                        dij = SSUtils.getEuclideanDistance(ce.x, ce.y, de.x, de.y);
-                        break;
-                    case Manhattan:
-                        dij = SSUtils.getManhattanDistance(ce.x, ce.y, de.x, de.y);
-                        break;
+        errorBound = 0d;
+        if (end <= start) {
+            return gf.createPoint(new Coordinate(0d, 0d));
+        }
+
+        int centralEvent = -1;
+        if (end - start > BRUTE_FORCE_THRESHOLD && !hasNegativeWeight()) {
+            centralEvent = findWithBounds();
+        } else {
+            centralEvent = findBruteForce();
+        }
+
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        return gf.createPoint(new Coordinate(xs[centralEvent], ys[centralEvent]));
+    }
+
+    private boolean hasNegativeWeight() {
+        final double[] weights = events.getWeight();
+        for (int i = start; i < end; i++) {
+            if (weights[i] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double getPotential(int index) {
+        if (potentialColumn == -1) {
+            return 0d;
+        }
+        double potential = events.getValues(potentialColumn)[index];
+        return Double.isNaN(potential) ? 0d : potential * events.getWeight()[index];
+    }
+
+    private double getTotalDistance(int i) {
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        final double x = xs[i];
+        final double y = ys[i];
+
+        double curDistance = 0d;
+        if (distanceMethod == DistanceMethod.Manhattan) {
+            for (int j = start; j < end; j++) {
+                curDistance += (Math.abs(x - xs[j]) + Math.abs(y - ys[j])) * weights[j];
+            }
+        } else {
+            for (int j = start; j < end; j++) {
+                final double dx = x - xs[j];
+                final double dy = y - ys[j];
+                curDistance += Math.sqrt(dx * dx + dy * dy) * weights[j];
+            }
+        }
+
+        // the distance to itself is replaced by the self potential
+        return curDistance + getPotential(i);
+    }
+
+    private int findBruteForce() {
+        final double[] best = new double[] { Double.MAX_VALUE, start };
+        ParallelUtils.forEach(end - start, 64, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                double minDistance = Double.MAX_VALUE;
+                int centralEvent = -1;
+                for (int i = start + from; i < start + to; i++) {
+                    double curDistance = getTotalDistance(i);
+                    if (minDistance > curDistance) {
+                        minDistance = curDistance;
+                        centralEvent = i;
+                    }
+                }
+
+                synchronized (best) {
+                    if (centralEvent != -1 && (minDistance < best[0] || (minDistance == best[0]
+                            && centralEvent < best[1]))) {
+                        best[0] = minDistance;
+                        best[1] = centralEvent;
+                    }
+                }
+            }
+        });
+        return (int) best[1];
+    }
+
+    private int findWithBounds() {
+        final int size = end - start;
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        final boolean manhattan = distanceMethod == DistanceMethod.Manhattan;
+
+        // 1. aggregate events into grid cells
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        final int gridSize = (int) Math.ceil(Math.sqrt(Math.min(MAX_CELLS,
+                Math.max(1, size / EVENTS_PER_CELL))));
+        final double cellWidth = (maxX - minX) / gridSize;
+        final double cellHeight = (maxY - minY) / gridSize;
+        final int numCells = gridSize * gridSize;
+
+        final int[] cellIndex = new int[size];
+        final double[] cw = new double[numCells];
+        final double[] cx = new double[numCells];
+        final double[] cy = new double[numCells];
+        final double[] cMinX = new double[numCells];
+        final double[] cMinY = new double[numCells];
+        final double[] cMaxX = new double[numCells];
+        final double[] cMaxY = new double[numCells];
+        Arrays.fill(cMinX, Double.MAX_VALUE);
+        Arrays.fill(cMinY, Double.MAX_VALUE);
+        Arrays.fill(cMaxX, -Double.MAX_VALUE);
+        Arrays.fill(cMaxY, -Double.MAX_VALUE);
+
+        for (int i = start; i < end; i++) {
+            int col = cellWidth == 0 ? 0 : (int) ((xs[i] - minX) / cellWidth);
+            int row = cellHeight == 0 ? 0 : (int) ((ys[i] - minY) / cellHeight);
+            int cell = Math.min(row, gridSize - 1) * gridSize + Math.min(col, gridSize - 1);
+            cellIndex[i - start] = cell;
+
+            cw[cell] += weights[i];
+            cx[cell] += xs[i] * weights[i];
+            cy[cell] += ys[i] * weights[i];
+            cMinX[cell] = Math.min(cMinX[cell], xs[i]);
+            cMinY[cell] = Math.min(cMinY[cell], ys[i]);
+            cMaxX[cell] = Math.max(cMaxX[cell], xs[i]);
+            cMaxY[cell] = Math.max(cMaxY[cell], ys[i]);
+        }
+
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cw[cell] > 0) {
+                cx[cell] /= cw[cell];
+                cy[cell] /= cw[cell];
+            }
+        }
+
+        // dispersion: sum of distances (per axis for manhattan) and second moment
+        final double[] cs = new double[numCells];
+        final double[] csx = new double[numCells];
+        final double[] csy = new double[numCells];
+        final double[] cm2 = new double[numCells];
+        for (int i = start; i < end; i++) {
+            int cell = cellIndex[i - start];
+            double dx = xs[i] - cx[cell];
+            double dy = ys[i] - cy[cell];
+            csx[cell] += Math.abs(dx) * weights[i];
+            csy[cell] += Math.abs(dy) * weights[i];
+            cs[cell] += Math.sqrt(dx * dx + dy * dy) * weights[i];
+            cm2[cell] += (dx * dx + dy * dy) * weights[i];
+        }
+
+        // compact non-empty cells
+        int cells = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cw[cell] > 0) {
+                cw[cells] = cw[cell];
+                cx[cells] = cx[cell];
+                cy[cells] = cy[cell];
+                cMinX[cells] = cMinX[cell];
+                cMinY[cells] = cMinY[cell];
+                cMaxX[cells] = cMaxX[cell];
+                cMaxY[cells] = cMaxY[cell];
+                cs[cells] = cs[cell];
+                csx[cells] = csx[cell];
+                csy[cells] = csy[cell];
+                cm2[cells] = cm2[cell];
+                cells++;
+            }
+        }
+        final int numValidCells = cells;
+
+        // 2. lower and upper bounds of every candidate
+        final double[] lower = new double[size];
+        final double[] upper = new double[size];
+        ParallelUtils.forEach(size, 256, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int k = from; k < to; k++) {
+                    final double x = xs[start + k];
+                    final double y = ys[start + k];
+                    double approx = getPotential(start + k);
+                    double slack = 0d;
+                    for (int cell = 0; cell < numValidCells; cell++) {
+                        final double dx = x - cx[cell];
+                        final double dy = y - cy[cell];
+                        if (manhattan) {
+                            approx += (Math.abs(dx) + Math.abs(dy)) * cw[cell];
+                            // exact if the candidate is outside the cell's range of an axis
+                            if (x > cMinX[cell] && x < cMaxX[cell]) {
+                                slack += csx[cell];
+                            }
+                            if (y > cMinY[cell] && y < cMaxY[cell]) {
+                                slack += csy[cell];
+                            }
+                        } else {
+                            final double d = Math.sqrt(dx * dx + dy * dy);
+                            approx += d * cw[cell];
+                            slack += d > 0 ? Math.min(cs[cell], cm2[cell] / (2d * d)) : cs[cell];
+                        }
                     }
+                    lower[k] = approx;
+                    upper[k] = approx + slack;
                 }
-                curDistance += (dij * de.weight);
             }
+        });
 
-            if (minDistance > curDistance) {
-                minDistance = curDistance;
-                centralEvent = ce;
+        int bestUpper = 0;
+        double minLower = Double.MAX_VALUE;
+        for (int k = 0; k < size; k++) {
+            if (upper[k] < upper[bestUpper]) {
+                bestUpper = k;
+            }
+            minLower = Math.min(minLower, lower[k]);
+        }
+
+        // 3. approximate mode
+        double gap = upper[bestUpper] - minLower;
+        if (tolerance > 0 && gap <= tolerance * Math.abs(minLower)) {
+            errorBound = Math.max(0d, gap);
+            return start + bestUpper;
+        }
+
+        // 4. exact evaluation of the remaining candidates in ascending order of lower bound
+        final double threshold = upper[bestUpper];
+        List<Integer> candidateList = new ArrayList<Integer>();
+        for (int k = 0; k < size; k++) {
+            if (lower[k] <= threshold) {
+                candidateList.add(Integer.valueOf(k));
+            }
+        }
+
+        Collections.sort(candidateList, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int comp = Double.compare(lower[o1.intValue()], lower[o2.intValue()]);
+                return comp == 0 ? o1.compareTo(o2) : comp;
+            }
+        });
+
+        final int[] candidates = new int[candidateList.size()];
+        for (int k = 0; k < candidates.length; k++) {
+            candidates[k] = candidateList.get(k).intValue();
+        }
+
+        final int batchSize = Math.max(8, ParallelUtils.getParallelism() * 2);
+        final double[] distances = new double[batchSize];
+        double minDistance = Double.MAX_VALUE;
+        int centralEvent = bestUpper;
+
+        for (int offset = 0; offset < candidates.length; offset += batchSize) {
+            // lower bounds only increase, stop once none of the rest can win
+            double next = lower[candidates[offset]];
+            if (next - minDistance > 1e-12 * Math.abs(minDistance)) {
+                break;
+            }
+
+            final int batchStart = offset;
+            final int batchCount = Math.min(batchSize, candidates.length - offset);
+            ParallelUtils.forEach(batchCount, 1, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    for (int b = from; b < to; b++) {
+                        distances[b] = getTotalDistance(start + candidates[batchStart + b]);
+                    }
+                }
+            });
+
+            for (int b = 0; b < batchCount; b++) {
+                int k = candidates[batchStart + b];
+                if (distances[b] < minDistance
+                        || (distances[b] == minDistance && k < centralEvent)) {
+                    minDistance = distances[b];
+                    centralEvent = k;
+                }
             }
         }
 
-        return gf.createPoint(new Coordinate(centralEvent.x, centralEvent.y));
+        return start + centralEvent;
     }
 
     public DistanceMethod getDistanceMethod() {
@@ -115,4 +416,4 @@ public class CentralFeature {
     public void setDistanceMethod(DistanceMethod distanceMethod) {
         this.distanceMethod = distanceMethod;
     }
-}
\ No newline at end of file
+}
@@ -17,23 +17,19 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
-import org.opengis.filter.expression.Expression;
 
 /**
  * Identifies the most centrally located feature in a point, line, or polygon feature class.
@@ -57,6 +53,19 @@ public class CentralFeatureOperation extends AbstractDistributionOperator {
         this.distanceMethod = distanceMethod;
     }
 
+    private double tolerance = 0d;
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Accepted relative error of the total distance of the central feature, 0 (default) is exact.
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
     public SimpleFeatureCollection execute(SimpleFeatureCollection features, String weightField,
             String potentialField, String caseField) throws IOException {
         SimpleFeatureType schema = features.getSchema();
@@ -64,54 +73,28 @@ public class CentralFeatureOperation extends AbstractDistributionOperator {
         caseField = FeatureTypes.validateProperty(schema, caseField);
         potentialField = FeatureTypes.validateProperty(schema, potentialField);
 
-        int idxWeight = weightField == null ? -1 : schema.indexOf(weightField);
         int idxCase = caseField == null ? -1 : schema.indexOf(caseField);
         int idxPot = potentialField == null ? -1 : schema.indexOf(potentialField);
-        Expression weightExpr = ff.property(weightField);
-        Expression potentialExpr = ff.property(potentialField);
-
-        CentralFeatureVisitor visitor = new CentralFeatureVisitor();
-        visitor.setDistanceMethod(distanceMethod);
-
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                if (geometry == null || geometry.isEmpty()) {
-                    continue;
-                }
 
-                Coordinate coordinate = getTrueCentroid(geometry);
-                Object caseVal = idxCase == -1 ? ALL : feature.getAttribute(idxCase);
-
-                double weightVal = 1.0;
-                if (idxWeight != -1) {
-                    weightVal = this.getValue(feature, weightExpr, 0.0);
-                }
-
-                double potVal = 0.0;
-                if (idxPot != -1) {
-                    potVal = this.getValue(feature, potentialExpr, potVal);
-                }
-
-                visitor.visit(coordinate, caseVal, weightVal, potVal);
-            }
-        } finally {
-            featureIter.close();
-        }
+        // invalid weights are 0, no weight field means 1
+        double defaultWeight = weightField == null ? 1.0 : 0.0;
+        String[] valueFields = idxPot == -1 ? null : new String[] { potentialField };
+        SpatialEventStore events = SpatialEventStore.load(features, weightField, defaultWeight,
+                caseField, valueFields, false);
+        events.groupByCase();
 
         String the_geom = schema.getGeometryDescriptor().getLocalName();
         SimpleFeatureType featureType = FeatureTypes.build(schema, TYPE_NAME);
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
-        @SuppressWarnings("unchecked")
-        HashMap<Object, CentralFeature> resultMap = visitor.getResult();
-        Iterator<Object> iter = resultMap.keySet().iterator();
+        SimpleFeatureIterator featureIter = null;
         try {
-            while (iter.hasNext()) {
-                Object caseVal = iter.next();
-                CentralFeature cf = resultMap.get(caseVal);
+            for (int caseIdx = 0; caseIdx < events.getCaseCount(); caseIdx++) {
+                Object caseVal = events.getCaseValue(caseIdx);
+                CentralFeature cf = new CentralFeature(events, events.getCaseStart(caseIdx),
+                        events.getCaseEnd(caseIdx), idxPot == -1 ? -1 : 0);
+                cf.setDistanceMethod(distanceMethod);
+                cf.setTolerance(tolerance);
                 Point cenPt = cf.getCentralEvent();
 
                 Filter filter = null;
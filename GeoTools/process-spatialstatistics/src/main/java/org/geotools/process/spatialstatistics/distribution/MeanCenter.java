@@ -17,6 +17,7 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.util.factory.GeoTools;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -44,6 +45,38 @@ public class MeanCenter {
 
     GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
+    public MeanCenter() {
+    }
+
+    /**
+     * Accumulates the events [start, end) of the event store.
+     * 
+     * @param events event store
+     * @param start first event index (inclusive)
+     * @param end last event index (exclusive)
+     * @param dimensionColumn value column of the dimension field, -1 if none
+     */
+    public MeanCenter(SpatialEventStore events, int start, int end, int dimensionColumn) {
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        final double[] dims = dimensionColumn == -1 ? null : events.getValues(dimensionColumn);
+
+        for (int i = start; i < end; i++) {
+            final double weight = weights[i];
+            weightSum += weight;
+            sumX += xs[i] * weight;
+            sumY += ys[i] * weight;
+            sumZ += events.getZ(i) * weight;
+
+            if (dims != null && !Double.isNaN(dims[i])) {
+                dimensionSum += dims[i];
+            }
+        }
+
+        numFeatures += end - start;
+    }
+
     public void addValue(Coordinate coordinate, double weight, double dimVal) {
         weightSum += weight;
         sumX += coordinate.x * weight;
@@ -17,21 +17,16 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.expression.Expression;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -55,40 +50,13 @@ public class MeanCenterOperation extends AbstractDistributionOperator {
         caseField = FeatureTypes.validateProperty(schema, caseField);
         dimensionField = FeatureTypes.validateProperty(schema, dimensionField);
 
-        int idxWeight = weightField == null ? -1 : schema.indexOf(weightField);
         int idxCase = caseField == null ? -1 : schema.indexOf(caseField);
         int idxDim = dimensionField == null ? -1 : schema.indexOf(dimensionField);
-        Expression weightExpr = ff.property(weightField);
-        Expression dimensionExpr = ff.property(dimensionField);
 
-        MeanCenterVisitor visitor = new MeanCenterVisitor();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                if (geometry == null || geometry.isEmpty()) {
-                    continue;
-                }
-
-                Coordinate coordinate = getTrueCentroid(geometry);
-                Object caseVal = idxCase == -1 ? ALL : feature.getAttribute(idxCase);
-
-                double weightVal = 1.0;
-                if (idxWeight != -1) {
-                    weightVal = this.getValue(feature, weightExpr, weightVal);
-                }
-
-                double dimVal = Double.NaN;
-                if (idxDim != -1) {
-                    dimVal = this.getValue(feature, dimensionExpr, dimVal);
-                }
-
-                visitor.visit(coordinate, caseVal, weightVal, dimVal);
-            }
-        } finally {
-            featureIter.close();
-        }
+        String[] valueFields = idxDim == -1 ? null : new String[] { dimensionField };
+        SpatialEventStore events = SpatialEventStore.load(features, weightField, 1.0, caseField,
+                valueFields, false);
+        events.groupByCase();
 
         // build feature collection
         CoordinateReferenceSystem crs = schema.getCoordinateReferenceSystem();
@@ -108,12 +76,10 @@ public class MeanCenterOperation extends AbstractDistributionOperator {
 
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
         try {
-            @SuppressWarnings("unchecked")
-            HashMap<Object, MeanCenter> resultMap = visitor.getResult();
-            Iterator<Object> iterator = resultMap.keySet().iterator();
-            while (iterator.hasNext()) {
-                Object caseVal = iterator.next();
-                MeanCenter meanCenter = resultMap.get(caseVal);
+            for (int caseIdx = 0; caseIdx < events.getCaseCount(); caseIdx++) {
+                Object caseVal = events.getCaseValue(caseIdx);
+                MeanCenter meanCenter = new MeanCenter(events, events.getCaseStart(caseIdx),
+                        events.getCaseEnd(caseIdx), idxDim == -1 ? -1 : 0);
                 Point centroid = meanCenter.getMeanCenter();
 
                 // create feature and set geometry
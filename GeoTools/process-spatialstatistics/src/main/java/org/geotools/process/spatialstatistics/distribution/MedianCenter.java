@@ -16,11 +16,12 @@
  */
 package org.geotools.process.spatialstatistics.distribution;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.util.factory.GeoTools;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -28,12 +29,28 @@ import org.locationtech.jts.geom.Point;
 
 /**
  * Median Center
+ * <p>
+ * The Weiszfeld iteration runs on the primitive arrays of the event store. Large cases split each
+ * iteration into fixed chunks whose partial sums are reduced in order, so the result does not
+ * depend on the number of threads.
  * 
  * @author Minpa Lee, MangoSystem
  * 
  * @source $URL$
  */
 public class MedianCenter {
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    public static final double DEFAULT_TOLERANCE = 0.000001;
+
+    static final int CHUNK_SIZE = 32768;
+
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    private int iterations = 0;
+
     private double sumX = 0.0;
 
     private double sumY = 0.0;
@@ -42,46 +59,65 @@ public class MedianCenter {
 
     private double minY = Double.MAX_VALUE;
 
-    private double maxX = Double.MIN_VALUE;
+    private double maxX = -Double.MAX_VALUE;
 
-    private double maxY = Double.MIN_VALUE;
+    private double maxY = -Double.MAX_VALUE;
 
     private double weightSum = 0.0;
 
     private Point medianCenter = null;
 
-    private List<Event> events = new ArrayList<Event>();
+    private SpatialEventStore events;
 
-    private final GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools
-            .getDefaultHints());
-
-    class Event {
-        public double x;
-
-        public double y;
+    private final int start;
 
-        public double weight;
+    private int end;
 
-        public Number[] attVals;
+    private final int[] attColumns;
 
-        public Event() {
-        }
+    private final GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools
+            .getDefaultHints());
 
-        public Event(double x, double y, double weight, Number[] attVals) {
-            this.x = x;
-            this.y = y;
-            this.weight = weight;
-            this.attVals = attVals;
-        }
+    public MedianCenter() {
+        this.events = null;
+        this.start = 0;
+        this.end = 0;
+        this.attColumns = null;
+    }
 
-        public double getEuclideanDistance(Event other) {
-            double dx = this.x - other.x;
-            double dy = this.y - other.y;
-            return Math.sqrt((dx * dx) + (dy * dy));
+    /**
+     * Uses the events [start, end) of the event store.
+     * 
+     * @param attColumns value columns of the attribute fields, null if none
+     */
+    public MedianCenter(SpatialEventStore events, int start, int end, int[] attColumns) {
+        this.events = events;
+        this.start = start;
+        this.end = end;
+        this.attColumns = attColumns;
+
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        for (int i = start; i < end; i++) {
+            weightSum += weights[i];
+            sumX += xs[i] * weights[i];
+            sumY += ys[i] * weights[i];
+
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
         }
     }
 
     public void addValue(Coordinate coordinate, double weight, Number[] attVals) {
+        if (events == null) {
+            int numValues = attVals == null ? 0 : attVals.length;
+            events = new SpatialEventStore(SpatialEventStore.DEFAULT_CAPACITY, numValues, false);
+        }
+
         weightSum += weight;
         sumX += coordinate.x * weight;
         sumY += coordinate.y * weight;
@@ -92,7 +128,38 @@ public class MedianCenter {
         maxX = Math.max(maxX, coordinate.x);
         maxY = Math.max(maxY, coordinate.y);
 
-        events.add(new Event(coordinate.x, coordinate.y, weight, attVals));
+        double[] vals = new double[events.getValueCount()];
+        for (int k = 0; k < vals.length; k++) {
+            Number value = attVals == null || k >= attVals.length ? null : attVals[k];
+            vals[k] = value == null ? Double.NaN : value.doubleValue();
+        }
+
+        events.add(coordinate.x, coordinate.y, Double.NaN, weight, SpatialEventStore.CASE_ALL,
+                vals);
+        end = events.size();
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns the number of Weiszfeld iterations used by {@link #getMedianCenter()}.
+     */
+    public int getIterations() {
+        return iterations;
     }
 
     public Point getMedianCenter() {
@@ -100,15 +167,11 @@ public class MedianCenter {
             return medianCenter;
         }
 
-        final int maxIters = 100; // maximum number of iterations
-        final double tolerance = 0.000001;
-
-        Event med = new Event();
-        med.x = sumX / weightSum;
-        med.y = sumY / weightSum;
+        double medX = sumX / weightSum;
+        double medY = sumY / weightSum;
 
-        if (events.size() == 1) {
-            return gf.createPoint(new Coordinate(med.x, med.y));
+        if (end - start == 1) {
+            return gf.createPoint(new Coordinate(medX, medY));
         }
 
         double width = maxX - minX;
@@ -125,78 +188,109 @@ public class MedianCenter {
 
         double extentArea = height * width * 1000.0;
 
-        boolean flag = true;
-        int iterations = 0;
-        while (flag) {
-
-            if (iterations++ >= maxIters) {
-                flag = false;
-                break;
+        final int numChunks = (end - start + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final double[] partials = new double[numChunks * 3];
+
+        iterations = 0;
+        while (iterations < maxIterations) {
+            iterations++;
+            weiszfeldSums(medX, medY, extentArea, numChunks, partials);
+
+            double sumK = 0;
+            double newXTop = 0;
+            double newYTop = 0;
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                sumK += partials[chunk * 3];
+                newXTop += partials[chunk * 3 + 1];
+                newYTop += partials[chunk * 3 + 2];
             }
 
-            Event newCenter = evaluateDistance(med, extentArea);
+            final double newX = newXTop / sumK;
+            final double newY = newYTop / sumK;
 
-            boolean diffX = SSUtils.compareDouble(newCenter.x, med.x, tolerance);
-            boolean diffY = SSUtils.compareDouble(newCenter.y, med.y, tolerance);
+            boolean diffX = SSUtils.compareDouble(newX, medX, tolerance);
+            boolean diffY = SSUtils.compareDouble(newY, medY, tolerance);
             if (diffX && diffY) {
-                flag = false;
-            } else {
-                med.x = newCenter.x;
-                med.y = newCenter.y;
+                break;
             }
+
+            medX = newX;
+            medY = newY;
         }
 
-        medianCenter = gf.createPoint(new Coordinate(med.x, med.y));
+        medianCenter = gf.createPoint(new Coordinate(medX, medY));
 
         return medianCenter;
     }
 
+    private void weiszfeldSums(final double medX, final double medY, final double extentArea,
+            final int numChunks, final double[] partials) {
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+
+        ParallelUtils.forEach(numChunks, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int chunk = from; chunk < to; chunk++) {
+                    final int chunkEnd = Math.min(end, start + (chunk + 1) * CHUNK_SIZE);
+
+                    double sumK = 0;
+                    double newXTop = 0;
+                    double newYTop = 0;
+                    for (int i = start + chunk * CHUNK_SIZE; i < chunkEnd; i++) {
+                        final double dx = medX - xs[i];
+                        final double dy = medY - ys[i];
+                        final double dij = Math.sqrt((dx * dx) + (dy * dy));
+
+                        final double k = dij == 0 ? weights[i] * extentArea : weights[i] / dij;
+
+                        sumK += k;
+                        newXTop += k * xs[i];
+                        newYTop += k * ys[i];
+                    }
+
+                    partials[chunk * 3] = sumK;
+                    partials[chunk * 3 + 1] = newXTop;
+                    partials[chunk * 3 + 2] = newYTop;
+                }
+            }
+        });
+    }
+
     public Number[] getUnivariateMedian() {
-        Event initCe = events.get(0);
-        if (initCe.attVals == null) {
+        int size = attColumns != null ? attColumns.length : events == null ? 0 : events
+                .getValueCount();
+        if (size == 0) {
             return null;
         }
 
-        int size = initCe.attVals.length;
-        MedianVisitor[] visitor = new MedianVisitor[size];
-        for (int k = 0; k < visitor.length; k++) {
-            visitor[k] = new MedianVisitor();
-        }
-
-        for (Event ce : events) {
-            for (int k = 0; k < size; k++) {
-                visitor[k].visit(ce.attVals[k]);
-            }
-        }
-
         Number[] medianValue = new Number[size];
-        for (int k = 0; k < visitor.length; k++) {
-            medianValue[k] = visitor[k].getMedian();
-        }
-
-        return medianValue;
-    }
-
-    private Event evaluateDistance(Event estimate, double maxK) {
-        double sumK = 0;
-        double newXTop = 0;
-        double newYTop = 0;
+        double[] buffer = new double[end - start];
+        for (int k = 0; k < size; k++) {
+            double[] values = events.getValues(attColumns == null ? k : attColumns[k]);
+
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (!Double.isNaN(values[i])) {
+                    buffer[count++] = values[i];
+                }
+            }
 
-        for (Event ce : events) {
-            final double dij = estimate.getEuclideanDistance(ce);
-            double k = 0;
+            if (count == 0) {
+                medianValue[k] = null;
+                continue;
+            }
 
-            if (dij == 0) {
-                k = ce.weight * maxK;
+            Arrays.sort(buffer, 0, count);
+            final int index = count / 2;
+            if ((count % 2) == 0) {
+                medianValue[k] = (buffer[index - 1] + buffer[index]) / 2.0;
             } else {
-                k = ce.weight / dij;
+                medianValue[k] = buffer[index];
             }
-
-            sumK += k;
-            newXTop += k * ce.x;
-            newYTop += k * ce.y;
         }
 
-        return new Event(newXTop / sumK, newYTop / sumK, 1.0, null);
+        return medianValue;
     }
-}
\ No newline at end of file
+}
@@ -17,22 +17,20 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.logging.Level;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.expression.Expression;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -47,7 +45,29 @@ public class MedianCenterOperation extends AbstractDistributionOperator {
 
     static final String TYPE_NAME = "MedianCenter";
 
-    final String[] FIELDS = { "XCoord", "YCoord" };
+    static final int CASE_BATCH_SIZE = 256;
+
+    final String[] FIELDS = { "XCoord", "YCoord", "Iterations" };
+
+    private int maxIterations = MedianCenter.DEFAULT_MAX_ITERATIONS;
+
+    private double tolerance = MedianCenter.DEFAULT_TOLERANCE;
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
 
     public SimpleFeatureCollection execute(SimpleFeatureCollection features, String weightField,
             String caseField, String[] attFields) throws IOException {
@@ -61,56 +81,20 @@ public class MedianCenterOperation extends AbstractDistributionOperator {
             }
         }
 
-        int idxWeight = weightField == null ? -1 : schema.indexOf(weightField);
         int idxCase = caseField == null ? -1 : schema.indexOf(caseField);
-        Expression weightExpr = ff.property(weightField);
 
-        int[] idxAtts = null;
+        final SpatialEventStore events = SpatialEventStore.load(features, weightField, 1.0,
+                caseField, attFields, false);
+        events.groupByCase();
+
+        int[] attColumns = null;
         if (attFields != null) {
-            idxAtts = new int[attFields.length];
+            attColumns = new int[attFields.length];
             for (int k = 0; k < attFields.length; k++) {
-                idxAtts[k] = schema.indexOf(attFields[k]);
+                attColumns[k] = k;
             }
         }
 
-        MedianCenterVisitor visitor = new MedianCenterVisitor();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                if (geometry == null || geometry.isEmpty()) {
-                    continue;
-                }
-
-                Coordinate coordinate = getTrueCentroid(geometry);
-                Object caseVal = idxCase == -1 ? ALL : feature.getAttribute(idxCase);
-
-                double weightVal = 1.0;
-                if (idxWeight != -1) {
-                    weightVal = this.getValue(feature, weightExpr, weightVal);
-                }
-
-                // Attribute Fields
-                Number[] attVals = null;
-                if (attFields != null) {
-                    attVals = new Number[attFields.length];
-                    for (int index = 0; index < attFields.length; index++) {
-                        try {
-                            attVals[index] = (Number) feature.getAttribute(idxAtts[index]);
-                        } catch (NumberFormatException nfe) {
-                            LOGGER.log(Level.WARNING, nfe.getMessage(), nfe);
-                            attVals[index] = 0.0;
-                        }
-                    }
-                }
-
-                visitor.visit(coordinate, caseVal, weightVal, attVals);
-            }
-        } finally {
-            featureIter.close();
-        }
-
         // build feature collection
         CoordinateReferenceSystem crs = schema.getCoordinateReferenceSystem();
         String geomName = schema.getGeometryDescriptor().getLocalName();
@@ -119,6 +103,7 @@ public class MedianCenterOperation extends AbstractDistributionOperator {
                 Point.class, crs);
         featureType = FeatureTypes.add(featureType, FIELDS[0], Double.class, 38);
         featureType = FeatureTypes.add(featureType, FIELDS[1], Double.class, 38);
+        featureType = FeatureTypes.add(featureType, FIELDS[2], Integer.class, 10);
 
         if (idxCase != -1) {
             featureType = FeatureTypes.add(featureType, schema.getDescriptor(caseField));
@@ -133,50 +118,74 @@ public class MedianCenterOperation extends AbstractDistributionOperator {
         // prepare transactional feature store
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
-        @SuppressWarnings("unchecked")
-        HashMap<Object, MedianCenter> resultMap = visitor.getResult();
-        Iterator<Object> iter = resultMap.keySet().iterator();
+        final int[] columns = attColumns;
         try {
-            while (iter.hasNext()) {
-                Object caseVal = iter.next();
-                MedianCenter curCenter = resultMap.get(caseVal);
-                Point cenPoint = curCenter.getMedianCenter();
+            // cases are independent, solve them concurrently and write them in order
+            for (int batch = 0; batch < events.getCaseCount(); batch += CASE_BATCH_SIZE) {
+                int batchEnd = Math.min(events.getCaseCount(), batch + CASE_BATCH_SIZE);
+                List<Callable<MedianCenter>> tasks = new ArrayList<Callable<MedianCenter>>();
+                for (int caseIdx = batch; caseIdx < batchEnd; caseIdx++) {
+                    final int curCase = caseIdx;
+                    tasks.add(new Callable<MedianCenter>() {
+                        @Override
+                        public MedianCenter call() throws Exception {
+                            MedianCenter curCenter = new MedianCenter(events, events
+                                    .getCaseStart(curCase), events.getCaseEnd(curCase), columns);
+                            curCenter.setMaxIterations(maxIterations);
+                            curCenter.setTolerance(tolerance);
+                            curCenter.getMedianCenter();
+                            return curCenter;
+                        }
+                    });
+                }
 
-                // Median Center
-                SimpleFeature newFeature = featureWriter.buildFeature();
-                newFeature.setDefaultGeometry(cenPoint);
+                List<MedianCenter> centers = ParallelUtils.invokeAll(tasks, progressListener);
+                for (int caseIdx = batch; caseIdx < batchEnd; caseIdx++) {
+                    Object caseVal = events.getCaseValue(caseIdx);
+                    MedianCenter curCenter = centers.get(caseIdx - batch);
+                    Point cenPoint = curCenter.getMedianCenter();
 
-                newFeature.setAttribute(FIELDS[0], cenPoint.getX());
-                newFeature.setAttribute(FIELDS[1], cenPoint.getY());
+                    // Median Center
+                    SimpleFeature newFeature = featureWriter.buildFeature();
+                    newFeature.setDefaultGeometry(cenPoint);
 
-                // Case Field
-                if (idxCase != -1) {
-                    newFeature.setAttribute(caseField, caseVal);
-                }
+                    newFeature.setAttribute(FIELDS[0], cenPoint.getX());
+                    newFeature.setAttribute(FIELDS[1], cenPoint.getY());
+                    newFeature.setAttribute(FIELDS[2], curCenter.getIterations());
 
-                // Attribute Fields
-                if (attFields != null) {
-                    Number[] attVals = curCenter.getUnivariateMedian();
-                    for (int k = 0; k < attFields.length; k++) {
-                        Class<?> bind = featureType.getDescriptor(attFields[k]).getType()
-                                .getBinding();
-                        if (bind.isAssignableFrom(Short.class)) {
-                            newFeature.setAttribute(attFields[k], attVals[k].shortValue());
-                        } else if (bind.isAssignableFrom(Integer.class)) {
-                            newFeature.setAttribute(attFields[k], attVals[k].intValue());
-                        } else if (bind.isAssignableFrom(Long.class)) {
-                            newFeature.setAttribute(attFields[k], attVals[k].longValue());
-                        } else if (bind.isAssignableFrom(Float.class)) {
-                            newFeature.setAttribute(attFields[k], attVals[k].floatValue());
-                        } else if (bind.isAssignableFrom(Double.class)) {
-                            newFeature.setAttribute(attFields[k], attVals[k].doubleValue());
-                        } else {
-                            newFeature.setAttribute(attFields[k], attVals[k]);
+                    // Case Field
+                    if (idxCase != -1) {
+                        newFeature.setAttribute(caseField, caseVal);
+                    }
+
+                    // Attribute Fields
+                    if (attFields != null) {
+                        Number[] attVals = curCenter.getUnivariateMedian();
+                        for (int k = 0; k < attFields.length; k++) {
+                            if (attVals[k] == null) {
+                                continue;
+                            }
+
+                            Class<?> bind = featureType.getDescriptor(attFields[k]).getType()
+                                    .getBinding();
+                            if (bind.isAssignableFrom(Short.class)) {
+                                newFeature.setAttribute(attFields[k], attVals[k].shortValue());
+                            } else if (bind.isAssignableFrom(Integer.class)) {
+                                newFeature.setAttribute(attFields[k], attVals[k].intValue());
+                            } else if (bind.isAssignableFrom(Long.class)) {
+                                newFeature.setAttribute(attFields[k], attVals[k].longValue());
+                            } else if (bind.isAssignableFrom(Float.class)) {
+                                newFeature.setAttribute(attFields[k], attVals[k].floatValue());
+                            } else if (bind.isAssignableFrom(Double.class)) {
+                                newFeature.setAttribute(attFields[k], attVals[k].doubleValue());
+                            } else {
+                                newFeature.setAttribute(attFields[k], attVals[k]);
+                            }
                         }
                     }
-                }
 
-                featureWriter.write(newFeature);
+                    featureWriter.write(newFeature);
+                }
             }
         } catch (IOException e) {
             featureWriter.rollback(e);
@@ -23,6 +23,7 @@ import java.util.logging.Logger;
 
 import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Coordinate;
@@ -50,24 +51,36 @@ public class StandardDeviationalEllipse {
 
     private double weightSum = 0.0;
 
-    private List<Event> events = new ArrayList<Event>();
+    private final SpatialEventStore events;
 
-    private GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
-
-    class Event {
-        public double x;
+    private final int start;
 
-        public double y;
+    private int end;
 
-        public double weight;
+    private GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
-        public Event() {
-        }
+    public StandardDeviationalEllipse() {
+        this.events = new SpatialEventStore();
+        this.start = 0;
+        this.end = 0;
+    }
 
-        public Event(double x, double y, double weight) {
-            this.x = x;
-            this.y = y;
-            this.weight = weight;
+    /**
+     * Uses the events [start, end) of the event store.
+     */
+    public StandardDeviationalEllipse(SpatialEventStore events, int start, int end) {
+        this.events = events;
+        this.start = start;
+        this.end = end;
+
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        for (int i = start; i < end; i++) {
+            weightSum += weights[i];
+            sumX += xs[i] * weights[i];
+            sumY += ys[i] * weights[i];
+            sumZ += events.getZ(i) * weights[i];
         }
     }
 
@@ -78,7 +91,8 @@ public class StandardDeviationalEllipse {
         sumY += coordinate.y * weight;
         sumZ += coordinate.z * weight;
 
-        events.add(new Event(coordinate.x, coordinate.y, weight));
+        events.add(coordinate.x, coordinate.y, weight);
+        end = events.size();
     }
 
     public double seX = 0;
@@ -99,14 +113,18 @@ public class StandardDeviationalEllipse {
         double meanY = sumY / weightSum;
 
         // Standard Ellipse
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+
         double sigXY = 0, sigX = 0, sigY = 0;
-        for (Event ce : events) {
-            final double devX = ce.x - meanX;
-            final double devY = ce.y - meanY;
+        for (int i = start; i < end; i++) {
+            final double devX = xs[i] - meanX;
+            final double devY = ys[i] - meanY;
 
-            sigX += Math.pow(devX, 2.0) * ce.weight;
-            sigY += Math.pow(devY, 2.0) * ce.weight;
-            sigXY += devX * devY * ce.weight;
+            sigX += devX * devX * weights[i];
+            sigY += devY * devY * weights[i];
+            sigXY += devX * devY * weights[i];
         }
 
         double denom = sigXY * 2.0;
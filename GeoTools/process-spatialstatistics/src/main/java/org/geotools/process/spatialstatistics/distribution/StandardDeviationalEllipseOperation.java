@@ -17,22 +17,18 @@
 package org.geotools.process.spatialstatistics.distribution;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.expression.Expression;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -74,32 +70,9 @@ public class StandardDeviationalEllipseOperation extends AbstractDistributionOpe
         caseField = FeatureTypes.validateProperty(schema, caseField);
 
         int idxCase = caseField == null ? -1 : schema.indexOf(caseField);
-        int idxWeight = weightField == null ? -1 : schema.indexOf(weightField);
-        Expression weightExpr = ff.property(weightField);
 
-        StandardDeviationalEllipseVisitor visitor = new StandardDeviationalEllipseVisitor();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                if (geometry == null || geometry.isEmpty()) {
-                    continue;
-                }
-
-                Coordinate coordinate = getTrueCentroid(geometry);
-                Object caseVal = idxCase == -1 ? ALL : feature.getAttribute(idxCase);
-
-                double weightVal = 1.0;
-                if (idxWeight != -1) {
-                    weightVal = this.getValue(feature, weightExpr, weightVal);
-                }
-
-                visitor.visit(coordinate, caseVal, weightVal);
-            }
-        } finally {
-            featureIter.close();
-        }
+        SpatialEventStore events = SpatialEventStore.load(features, weightField, caseField);
+        events.groupByCase();
 
         // build feature collection
         CoordinateReferenceSystem crs = schema.getCoordinateReferenceSystem();
@@ -118,13 +91,11 @@ public class StandardDeviationalEllipseOperation extends AbstractDistributionOpe
         // prepare transactional feature store
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
-        @SuppressWarnings("unchecked")
-        HashMap<Object, StandardDeviationalEllipse> resultMap = visitor.getResult();
-        Iterator<Object> iter = resultMap.keySet().iterator();
         try {
-            while (iter.hasNext()) {
-                Object caseVal = iter.next();
-                StandardDeviationalEllipse curSd = resultMap.get(caseVal);
+            for (int caseIdx = 0; caseIdx < events.getCaseCount(); caseIdx++) {
+                Object caseVal = events.getCaseValue(caseIdx);
+                StandardDeviationalEllipse curSd = new StandardDeviationalEllipse(events, events.getCaseStart(caseIdx),
+                        events.getCaseEnd(caseIdx));
 
                 final Geometry ellipseCircle = curSd.calculateSDE(stdDeviation);
                 if (ellipseCircle != null) {
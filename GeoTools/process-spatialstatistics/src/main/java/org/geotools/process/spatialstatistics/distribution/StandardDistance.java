@@ -16,10 +16,8 @@
  */
 package org.geotools.process.spatialstatistics.distribution;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.util.factory.GeoTools;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -46,25 +44,38 @@ public class StandardDistance {
 
     private double sdVal = Double.NaN;
 
-    private List<Event> events = new ArrayList<Event>();
-
-    private GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
+    private final SpatialEventStore events;
 
-    class Event {
-        public double x;
+    private final int start;
 
-        public double y;
+    private int end;
 
-        public double weight;
+    private GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
-        public Event() {
-        }
+    public StandardDistance() {
+        this.events = new SpatialEventStore();
+        this.start = 0;
+        this.end = 0;
+    }
 
-        public Event(double x, double y, double weight) {
-            this.x = x;
-            this.y = y;
-            this.weight = weight;
+    /**
+     * Uses the events [start, end) of the event store.
+     */
+    public StandardDistance(SpatialEventStore events, int start, int end) {
+        this.events = events;
+        this.start = start;
+        this.end = end;
+
+        final double[] xs = events.getX();
+        final double[] ys = events.getY();
+        final double[] weights = events.getWeight();
+        for (int i = start; i < end; i++) {
+            weightSum += weights[i];
+            sumX += xs[i] * weights[i];
+            sumY += ys[i] * weights[i];
+            sumZ += events.getZ(i) * weights[i];
         }
+        numFeatures = end - start;
     }
 
     public void addValue(Coordinate coordinate, double weight) {
@@ -74,7 +85,8 @@ public class StandardDistance {
         sumY += coordinate.y * weight;
         sumZ += coordinate.z * weight;
 
-        events.add(new Event(coordinate.x, coordinate.y, weight));
+        events.add(coordinate.x, coordinate.y, weight);
+        end = events.size();
 
         numFeatures++;
     }
@@ -84,12 +96,16 @@ public class StandardDistance {
             double meanX = sumX / weightSum;
             double meanY = sumY / weightSum;
 
+            final double[] xs = events.getX();
+            final double[] ys = events.getY();
+            final double[] weights = events.getWeight();
+
             double sigXYSum = 0;
-            for (Event ce : events) {
-                final double devX = ce.x - meanX;
-                final double devY = ce.y - meanY;
+            for (int i = start; i < end; i++) {
+                final double devX = xs[i] - meanX;
+                final double devY = ys[i] - meanY;
 
-                sigXYSum += (Math.pow(devX, 2.0) * ce.weight) + (Math.pow(devY, 2.0) * ce.weight);
+                sigXYSum += (devX * devX * weights[i]) + (devY * devY * weights[i]);
             }
 
             sdVal = Math.sqrt(sigXYSum / weightSum) * standardDeviation;
@@ -0,0 +1,42 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.enumeration;
+
+/**
+ * Cost Path Type
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public enum CostPathType {
+    /**
+     * A least-cost path is determined for each cell of each destination.
+     */
+    EachCell,
+
+    /**
+     * A least-cost path is determined for the cell with the lowest accumulated cost of each
+     * destination.
+     */
+    EachZone,
+
+    /**
+     * Only the path from the destination cell with the lowest accumulated cost is determined.
+     */
+    BestSingle;
+}
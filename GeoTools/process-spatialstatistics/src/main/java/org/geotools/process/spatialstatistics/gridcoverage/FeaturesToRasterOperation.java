@@ -16,32 +16,14 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.awt.AlphaComposite;
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics2D;
-import java.awt.Rectangle;
-import java.awt.Transparency;
-import java.awt.color.ColorSpace;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.GeneralPath;
-import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.ColorModel;
-import java.awt.image.ComponentColorModel;
-import java.awt.image.DataBuffer;
-import java.awt.image.Raster;
-import java.awt.image.SampleModel;
-import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.RasterFactory;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -49,17 +31,14 @@ import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FeatureTypes.SimpleShapeType;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.core.StringHelper;
 import org.geotools.process.spatialstatistics.enumeration.PointAssignmentType;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.process.spatialstatistics.gridcoverage.ScanlineRasterizer.Spans;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.Polygon;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.FilterFactory2;
@@ -77,14 +56,31 @@ public class FeaturesToRasterOperation extends RasterProcessingOperation {
 
     private FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(GeoTools.getDefaultHints());
 
-    private DiskMemImage dmImage = null;
+    static final int BATCH_SIZE = 1024;
+
+    private MappedTileImage dmImage = null;
 
-    private Graphics2D g2D = null;
+    private ScanlineRasterizer rasterizer = null;
 
-    private AffineTransform affineTrans = null;
+    private List<Geometry> geometries = new ArrayList<Geometry>();
+
+    private double[] values = new double[BATCH_SIZE];
 
     private SimpleShapeType shapeType = SimpleShapeType.POINT;
 
+    private boolean allTouched = false;
+
+    public boolean isAllTouched() {
+        return allTouched;
+    }
+
+    /**
+     * If true, polygons set every cell they touch; otherwise only cells whose center is inside.
+     */
+    public void setAllTouched(boolean allTouched) {
+        this.allTouched = allTouched;
+    }
+
     public GridCoverage2D execute(SimpleFeatureCollection inputFeatures, int gridValue) {
         return execute(inputFeatures, Integer.valueOf(gridValue));
     }
@@ -251,47 +247,16 @@ public class FeaturesToRasterOperation extends RasterProcessingOperation {
         Object nodataValue = RasterHelper.getDefaultNoDataValue(transferType);
         calculateExtentAndCellSize(gridExtent, nodataValue);
 
-        // set pixel type
-        PixelType = transferType;
-
-        // recalculate coverage extent
-        Extent = RasterHelper.getResolvedEnvelope(Extent, CellSizeX, CellSizeY);
-
-        final int tw = 64;
-        final int th = 64;
-
-        ColorModel colorModel = ColorModel.getRGBdefault();
-        SampleModel smpModel = colorModel.createCompatibleSampleModel(tw, th);
-
-        Dimension dim = RasterHelper.getDimension(Extent, CellSizeX, CellSizeY);
-
-        dmImage = new DiskMemImage(0, 0, dim.width, dim.height, 0, 0, smpModel, colorModel);
-        dmImage.setUseCommonCache(true);
-
-        // create graphics
-        g2D = dmImage.createGraphics();
-
-        g2D.setPaintMode();
-        g2D.setComposite(AlphaComposite.Src);
-
-        // set nodata value
-        g2D.setPaint(valueToColor(NoData));
-        g2D.fillRect(0, 0, dmImage.getWidth(), dmImage.getHeight());
-
-        if (shapeType == SimpleShapeType.LINESTRING) {
-            g2D.setStroke(new BasicStroke(1.1f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER,
-                    10.0f));
+        // typed image, filled with nodata value. signed byte nodata needs a short image
+        if (transferType == RasterPixelType.BYTE) {
+            transferType = RasterPixelType.SHORT;
         }
+        dmImage = createDiskMemImage(Extent, transferType);
+        ScanlineRasterizer.fill(dmImage, NoData);
 
-        // setup affine transform
-        double x_scale = dmImage.getWidth() / Extent.getWidth();
-        double y_scale = dmImage.getHeight() / Extent.getHeight();
-        Coordinate centerPos = Extent.centre();
-
-        affineTrans = new AffineTransform();
-        affineTrans.translate(dmImage.getWidth() / 2.0, dmImage.getHeight() / 2.0);
-        affineTrans.scale(x_scale, -y_scale);
-        affineTrans.translate(-centerPos.x, -centerPos.y);
+        rasterizer = new ScanlineRasterizer(Extent, CellSizeX, CellSizeY, dmImage.getWidth(),
+                dmImage.getHeight());
+        rasterizer.setAllTouched(allTouched);
     }
 
     private void processGeometry(Geometry geometry, Number value) {
@@ -302,180 +267,36 @@ public class FeaturesToRasterOperation extends RasterProcessingOperation {
         // update statistics
         updateStatistics(value.doubleValue());
 
-        g2D.setPaint(valueToColor(value));
-
-        int numGeom = geometry.getNumGeometries();
-        for (int i = 0; i < numGeom; i++) {
-            Geometry geomN = geometry.getGeometryN(i);
-            drawSingleGeometry(geomN);
+        geometries.add(geometry);
+        values[geometries.size() - 1] = value.doubleValue();
+        if (geometries.size() == BATCH_SIZE) {
+            flush();
         }
     }
 
-    private void drawSingleGeometry(Geometry srcGeom) {
-        if (srcGeom.getClass().equals(Polygon.class)) {
-            Polygon polygon = (Polygon) srcGeom;
-            GeneralPath path = toGeneralPath(polygon);
-            path.transform(affineTrans);
-            g2D.fill(path);
-        } else if (srcGeom.getClass().equals(LineString.class)) {
-            LineString lineString = (LineString) srcGeom;
-            GeneralPath path = toGeneralPath(lineString);
-            path.transform(affineTrans);
-            g2D.draw(path);
-        } else if (srcGeom.getClass().equals(Point.class)) {
-            Coordinate c = srcGeom.getCoordinate();
-
-            Point2D.Double ptDst = new Point2D.Double();
-            affineTrans.transform(new Point2D.Double(c.x, c.y), ptDst);
-            Rectangle2D.Double square = new Rectangle2D.Double(ptDst.x, ptDst.y, 1, 1);
-            g2D.fill(square);
-        }
-    }
-
-    private GeneralPath toGeneralPath(Geometry srcGeometry) {
-        GeneralPath gPath = new GeneralPath();
-
-        if (srcGeometry.getClass().isAssignableFrom(LineString.class)) {
-            addLineStringToPath(false, (LineString) srcGeometry, gPath);
-        } else if (srcGeometry.getClass().isAssignableFrom(Polygon.class)) {
-            Polygon polygon = (Polygon) srcGeometry;
-
-            LineString exterior = polygon.getExteriorRing();
-            addLineStringToPath(true, exterior, gPath);
-
-            int numInterior = polygon.getNumInteriorRing();
-            for (int j = 0; j < numInterior; j++) {
-                LineString interior = polygon.getInteriorRingN(j);
-                addLineStringToPath(true, interior, gPath);
-            }
-        }
-
-        return gPath;
-    }
-
-    private void addLineStringToPath(boolean isRing, LineString lineString, GeneralPath targetPath) {
-        Coordinate[] cs = lineString.getCoordinates();
-
-        double xOffset = 0;
-        double yOffset = 0;
-
-        // Offset like ArcGIS
-        if (shapeType == SimpleShapeType.POLYGON) {
-            xOffset = CellSizeX / 2.0;
-            yOffset = CellSizeY / 2.0;
-        }
-
-        for (int i = 0; i < cs.length; i++) {
-            if (i == 0) {
-                targetPath.moveTo(cs[i].x - xOffset, cs[i].y + yOffset);
-            } else {
-                targetPath.lineTo(cs[i].x - xOffset, cs[i].y + yOffset);
-            }
-        }
-
-        if (isRing && !lineString.isClosed()) {
-            targetPath.closePath();
-        }
-    }
-
-    private GridCoverage2D close() {
-        g2D.dispose();
-
-        SampleModel sm = null;
-        ColorSpace scs = null;
-        ColorModel cm = null;
-        DiskMemImage destImage = null;
-
-        switch (PixelType) {
-        case BYTE:
-        case SHORT:
-            sm = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_SHORT,
-                    dmImage.getTileWidth(), dmImage.getTileHeight(), 1);
-            scs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
-            cm = new ComponentColorModel(scs, false, false, Transparency.TRANSLUCENT,
-                    DataBuffer.TYPE_SHORT);
-            break;
-        case INTEGER:
-            sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_INT,
-                    dmImage.getTileWidth(), dmImage.getTileHeight(), 1);
-            scs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
-            cm = new ComponentColorModel(scs, false, false, Transparency.OPAQUE,
-                    DataBuffer.TYPE_INT);
-            break;
-        case FLOAT:
-        case DOUBLE:
-            sm = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
-                    dmImage.getTileWidth(), dmImage.getTileHeight(), 1);
-            cm = PlanarImage.createColorModel(sm);
-            break;
+    // rasterize the batch in parallel, then write it into the tiles in feature order
+    private void flush() {
+        if (geometries.size() == 0) {
+            return;
         }
 
-        destImage = new DiskMemImage(0, 0, dmImage.getWidth(), dmImage.getHeight(), 0, 0, sm, cm);
-        destImage.setUseCommonCache(true);
-
-        int numXTiles = dmImage.getNumXTiles();
-        int numYTiles = dmImage.getNumYTiles();
-        for (int tileY = 0; tileY < numYTiles; tileY++) {
-            for (int tileX = 0; tileX < numXTiles; tileX++) {
-                Raster srcTile = dmImage.getTile(tileX, tileY);
-                WritableRaster destTile = destImage.getWritableTile(tileX, tileY);
-
-                final int[] data = new int[srcTile.getDataBuffer().getSize()];
-                srcTile.getDataElements(srcTile.getMinX(), srcTile.getMinY(), srcTile.getWidth(),
-                        srcTile.getHeight(), data);
-
-                int k = 0;
-                final Rectangle bounds = destTile.getBounds();
-                for (int dy = bounds.y, drow = 0; drow < bounds.height; dy++, drow++) {
-                    for (int dx = bounds.x, dcol = 0; dcol < bounds.width; dx++, dcol++) {
-                        switch (PixelType) {
-                        case BYTE:
-                        case SHORT:
-                        case INTEGER:
-                            destTile.setSample(dx, dy, 0, data[k++]);
-                            break;
-                        case FLOAT:
-                            destTile.setSample(dx, dy, 0, Float.intBitsToFloat(data[k++]));
-                            break;
-                        case DOUBLE:
-                            destTile.setSample(dx, dy, 0, Double.longBitsToDouble(data[k++]));
-                            break;
-                        }
-                    }
+        List<Callable<Spans>> tasks = new ArrayList<Callable<Spans>>(geometries.size());
+        for (final Geometry geometry : geometries) {
+            tasks.add(new Callable<Spans>() {
+                @Override
+                public Spans call() throws Exception {
+                    return rasterizer.rasterize(geometry);
                 }
-
-                destImage.releaseWritableTile(tileX, tileY);
-            }
+            });
         }
 
-        return createGridCoverage("FeaturesToRaster", destImage);
+        ScanlineRasterizer.write(dmImage, ParallelUtils.invokeAll(tasks, Progress), values);
+        geometries.clear();
     }
 
-    private Color valueToColor(Number value) {
-        int intBits;
-
-        switch (PixelType) {
-        case BYTE:
-            intBits = value.byteValue();
-            break;
-        case SHORT:
-            intBits = value.shortValue();
-            break;
-        case INTEGER:
-            intBits = value.intValue();
-            break;
-        case FLOAT:
-            intBits = Float.floatToIntBits(value.floatValue());
-            break;
-        case DOUBLE:
-            intBits = Float.floatToIntBits(value.floatValue());
-            break;
-        default:
-            intBits = value.intValue();
-            break;
-        }
+    private GridCoverage2D close() {
+        flush();
 
-        return new Color(intBits, true);
+        return createGridCoverage("FeaturesToRaster", dmImage);
     }
-
-}
\ No newline at end of file
+}
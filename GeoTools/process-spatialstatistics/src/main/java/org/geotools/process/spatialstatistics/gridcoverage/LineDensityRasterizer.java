@@ -0,0 +1,343 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Accumulates the length of line segments inside the circular neighborhood of each raster cell.
+ * <p>
+ * For every cell center c and segment s the exact length of s inside the circle of the search
+ * radius around c is computed analytically and multiplied by the value of the segment, which is
+ * the numerator of the standard line density: ((L1 * V1) + (L2 * V2)) / (area_of_circle). Segments
+ * are buffered in batches, bucketed by the tiles their neighborhood overlaps and accumulated tile
+ * by tile in parallel, so no two threads ever update the same cell.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class LineDensityRasterizer {
+    protected static final Logger LOGGER = Logging.getLogger(LineDensityRasterizer.class);
+
+    static final int BATCH_SIZE = 65536;
+
+    private final WritableRenderedImage image;
+
+    private final double minX;
+
+    private final double maxY;
+
+    private final double cellSizeX;
+
+    private final double cellSizeY;
+
+    private final double radius;
+
+    private final double radius2;
+
+    private final int width;
+
+    private final int height;
+
+    // x0, y0, x1, y1 per segment
+    private final double[] segments = new double[BATCH_SIZE * 4];
+
+    private final double[] values = new double[BATCH_SIZE];
+
+    private int count = 0;
+
+    public LineDensityRasterizer(WritableRenderedImage image, Envelope extent, double cellSizeX,
+            double cellSizeY, double searchRadius) {
+        this.image = image;
+        this.minX = extent.getMinX();
+        this.maxY = extent.getMaxY();
+        this.cellSizeX = cellSizeX;
+        this.cellSizeY = cellSizeY;
+        this.radius = searchRadius;
+        this.radius2 = searchRadius * searchRadius;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    /**
+     * Adds all linear components of a geometry; polygons contribute their rings.
+     */
+    public void add(Geometry geometry, double value) {
+        if (geometry == null || geometry.isEmpty() || value == 0.0) {
+            return;
+        }
+
+        for (int index = 0; index < geometry.getNumGeometries(); index++) {
+            Geometry part = geometry.getGeometryN(index);
+            if (part instanceof LineString) {
+                add(((LineString) part).getCoordinateSequence(), value);
+            } else if (part instanceof Polygon) {
+                Polygon polygon = (Polygon) part;
+                add(polygon.getExteriorRing().getCoordinateSequence(), value);
+                for (int ring = 0; ring < polygon.getNumInteriorRing(); ring++) {
+                    add(polygon.getInteriorRingN(ring).getCoordinateSequence(), value);
+                }
+            } else if (part != geometry) {
+                add(part, value);
+            }
+        }
+    }
+
+    private void add(CoordinateSequence coords, double value) {
+        final int size = coords.size();
+        for (int i = 1; i < size; i++) {
+            double x0 = coords.getX(i - 1);
+            double y0 = coords.getY(i - 1);
+            double x1 = coords.getX(i);
+            double y1 = coords.getY(i);
+            if (x0 == x1 && y0 == y1) {
+                continue;
+            }
+
+            final int offset = count * 4;
+            segments[offset] = x0;
+            segments[offset + 1] = y0;
+            segments[offset + 2] = x1;
+            segments[offset + 3] = y1;
+            values[count] = value;
+
+            if (++count == BATCH_SIZE) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Accumulates the buffered segments into the image.
+     */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+
+        final int tileWidth = image.getTileWidth();
+        final int tileHeight = image.getTileHeight();
+        final int minTileX = image.getMinTileX();
+        final int minTileY = image.getMinTileY();
+        final int numXTiles = image.getNumXTiles();
+        final int numYTiles = image.getNumYTiles();
+        final int offsetX = image.getTileGridXOffset();
+        final int offsetY = image.getTileGridYOffset();
+
+        // segments per tile, by the cells whose neighborhood can reach them
+        final int[][] tileItems = new int[numXTiles * numYTiles][];
+        final int[] tileCounts = new int[tileItems.length];
+        for (int item = 0; item < count; item++) {
+            final int offset = item * 4;
+            double left = Math.min(segments[offset], segments[offset + 2]) - radius;
+            double right = Math.max(segments[offset], segments[offset + 2]) + radius;
+            double bottom = Math.min(segments[offset + 1], segments[offset + 3]) - radius;
+            double top = Math.max(segments[offset + 1], segments[offset + 3]) + radius;
+
+            int col0 = Math.max(0, toColumn(left, true));
+            int col1 = Math.min(width - 1, toColumn(right, false));
+            int row0 = Math.max(0, toRow(top, true));
+            int row1 = Math.min(height - 1, toRow(bottom, false));
+            if (col0 > col1 || row0 > row1) {
+                continue;
+            }
+
+            int tx0 = Math.floorDiv(col0 - offsetX, tileWidth) - minTileX;
+            int tx1 = Math.floorDiv(col1 - offsetX, tileWidth) - minTileX;
+            int ty0 = Math.floorDiv(row0 - offsetY, tileHeight) - minTileY;
+            int ty1 = Math.floorDiv(row1 - offsetY, tileHeight) - minTileY;
+            for (int ty = Math.max(0, ty0); ty <= Math.min(numYTiles - 1, ty1); ty++) {
+                for (int tx = Math.max(0, tx0); tx <= Math.min(numXTiles - 1, tx1); tx++) {
+                    int tile = ty * numXTiles + tx;
+                    if (tileItems[tile] == null) {
+                        tileItems[tile] = new int[4];
+                    } else if (tileCounts[tile] == tileItems[tile].length) {
+                        tileItems[tile] = Arrays.copyOf(tileItems[tile], tileCounts[tile] * 2);
+                    }
+                    tileItems[tile][tileCounts[tile]++] = item;
+                }
+            }
+        }
+
+        ParallelUtils.forEach(tileItems.length, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] buffer = null;
+                for (int tile = start; tile < end; tile++) {
+                    if (tileCounts[tile] == 0) {
+                        continue;
+                    }
+
+                    final int tileX = minTileX + tile % numXTiles;
+                    final int tileY = minTileY + tile / numXTiles;
+                    final Rectangle bounds;
+
+                    // copy the tile, accumulate without holding the lock, then write it back
+                    synchronized (image) {
+                        WritableRaster raster = image.getWritableTile(tileX, tileY);
+                        bounds = raster.getBounds().intersection(
+                                new Rectangle(0, 0, width, height));
+                        // edge tiles are clipped, so a previous buffer may be too small
+                        if (buffer != null && buffer.length < bounds.width * bounds.height) {
+                            buffer = null;
+                        }
+                        buffer = raster.getSamples(bounds.x, bounds.y, bounds.width,
+                                bounds.height, 0, buffer);
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+
+                    for (int k = 0; k < tileCounts[tile]; k++) {
+                        accumulate(tileItems[tile][k], bounds, buffer);
+                    }
+
+                    synchronized (image) {
+                        WritableRaster raster = image.getWritableTile(tileX, tileY);
+                        raster.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                                buffer);
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        });
+
+        count = 0;
+    }
+
+    private void accumulate(int item, Rectangle bounds, double[] buffer) {
+        final int offset = item * 4;
+        final double x0 = segments[offset];
+        final double y0 = segments[offset + 1];
+        final double dx = segments[offset + 2] - x0;
+        final double dy = segments[offset + 3] - y0;
+        final double len2 = dx * dx + dy * dy;
+        final double length = Math.sqrt(len2);
+        final double value = values[item];
+
+        final double bottom = Math.min(y0, y0 + dy) - radius;
+        final double top = Math.max(y0, y0 + dy) + radius;
+        final int row0 = Math.max(bounds.y, toRow(top, true));
+        final int row1 = Math.min(bounds.y + bounds.height - 1, toRow(bottom, false));
+
+        for (int row = row0; row <= row1; row++) {
+            final double cy = maxY - (row + 0.5) * cellSizeY;
+
+            // part of the segment within the horizontal band [cy - radius, cy + radius]
+            double t0 = 0.0, t1 = 1.0;
+            if (dy != 0.0) {
+                double ta = (cy - radius - y0) / dy;
+                double tb = (cy + radius - y0) / dy;
+                t0 = Math.max(0.0, Math.min(ta, tb));
+                t1 = Math.min(1.0, Math.max(ta, tb));
+                if (t0 > t1) {
+                    continue;
+                }
+            }
+
+            double xa = x0 + t0 * dx;
+            double xb = x0 + t1 * dx;
+            int col0 = Math.max(bounds.x, toColumn(Math.min(xa, xb) - radius, true));
+            int col1 = Math.min(bounds.x + bounds.width - 1,
+                    toColumn(Math.max(xa, xb) + radius, false));
+
+            final int base = (row - bounds.y) * bounds.width - bounds.x;
+            final double fy = y0 - cy;
+            for (int col = col0; col <= col1; col++) {
+                final double fx = x0 - (minX + (col + 0.5) * cellSizeX);
+
+                // |p0 + t * d - c|^2 = r^2
+                final double b = fx * dx + fy * dy;
+                final double c = fx * fx + fy * fy - radius2;
+                final double disc = b * b - len2 * c;
+                if (disc <= 0.0) {
+                    continue;
+                }
+
+                final double sqrt = Math.sqrt(disc);
+                final double enter = Math.max(0.0, (-b - sqrt) / len2);
+                final double exit = Math.min(1.0, (-b + sqrt) / len2);
+                if (exit > enter) {
+                    buffer[base + col] += (exit - enter) * length * value;
+                }
+            }
+        }
+    }
+
+    // index of the first (or last) cell whose center is on the inner side of the coordinate
+    private int toColumn(double x, boolean first) {
+        double col = (x - minX) / cellSizeX - 0.5;
+        return (int) Math.max(-1, Math.min(width, first ? Math.ceil(col) : Math.floor(col)));
+    }
+
+    private int toRow(double y, boolean first) {
+        double row = (maxY - y) / cellSizeY - 0.5;
+        return (int) Math.max(-1, Math.min(height, first ? Math.ceil(row) : Math.floor(row)));
+    }
+
+    /**
+     * Returns the maximum value of the first band of an image, reading tiles in parallel.
+     */
+    public static double getMaximum(final WritableRenderedImage image) {
+        final int numXTiles = image.getNumXTiles();
+        final int numTiles = numXTiles * image.getNumYTiles();
+        final double[] maximums = new double[numTiles];
+
+        ParallelUtils.forEach(numTiles, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] buffer = null;
+                for (int index = start; index < end; index++) {
+                    final int tileX = image.getMinTileX() + index % numXTiles;
+                    final int tileY = image.getMinTileY() + index / numXTiles;
+
+                    final Rectangle bounds;
+                    synchronized (image) {
+                        Raster raster = image.getTile(tileX, tileY);
+                        bounds = raster.getBounds();
+                        buffer = raster.getSamples(bounds.x, bounds.y, bounds.width,
+                                bounds.height, 0, buffer);
+                    }
+
+                    double maximum = -Double.MAX_VALUE;
+                    for (int i = bounds.width * bounds.height - 1; i >= 0; i--) {
+                        maximum = Math.max(maximum, buffer[i]);
+                    }
+                    maximums[index] = maximum;
+                }
+            }
+        });
+
+        double maximum = -Double.MAX_VALUE;
+        for (double value : maximums) {
+            maximum = Math.max(maximum, value);
+        }
+        return maximum;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.WritableRenderedImage;
+
+/**
+ * Writes the first band of a rectangle of a writable image line by line, with the iteration
+ * methods of {@link javax.media.jai.iterator.WritableRectIter}.
+ * <p>
+ * The samples of the current line are buffered and copied into the tiles the line overlaps by
+ * {@link #nextLine()}, which gets and releases each tile around the copy, so no tile stays checked
+ * out while the caller reads other tiles. The buffer starts with the current samples of the line,
+ * so pixels that are not set keep their value.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+final class LineWriter {
+    private final WritableRenderedImage image;
+
+    private final Rectangle bounds;
+
+    private final double[] line;
+
+    private int x;
+
+    private int y;
+
+    LineWriter(WritableRenderedImage image) {
+        this(image, new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image
+                .getHeight()));
+    }
+
+    LineWriter(WritableRenderedImage image, Rectangle rect) {
+        this.image = image;
+        this.bounds = rect.intersection(new Rectangle(image.getMinX(), image.getMinY(), image
+                .getWidth(), image.getHeight()));
+        this.line = new double[Math.max(0, bounds.width)];
+        this.x = bounds.x;
+        this.y = bounds.y;
+    }
+
+    public void startLines() {
+        y = bounds.y;
+    }
+
+    public boolean finishedLines() {
+        return bounds.isEmpty() || y >= bounds.y + bounds.height;
+    }
+
+    /**
+     * Writes the current line into the image and moves to the next line.
+     */
+    public void nextLine() {
+        RasterHelper.writeSamples(image, new Rectangle(bounds.x, y, bounds.width, 1), line);
+        y++;
+    }
+
+    public void startPixels() {
+        x = bounds.x;
+        RasterHelper.readSamples(image, new Rectangle(bounds.x, y, bounds.width, 1), line);
+    }
+
+    public boolean finishedPixels() {
+        return x >= bounds.x + bounds.width;
+    }
+
+    public void nextPixel() {
+        x++;
+    }
+
+    public void setSample(int band, double value) {
+        if (band != 0) {
+            throw new IllegalArgumentException("Only the first band can be written: " + band);
+        }
+        line[x - bounds.x] = value;
+    }
+}
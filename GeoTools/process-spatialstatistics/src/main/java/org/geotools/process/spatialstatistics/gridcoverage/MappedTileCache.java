@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.gridcoverage.MappedTileImage.TileStore;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Memory budget shared by {@link MappedTileImage}s.
+ * <p>
+ * Tiles in use are held on the heap in least recently used order. When their size exceeds the
+ * budget, the eldest tiles are written to the memory-mapped file of their image and dropped from
+ * the heap. The files of images that are disposed or no longer reachable are closed and deleted.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class MappedTileCache {
+    protected static final Logger LOGGER = Logging.getLogger(MappedTileCache.class);
+
+    /** Default budget, a quarter of the maximum heap size */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+    static final long MINIMUM_MEMORY_BUDGET = 16L << 20;
+
+    private static final MappedTileCache defaultCache = new MappedTileCache(
+            DEFAULT_MEMORY_BUDGET, null);
+
+    public static MappedTileCache getDefault() {
+        return defaultCache;
+    }
+
+    static final class Entry {
+        final TileStore store;
+
+        final int index;
+
+        Entry(TileStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+    }
+
+    static final class StoreReference extends WeakReference<MappedTileImage> {
+        final TileStore store;
+
+        StoreReference(MappedTileImage image, TileStore store,
+                ReferenceQueue<MappedTileImage> queue) {
+            super(image, queue);
+            this.store = store;
+        }
+    }
+
+    private final long memoryBudget;
+
+    private final File directory;
+
+    private long memoryUsed = 0;
+
+    private final LinkedHashMap<Entry, Entry> entries = new LinkedHashMap<Entry, Entry>(256,
+            0.75f, true);
+
+    private final ReferenceQueue<MappedTileImage> queue = new ReferenceQueue<MappedTileImage>();
+
+    private final Set<StoreReference> references = new HashSet<StoreReference>();
+
+    /**
+     * @param memoryBudget the maximum size in bytes of the tiles held on the heap
+     * @param directory the directory of the tile files, null for the default temporary directory
+     */
+    public MappedTileCache(long memoryBudget, File directory) {
+        this.memoryBudget = Math.max(MINIMUM_MEMORY_BUDGET, memoryBudget);
+        this.directory = directory;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    synchronized void register(MappedTileImage image, TileStore store) {
+        expunge();
+        references.add(new StoreReference(image, store, queue));
+    }
+
+    /**
+     * Adds a tile loaded on the heap, evicting the least recently used tiles over the budget.
+     */
+    synchronized Entry add(TileStore store, int index) {
+        expunge();
+
+        Entry entry = new Entry(store, index);
+        entries.put(entry, entry);
+        memoryUsed += store.getTileBytes();
+
+        Iterator<Entry> iter = entries.keySet().iterator();
+        while (memoryUsed > memoryBudget && iter.hasNext()) {
+            Entry eldest = iter.next();
+            if (eldest == entry) {
+                break;
+            }
+            iter.remove();
+            memoryUsed -= eldest.store.getTileBytes();
+            eldest.store.evict(eldest.index);
+        }
+        return entry;
+    }
+
+    synchronized void touch(Entry entry) {
+        entries.get(entry);
+    }
+
+    synchronized void remove(Entry entry) {
+        if (entries.remove(entry) != null) {
+            memoryUsed -= entry.store.getTileBytes();
+        }
+    }
+
+    synchronized void unregister(TileStore store) {
+        Iterator<StoreReference> iter = references.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().store == store) {
+                iter.remove();
+            }
+        }
+    }
+
+    // closes the files of images that have been garbage collected
+    private void expunge() {
+        Reference<? extends MappedTileImage> reference = queue.poll();
+        while (reference != null) {
+            StoreReference storeReference = (StoreReference) reference;
+            references.remove(storeReference);
+            storeReference.store.close();
+            reference = queue.poll();
+        }
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.TileObserver;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+
+import org.geotools.process.ProcessException;
+import org.geotools.util.logging.Logging;
+
+/**
+ * A writable tiled image for intermediate rasters, backed by a memory-mapped temporary file.
+ * <p>
+ * Tiles are plain heap rasters while they are in use, so JAI operations and iterators work on them
+ * as usual. The tiles over the memory budget of the {@link MappedTileCache} are copied to the
+ * mapped file through typed buffer views, and read back on the next access. Tiles that were never
+ * written are not stored and read as zeros. {@link #dispose()} deletes the file, which also
+ * happens when the image is garbage collected.
+ * <p>
+ * Only tiles obtained with {@link #getWritableTile(int, int)}, {@link #setData(Raster)} or
+ * {@link #setSample(int, int, int, double)} are written back, so rasters returned by
+ * {@link #getTile(int, int)} must not be modified. Writable tiles do not need to be released, so
+ * JAI's writable iterators can be used: a modified tile that is evicted is written to the file and
+ * stays weakly reachable, and if its raster is still held it is adopted again on the next access
+ * instead of being read back. Writers should still release a tile before they load many others,
+ * because changes made to an evicted raster that is dropped before the next access are lost.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class MappedTileImage extends PlanarImage implements WritableRenderedImage {
+    protected static final Logger LOGGER = Logging.getLogger(MappedTileImage.class);
+
+    private final TileStore store;
+
+    public MappedTileImage(int minX, int minY, int width, int height, int tileGridXOffset,
+            int tileGridYOffset, SampleModel tileSampleModel, ColorModel colorModel) {
+        this(minX, minY, width, height, tileGridXOffset, tileGridYOffset, tileSampleModel,
+                colorModel, MappedTileCache.getDefault());
+    }
+
+    public MappedTileImage(int minX, int minY, int width, int height, int tileGridXOffset,
+            int tileGridYOffset, SampleModel tileSampleModel, ColorModel colorModel,
+            MappedTileCache cache) {
+        super(new ImageLayout(minX, minY, width, height, tileGridXOffset, tileGridYOffset,
+                tileSampleModel.getWidth(), tileSampleModel.getHeight(), tileSampleModel,
+                colorModel), null, null);
+
+        this.store = new TileStore(cache, tileSampleModel, getNumXTiles() * getNumYTiles());
+        cache.register(this, store);
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        return getTile(tileX, tileY, false);
+    }
+
+    @Override
+    public WritableRaster getWritableTile(int tileX, int tileY) {
+        return getTile(tileX, tileY, true);
+    }
+
+    private WritableRaster getTile(int tileX, int tileY, boolean writable) {
+        if (!hasTile(tileX, tileY)) {
+            return null;
+        }
+
+        int index = (tileY - getMinTileY()) * getNumXTiles() + (tileX - getMinTileX());
+        return store.getTile(index, tileXToX(tileX), tileYToY(tileY), writable);
+    }
+
+    private boolean hasTile(int tileX, int tileY) {
+        return tileX >= getMinTileX() && tileY >= getMinTileY() && tileX <= getMaxTileX()
+                && tileY <= getMaxTileY();
+    }
+
+    @Override
+    public void releaseWritableTile(int tileX, int tileY) {
+        // tiles are not checked out, modified tiles are written back when they are evicted
+    }
+
+    @Override
+    public boolean isTileWritable(int tileX, int tileY) {
+        return true;
+    }
+
+    @Override
+    public Point[] getWritableTileIndices() {
+        return null;
+    }
+
+    @Override
+    public boolean hasTileWriters() {
+        return false;
+    }
+
+    @Override
+    public void addTileObserver(TileObserver to) {
+        // not supported
+    }
+
+    @Override
+    public void removeTileObserver(TileObserver to) {
+        // not supported
+    }
+
+    @Override
+    public void setData(Raster raster) {
+        Rectangle bounds = raster.getBounds().intersection(getBounds());
+        if (bounds.isEmpty()) {
+            return;
+        }
+
+        final int maxTileX = XToTileX(bounds.x + bounds.width - 1);
+        final int maxTileY = YToTileY(bounds.y + bounds.height - 1);
+        for (int tileY = YToTileY(bounds.y); tileY <= maxTileY; tileY++) {
+            for (int tileX = XToTileX(bounds.x); tileX <= maxTileX; tileX++) {
+                WritableRaster tile = getWritableTile(tileX, tileY);
+                Rectangle rect = tile.getBounds().intersection(bounds);
+                tile.setRect(raster.createChild(rect.x, rect.y, rect.width, rect.height, rect.x,
+                        rect.y, null));
+                releaseWritableTile(tileX, tileY);
+            }
+        }
+    }
+
+    public int getSample(int x, int y, int band) {
+        return getTile(XToTileX(x), YToTileY(y)).getSample(x, y, band);
+    }
+
+    public float getSampleFloat(int x, int y, int band) {
+        return getTile(XToTileX(x), YToTileY(y)).getSampleFloat(x, y, band);
+    }
+
+    public double getSampleDouble(int x, int y, int band) {
+        return getTile(XToTileX(x), YToTileY(y)).getSampleDouble(x, y, band);
+    }
+
+    public void setSample(int x, int y, int band, int value) {
+        final int tileX = XToTileX(x);
+        final int tileY = YToTileY(y);
+        getWritableTile(tileX, tileY).setSample(x, y, band, value);
+        releaseWritableTile(tileX, tileY);
+    }
+
+    public void setSample(int x, int y, int band, float value) {
+        final int tileX = XToTileX(x);
+        final int tileY = YToTileY(y);
+        getWritableTile(tileX, tileY).setSample(x, y, band, value);
+        releaseWritableTile(tileX, tileY);
+    }
+
+    public void setSample(int x, int y, int band, double value) {
+        final int tileX = XToTileX(x);
+        final int tileY = YToTileY(y);
+        getWritableTile(tileX, tileY).setSample(x, y, band, value);
+        releaseWritableTile(tileX, tileY);
+    }
+
+    /**
+     * Releases the tiles and deletes the tile file. The image cannot be used afterwards.
+     */
+    @Override
+    public synchronized void dispose() {
+        super.dispose();
+        store.close();
+    }
+
+    /**
+     * Tiles of one image and the mapped file they are evicted to.
+     */
+    static final class TileStore {
+        // maximum size of a mapped region
+        static final int SEGMENT_BYTES = 1 << 30;
+
+        private final MappedTileCache cache;
+
+        private final SampleModel sampleModel;
+
+        private final int dataType;
+
+        private final int bankSize;
+
+        private final int numBanks;
+
+        private final int tileBytes;
+
+        private final int tileCount;
+
+        private final int tilesPerSegment;
+
+        private final WritableRaster[] tiles;
+
+        private final MappedTileCache.Entry[] entries;
+
+        // modified tiles that were evicted, adopted again while a caller still holds them
+        private final WeakReference<WritableRaster>[] evicted;
+
+        private final BitSet dirty = new BitSet();
+
+        private final BitSet stored = new BitSet();
+
+        private MappedByteBuffer[] segments;
+
+        private File file;
+
+        private RandomAccessFile randomAccessFile;
+
+        private boolean closed = false;
+
+        @SuppressWarnings("unchecked")
+        TileStore(MappedTileCache cache, SampleModel sampleModel, int tileCount) {
+            this.cache = cache;
+            this.sampleModel = sampleModel;
+            this.dataType = sampleModel.getDataType();
+            this.tileCount = tileCount;
+
+            DataBuffer template = sampleModel.createDataBuffer();
+            this.bankSize = template.getSize();
+            this.numBanks = template.getNumBanks();
+
+            long bytes = (long) bankSize * numBanks * DataBuffer.getDataTypeSize(dataType) / 8;
+            if (bytes > SEGMENT_BYTES) {
+                throw new IllegalArgumentException("The tile size is too large: " + bytes);
+            }
+            this.tileBytes = (int) bytes;
+            this.tilesPerSegment = Math.max(1, SEGMENT_BYTES / Math.max(1, tileBytes));
+
+            this.tiles = new WritableRaster[tileCount];
+            this.entries = new MappedTileCache.Entry[tileCount];
+            this.evicted = new WeakReference[tileCount];
+            this.segments = new MappedByteBuffer[(tileCount + tilesPerSegment - 1)
+                    / tilesPerSegment];
+        }
+
+        int getTileBytes() {
+            return tileBytes;
+        }
+
+        WritableRaster getTile(int index, int x, int y, boolean writable) {
+            synchronized (cache) {
+                if (closed) {
+                    throw new IllegalStateException("The image has been disposed!");
+                }
+
+                if (writable) {
+                    dirty.set(index);
+                }
+
+                WritableRaster raster = tiles[index];
+                if (raster == null) {
+                    raster = evicted[index] == null ? null : evicted[index].get();
+                    if (raster == null) {
+                        raster = load(index, x, y);
+                    } else {
+                        // may have been modified after it was written back
+                        dirty.set(index);
+                    }
+                    evicted[index] = null;
+                    tiles[index] = raster;
+                    entries[index] = cache.add(this, index);
+                } else {
+                    cache.touch(entries[index]);
+                }
+                return raster;
+            }
+        }
+
+        /**
+         * Called by the cache: writes a modified tile to the file and drops it from the heap.
+         */
+        void evict(int index) {
+            WritableRaster raster = tiles[index];
+            if (raster == null) {
+                return;
+            }
+
+            if (dirty.get(index)) {
+                write(index, raster.getDataBuffer());
+                stored.set(index);
+                dirty.clear(index);
+                evicted[index] = new WeakReference<WritableRaster>(raster);
+            }
+
+            tiles[index] = null;
+            entries[index] = null;
+        }
+
+        void close() {
+            synchronized (cache) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                for (int index = 0; index < tileCount; index++) {
+                    if (entries[index] != null) {
+                        cache.remove(entries[index]);
+                    }
+                    tiles[index] = null;
+                    entries[index] = null;
+                    evicted[index] = null;
+                }
+                cache.unregister(this);
+                segments = null;
+
+                if (randomAccessFile != null) {
+                    try {
+                        randomAccessFile.close();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
+                }
+
+                // a mapped file cannot be deleted on some platforms until it is unmapped
+                if (file != null && !file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+
+        private WritableRaster load(int index, int x, int y) {
+            DataBuffer buffer = createDataBuffer();
+            if (stored.get(index)) {
+                read(index, buffer);
+            }
+            return Raster.createWritableRaster(sampleModel, buffer, new Point(x, y));
+        }
+
+        private DataBuffer createDataBuffer() {
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                return new DataBufferByte(bankSize, numBanks);
+            case DataBuffer.TYPE_USHORT:
+                return new DataBufferUShort(bankSize, numBanks);
+            case DataBuffer.TYPE_SHORT:
+                return new DataBufferShort(bankSize, numBanks);
+            case DataBuffer.TYPE_INT:
+                return new DataBufferInt(bankSize, numBanks);
+            case DataBuffer.TYPE_FLOAT:
+                return new DataBufferFloat(bankSize, numBanks);
+            case DataBuffer.TYPE_DOUBLE:
+                return new DataBufferDouble(bankSize, numBanks);
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + dataType);
+            }
+        }
+
+        private void write(int index, DataBuffer buffer) {
+            ByteBuffer region = getRegion(index);
+            int bankBytes = tileBytes / numBanks;
+            for (int bank = 0; bank < numBanks; bank++) {
+                region.position(bank * bankBytes);
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    region.put(((DataBufferByte) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    region.asShortBuffer().put(((DataBufferUShort) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    region.asShortBuffer().put(((DataBufferShort) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_INT:
+                    region.asIntBuffer().put(((DataBufferInt) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    region.asFloatBuffer().put(((DataBufferFloat) buffer).getData(bank));
+                    break;
+                default:
+                    region.asDoubleBuffer().put(((DataBufferDouble) buffer).getData(bank));
+                    break;
+                }
+            }
+        }
+
+        private void read(int index, DataBuffer buffer) {
+            ByteBuffer region = getRegion(index);
+            int bankBytes = tileBytes / numBanks;
+            for (int bank = 0; bank < numBanks; bank++) {
+                region.position(bank * bankBytes);
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    region.get(((DataBufferByte) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    region.asShortBuffer().get(((DataBufferUShort) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    region.asShortBuffer().get(((DataBufferShort) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_INT:
+                    region.asIntBuffer().get(((DataBufferInt) buffer).getData(bank));
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    region.asFloatBuffer().get(((DataBufferFloat) buffer).getData(bank));
+                    break;
+                default:
+                    region.asDoubleBuffer().get(((DataBufferDouble) buffer).getData(bank));
+                    break;
+                }
+            }
+        }
+
+        // the bytes of a tile in native order, mapping the segment on first use
+        private ByteBuffer getRegion(int index) {
+            int segment = index / tilesPerSegment;
+            try {
+                if (segments[segment] == null) {
+                    if (randomAccessFile == null) {
+                        file = File.createTempFile("tiles", ".raw", cache.getDirectory());
+                        file.deleteOnExit();
+                        randomAccessFile = new RandomAccessFile(file, "rw");
+                    }
+
+                    long position = (long) segment * tilesPerSegment * tileBytes;
+                    int count = Math.min(tilesPerSegment, tileCount - segment * tilesPerSegment);
+                    FileChannel channel = randomAccessFile.getChannel();
+                    segments[segment] = channel.map(MapMode.READ_WRITE, position, (long) count
+                            * tileBytes);
+                }
+            } catch (IOException e) {
+                throw new ProcessException(e);
+            }
+
+            ByteBuffer region = segments[segment].duplicate();
+            int offset = (index % tilesPerSegment) * tileBytes;
+            region.limit(offset + tileBytes);
+            region.position(offset);
+            return region.slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -35,7 +35,6 @@ import org.geotools.process.spatialstatistics.enumeration.PointAssignmentType;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.feature.simple.SimpleFeature;
@@ -56,7 +55,7 @@ public class PointsToRasterOperation extends RasterProcessingOperation {
         COUNT, CONSTANT, FIELD
     }
 
-    private DiskMemImage outputImage = null;
+    private MappedTileImage outputImage = null;
 
     private PointAssignmentType cellAssignment = PointAssignmentType.Count;
 
@@ -0,0 +1,611 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+
+/**
+ * Compiles raster algebra expressions and filters into kernels that evaluate whole blocks of
+ * pixels on primitive arrays, and runs them over the tiles of an image in parallel.
+ * <p>
+ * Property names refer to input rasters, literals must be numbers and only arithmetic, comparison,
+ * logical and the common math functions are supported. {@link #compile(Expression, Map)} returns
+ * null for anything else, callers then evaluate the expression per pixel.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterAlgebra {
+    protected static final Logger LOGGER = Logging.getLogger(RasterAlgebra.class);
+
+    /**
+     * A compiled expression. Inputs are indexed by raster, outputs are written for the first
+     * {@code length} pixels. Filters produce 1 for true and 0 for false.
+     */
+    public static abstract class Kernel {
+        public abstract void evaluate(double[][] inputs, int length, double[] output);
+    }
+
+    /**
+     * Processes a block of pixels of a tile. The sample arrays are reused between blocks and may
+     * be longer than the block.
+     */
+    public interface TileKernel {
+        /**
+         * @param bounds pixel bounds of the block in output image space
+         * @param inputs samples of each input image in row-major order
+         * @param output samples to write into the output image
+         */
+        public void compute(Rectangle bounds, double[][] inputs, double[] output);
+    }
+
+    /**
+     * Compiles an expression. The inputs map property names (case insensitive) to input indexes.
+     * 
+     * @return compiled kernel or null if the expression is not supported
+     */
+    public static Kernel compile(Expression expression, Map<String, Integer> inputs) {
+        if (expression instanceof Literal) {
+            Double value = Converters.convert(((Literal) expression).getValue(), Double.class);
+            return value == null ? null : new Constant(value.doubleValue());
+        } else if (expression instanceof PropertyName) {
+            Integer index = findInput(((PropertyName) expression).getPropertyName(), inputs);
+            return index == null ? null : new Input(index.intValue());
+        } else if (expression instanceof Add) {
+            return binary(Binary.ADD, ((Add) expression).getExpression1(),
+                    ((Add) expression).getExpression2(), inputs);
+        } else if (expression instanceof Subtract) {
+            return binary(Binary.SUBTRACT, ((Subtract) expression).getExpression1(),
+                    ((Subtract) expression).getExpression2(), inputs);
+        } else if (expression instanceof Multiply) {
+            return binary(Binary.MULTIPLY, ((Multiply) expression).getExpression1(),
+                    ((Multiply) expression).getExpression2(), inputs);
+        } else if (expression instanceof Divide) {
+            return binary(Binary.DIVIDE, ((Divide) expression).getExpression1(),
+                    ((Divide) expression).getExpression2(), inputs);
+        } else if (expression instanceof Function) {
+            return function((Function) expression, inputs);
+        }
+
+        return null;
+    }
+
+    /**
+     * Compiles a filter into a kernel producing 1 (true) or 0 (false).
+     * 
+     * @return compiled kernel or null if the filter is not supported
+     */
+    public static Kernel compile(Filter filter, Map<String, Integer> inputs) {
+        if (filter instanceof IncludeFilter) {
+            return new Constant(1d);
+        } else if (filter instanceof ExcludeFilter) {
+            return new Constant(0d);
+        } else if (filter instanceof And || filter instanceof Or) {
+            List<Filter> children = filter instanceof And ? ((And) filter).getChildren()
+                    : ((Or) filter).getChildren();
+            Kernel[] kernels = new Kernel[children.size()];
+            for (int k = 0; k < kernels.length; k++) {
+                kernels[k] = compile(children.get(k), inputs);
+                if (kernels[k] == null) {
+                    return null;
+                }
+            }
+            return new Logical(filter instanceof And, kernels);
+        } else if (filter instanceof Not) {
+            Kernel kernel = compile(((Not) filter).getFilter(), inputs);
+            return kernel == null ? null : new Unary(Unary.NOT, kernel);
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            Kernel value = compile(between.getExpression(), inputs);
+            Kernel lower = compile(between.getLowerBoundary(), inputs);
+            Kernel upper = compile(between.getUpperBoundary(), inputs);
+            if (value == null || lower == null || upper == null) {
+                return null;
+            }
+            return new Logical(true, new Kernel[] {
+                    new Binary(Binary.GREATER_EQUAL, value, lower),
+                    new Binary(Binary.LESS_EQUAL, value, upper) });
+        } else if (filter instanceof BinaryComparisonOperator) {
+            int op = -1;
+            if (filter instanceof PropertyIsEqualTo) {
+                op = Binary.EQUAL;
+            } else if (filter instanceof PropertyIsNotEqualTo) {
+                op = Binary.NOT_EQUAL;
+            } else if (filter instanceof PropertyIsLessThan) {
+                op = Binary.LESS;
+            } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+                op = Binary.LESS_EQUAL;
+            } else if (filter instanceof PropertyIsGreaterThan) {
+                op = Binary.GREATER;
+            } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+                op = Binary.GREATER_EQUAL;
+            } else {
+                return null;
+            }
+
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            return binary(op, comparison.getExpression1(), comparison.getExpression2(), inputs);
+        }
+
+        return null;
+    }
+
+    /**
+     * Runs the tile kernel over all tiles of the output image in parallel. All images must have
+     * the same width and height; each input is read from its own bounds.
+     */
+    public static void process(final RenderedImage[] inputImages, final int[] bands,
+            final WritableRenderedImage outputImage, final TileKernel tileKernel) {
+        final Rectangle outputBounds = new Rectangle(outputImage.getMinX(),
+                outputImage.getMinY(), outputImage.getWidth(), outputImage.getHeight());
+        for (RenderedImage image : inputImages) {
+            if (image.getWidth() != outputBounds.width
+                    || image.getHeight() != outputBounds.height) {
+                throw new IllegalArgumentException("All rasters must have the same dimension!");
+            }
+        }
+
+        final int minTileX = outputImage.getMinTileX();
+        final int minTileY = outputImage.getMinTileY();
+        final int numXTiles = outputImage.getNumXTiles();
+        final int numTiles = numXTiles * outputImage.getNumYTiles();
+
+        ParallelUtils.forEach(numTiles, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[][] inputs = new double[inputImages.length][];
+                double[] output = null;
+                for (int tile = start; tile < end; tile++) {
+                    final int tileX = minTileX + (tile % numXTiles);
+                    final int tileY = minTileY + (tile / numXTiles);
+
+                    Rectangle bounds = new Rectangle(outputImage.getTileGridXOffset() + tileX
+                            * outputImage.getTileWidth(), outputImage.getTileGridYOffset()
+                            + tileY * outputImage.getTileHeight(), outputImage.getTileWidth(),
+                            outputImage.getTileHeight()).intersection(outputBounds);
+                    if (bounds.isEmpty()) {
+                        continue;
+                    }
+
+                    final int length = bounds.width * bounds.height;
+                    if (output == null || output.length < length) {
+                        output = new double[length];
+                        for (int k = 0; k < inputImages.length; k++) {
+                            inputs[k] = new double[length];
+                        }
+                    }
+
+                    for (int k = 0; k < inputImages.length; k++) {
+                        RenderedImage image = inputImages[k];
+                        Rectangle rect = new Rectangle(bounds.x - outputBounds.x
+                                + image.getMinX(), bounds.y - outputBounds.y + image.getMinY(),
+                                bounds.width, bounds.height);
+                        Raster raster = image.getData(rect);
+                        raster.getSamples(rect.x, rect.y, rect.width, rect.height, bands[k],
+                                inputs[k]);
+                    }
+
+                    tileKernel.compute(bounds, inputs, output);
+
+                    synchronized (outputImage) {
+                        WritableRaster raster = outputImage.getWritableTile(tileX, tileY);
+                        raster.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                                output);
+                        outputImage.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        });
+    }
+
+    static double[] getScratch(ThreadLocal<double[]> scratch, int length) {
+        double[] buffer = scratch.get();
+        if (buffer == null || buffer.length < length) {
+            buffer = new double[length];
+            scratch.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static Integer findInput(String propertyName, Map<String, Integer> inputs) {
+        if (propertyName == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, Integer> entry : inputs.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(propertyName)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Kernel binary(int op, Expression expr1, Expression expr2,
+            Map<String, Integer> inputs) {
+        Kernel kernel1 = compile(expr1, inputs);
+        Kernel kernel2 = compile(expr2, inputs);
+        if (kernel1 == null || kernel2 == null) {
+            return null;
+        }
+        return new Binary(op, kernel1, kernel2);
+    }
+
+    private static Kernel function(Function function, Map<String, Integer> inputs) {
+        String name = function.getName().toLowerCase(Locale.ENGLISH);
+        int suffix = name.lastIndexOf('_');
+        if (suffix > 0 && name.matches(".*_[0-9]$")) {
+            name = name.substring(0, suffix); // abs_2, min_3 ...
+        }
+
+        List<Expression> parameters = function.getParameters();
+        Kernel[] args = new Kernel[parameters.size()];
+        for (int k = 0; k < args.length; k++) {
+            args[k] = compile(parameters.get(k), inputs);
+            if (args[k] == null) {
+                return null;
+            }
+        }
+
+        if (args.length == 1) {
+            int op = Unary.getOperator(name);
+            return op == -1 ? null : new Unary(op, args[0]);
+        } else if (args.length == 2) {
+            if (name.equals("pow")) {
+                return new Binary(Binary.POW, args[0], args[1]);
+            } else if (name.equals("atan2")) {
+                return new Binary(Binary.ATAN2, args[0], args[1]);
+            } else if (name.equals("min")) {
+                return new Binary(Binary.MIN, args[0], args[1]);
+            } else if (name.equals("max")) {
+                return new Binary(Binary.MAX, args[0], args[1]);
+            } else if (name.equals("ieeeremainder")) {
+                return new Binary(Binary.REMAINDER, args[0], args[1]);
+            }
+        }
+
+        return null;
+    }
+
+    static final class Constant extends Kernel {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public void evaluate(double[][] inputs, int length, double[] output) {
+            for (int i = 0; i < length; i++) {
+                output[i] = value;
+            }
+        }
+    }
+
+    static final class Input extends Kernel {
+        private final int index;
+
+        Input(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void evaluate(double[][] inputs, int length, double[] output) {
+            System.arraycopy(inputs[index], 0, output, 0, length);
+        }
+    }
+
+    static final class Unary extends Kernel {
+        static final int NOT = 0, ABS = 1, SQRT = 2, EXP = 3, LOG = 4, SIN = 5, COS = 6, TAN = 7,
+                ASIN = 8, ACOS = 9, ATAN = 10, CEIL = 11, FLOOR = 12, RINT = 13, ROUND = 14,
+                DEGREES = 15, RADIANS = 16, LOG10 = 17;
+
+        static final String[] NAMES = { "not", "abs", "sqrt", "exp", "log", "sin", "cos", "tan",
+                "asin", "acos", "atan", "ceil", "floor", "rint", "round", "todegrees",
+                "toradians", "log10" };
+
+        private final int op;
+
+        private final Kernel arg;
+
+        Unary(int op, Kernel arg) {
+            this.op = op;
+            this.arg = arg;
+        }
+
+        static int getOperator(String name) {
+            for (int k = 1; k < NAMES.length; k++) {
+                if (NAMES[k].equals(name)) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void evaluate(double[][] inputs, int length, double[] output) {
+            arg.evaluate(inputs, length, output);
+            switch (op) {
+            case NOT:
+                for (int i = 0; i < length; i++) {
+                    output[i] = output[i] != 0 ? 0d : 1d;
+                }
+                break;
+            case ABS:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.abs(output[i]);
+                }
+                break;
+            case SQRT:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.sqrt(output[i]);
+                }
+                break;
+            case EXP:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.exp(output[i]);
+                }
+                break;
+            case LOG:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.log(output[i]);
+                }
+                break;
+            case SIN:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.sin(output[i]);
+                }
+                break;
+            case COS:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.cos(output[i]);
+                }
+                break;
+            case TAN:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.tan(output[i]);
+                }
+                break;
+            case ASIN:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.asin(output[i]);
+                }
+                break;
+            case ACOS:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.acos(output[i]);
+                }
+                break;
+            case ATAN:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.atan(output[i]);
+                }
+                break;
+            case CEIL:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.ceil(output[i]);
+                }
+                break;
+            case FLOOR:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.floor(output[i]);
+                }
+                break;
+            case RINT:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.rint(output[i]);
+                }
+                break;
+            case ROUND:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Double.isNaN(output[i]) ? output[i] : Math.round(output[i]);
+                }
+                break;
+            case DEGREES:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.toDegrees(output[i]);
+                }
+                break;
+            case RADIANS:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.toRadians(output[i]);
+                }
+                break;
+            case LOG10:
+                for (int i = 0; i < length; i++) {
+                    output[i] = Math.log10(output[i]);
+                }
+                break;
+            }
+        }
+    }
+
+    static final class Binary extends Kernel {
+        static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3, POW = 4, ATAN2 = 5,
+                MIN = 6, MAX = 7, REMAINDER = 8, EQUAL = 9, NOT_EQUAL = 10, LESS = 11,
+                LESS_EQUAL = 12, GREATER = 13, GREATER_EQUAL = 14;
+
+        private final int op;
+
+        private final Kernel arg1;
+
+        private final Kernel arg2;
+
+        Binary(int op, Kernel arg1, Kernel arg2) {
+            this.op = op;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+
+        // scratch buffer of the second argument, per thread as kernels are shared by tiles
+        private final ThreadLocal<double[]> scratch = new ThreadLocal<double[]>();
+
+        @Override
+        public void evaluate(double[][] inputs, int length, double[] output) {
+            final double[] a = output;
+            final double[] b = getScratch(scratch, length);
+            arg1.evaluate(inputs, length, a);
+            arg2.evaluate(inputs, length, b);
+
+            switch (op) {
+            case ADD:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] + b[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] - b[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] * b[i];
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] / b[i];
+                }
+                break;
+            case POW:
+                for (int i = 0; i < length; i++) {
+                    a[i] = Math.pow(a[i], b[i]);
+                }
+                break;
+            case ATAN2:
+                for (int i = 0; i < length; i++) {
+                    a[i] = Math.atan2(a[i], b[i]);
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < length; i++) {
+                    a[i] = Math.min(a[i], b[i]);
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < length; i++) {
+                    a[i] = Math.max(a[i], b[i]);
+                }
+                break;
+            case REMAINDER:
+                for (int i = 0; i < length; i++) {
+                    a[i] = Math.IEEEremainder(a[i], b[i]);
+                }
+                break;
+            case EQUAL:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] == b[i] ? 1d : 0d;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] != b[i] ? 1d : 0d;
+                }
+                break;
+            case LESS:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] < b[i] ? 1d : 0d;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] <= b[i] ? 1d : 0d;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] > b[i] ? 1d : 0d;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < length; i++) {
+                    a[i] = a[i] >= b[i] ? 1d : 0d;
+                }
+                break;
+            }
+        }
+    }
+
+    static final class Logical extends Kernel {
+        private final boolean and;
+
+        private final Kernel[] args;
+
+        private final ThreadLocal<double[]> scratch = new ThreadLocal<double[]>();
+
+        Logical(boolean and, Kernel[] args) {
+            this.and = and;
+            this.args = args;
+        }
+
+        @Override
+        public void evaluate(double[][] inputs, int length, double[] output) {
+            for (int i = 0; i < length; i++) {
+                output[i] = and ? 1d : 0d;
+            }
+
+            final double[] buffer = getScratch(scratch, length);
+            for (Kernel arg : args) {
+                arg.evaluate(inputs, length, buffer);
+                if (and) {
+                    for (int i = 0; i < length; i++) {
+                        output[i] = output[i] != 0 && buffer[i] != 0 ? 1d : 0d;
+                    }
+                } else {
+                    for (int i = 0; i < length; i++) {
+                        output[i] = output[i] != 0 || buffer[i] != 0 ? 1d : 0d;
+                    }
+                }
+            }
+        }
+    }
+}
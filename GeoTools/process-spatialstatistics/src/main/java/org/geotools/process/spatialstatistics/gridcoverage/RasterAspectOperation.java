@@ -18,15 +18,11 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Derives aspect from a raster surface. The aspect identifies the downslope direction of the maximum rate of change in value from each cell to its
@@ -50,9 +46,8 @@ public class RasterAspectOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        LineWriter writer = new LineWriter(outputImage);
 
         GridCoordinates2D pos = new GridCoordinates2D();
 
@@ -78,7 +73,7 @@ public class RasterAspectOperation extends AbstractSurfaceOperation {
         return createGridCoverage("Aspect", outputImage);
     }
 
-    private void visitAspect(WritableRectIter writer, GridCoordinates2D pos) {
+    private void visitAspect(LineWriter writer, GridCoordinates2D pos) {
         // http://webhelp.esri.com/arcgisdesktop/9.3/index.cfm?TopicName=How%20Aspect%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
         // (Oxford University Press, New York), p. 190.
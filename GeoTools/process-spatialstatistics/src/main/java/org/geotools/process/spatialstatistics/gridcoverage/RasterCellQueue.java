@@ -0,0 +1,249 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of raster cells keyed by a double priority, stored in primitive arrays.
+ * <p>
+ * Cells are encoded as row * width + column. By default a cell pushed twice is queued twice. If
+ * decrease-key is enabled, the heap position of every queued cell is kept in a primitive hash
+ * table, so pushing a queued cell with a lower priority moves it up instead, and the heap never
+ * holds more than the cells currently queued.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+class RasterCellQueue {
+
+    private long[] cells;
+
+    private double[] priorities;
+
+    private int size = 0;
+
+    private long polledCell;
+
+    private double polledPriority;
+
+    private final CellIndex index;
+
+    public RasterCellQueue() {
+        this(1024, false);
+    }
+
+    public RasterCellQueue(int initialCapacity, boolean decreaseKey) {
+        cells = new long[Math.max(16, initialCapacity)];
+        priorities = new double[cells.length];
+        index = decreaseKey ? new CellIndex(cells.length) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Queues the cell. If decrease-key is enabled and the cell is already queued, its priority is
+     * lowered to the given one, or left unchanged if the given one is not lower.
+     */
+    public void push(long cell, double priority) {
+        int position = -1;
+        if (index != null) {
+            position = index.get(cell);
+            if (position >= 0 && priorities[position] <= priority) {
+                return;
+            }
+        }
+
+        if (position < 0) {
+            if (size == cells.length) {
+                int capacity = size + (size >> 1);
+                cells = Arrays.copyOf(cells, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+            }
+            position = size++;
+        }
+
+        // sift up
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            set(position, cells[parent], priorities[parent]);
+            position = parent;
+        }
+        set(position, cell, priority);
+    }
+
+    /**
+     * Removes the cell with the lowest priority; use {@link #getCell()} and
+     * {@link #getPriority()} to read it.
+     */
+    public void poll() {
+        if (size == 0) {
+            throw new IllegalStateException("The queue is empty!");
+        }
+
+        polledCell = cells[0];
+        polledPriority = priorities[0];
+        if (index != null) {
+            index.remove(polledCell);
+        }
+
+        final long cell = cells[--size];
+        final double priority = priorities[size];
+        if (size == 0) {
+            return;
+        }
+
+        // sift down
+        int position = 0;
+        final int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            set(position, cells[child], priorities[child]);
+            position = child;
+        }
+        set(position, cell, priority);
+    }
+
+    public long getCell() {
+        return polledCell;
+    }
+
+    public double getPriority() {
+        return polledPriority;
+    }
+
+    private void set(int position, long cell, double priority) {
+        cells[position] = cell;
+        priorities[position] = priority;
+        if (index != null) {
+            index.put(cell, position);
+        }
+    }
+
+    /**
+     * Open addressing hash table from cell to heap position, with linear probing and backward
+     * shift deletion.
+     */
+    static final class CellIndex {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+
+        private int[] values;
+
+        private int mask;
+
+        private int size = 0;
+
+        CellIndex(int expected) {
+            allocate(Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1);
+        }
+
+        int get(long key) {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size > keys.length >>> 1) {
+                rehash();
+            }
+        }
+
+        void remove(long key) {
+            int slot = slot(key);
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // shift back the following entries of the cluster
+            int gap = slot;
+            slot = (slot + 1) & mask;
+            while (keys[slot] != EMPTY) {
+                int home = slot(keys[slot]);
+                if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                    keys[gap] = keys[slot];
+                    values[gap] = values[slot];
+                    gap = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[gap] = EMPTY;
+            size--;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            mask = capacity - 1;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(oldKeys.length << 1);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
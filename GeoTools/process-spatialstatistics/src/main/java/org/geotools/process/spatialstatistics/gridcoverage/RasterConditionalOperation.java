@@ -16,18 +16,16 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.BinaryComparisonOperator;
 import org.opengis.filter.Filter;
@@ -35,6 +33,9 @@ import org.opengis.filter.expression.Literal;
 
 /**
  * Performs a conditional if/else evaluation on each of the input cells of an input raster.
+ * <p>
+ * The filter is compiled once into a {@link RasterAlgebra.Kernel} and evaluated over whole tiles
+ * in parallel, unsupported filters are evaluated per pixel.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -52,8 +53,8 @@ public class RasterConditionalOperation extends RasterProcessingOperation {
         return execute(inputGc, bandIndex, inputFilter, trueValue, Integer.MIN_VALUE);
     }
 
-    public GridCoverage2D execute(GridCoverage2D inputGc, Integer bandIndex, Filter filter,
-            Integer trueValue, Integer falseValue) {
+    public GridCoverage2D execute(final GridCoverage2D inputGc, Integer bandIndex,
+            final Filter filter, Integer trueValue, Integer falseValue) {
         // check parameters
         if (filter == null || filter == Filter.INCLUDE) {
             return inputGc;
@@ -65,49 +66,54 @@ public class RasterConditionalOperation extends RasterProcessingOperation {
 
         final int valueTrue = trueValue.intValue();
         final int valueFalse = falseValue.intValue();
-        SimpleFeature feature = this.createTemplateFeature(inputGc);
-
-        PlanarImage inputImage = (PlanarImage) inputGc.getRenderedImage();
-        RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.INTEGER);
-        this.NoData = Integer.MIN_VALUE;  // change nodata value
-        
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        inputIter.startLines();
-        writerIter.startLines();
-        while (!inputIter.finishedLines() && !writerIter.finishedLines()) {
-            inputIter.startPixels();
-            writerIter.startPixels();
-            while (!inputIter.finishedPixels() && !writerIter.finishedPixels()) {
-                double curVal = inputIter.getSampleDouble(bandIndex);
-
-                if (isNoDataFilter) {
-                    if (SSUtils.compareDouble(curVal, inputNoData)) {
-                        writerIter.setSample(0, valueTrue);
-                    } else {
-                        writerIter.setSample(0, valueFalse);
-                    }
-                } else {
-                    if (SSUtils.compareDouble(curVal, inputNoData)) {
-                        writerIter.setSample(0, this.NoData);
-                    } else {
-                        feature.setAttribute(1, curVal); // raster name
-                        feature.setAttribute(2, curVal); // Value
-
-                        int conValue = filter.evaluate(feature) ? valueTrue : valueFalse;
-                        writerIter.setSample(0, conValue);
-                    }
-                }
 
-                inputIter.nextPixel();
-                writerIter.nextPixel();
-            }
-            inputIter.nextLine();
-            writerIter.nextLine();
-        }
+        Map<String, Integer> inputs = new HashMap<String, Integer>();
+        inputs.put(inputGc.getName().toString(), Integer.valueOf(0));
+        inputs.put("Value", Integer.valueOf(0));
+        final RasterAlgebra.Kernel kernel = isNoDataFilter ? null : RasterAlgebra.compile(
+                filter, inputs);
+
+        RenderedImage inputImage = inputGc.getRenderedImage();
+
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.INTEGER);
+        this.NoData = Integer.MIN_VALUE; // change nodata value
+        final double outputNoData = this.NoData;
+
+        RasterAlgebra.process(new RenderedImage[] { inputImage }, new int[] { bandIndex },
+                outputImage, new RasterAlgebra.TileKernel() {
+                    @Override
+                    public void compute(Rectangle bounds, double[][] values, double[] output) {
+                        final int length = bounds.width * bounds.height;
+                        final double[] curVals = values[0];
+
+                        if (isNoDataFilter) {
+                            for (int i = 0; i < length; i++) {
+                                boolean isNoData = SSUtils.compareDouble(curVals[i], inputNoData);
+                                output[i] = isNoData ? valueTrue : valueFalse;
+                            }
+                            return;
+                        }
+
+                        if (kernel != null) {
+                            kernel.evaluate(values, length, output);
+                        } else {
+                            SimpleFeature feature = createTemplateFeature(inputGc);
+                            for (int i = 0; i < length; i++) {
+                                feature.setAttribute(1, curVals[i]); // raster name
+                                feature.setAttribute(2, curVals[i]); // Value
+                                output[i] = filter.evaluate(feature) ? 1d : 0d;
+                            }
+                        }
+
+                        for (int i = 0; i < length; i++) {
+                            if (SSUtils.compareDouble(curVals[i], inputNoData)) {
+                                output[i] = outputNoData;
+                            } else {
+                                output[i] = output[i] != 0 ? valueTrue : valueFalse;
+                            }
+                        }
+                    }
+                });
 
         if (SSUtils.compareDouble(valueFalse, this.NoData)) {
             MinValue = valueTrue;
@@ -0,0 +1,331 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.logging.Logger;
+
+import javax.media.jai.PlanarImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Calculates the least accumulative cost distance for each cell to the nearest source over a cost
+ * surface.
+ * <p>
+ * The cost to move between two adjacent cells is the average of their costs multiplied by the
+ * distance between the cell centers, so diagonal moves are weighted by the diagonal of the cell.
+ * Cells whose cost is NoData or negative are barriers. Dijkstra's algorithm runs from all sources
+ * at once with a primitive binary heap that supports decrease-key, so every cell of the wavefront
+ * is queued once, and the accumulated cost, back-link and allocation values are read and written
+ * through bounded tile caches, so only the cells near the wavefront need to be in memory.
+ * <p>
+ * The back-link raster identifies the neighbor that is the next cell on the least cost path to
+ * the nearest source: 0 for source cells, then 1 to 8 clockwise starting at east.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterCostDistanceOperation extends RasterProcessingOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RasterCostDistanceOperation.class);
+
+    // E, SE, S, SW, W, NW, N, NE
+    static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
+
+    static final int[] DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    static final float UNREACHED = Float.MAX_VALUE;
+
+    static final double BACKLINK_NODATA = RasterHelper.getDefaultNoDataValue(RasterPixelType.SHORT);
+
+    private double maximumDistance = Double.MAX_VALUE;
+
+    private boolean outputAllocation = false;
+
+    private GridCoverage2D backlinkCoverage;
+
+    private GridCoverage2D allocationCoverage;
+
+    public boolean isOutputAllocation() {
+        return outputAllocation;
+    }
+
+    /**
+     * If true, the value of the nearest source in cost distance is also written for each cell.
+     * When the sources are features, each feature is rasterized with its own id (1 .. n).
+     */
+    public void setOutputAllocation(boolean outputAllocation) {
+        this.outputAllocation = outputAllocation;
+    }
+
+    /**
+     * Returns the back-link raster of the last execution.
+     */
+    public GridCoverage2D getBacklinkCoverage() {
+        return backlinkCoverage;
+    }
+
+    /**
+     * Returns the cost allocation of the last execution, or null if it was not requested.
+     */
+    public GridCoverage2D getAllocationCoverage() {
+        return allocationCoverage;
+    }
+
+    public GridCoverage2D execute(SimpleFeatureCollection sourceFeatures,
+            GridCoverage2D costCoverage, double maximumDistance) {
+        // rasterize the sources on the grid of the cost raster
+        FeaturesToRasterOperation process = new FeaturesToRasterOperation();
+        process.getRasterEnvironment().setExtent(
+                new ReferencedEnvelope(costCoverage.getEnvelope()));
+        process.getRasterEnvironment().setCellSizeX(RasterHelper.getCellSize(costCoverage));
+        process.getRasterEnvironment().setCellSizeY(RasterHelper.getCellSize(costCoverage));
+
+        GridCoverage2D sourceCoverage = null;
+        if (outputAllocation) {
+            // use internal id
+            sourceCoverage = process.execute(sourceFeatures);
+        } else {
+            sourceCoverage = process.execute(sourceFeatures, Short.valueOf((short) 1));
+        }
+
+        return execute(sourceCoverage, costCoverage, maximumDistance);
+    }
+
+    public GridCoverage2D execute(GridCoverage2D sourceCoverage, GridCoverage2D costCoverage,
+            double maximumDistance) {
+        if (maximumDistance <= 0 || Double.isNaN(maximumDistance)) {
+            this.maximumDistance = Double.MAX_VALUE;
+        } else {
+            this.maximumDistance = maximumDistance;
+        }
+
+        // sources are read by pixel index on the grid of the cost raster
+        sourceCoverage = RasterHelper.alignToGrid(sourceCoverage, costCoverage);
+
+        final PlanarImage sourceImage = (PlanarImage) sourceCoverage.getRenderedImage();
+        final double sourceNoData = RasterHelper.getNoDataValue(sourceCoverage);
+        final double costNoData = RasterHelper.getNoDataValue(costCoverage);
+
+        // outputs share the grid of the cost raster
+        final MappedTileImage backlinkImage = createDiskMemImage(costCoverage,
+                RasterPixelType.SHORT);
+        ScanlineRasterizer.fill(backlinkImage, BACKLINK_NODATA);
+
+        MappedTileImage allocationImage = null;
+        RasterPixelType allocationType = null;
+        if (outputAllocation) {
+            allocationType = RasterHelper.getTransferType(sourceCoverage);
+            if (allocationType == RasterPixelType.BYTE) {
+                allocationType = RasterPixelType.SHORT;
+            }
+            allocationImage = createDiskMemImage(costCoverage, allocationType);
+            ScanlineRasterizer.fill(allocationImage, sourceNoData);
+        }
+
+        final MappedTileImage outputImage = createDiskMemImage(costCoverage, RasterPixelType.FLOAT);
+        ScanlineRasterizer.fill(outputImage, UNREACHED);
+
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        RasterTileCache costs = new RasterTileCache(costCoverage.getRenderedImage());
+        RasterTileCache distances = new RasterTileCache(outputImage);
+        RasterTileCache backlinks = new RasterTileCache(backlinkImage);
+        RasterTileCache allocations = allocationImage == null ? null : new RasterTileCache(
+                allocationImage);
+
+        // seed the queue with all sources on passable cells
+        final RasterCellQueue queue = new RasterCellQueue(1024, true);
+        final int rows = Math.min(height, sourceImage.getHeight());
+        final int cols = Math.min(width, sourceImage.getWidth());
+        for (int row = 0; row < rows; row++) {
+            checkCanceled();
+
+            Raster line = sourceImage.getData(new Rectangle(sourceImage.getMinX(),
+                    sourceImage.getMinY() + row, cols, 1));
+            double[] values = line.getSamples(line.getMinX(), line.getMinY(), cols, 1, 0,
+                    (double[]) null);
+            for (int col = 0; col < cols; col++) {
+                if (SSUtils.compareDouble(values[col], sourceNoData)) {
+                    continue;
+                }
+
+                if (!isPassable(costs.get(col, row), costNoData)) {
+                    continue;
+                }
+
+                distances.set(col, row, 0.0);
+                backlinks.set(col, row, 0);
+                if (allocations != null) {
+                    allocations.set(col, row, values[col]);
+                }
+                queue.push((long) row * width + col, 0.0);
+            }
+        }
+
+        // Dijkstra
+        final double[] stepLengths = new double[DX.length];
+        for (int k = 0; k < DX.length; k++) {
+            stepLengths[k] = Math.hypot(DX[k] * CellSizeX, DY[k] * CellSizeY);
+        }
+
+        final ProgressTracker tracker = new ProgressTracker(Progress, (long) width * height);
+        long settled = 0;
+        while (!queue.isEmpty()) {
+            queue.poll();
+            final long cell = queue.getCell();
+            final double accumulated = queue.getPriority();
+            final int row = (int) (cell / width);
+            final int col = (int) (cell % width);
+
+            if (++settled % ProgressTracker.CHECK_INTERVAL == 0) {
+                tracker.worked(ProgressTracker.CHECK_INTERVAL);
+            }
+
+            final double cost = costs.get(col, row);
+            final double allocation = allocations == null ? 0.0 : allocations.get(col, row);
+
+            for (int k = 0; k < DX.length; k++) {
+                final int nc = col + DX[k];
+                final int nr = row + DY[k];
+                if (nc < 0 || nr < 0 || nc >= width || nr >= height) {
+                    continue;
+                }
+
+                final double neighborCost = costs.get(nc, nr);
+                if (!isPassable(neighborCost, costNoData)) {
+                    continue;
+                }
+
+                // accumulated costs are stored as float, so compare in float precision
+                final float candidate = (float) (accumulated + stepLengths[k]
+                        * (cost + neighborCost) / 2.0);
+                if (candidate > this.maximumDistance || candidate >= distances.get(nc, nr)) {
+                    continue;
+                }
+
+                distances.set(nc, nr, candidate);
+                backlinks.set(nc, nr, (k + 4) % 8 + 1); // direction back to this cell
+                if (allocations != null) {
+                    allocations.set(nc, nr, allocation);
+                }
+                queue.push((long) nr * width + nc, candidate);
+            }
+        }
+
+        distances.flush();
+        backlinks.flush();
+        if (allocations != null) {
+            allocations.flush();
+        }
+
+        // unreached cells to NoData
+        final double[] stats = finish(outputImage, UNREACHED, NoData);
+
+        backlinkCoverage = createGridCoverage("CostBacklink", backlinkImage, 1, BACKLINK_NODATA,
+                0, 8, Extent);
+
+        allocationCoverage = null;
+        if (allocationImage != null) {
+            double[] range = finish(allocationImage, Double.NaN, sourceNoData);
+            allocationCoverage = createGridCoverage("CostAllocation", allocationImage, 1,
+                    sourceNoData, range[0], range[1], Extent);
+        }
+
+        PixelType = RasterPixelType.FLOAT;
+        MinValue = stats[0];
+        MaxValue = stats[1];
+
+        return createGridCoverage("CostDistance", outputImage);
+    }
+
+    static boolean isPassable(double cost, double costNoData) {
+        return cost >= 0.0 && !Double.isNaN(cost) && !Double.isInfinite(cost)
+                && !SSUtils.compareDouble(cost, costNoData);
+    }
+
+    /**
+     * Replaces a marker value with NoData and returns the minimum and maximum of the other cells.
+     * A NaN marker leaves the image unchanged.
+     */
+    static double[] finish(final MappedTileImage image, final double marker, final double noData) {
+        final int numXTiles = image.getNumXTiles();
+        final int numTiles = numXTiles * image.getNumYTiles();
+        final double[][] ranges = new double[numTiles][];
+
+        ParallelUtils.forEach(numTiles, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int index = start; index < end; index++) {
+                    int tileX = image.getMinTileX() + index % numXTiles;
+                    int tileY = image.getMinTileY() + index / numXTiles;
+                    ranges[index] = finish(image, tileX, tileY, marker, noData);
+                }
+            }
+        }, Progress);
+
+        double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (double[] tileRange : ranges) {
+            range[0] = Math.min(range[0], tileRange[0]);
+            range[1] = Math.max(range[1], tileRange[1]);
+        }
+        return range;
+    }
+
+    private static double[] finish(MappedTileImage image, int tileX, int tileY, double marker,
+            double noData) {
+        final Rectangle bounds;
+        double[] buffer;
+        synchronized (image) {
+            Raster raster = image.getTile(tileX, tileY);
+            bounds = raster.getBounds().intersection(image.getBounds());
+            buffer = raster.getSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                    (double[]) null);
+        }
+
+        boolean changed = false;
+        double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (int i = 0; i < buffer.length; i++) {
+            if (buffer[i] == (float) marker) {
+                buffer[i] = noData;
+                changed = true;
+            } else if (!SSUtils.compareDouble(buffer[i], noData)) {
+                range[0] = Math.min(range[0], buffer[i]);
+                range[1] = Math.max(range[1], buffer[i]);
+            }
+        }
+
+        if (changed) {
+            synchronized (image) {
+                image.getWritableTile(tileX, tileY).setSamples(bounds.x, bounds.y, bounds.width,
+                        bounds.height, 0, buffer);
+                image.releaseWritableTile(tileX, tileY);
+            }
+        }
+        return range;
+    }
+}
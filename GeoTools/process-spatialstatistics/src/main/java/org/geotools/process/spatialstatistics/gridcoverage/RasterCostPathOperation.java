@@ -0,0 +1,182 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.media.jai.PlanarImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.enumeration.CostPathType;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Calculates the least-cost path from destinations to the nearest source by following the
+ * back-link raster of a cost distance analysis.
+ * <p>
+ * Path cells receive the value of the destination they were traced from. Tracing stops at a source
+ * cell (back-link 0), at NoData or when it joins a path already traced from the same destination.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterCostPathOperation extends RasterProcessingOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RasterCostPathOperation.class);
+
+    public GridCoverage2D execute(SimpleFeatureCollection destinationFeatures,
+            GridCoverage2D costDistanceCoverage, GridCoverage2D backlinkCoverage,
+            CostPathType pathType) {
+        // rasterize the destinations with their ids on the grid of the back-link raster
+        FeaturesToRasterOperation process = new FeaturesToRasterOperation();
+        process.getRasterEnvironment().setExtent(
+                new ReferencedEnvelope(backlinkCoverage.getEnvelope()));
+        process.getRasterEnvironment().setCellSizeX(RasterHelper.getCellSize(backlinkCoverage));
+        process.getRasterEnvironment().setCellSizeY(RasterHelper.getCellSize(backlinkCoverage));
+
+        GridCoverage2D destinationCoverage = process.execute(destinationFeatures);
+
+        return execute(destinationCoverage, costDistanceCoverage, backlinkCoverage, pathType);
+    }
+
+    public GridCoverage2D execute(GridCoverage2D destinationCoverage,
+            GridCoverage2D costDistanceCoverage, GridCoverage2D backlinkCoverage,
+            CostPathType pathType) {
+        if (pathType == null) {
+            pathType = CostPathType.EachCell;
+        }
+
+        // all rasters are read by pixel index on the grid of the back-link raster
+        destinationCoverage = RasterHelper.alignToGrid(destinationCoverage, backlinkCoverage);
+        costDistanceCoverage = RasterHelper.alignToGrid(costDistanceCoverage, backlinkCoverage);
+
+        final PlanarImage destinationImage = (PlanarImage) destinationCoverage
+                .getRenderedImage();
+        final double destinationNoData = RasterHelper.getNoDataValue(destinationCoverage);
+        final double costNoData = RasterHelper.getNoDataValue(costDistanceCoverage);
+        final double backlinkNoData = RasterHelper.getNoDataValue(backlinkCoverage);
+
+        NoData = RasterHelper.getDefaultNoDataValue(RasterPixelType.INTEGER);
+        final MappedTileImage outputImage = createDiskMemImage(backlinkCoverage,
+                RasterPixelType.INTEGER);
+        ScanlineRasterizer.fill(outputImage, NoData);
+
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        RasterTileCache costs = new RasterTileCache(costDistanceCoverage.getRenderedImage());
+        RasterTileCache backlinks = new RasterTileCache(backlinkCoverage.getRenderedImage());
+        RasterTileCache paths = new RasterTileCache(outputImage);
+
+        // collect the destination cells to trace: cell, value and accumulated cost
+        long[] cells = new long[64];
+        double[] values = new double[64];
+        double[] accumulated = new double[64];
+        int count = 0;
+        Map<Double, Integer> zones = new HashMap<Double, Integer>();
+
+        final int rows = Math.min(height, destinationImage.getHeight());
+        final int cols = Math.min(width, destinationImage.getWidth());
+        for (int row = 0; row < rows; row++) {
+            Raster line = destinationImage.getData(new Rectangle(destinationImage.getMinX(),
+                    destinationImage.getMinY() + row, cols, 1));
+            double[] samples = line.getSamples(line.getMinX(), line.getMinY(), cols, 1, 0,
+                    (double[]) null);
+            for (int col = 0; col < cols; col++) {
+                if (SSUtils.compareDouble(samples[col], destinationNoData)) {
+                    continue;
+                }
+
+                double cost = costs.get(col, row);
+                if (SSUtils.compareDouble(cost, costNoData) || Double.isNaN(cost)) {
+                    continue; // unreachable
+                }
+
+                int slot = count;
+                if (pathType == CostPathType.BestSingle) {
+                    slot = 0;
+                } else if (pathType == CostPathType.EachZone) {
+                    Integer zoneSlot = zones.get(Double.valueOf(samples[col]));
+                    if (zoneSlot == null) {
+                        zones.put(Double.valueOf(samples[col]), Integer.valueOf(count));
+                    } else {
+                        slot = zoneSlot.intValue();
+                    }
+                }
+
+                // keep only the lowest cost cell of each zone, or of all destinations
+                if (slot < count && accumulated[slot] <= cost) {
+                    continue;
+                }
+
+                if (slot == count) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                        values = Arrays.copyOf(values, count * 2);
+                        accumulated = Arrays.copyOf(accumulated, count * 2);
+                    }
+                    count++;
+                }
+                cells[slot] = (long) row * width + col;
+                values[slot] = samples[col];
+                accumulated[slot] = cost;
+            }
+        }
+
+        // trace each destination along the back-links
+        MinValue = Double.MAX_VALUE;
+        MaxValue = -Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            final double value = values[i];
+            int col = (int) (cells[i] % width);
+            int row = (int) (cells[i] / width);
+
+            while (row >= 0 && col >= 0 && row < height && col < width) {
+                if (paths.get(col, row) == value) {
+                    break; // joins a path of the same destination
+                }
+
+                double backlink = backlinks.get(col, row);
+                if (SSUtils.compareDouble(backlink, backlinkNoData)) {
+                    break;
+                }
+
+                paths.set(col, row, value);
+                updateStatistics(value);
+
+                int direction = (int) backlink;
+                if (direction < 1 || direction > 8) {
+                    break; // source
+                }
+                col += RasterCostDistanceOperation.DX[direction - 1];
+                row += RasterCostDistanceOperation.DY[direction - 1];
+            }
+        }
+        paths.flush();
+
+        return createGridCoverage("CostPath", outputImage);
+    }
+}
@@ -18,15 +18,11 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Calculates the curvature of a raster surface.
@@ -68,9 +64,8 @@ public class RasterCurvatureOperation extends AbstractSurfaceOperation {
         yL2 = CellSizeY * CellSizeY;
         y2L = 2.0 * CellSizeY;
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        LineWriter writer = new LineWriter(outputImage);
 
         GridCoordinates2D pos = new GridCoordinates2D();
 
@@ -96,7 +91,7 @@ public class RasterCurvatureOperation extends AbstractSurfaceOperation {
         return createGridCoverage("Curvature", outputImage);
     }
 
-    private void visitCurvature(WritableRectIter writer, GridCoordinates2D pos, double zFactor) {
+    private void visitCurvature(LineWriter writer, GridCoordinates2D pos, double zFactor) {
         // http://resources.arcgis.com/en/help/main/10.1/#/How_Curvature_works/009z000000vs000000/
         // Zeverbergen, L. W., and C. R. Thorne. 1987. Quantitative Analysis of Land Surface
         // Topography.
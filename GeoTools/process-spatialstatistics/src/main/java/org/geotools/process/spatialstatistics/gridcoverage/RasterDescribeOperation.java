@@ -16,23 +16,22 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.RasterResolution;
 import org.geotools.process.spatialstatistics.core.SSUtils;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
+import org.geotools.process.spatialstatistics.core.StreamingStatistics;
 import org.geotools.util.logging.Logging;
 import org.opengis.coverage.SampleDimension;
 import org.opengis.coverage.SampleDimensionType;
@@ -49,6 +48,22 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 public class RasterDescribeOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterDescribeOperation.class);
 
+    static final int STRIP_SAMPLES = 1 << 20;
+
+    private RasterResolution resolution = RasterResolution.EXACT;
+
+    public RasterResolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Sets the resolution of the band statistics. Default is {@link RasterResolution#EXACT}. With
+     * an overview the count and sum refer to the pixels of that overview.
+     */
+    public void setResolution(RasterResolution resolution) {
+        this.resolution = resolution == null ? RasterResolution.EXACT : resolution;
+    }
+
     public RasterDescribeResult execute(GridCoverage2D coverage, Boolean detailed) {
         RasterDescribeResult desc = new RasterDescribeResult();
 
@@ -107,14 +122,9 @@ public class RasterDescribeOperation {
         double noData = RasterHelper.getNoDataValue(coverage);
         int numberofBands = coverage.getNumSampleDimensions();
 
-        StatisticsVisitor[] visitor = new StatisticsVisitor[numberofBands];
-        double[] ndvs = new double[numberofBands];
-        double[] min = new double[numberofBands];
-        double[] max = new double[numberofBands];
+        final double[] ndvs = new double[numberofBands];
         String[] descs = new String[numberofBands];
 
-        Arrays.fill(min, Double.MAX_VALUE);
-        Arrays.fill(max, Double.MIN_VALUE);
         Arrays.fill(ndvs, noData);
 
         // extract band name & nodata
@@ -131,41 +141,70 @@ public class RasterDescribeOperation {
                     ndvs[index] = minVal;
                 }
             }
-
-            visitor[index] = new StatisticsVisitor(new DoubleStrategy());
-            visitor[index].setNoData(ndvs[index]);
         }
 
-        // calculate min, max
-        PlanarImage inputImage = (PlanarImage) coverage.getRenderedImage();
-        RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
+        // accumulate each strip of rows in parallel, then merge
+        final RenderedImage image = resolution.select(coverage).getRenderedImage();
+        final int width = image.getWidth();
+        final int rows = Math.max(1, STRIP_SAMPLES / Math.max(1, width));
+        final int bandCount = numberofBands;
+
+        List<Callable<StreamingStatistics[]>> tasks = new ArrayList<Callable<StreamingStatistics[]>>();
+        for (int y = 0; y < image.getHeight(); y += rows) {
+            final Rectangle strip = new Rectangle(image.getMinX(), image.getMinY() + y, width,
+                    Math.min(rows, image.getHeight() - y));
+            tasks.add(new Callable<StreamingStatistics[]>() {
+                @Override
+                public StreamingStatistics[] call() throws Exception {
+                    final Raster raster;
+                    synchronized (image) {
+                        raster = image.getData(strip);
+                    }
 
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                for (int index = 0; index < numberofBands; index++) {
-                    double sampleValue = readIter.getSampleDouble(index);
-                    if (!SSUtils.compareDouble(ndvs[index], sampleValue)) {
-                        visitor[index].visit(sampleValue);
+                    StreamingStatistics[] parts = new StreamingStatistics[bandCount];
+                    double[] samples = null;
+                    for (int index = 0; index < bandCount; index++) {
+                        parts[index] = new StreamingStatistics();
+                        samples = raster.getSamples(strip.x, strip.y, strip.width,
+                                strip.height, index, samples);
+                        for (double sampleValue : samples) {
+                            if (Double.isNaN(sampleValue) || Double.isInfinite(sampleValue)
+                                    || SSUtils.compareDouble(ndvs[index], sampleValue)) {
+                                continue;
+                            }
+                            parts[index].add(sampleValue);
+                        }
                     }
+                    return parts;
                 }
-                readIter.nextPixel();
+            });
+        }
+
+        StreamingStatistics[] stats = new StreamingStatistics[numberofBands];
+        for (int index = 0; index < numberofBands; index++) {
+            stats[index] = new StreamingStatistics();
+        }
+
+        for (StreamingStatistics[] parts : ParallelUtils.invokeAll(tasks)) {
+            for (int index = 0; index < numberofBands; index++) {
+                stats[index].merge(parts[index]);
             }
-            readIter.nextLine();
         }
 
         for (int index = 0; index < numberofBands; index++) {
-            StatisticsVisitorResult ret = visitor[index].getResult();
+            StreamingStatistics ret = stats[index];
 
             BandStatistics band = new BandStatistics(index, descs[index], ndvs[index]);
             band.setCount(ret.getCount());
-            band.setMinimun(ret.getMinimum());
-            band.setMaximin(ret.getMaximum());
-            band.setMean(ret.getMean());
-            band.setSum(ret.getSum());
-            band.setVariance(ret.getVariance());
-            band.setStandardDeviation(ret.getStandardDeviation());
+            if (ret.getCount() > 0) {
+                band.setMinimun(ret.getMinimum());
+                band.setMaximin(ret.getMaximum());
+                band.setMean(ret.getMean());
+                band.setSum(ret.getSum());
+                band.setVariance(ret.getVariance());
+                band.setStandardDeviation(ret.getStandardDeviation());
+                band.setMedian(ret.getQuantile(0.5));
+            }
 
             bands.add(band);
         }
@@ -179,7 +218,7 @@ public class RasterDescribeOperation {
 
         String description = "";
 
-        Integer count = 0;
+        Long count = 0L;
 
         Double minimun = Double.MIN_VALUE;
 
@@ -193,6 +232,8 @@ public class RasterDescribeOperation {
 
         Double standardDeviation = Double.NaN;
 
+        Double median = Double.NaN;
+
         Double noData = Double.NaN;
 
         public BandStatistics(Integer bandIndex, String description, Double noData) {
@@ -233,11 +274,11 @@ public class RasterDescribeOperation {
             this.maximin = maximin;
         }
 
-        public Integer getCount() {
+        public Long getCount() {
             return count;
         }
 
-        public void setCount(Integer count) {
+        public void setCount(Long count) {
             this.count = count;
         }
 
@@ -273,6 +314,17 @@ public class RasterDescribeOperation {
             this.standardDeviation = standardDeviation;
         }
 
+        /**
+         * Approximate median from a quantile sketch
+         */
+        public Double getMedian() {
+            return median;
+        }
+
+        public void setMedian(Double median) {
+            this.median = median;
+        }
+
         public Double getNoData() {
             return noData;
         }
@@ -295,6 +347,7 @@ public class RasterDescribeOperation {
             sb.append("Sum: ").append(getSum()).append(separator);
             sb.append("Variance: ").append(getVariance()).append(separator);
             sb.append("StandardDeviation: ").append(getStandardDeviation()).append(separator);
+            sb.append("Median: ").append(getMedian()).append(separator);
             sb.append("NoData: ").append(getNoData()).append(separator);
 
             return sb.toString();
@@ -48,6 +48,10 @@ public class RasterEnvironment {
 
     private String workspace = null;
 
+    private long memoryBudget = 0;
+
+    private MappedTileCache tileCache = null;
+
     public double getCellSizeX() {
         if (cellSizeX == Double.NaN || cellSizeX <= 0) {
             return Math.min(extent.getWidth(), extent.getHeight()) / 250.0;
@@ -120,6 +124,37 @@ public class RasterEnvironment {
         }
     }
 
+    /**
+     * Returns the heap size in bytes that intermediate rasters may use before their tiles are
+     * moved to memory-mapped files.
+     */
+    public long getMemoryBudget() {
+        return getTileCache().getMemoryBudget();
+    }
+
+    /**
+     * @param memoryBudget the heap size in bytes of intermediate raster tiles, 0 or less to share
+     *        the default budget of {@link MappedTileCache#DEFAULT_MEMORY_BUDGET}
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.tileCache = null;
+    }
+
+    /**
+     * Returns the cache of the intermediate rasters created with this environment.
+     */
+    public synchronized MappedTileCache getTileCache() {
+        if (memoryBudget <= 0) {
+            return MappedTileCache.getDefault();
+        }
+
+        if (tileCache == null) {
+            tileCache = new MappedTileCache(memoryBudget, null);
+        }
+        return tileCache;
+    }
+
     public String getUniqueName() {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_hhmmss_S");
         String uid = sdf.format(Calendar.getInstance().getTime());
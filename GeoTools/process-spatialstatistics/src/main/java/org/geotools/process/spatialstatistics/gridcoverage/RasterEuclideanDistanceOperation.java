@@ -16,30 +16,39 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.util.Arrays;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 
 /**
  * Calculates, for each cell, the Euclidean distance to the closest source.
+ * <p>
+ * The distance transform is exact and separable: the first phase finds the nearest source row of
+ * every column in vertical strips, the second phase computes the lower envelope of the resulting
+ * parabolas along every row in horizontal strips. Both phases run in parallel and only keep one
+ * strip per task in memory; the intermediate nearest rows are kept in a tiled image. The nearest
+ * source value (Euclidean allocation) and the direction to the nearest source can be computed in
+ * the same pass.
  * 
  * @author Minpa Lee, MangoSystem
- * @reference https://github.com/DotSpatial/DotSpatial/blob/master/Source/DotSpatial.Tools/RasterDistance.cs
+ * @reference Felzenszwalb, P. F. and Huttenlocher, D. P. (2012) Distance Transforms of Sampled
+ *            Functions. Theory of Computing 8(19).
  * 
  * @source $URL$
  */
@@ -47,17 +56,60 @@ public class RasterEuclideanDistanceOperation extends RasterProcessingOperation
     protected static final Logger LOGGER = Logging
             .getLogger(RasterEuclideanDistanceOperation.class);
 
-    static final int INT_MAX = Integer.MAX_VALUE;
+    static final int STRIP_SIZE = 64;
 
-    static final int INT_ZERO = 0;
+    static final int NO_SOURCE = -1;
 
     private double maximumDistance = Double.MAX_VALUE;
 
-    private DiskMemImage outputImage;
+    private boolean outputAllocation = false;
+
+    private boolean outputDirection = false;
+
+    private GridCoverage2D allocationCoverage;
+
+    private GridCoverage2D directionCoverage;
+
+    public boolean isOutputAllocation() {
+        return outputAllocation;
+    }
+
+    /**
+     * If true, the value of the nearest source is also written for each cell. When the sources are
+     * features, each feature is rasterized with its own id (1 .. n).
+     */
+    public void setOutputAllocation(boolean outputAllocation) {
+        this.outputAllocation = outputAllocation;
+    }
+
+    public boolean isOutputDirection() {
+        return outputDirection;
+    }
+
+    /**
+     * If true, the direction from each cell to the nearest source is also written, in degrees
+     * clockwise from north (1 - 360). Source cells receive 0.
+     */
+    public void setOutputDirection(boolean outputDirection) {
+        this.outputDirection = outputDirection;
+    }
+
+    /**
+     * Returns the Euclidean allocation of the last execution, or null if it was not requested.
+     */
+    public GridCoverage2D getAllocationCoverage() {
+        return allocationCoverage;
+    }
+
+    /**
+     * Returns the Euclidean direction of the last execution, or null if it was not requested.
+     */
+    public GridCoverage2D getDirectionCoverage() {
+        return directionCoverage;
+    }
 
     public GridCoverage2D execute(SimpleFeatureCollection inputFeatures, double maximumDistance) {
         FeaturesToRasterOperation process = new FeaturesToRasterOperation();
-        final Number gridVal = Short.valueOf((short) 1);
         GridCoverage2D finalGc = null;
 
         // check features in this analysis extent
@@ -74,23 +126,32 @@ public class RasterEuclideanDistanceOperation extends RasterProcessingOperation
                 process.getRasterEnvironment().setCellSizeX(getRasterEnvironment().getCellSizeX());
                 process.getRasterEnvironment().setCellSizeY(getRasterEnvironment().getCellSizeY());
 
-                GridCoverage2D distGc = process.execute(inputFeatures, gridVal);
+                GridCoverage2D distGc = rasterize(process, inputFeatures);
 
                 // 2. crop raster with analysis extent
                 RasterCropOperation cropOp = new RasterCropOperation();
                 finalGc = cropOp.execute(distGc, extent);
             } else {
                 process.setRasterEnvironment(getRasterEnvironment());
-                finalGc = process.execute(inputFeatures, gridVal);
+                finalGc = rasterize(process, inputFeatures);
             }
         } else {
             process.setRasterEnvironment(getRasterEnvironment());
-            finalGc = process.execute(inputFeatures, gridVal);
+            finalGc = rasterize(process, inputFeatures);
         }
 
         return execute(finalGc, maximumDistance);
     }
 
+    private GridCoverage2D rasterize(FeaturesToRasterOperation process,
+            SimpleFeatureCollection inputFeatures) {
+        if (outputAllocation) {
+            // use internal id
+            return process.execute(inputFeatures);
+        }
+        return process.execute(inputFeatures, Short.valueOf((short) 1));
+    }
+
     public GridCoverage2D execute(GridCoverage2D valueCoverage, double maximumDistance) {
         if (maximumDistance <= 0 || Double.isNaN(maximumDistance)) {
             this.maximumDistance = Double.MAX_VALUE;
@@ -98,271 +159,271 @@ public class RasterEuclideanDistanceOperation extends RasterProcessingOperation
             this.maximumDistance = maximumDistance;
         }
 
-        // create raster
-        outputImage = createDiskMemImage(valueCoverage, RasterPixelType.FLOAT);
-
-        // declare two jagged arrays for storing the (Rx, Ry) vectors.
-        // rX is distance from current cell to nearest target cell measured in the x-direction
-        // rY is distance from current cell to nearest target cell measured in the y-direction
-        // the actual distance can be calculated as sqrt(rX^2 + rY^2).
-        // in the resulting distance raster we store the squared distance as well as the rX, rY
-        // relative coordinates to improve computation speed
-
-        PlanarImage inputImage = (PlanarImage) valueCoverage.getRenderedImage();
+        final PlanarImage inputImage = (PlanarImage) valueCoverage.getRenderedImage();
         final double inputNoData = RasterHelper.getNoDataValue(valueCoverage);
 
-        // ====================================================================
-        // initialize the arrays
-        // ====================================================================
-        final int numColumns = inputImage.getWidth() + 2;
-        final int numRows = inputImage.getHeight() + 2;
-
-        int[][] aRx = new int[numRows][];
-        int[][] aRy = new int[numRows][];
-        int[][] aSqDist = new int[numRows][];
+        // intermediate and output images share the grid of the source coverage
+        final MappedTileImage nearestRows = createDiskMemImage(valueCoverage,
+                RasterPixelType.INTEGER);
 
-        initializeArrays(inputImage, inputNoData, aRx, aRy, aSqDist, numColumns);
-
-        // ====================================================================
-        // raster distance calculation pass one - top to bottom, left to right
-        // ====================================================================
-        int[] aNcels = new int[4]; // the values of four neighbouring cells (W, NW, N, NE)
-        int[] aDiff = new int[4]; // the | y coordinate distances to nearest target cell
+        MappedTileImage allocationImage = null;
+        RasterPixelType allocationType = null;
+        if (outputAllocation) {
+            allocationType = RasterHelper.getTransferType(valueCoverage);
+            if (allocationType == RasterPixelType.BYTE) {
+                allocationType = RasterPixelType.SHORT;
+            }
+            allocationImage = createDiskMemImage(valueCoverage, allocationType);
+        }
 
-        for (int row = 1; row < numRows; row++) {
-            for (int col = 1; col < numColumns - 1; col++) {
-                int val = aSqDist[row][col];
+        MappedTileImage directionImage = null;
+        if (outputDirection) {
+            directionImage = createDiskMemImage(valueCoverage, RasterPixelType.FLOAT);
+        }
 
-                // Continue processing only if the current cell is not a target
-                if (val == INT_ZERO) {
-                    continue;
-                }
+        final MappedTileImage outputImage = createDiskMemImage(valueCoverage,
+                RasterPixelType.FLOAT);
 
-                // read the values of the cell's neighbours
-                aNcels[0] = aSqDist[row][col - 1]; // W
-                aNcels[1] = aSqDist[row - 1][col - 1]; // NW
-                aNcels[2] = aSqDist[row - 1][col]; // N
-                aNcels[3] = aSqDist[row - 1][col + 1]; // NE
-
-                // calculate the squared euclidean distances to each neighbouring cell and to the
-                // nearest target cell
-                if (aNcels[0] < INT_MAX) {
-                    aDiff[0] = aNcels[0] + 2 * aRx[row][col - 1] + 1;
-                } else {
-                    aDiff[0] = INT_MAX;
-                }
+        // phase 1 : nearest source row (and its value) in each column
+        computeColumns(inputImage, inputNoData, nearestRows, allocationImage);
 
-                if (aNcels[1] < INT_MAX) {
-                    aDiff[1] = aNcels[1] + 2 * (aRx[row - 1][col - 1] + aRy[row - 1][col - 1] + 1);
-                } else {
-                    aDiff[1] = INT_MAX;
-                }
+        // phase 2 : lower envelope of parabolas along each row
+        double[] stats = computeRows(nearestRows, allocationImage, inputNoData, outputImage,
+                directionImage);
 
-                if (aNcels[2] < INT_MAX) {
-                    aDiff[2] = aNcels[2] + 2 * aRy[row - 1][col] + 1;
-                } else {
-                    aDiff[2] = INT_MAX;
-                }
+        nearestRows.dispose();
 
-                if (aNcels[3] < INT_MAX) {
-                    aDiff[3] = aNcels[3] + 2 * (aRx[row - 1][col + 1] + aRy[row - 1][col + 1] + 1);
-                } else {
-                    aDiff[3] = INT_MAX;
-                }
-
-                // find neighbouring cell with minimum distance difference
-                int minDiff = aDiff[0];
-                int minDiffCell = 0;
-                for (int i = 1; i < 4; i++) {
-                    if (aDiff[i] < minDiff) {
-                        minDiff = aDiff[i];
-                        minDiffCell = i;
-                    }
-                }
-
-                // if a neighbouring cell with known distance was found:
-                if (minDiff < INT_MAX) {
-                    // assign the minimum euclidean distance
-                    aSqDist[row][col] = minDiff;
-
-                    // update the (rX, rY) cell-to-nearest-target vector
-                    switch (minDiffCell) {
-                    case 0: // W
-                        aRx[row][col] = aRx[row][col - 1] + 1;
-                        aRy[row][col] = aRy[row][col - 1];
-                        break;
-                    case 1: // NW
-                        aRx[row][col] = aRx[row - 1][col - 1] + 1;
-                        aRy[row][col] = aRy[row - 1][col - 1] + 1;
-                        break;
-                    case 2: // N
-                        aRx[row][col] = aRx[row - 1][col];
-                        aRy[row][col] = aRy[row - 1][col] + 1;
-                        break;
-                    case 3: // NE
-                        aRx[row][col] = aRx[row - 1][col + 1] + 1;
-                        aRy[row][col] = aRy[row - 1][col + 1] + 1;
-                        break;
-                    }
-                }
-                // end of update (rX, rY) cell-to-nearest-target vector
-            }
-            // end or current row processing
+        allocationCoverage = null;
+        if (allocationImage != null) {
+            allocationCoverage = createGridCoverage("EuclideanAllocation", allocationImage, 1,
+                    inputNoData, stats[2], stats[3], Extent);
         }
-        // ====================================================================
-        // end of first pass for loop
-        // ====================================================================
-
-        // ====================================================================
-        // raster distance calculation PASS TWO - bottom to top, right to left
-        // ====================================================================
-        for (int row = numRows - 2; row > 0; row--) {
-            for (int col = numColumns - 2; col > 0; col--) {
-                int val = aSqDist[row][col];
-
-                // Continue processing only if the current cell is not a target
-                if (val == INT_ZERO) {
-                    continue;
-                }
 
-                // read the values of the cell's neighbours
-                aNcels[0] = aSqDist[row][col + 1]; // E
-                aNcels[1] = aSqDist[row + 1][col + 1]; // SE
-                aNcels[2] = aSqDist[row + 1][col]; // S
-                aNcels[3] = aSqDist[row + 1][col - 1]; // SW
-
-                // calculate the squared euclidean distances to each neighbouring cell and to the
-                // nearest target cell
-                if (aNcels[0] < INT_MAX) {
-                    aDiff[0] = aNcels[0] + 2 * aRx[row][col + 1] + 1;
-                } else {
-                    aDiff[0] = INT_MAX;
-                }
+        directionCoverage = null;
+        if (directionImage != null) {
+            directionCoverage = createGridCoverage("EuclideanDirection", directionImage, 1,
+                    NoData, stats[4], stats[5], Extent);
+        }
 
-                if (aNcels[1] < INT_MAX) {
-                    aDiff[1] = aNcels[1] + 2 * (aRx[row + 1][col + 1] + aRy[row + 1][col + 1] + 1);
-                } else {
-                    aDiff[1] = INT_MAX;
-                }
+        PixelType = RasterPixelType.FLOAT;
+        MinValue = stats[0];
+        MaxValue = stats[1];
 
-                if (aNcels[2] < INT_MAX) {
-                    aDiff[2] = aNcels[2] + 2 * aRy[row + 1][col] + 1;
-                } else {
-                    aDiff[2] = INT_MAX;
-                }
-
-                if (aNcels[3] < INT_MAX) {
-                    aDiff[3] = aNcels[3] + 2 * (aRx[row + 1][col - 1] + aRy[row + 1][col - 1] + 1);
-                } else {
-                    aDiff[3] = INT_MAX;
-                }
+        return createGridCoverage("EuclideanDistance", outputImage);
+    }
 
-                // find neighbouring cell with minimum distance difference
-                int minDiff = aDiff[0];
-                int minDiffCell = 0;
-                for (int i = 1; i < 4; i++) {
-                    if (aDiff[i] < minDiff) {
-                        minDiff = aDiff[i];
-                        minDiffCell = i;
+    private void computeColumns(final PlanarImage inputImage, final double inputNoData,
+            final MappedTileImage nearestRows, final MappedTileImage allocationImage) {
+        final int width = nearestRows.getWidth();
+        final int height = nearestRows.getHeight();
+        final int numStrips = (width + STRIP_SIZE - 1) / STRIP_SIZE;
+
+        ParallelUtils.forEach(numStrips, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int strip = start; strip < end; strip++) {
+                    final int x = strip * STRIP_SIZE;
+                    final int w = Math.min(STRIP_SIZE, width - x);
+                    final Rectangle block = new Rectangle(x, 0, w, height);
+
+                    Rectangle source = new Rectangle(inputImage.getMinX() + x,
+                            inputImage.getMinY(), w, height);
+                    double[] samples = RasterHelper.readSamples(inputImage, source, (double[]) null);
+
+                    final int[] nearest = new int[w * height];
+                    for (int col = 0; col < w; col++) {
+                        // top to bottom
+                        int last = NO_SOURCE;
+                        for (int row = 0, index = col; row < height; row++, index += w) {
+                            if (!SSUtils.compareDouble(samples[index], inputNoData)) {
+                                last = row;
+                            }
+                            nearest[index] = last;
+                        }
+
+                        // bottom to top
+                        last = NO_SOURCE;
+                        int index = (height - 1) * w + col;
+                        for (int row = height - 1; row >= 0; row--, index -= w) {
+                            if (nearest[index] == row) {
+                                last = row;
+                            } else if (last != NO_SOURCE
+                                    && (nearest[index] == NO_SOURCE || last - row < row
+                                            - nearest[index])) {
+                                nearest[index] = last;
+                            }
+                        }
                     }
-                }
 
-                // if a neighbouring cell with known distance smaller than current known distance
-                // was found:
-                if (minDiff < val) {
-                    // assign the minimum euclidean distance
-                    aSqDist[row][col] = minDiff;
-
-                    // update the (rX, rY) cell-to-nearest-target vector
-                    switch (minDiffCell) {
-                    case 0: // E
-                        aRx[row][col] = aRx[row][col + 1] + 1;
-                        aRy[row][col] = aRy[row][col + 1];
-                        break;
-                    case 1: // SE
-                        aRx[row][col] = aRx[row + 1][col + 1] + 1;
-                        aRy[row][col] = aRy[row + 1][col + 1] + 1;
-                        break;
-                    case 2: // S
-                        aRx[row][col] = aRx[row + 1][col];
-                        aRy[row][col] = aRy[row + 1][col] + 1;
-                        break;
-                    case 3: // SW
-                        aRx[row][col] = aRx[row + 1][col - 1] + 1;
-                        aRy[row][col] = aRy[row + 1][col - 1] + 1;
-                        break;
+                    if (allocationImage != null) {
+                        // value of the nearest source, in place
+                        for (int index = 0; index < nearest.length; index++) {
+                            if (nearest[index] != NO_SOURCE) {
+                                samples[index] = samples[nearest[index] * w + index % w];
+                            }
+                        }
+                        RasterHelper.writeSamples(allocationImage, block, samples);
                     }
+                    RasterHelper.writeSamples(nearestRows, block, nearest);
                 }
-                // end of update (rX, rY) cell-to-nearest-target vector
             }
-
-            // write output distance
-            writeDistance(row - 1, aSqDist[row]);
-        }
-        // *******************************************************************
-        // end of second pass proximity calculation loop
-        // *******************************************************************
-
-        return createGridCoverage("EuclideanDistance", outputImage);
+        }, Progress);
     }
 
-    private void writeDistance(int row, int[] colValues) {
-        final int length = colValues.length;
-        for (int col = 0; col < length - 1; col++) {
-            int val = colValues[col + 1];
+    private double[] computeRows(final MappedTileImage nearestRows,
+            final MappedTileImage allocationImage, final double allocationNoData,
+            final MappedTileImage outputImage, final MappedTileImage directionImage) {
+        final int width = nearestRows.getWidth();
+        final int height = nearestRows.getHeight();
+        final int numStrips = (height + STRIP_SIZE - 1) / STRIP_SIZE;
+
+        final double cellSizeX = CellSizeX;
+        final double cellSizeY = CellSizeY;
+        final double maxSqDist = maximumDistance == Double.MAX_VALUE ? Double.MAX_VALUE
+                : maximumDistance * maximumDistance;
+        final float noData = (float) NoData;
+
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>(numStrips);
+        for (int strip = 0; strip < numStrips; strip++) {
+            final int y = strip * STRIP_SIZE;
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() throws Exception {
+                    // minimum & maximum of distance, allocation and direction
+                    final double[] stats = { Double.MAX_VALUE, -Double.MAX_VALUE,
+                            Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE,
+                            -Double.MAX_VALUE };
+
+                    final int h = Math.min(STRIP_SIZE, height - y);
+                    final Rectangle block = new Rectangle(0, y, width, h);
+
+                    final int[] nearest = RasterHelper.readSamples(nearestRows, block, (int[]) null);
+                    final double[] values = allocationImage == null ? null : RasterHelper.readSamples(
+                            allocationImage, block, (double[]) null);
+                    final double[] allocations = values == null ? null : new double[values.length];
+                    final float[] directions = directionImage == null ? null
+                            : new float[width * h];
+                    final float[] distances = new float[width * h];
+
+                    // lower envelope: sites, their offsets, positions and boundaries
+                    final int[] sites = new int[width];
+                    final double[] offsets = new double[width];
+                    final double[] positions = new double[width];
+                    final double[] bounds = new double[width];
+
+                    for (int r = 0; r < h; r++) {
+                        final int row = y + r;
+                        final int base = r * width;
+
+                        int k = -1;
+                        for (int q = 0; q < width; q++) {
+                            if (nearest[base + q] == NO_SOURCE) {
+                                continue;
+                            }
+
+                            final double dy = (row - nearest[base + q]) * cellSizeY;
+                            final double pos = q * cellSizeX;
+                            final double value = dy * dy + pos * pos;
+
+                            double s = Double.NEGATIVE_INFINITY;
+                            while (k >= 0) {
+                                s = (value - offsets[k]) / (2.0 * (pos - positions[k]));
+                                if (s <= bounds[k]) {
+                                    k--;
+                                } else {
+                                    break;
+                                }
+                            }
+
+                            k++;
+                            sites[k] = q;
+                            offsets[k] = value;
+                            positions[k] = pos;
+                            bounds[k] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+                        }
+
+                        for (int col = 0, j = 0; col < width; col++) {
+                            final int index = base + col;
+                            if (k < 0) {
+                                distances[index] = noData;
+                                if (allocations != null) {
+                                    allocations[index] = allocationNoData;
+                                }
+                                if (directions != null) {
+                                    directions[index] = noData;
+                                }
+                                continue;
+                            }
+
+                            final double pos = col * cellSizeX;
+                            while (j < k && bounds[j + 1] < pos) {
+                                j++;
+                            }
+
+                            final int site = sites[j];
+                            final double dx = (site - col) * cellSizeX;
+                            final double dy = (row - nearest[base + site]) * cellSizeY;
+                            final double sqDist = dx * dx + dy * dy;
+
+                            if (sqDist > maxSqDist) {
+                                distances[index] = noData;
+                                if (allocations != null) {
+                                    allocations[index] = allocationNoData;
+                                }
+                                if (directions != null) {
+                                    directions[index] = noData;
+                                }
+                                continue;
+                            }
+
+                            final double distance = Math.sqrt(sqDist);
+                            distances[index] = (float) distance;
+                            stats[0] = Math.min(stats[0], distance);
+                            stats[1] = Math.max(stats[1], distance);
+
+                            if (allocations != null) {
+                                final double value = values[base + site];
+                                allocations[index] = value;
+                                stats[2] = Math.min(stats[2], value);
+                                stats[3] = Math.max(stats[3], value);
+                            }
+
+                            if (directions != null) {
+                                // azimuth from the cell to the source, clockwise from north
+                                double azimuth = 0.0;
+                                if (sqDist > 0.0) {
+                                    azimuth = Math.toDegrees(Math.atan2(dx, dy));
+                                    if (azimuth <= 0.0) {
+                                        azimuth += 360.0;
+                                    }
+                                }
+                                directions[index] = (float) azimuth;
+                                stats[4] = Math.min(stats[4], azimuth);
+                                stats[5] = Math.max(stats[5], azimuth);
+                            }
+                        }
+                    }
 
-            if (val == INT_MAX) {
-                outputImage.setSample(col, row, 0, NoData);
-            } else {
-                double distance = Math.sqrt(val) * CellSizeX;
-                if (maximumDistance < distance) {
-                    outputImage.setSample(col, row, 0, NoData);
-                } else {
-                    outputImage.setSample(col, row, 0, distance);
-                    updateStatistics(distance);
+                    RasterHelper.writeSamples(outputImage, block, distances);
+                    if (allocations != null) {
+                        RasterHelper.writeSamples(allocationImage, block, allocations);
+                    }
+                    if (directions != null) {
+                        RasterHelper.writeSamples(directionImage, block, directions);
+                    }
+                    return stats;
                 }
-            }
+            });
         }
-    }
 
-    private void initializeArrays(PlanarImage inputImage, double inputNoData, final int[][] aRx,
-            final int[][] aRy, final int[][] aSqDist, int numColumns) {
-        final RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-
-        // first row
-        int dy = 0;
-        aRx[dy] = new int[numColumns];
-        aRy[dy] = new int[numColumns];
-        aSqDist[dy] = new int[numColumns];
-        Arrays.fill(aSqDist[dy], INT_MAX);
-
-        // valid cell
-        dy++;
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            aRx[dy] = new int[numColumns];
-            aRy[dy] = new int[numColumns];
-            aSqDist[dy] = new int[numColumns];
-            Arrays.fill(aSqDist[dy], INT_MAX);
-
-            int dx = 1;
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                final int val = readIter.getSample(0);
-                if (!SSUtils.compareDouble(val, inputNoData)) {
-                    aSqDist[dy][dx] = INT_ZERO;
-                }
-                readIter.nextPixel();
-                dx++;
+        final double[] stats = { Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE,
+                -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (double[] result : ParallelUtils.invokeAll(tasks, Progress)) {
+            for (int i = 0; i < stats.length; i += 2) {
+                stats[i] = Math.min(stats[i], result[i]);
+                stats[i + 1] = Math.max(stats[i + 1], result[i + 1]);
             }
-            readIter.nextLine();
-            dy++;
         }
-
-        // last row
-        aRx[dy] = new int[numColumns];
-        aRy[dy] = new int[numColumns];
-        aSqDist[dy] = new int[numColumns];
-        Arrays.fill(aSqDist[dy], INT_MAX);
+        return stats;
     }
-}
\ No newline at end of file
+}
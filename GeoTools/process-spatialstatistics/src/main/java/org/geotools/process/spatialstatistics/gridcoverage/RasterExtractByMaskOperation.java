@@ -25,7 +25,6 @@ import javax.media.jai.Interpolation;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridEnvelope2D;
@@ -37,7 +36,6 @@ import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.enumeration.ResampleType;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -94,11 +92,10 @@ public class RasterExtractByMaskOperation extends RasterProcessingOperation {
         RasterPixelType pixelType = RasterHelper.getTransferType(inputCoverage);
         PlanarImage maskImage = (PlanarImage) maskCoverage.getRenderedImage();
         PlanarImage inputImage = (PlanarImage) inputCoverage.getRenderedImage();
-        DiskMemImage outputImage = this.createDiskMemImage(Extent, pixelType,
+        MappedTileImage outputImage = this.createDiskMemImage(Extent, pixelType,
                 maskImage.getTileWidth(), maskImage.getTileHeight());
 
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        LineWriter writerIter = new LineWriter(outputImage);
         RectIter maskIter = RectIterFactory.create(maskImage, maskImage.getBounds());
         RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
 
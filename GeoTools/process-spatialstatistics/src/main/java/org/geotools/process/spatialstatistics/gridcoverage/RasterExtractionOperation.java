@@ -22,7 +22,6 @@ import java.util.logging.Logger;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
@@ -32,7 +31,6 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.opengis.feature.simple.SimpleFeature;
@@ -60,7 +58,7 @@ public class RasterExtractionOperation extends RasterProcessingOperation {
 
         // create image
         RasterPixelType pixelType = RasterHelper.getTransferType(inputGc);
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, pixelType);
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, pixelType);
 
         PlanarImage inputImage = (PlanarImage) inputGc.getRenderedImage();
         this.NoData = RasterHelper.getNoDataValue(inputGc);
@@ -76,8 +74,7 @@ public class RasterExtractionOperation extends RasterProcessingOperation {
 
         java.awt.Rectangle inputBounds = inputImage.getBounds();
         RectIter inputIter = RectIterFactory.create(inputImage, inputBounds);
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        LineWriter writerIter = new LineWriter(outputImage);
 
         int row = 0; // inputBounds.y
         inputIter.startLines();
@@ -0,0 +1,240 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Fills sinks in a surface raster to remove small imperfections in the data.
+ * <p>
+ * Uses the Priority-Flood algorithm: the cells on the edge of the raster or next to NoData are
+ * queued by elevation, and the lowest cell is repeatedly removed from the queue and its unvisited
+ * neighbors are raised to at least its elevation. Raised cells inside a depression are processed
+ * from a plain FIFO queue, so each cell is visited once. Optionally the flow direction of each
+ * cell is set to the neighbor it was reached from, which drains depressions and flats to their
+ * outlets. Elevations, directions and visited flags are accessed through bounded tile caches.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * @reference Barnes, R., Lehman, C., Mulla, D. (2014) Priority-flood: An optimal
+ *            depression-filling and watershed-labeling algorithm for digital elevation models.
+ *            Computers &amp; Geosciences 62, 117-127.
+ * 
+ * @source $URL$
+ */
+public class RasterFillOperation extends RasterProcessingOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RasterFillOperation.class);
+
+    static final int[] DX = RasterFlowDirectionOperation.DX;
+
+    static final int[] DY = RasterFlowDirectionOperation.DY;
+
+    static final int DIRECTION_NODATA = -9999;
+
+    private boolean outputFlowDirection = false;
+
+    private GridCoverage2D flowDirectionCoverage;
+
+    public boolean isOutputFlowDirection() {
+        return outputFlowDirection;
+    }
+
+    /**
+     * If true, D8 flow directions (1 - 128) that follow the flooding order are also created.
+     */
+    public void setOutputFlowDirection(boolean outputFlowDirection) {
+        this.outputFlowDirection = outputFlowDirection;
+    }
+
+    /**
+     * Returns the flow direction of the last execution, or null if it was not requested.
+     */
+    public GridCoverage2D getFlowDirectionCoverage() {
+        return flowDirectionCoverage;
+    }
+
+    public GridCoverage2D execute(GridCoverage2D inputCoverage) {
+        final double srcNoData = RasterHelper.getNoDataValue(inputCoverage);
+
+        // visited flags
+        final MappedTileImage closedImage = createDiskMemImage(inputCoverage, RasterPixelType.BYTE);
+
+        MappedTileImage directionImage = null;
+        if (outputFlowDirection) {
+            directionImage = createDiskMemImage(inputCoverage, RasterPixelType.INTEGER);
+            ScanlineRasterizer.fill(directionImage, DIRECTION_NODATA);
+        }
+
+        RasterPixelType pixelType = RasterHelper.getTransferType(inputCoverage);
+        pixelType = pixelType == RasterPixelType.DOUBLE ? pixelType : RasterPixelType.FLOAT;
+        NoData = RasterHelper.getDefaultNoDataValue(pixelType);
+
+        final MappedTileImage outputImage = createDiskMemImage(inputCoverage, pixelType);
+        ScanlineRasterizer.fill(outputImage, NoData);
+
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        RasterTileCache dem = new RasterTileCache(inputCoverage.getRenderedImage());
+        RasterTileCache filled = new RasterTileCache(outputImage);
+        RasterTileCache closed = new RasterTileCache(closedImage);
+        RasterTileCache directions = directionImage == null ? null : new RasterTileCache(
+                directionImage);
+
+        final RasterCellQueue open = new RasterCellQueue();
+        final CellFifo pit = new CellFifo();
+
+        // seed with the cells on the edge of the raster or next to NoData, which flow outward
+        for (int row = 0; row < height; row++) {
+            checkCanceled();
+
+            for (int col = 0; col < width; col++) {
+                final double z = dem.get(col, row);
+                if (isNoData(z, srcNoData)) {
+                    continue;
+                }
+
+                int outward = -1;
+                for (int k = 0; k < DX.length && outward == -1; k++) {
+                    final int nc = col + DX[k];
+                    final int nr = row + DY[k];
+                    if (nc < 0 || nr < 0 || nc >= width || nr >= height
+                            || isNoData(dem.get(nc, nr), srcNoData)) {
+                        outward = k;
+                    }
+                }
+
+                if (outward != -1) {
+                    closed.set(col, row, 1);
+                    filled.set(col, row, z);
+                    if (directions != null) {
+                        directions.set(col, row, 1 << outward);
+                    }
+                    open.push((long) row * width + col, z);
+                }
+            }
+        }
+
+        MinValue = Double.MAX_VALUE;
+        MaxValue = -Double.MAX_VALUE;
+        final ProgressTracker tracker = new ProgressTracker(Progress, (long) width * height);
+        long processed = 0;
+        while (!pit.isEmpty() || !open.isEmpty()) {
+            if (++processed % ProgressTracker.CHECK_INTERVAL == 0) {
+                tracker.worked(ProgressTracker.CHECK_INTERVAL);
+            }
+
+            final long cell;
+            final double z;
+            if (pit.isEmpty()) {
+                open.poll();
+                cell = open.getCell();
+                z = open.getPriority();
+            } else {
+                cell = pit.poll();
+                z = filled.get((int) (cell % width), (int) (cell / width));
+            }
+
+            final int row = (int) (cell / width);
+            final int col = (int) (cell % width);
+            updateStatistics(z);
+
+            for (int k = 0; k < DX.length; k++) {
+                final int nc = col + DX[k];
+                final int nr = row + DY[k];
+                if (nc < 0 || nr < 0 || nc >= width || nr >= height || closed.get(nc, nr) != 0) {
+                    continue;
+                }
+
+                final double nz = dem.get(nc, nr);
+                if (isNoData(nz, srcNoData)) {
+                    continue;
+                }
+
+                closed.set(nc, nr, 1);
+                if (directions != null) {
+                    directions.set(nc, nr, 1 << ((k + 4) % 8)); // back to this cell
+                }
+
+                final long neighbor = (long) nr * width + nc;
+                if (nz <= z) {
+                    filled.set(nc, nr, z); // raise to the spill elevation
+                    pit.push(neighbor);
+                } else {
+                    filled.set(nc, nr, nz);
+                    open.push(neighbor, nz);
+                }
+            }
+        }
+
+        filled.flush();
+        closedImage.dispose();
+
+        flowDirectionCoverage = null;
+        if (directions != null) {
+            directions.flush();
+            flowDirectionCoverage = createGridCoverage("FlowDirection", directionImage, 1,
+                    DIRECTION_NODATA, 1, 128, Extent);
+        }
+
+        return createGridCoverage("Fill", outputImage);
+    }
+
+    static boolean isNoData(double value, double noData) {
+        return Double.isNaN(value) || SSUtils.compareDouble(value, noData);
+    }
+
+    /**
+     * Growable FIFO queue of cells.
+     */
+    static final class CellFifo {
+        private long[] cells = new long[1024];
+
+        private int head = 0;
+
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long cell) {
+            if (size == cells.length) {
+                long[] grown = new long[cells.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = cells[(head + i) % cells.length];
+                }
+                cells = grown;
+                head = 0;
+            }
+            cells[(head + size) % cells.length] = cell;
+            size++;
+        }
+
+        long poll() {
+            long cell = cells[head];
+            head = (head + 1) % cells.length;
+            size--;
+            return cell;
+        }
+    }
+}
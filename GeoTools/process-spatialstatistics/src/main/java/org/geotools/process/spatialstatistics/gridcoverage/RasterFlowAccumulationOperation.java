@@ -0,0 +1,259 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Creates a raster of accumulated flow into each cell from a D8 flow direction raster.
+ * <p>
+ * The accumulated value of a cell is the number (or the sum of the weights) of all cells that
+ * flow into it, excluding the cell itself. The number of upstream neighbors of each cell is
+ * counted in parallel strips, then cells are visited in topological order: walking downstream
+ * from every cell without upstream neighbors, a walk only continues into a cell once all of its
+ * upstream neighbors have been added, so each cell is processed exactly once.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterFlowAccumulationOperation extends RasterProcessingOperation {
+    protected static final Logger LOGGER = Logging
+            .getLogger(RasterFlowAccumulationOperation.class);
+
+    static final int[] DX = RasterFlowDirectionOperation.DX;
+
+    static final int[] DY = RasterFlowDirectionOperation.DY;
+
+    static final int STRIP_SIZE = RasterFlowDirectionOperation.STRIP_SIZE;
+
+    static final int DONE = 255;
+
+    public GridCoverage2D execute(GridCoverage2D flowDirection) {
+        return execute(flowDirection, null);
+    }
+
+    /**
+     * @param flowDirection D8 flow direction raster (1 - 128)
+     * @param weightCoverage optional weight raster with the grid of the flow direction raster;
+     *        NoData weights count as 0
+     */
+    public GridCoverage2D execute(GridCoverage2D flowDirection, GridCoverage2D weightCoverage) {
+        final double directionNoData = RasterHelper.getNoDataValue(flowDirection);
+
+        // number of upstream neighbors
+        final MappedTileImage inflowImage = createDiskMemImage(flowDirection,
+                RasterPixelType.SHORT);
+        countInflows(flowDirection, directionNoData, inflowImage);
+
+        NoData = RasterHelper.getDefaultNoDataValue(RasterPixelType.FLOAT);
+        final MappedTileImage outputImage = createDiskMemImage(flowDirection,
+                RasterPixelType.FLOAT);
+        ScanlineRasterizer.fill(outputImage, 0.0);
+
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        RasterTileCache directions = new RasterTileCache(flowDirection.getRenderedImage());
+        RasterTileCache inflows = new RasterTileCache(inflowImage);
+        RasterTileCache accumulation = new RasterTileCache(outputImage);
+        RasterTileCache weights = null;
+        double weightNoData = 0.0;
+        if (weightCoverage != null) {
+            weights = new RasterTileCache(weightCoverage.getRenderedImage());
+            weightNoData = RasterHelper.getNoDataValue(weightCoverage);
+        }
+
+        final int weightWidth = weights == null ? 0 : weights.getWidth();
+        final int weightHeight = weights == null ? 0 : weights.getHeight();
+        final ProgressTracker tracker = new ProgressTracker(Progress, (long) width * height);
+        long visited = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (inflows.get(col, row) != 0) {
+                    continue;
+                }
+
+                // walk downstream while every upstream neighbor of the next cell is done
+                int c = col;
+                int r = row;
+                while (true) {
+                    inflows.set(c, r, DONE);
+                    if (++visited % ProgressTracker.CHECK_INTERVAL == 0) {
+                        tracker.worked(ProgressTracker.CHECK_INTERVAL);
+                    }
+
+                    int k = RasterFlowDirectionOperation.toIndex(directions.get(c, r));
+                    if (k == -1) {
+                        break; // NoData, sink or invalid code
+                    }
+
+                    final int nc = c + DX[k];
+                    final int nr = r + DY[k];
+                    if (nc < 0 || nr < 0 || nc >= width || nr >= height) {
+                        break;
+                    }
+
+                    final double inflow = inflows.get(nc, nr);
+                    if (inflow == DONE) {
+                        break; // flows into NoData, or a cycle
+                    }
+
+                    double weight = 1.0;
+                    if (weights != null) {
+                        weight = 0.0;
+                        if (c < weightWidth && r < weightHeight) {
+                            double value = weights.get(c, r);
+                            if (!RasterFillOperation.isNoData(value, weightNoData)) {
+                                weight = value;
+                            }
+                        }
+                    }
+
+                    accumulation.set(nc, nr,
+                            accumulation.get(nc, nr) + accumulation.get(c, r) + weight);
+                    inflows.set(nc, nr, inflow - 1);
+                    if (inflow - 1 > 0) {
+                        break;
+                    }
+
+                    c = nc;
+                    r = nr;
+                }
+            }
+        }
+
+        accumulation.flush();
+        inflowImage.dispose();
+
+        // NoData where the flow direction is NoData
+        double[] range = finish(flowDirection, directionNoData, outputImage);
+        MinValue = range[0];
+        MaxValue = range[1];
+
+        return createGridCoverage("FlowAccumulation", outputImage);
+    }
+
+    private void countInflows(GridCoverage2D flowDirection, final double directionNoData,
+            final MappedTileImage inflowImage) {
+        final RenderedImage image = flowDirection.getRenderedImage();
+        final int width = inflowImage.getWidth();
+        final int height = inflowImage.getHeight();
+
+        ParallelUtils.forEach((height + STRIP_SIZE - 1) / STRIP_SIZE, 1,
+                new ParallelUtils.RangeTask() {
+                    @Override
+                    public void run(int start, int end) {
+                        for (int strip = start; strip < end; strip++) {
+                            final int top = strip * STRIP_SIZE;
+                            final int h = Math.min(STRIP_SIZE, height - top);
+                            final int y0 = Math.max(0, top - 1);
+                            final int y1 = Math.min(height, top + h + 1);
+                            final double[] codes = RasterHelper.readSamples(image,
+                                    new Rectangle(image.getMinX(), image.getMinY() + y0, width,
+                                            y1 - y0), (double[]) null);
+
+                            // cells with NoData direction are marked done and never counted
+                            final int[] inflows = new int[width * h];
+                            for (int row = top; row < top + h; row++) {
+                                for (int col = 0; col < width; col++) {
+                                    final int index = (row - top) * width + col;
+                                    final double code = codes[(row - y0) * width + col];
+                                    if (RasterFillOperation.isNoData(code, directionNoData)) {
+                                        inflows[index] = DONE;
+                                        continue;
+                                    }
+
+                                    for (int k = 0; k < DX.length; k++) {
+                                        final int nc = col + DX[k];
+                                        final int nr = row + DY[k];
+                                        if (nc < 0 || nr < 0 || nc >= width || nr >= height) {
+                                            continue;
+                                        }
+
+                                        // does the neighbor flow into this cell?
+                                        double neighbor = codes[(nr - y0) * width + nc];
+                                        int n = RasterFlowDirectionOperation.toIndex(neighbor);
+                                        if (n == (k + 4) % 8) {
+                                            inflows[index]++;
+                                        }
+                                    }
+                                }
+                            }
+
+                            RasterHelper.writeSamples(inflowImage, new Rectangle(0, top, width,
+                                    h), inflows);
+                        }
+                    }
+                }, Progress);
+    }
+
+    private double[] finish(GridCoverage2D flowDirection, final double directionNoData,
+            final MappedTileImage outputImage) {
+        final RenderedImage image = flowDirection.getRenderedImage();
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+        final double noData = NoData;
+
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+        for (int y = 0; y < height; y += STRIP_SIZE) {
+            final int top = y;
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() throws Exception {
+                    final int h = Math.min(STRIP_SIZE, height - top);
+                    final Rectangle block = new Rectangle(0, top, width, h);
+                    final double[] codes = RasterHelper.readSamples(image, new Rectangle(
+                            image.getMinX(), image.getMinY() + top, width, h), (double[]) null);
+                    final double[] values = RasterHelper.readSamples(outputImage, block,
+                            (double[]) null);
+
+                    double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+                    for (int i = 0; i < values.length; i++) {
+                        if (RasterFillOperation.isNoData(codes[i], directionNoData)) {
+                            values[i] = noData;
+                        } else {
+                            range[0] = Math.min(range[0], values[i]);
+                            range[1] = Math.max(range[1], values[i]);
+                        }
+                    }
+
+                    RasterHelper.writeSamples(outputImage, block, values);
+                    return range;
+                }
+            });
+        }
+
+        double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (double[] result : ParallelUtils.invokeAll(tasks, Progress)) {
+            range[0] = Math.min(range[0], result[0]);
+            range[1] = Math.max(range[1], result[1]);
+        }
+        return range;
+    }
+}
@@ -16,21 +16,25 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
-import org.locationtech.jts.geom.Coordinate;
 
 /**
  * Creates a raster of flow direction from each cell to its downslope neighbor, or neighbors, using D8 methods.
+ * <p>
+ * Each cell flows to the neighbor with the steepest positive drop. A cell on the edge of the
+ * raster, or next to NoData, without a downslope neighbor flows outward; other cells without a
+ * downslope neighbor (sinks and flats) are 0. Use {@link RasterFillOperation} to obtain directions
+ * that drain through depressions and flats. Rows are processed in parallel strips.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -39,125 +43,134 @@ import org.locationtech.jts.geom.Coordinate;
 public class RasterFlowDirectionOperation extends AbstractSurfaceOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterFlowDirectionOperation.class);
 
-    public RasterFlowDirectionOperation() {
-
-    }
-
-    public GridCoverage2D execute(GridCoverage2D inputCoverage) {
-        this.initSurface(inputCoverage);
-
-        DiskMemImage outputImage = this.createDiskMemImage(inputCoverage, RasterPixelType.INTEGER);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+    // https://pro.arcgis.com/en/pro-app/tool-reference/spatial-analyst/how-flow-direction-works.htm
+    // +-----------+
+    // | 32 64 128 |
+    // | 16 x 1 |
+    // | 8 4 2 |
+    // +-----------+
+    // E, SE, S, SW, W, NW, N, NE: the direction code of index k is 1 << k
 
-        GridCoordinates2D pos = new GridCoordinates2D();
+    static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
 
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+    static final int[] DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
+    static final int STRIP_SIZE = 64;
 
-                visitAspect(writer, pos);
+    public RasterFlowDirectionOperation() {
 
-                writer.nextPixel();
-                x++;
-            }
+    }
 
-            writer.nextLine();
-            y++;
+    /**
+     * Returns the neighbor index (0 - 7) of a direction code, or -1 if the code is not a single
+     * D8 direction.
+     */
+    static int toIndex(double code) {
+        int direction = (int) code;
+        if (direction <= 0 || direction > 128 || direction != code
+                || Integer.bitCount(direction) != 1) {
+            return -1;
         }
-
-        return createGridCoverage("FlowDirection", outputImage);
+        return Integer.numberOfTrailingZeros(direction);
     }
 
-    private void visitAspect(WritableRectIter writer, GridCoordinates2D pos) {
-        // https://pro.arcgis.com/en/pro-app/tool-reference/spatial-analyst/how-flow-direction-works.htm
-        // +-------+ +-----------+
-        // | 0 1 2 | | 32 64 128 |
-        // | 3 4 5 |>| 16 x 1 |
-        // | 6 7 8 | | 8 4 2 |
-        // +-------+ +-----------+
-
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, NoData);
-            return;
-        }
+    public GridCoverage2D execute(GridCoverage2D inputCoverage) {
+        this.initSurface(inputCoverage);
 
-        Coordinate center_pos = new Coordinate(1, 1);
-        Coordinate max_drop_pos = null;
+        final MappedTileImage outputImage = this.createDiskMemImage(inputCoverage,
+                RasterPixelType.INTEGER);
 
-        int flowDir = -1;
-        double max_drop = 0;
-        for (int row = 0; row < 3; row++) {
-            int dY = (int) (center_pos.y - row);
-            for (int col = 0; col < 3; col++) {
-                if (col == 1 && row == 1) {
-                    continue;
-                }
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+        final int noData = (int) NoData;
 
-                // The distance is calculated between cell centers.
-                // Therefore, if the cell size is 1, the distance between two orthogonal cells is 1,
-                // and the distance between two diagonal cells is 1.414 (the square root of 2)
-                int dX = (int) (center_pos.x - col);
+        final double[] distances = new double[DX.length];
+        for (int k = 0; k < DX.length; k++) {
+            distances[k] = Math.hypot(DX[k] * CellSizeX, DY[k] * CellSizeY);
+        }
 
-                // maximum_drop = change_in_z-value / distance * 100
-                double drop = (mx[1][1] - mx[col][row]) / (Math.hypot(dX, dY) * 100);
-                if (max_drop_pos == null || drop > max_drop) {
-                    max_drop_pos = new Coordinate(col, row);
-                    max_drop = drop;
+        List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int y = 0; y < height; y += STRIP_SIZE) {
+            final int top = y;
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() throws Exception {
+                    final int h = Math.min(STRIP_SIZE, height - top);
+
+                    // strip with one row of halo above and below
+                    final int y0 = Math.max(0, top - 1);
+                    final int y1 = Math.min(height, top + h + 1);
+                    final double[] z = RasterHelper.readSamples(image, new Rectangle(bounds.x,
+                            bounds.y + y0, width, y1 - y0), (double[]) null);
+                    for (int i = 0; i < z.length; i++) {
+                        if (Double.isNaN(z[i]) || SSUtils.compareDouble(srcNoData, z[i])) {
+                            z[i] = Double.NaN;
+                        }
+                    }
+
+                    int minValue = Integer.MAX_VALUE;
+                    int maxValue = Integer.MIN_VALUE;
+                    final int[] codes = new int[width * h];
+                    for (int row = top; row < top + h; row++) {
+                        final int base = (row - y0) * width;
+                        for (int col = 0; col < width; col++) {
+                            final double center = z[base + col];
+                            if (Double.isNaN(center)) {
+                                codes[(row - top) * width + col] = noData;
+                                continue;
+                            }
+
+                            int steepest = -1;
+                            int outward = -1;
+                            double maxDrop = 0.0;
+                            for (int k = 0; k < DX.length; k++) {
+                                final int nc = col + DX[k];
+                                final int nr = row + DY[k];
+                                if (nc < 0 || nr < 0 || nc >= width || nr >= height) {
+                                    outward = outward == -1 ? k : outward;
+                                    continue;
+                                }
+
+                                final double neighbor = z[(nr - y0) * width + nc];
+                                if (Double.isNaN(neighbor)) {
+                                    outward = outward == -1 ? k : outward;
+                                    continue;
+                                }
+
+                                // maximum_drop = change_in_z-value / distance
+                                final double drop = (center - neighbor) / distances[k];
+                                if (drop > maxDrop) {
+                                    maxDrop = drop;
+                                    steepest = k;
+                                }
+                            }
+
+                            int code = 0;
+                            if (steepest != -1) {
+                                code = 1 << steepest;
+                            } else if (outward != -1) {
+                                code = 1 << outward;
+                            }
+
+                            codes[(row - top) * width + col] = code;
+                            minValue = Math.min(minValue, code);
+                            maxValue = Math.max(maxValue, code);
+                        }
+                    }
+
+                    RasterHelper.writeSamples(outputImage, new Rectangle(0, top, width, h), codes);
+                    return new int[] { minValue, maxValue };
                 }
-            }
+            });
         }
 
-        flowDir = getFlowDirection(center_pos, max_drop_pos);
-
-        writer.setSample(0, flowDir);
-        updateStatistics(flowDir);
-    }
-
-    private int getFlowDirection(Coordinate from, Coordinate to) {
-        // +-------+ +-----------+
-        // | 0 1 2 | | 32 64 128 |
-        // | 3 4 5 |>| 16 x 1 |
-        // | 6 7 8 | | 8 4 2 |
-        // +-------+ +-----------+
-
-        int directionPow = -1;
-        if (from.y == to.y) {
-            if (from.x < to.x) {
-                directionPow = 0; // 1
-            } else if (from.x == to.x) {
-                directionPow = -1; // c
-            } else {
-                directionPow = 4; // 16
-            }
-        } else if (from.y < to.y) {
-            if (from.x < to.x) {
-                directionPow = 1; // 2
-            } else if (from.x == to.x) {
-                directionPow = 2; // 4
-            } else {
-                directionPow = 3; // 8
-            }
-        } else {
-            if (from.x < to.x) {
-                directionPow = 7; // 128
-            } else if (from.x == to.x) {
-                directionPow = 6; // 64
-            } else {
-                directionPow = 5; // 32
+        for (int[] range : ParallelUtils.invokeAll(tasks, Progress)) {
+            if (range[0] <= range[1]) {
+                updateStatistics(range[0]);
+                updateStatistics(range[1]);
             }
         }
 
-        if (directionPow <= -1) {
-            return 0;
-        }
-
-        return (int) Math.pow(2, directionPow);
+        return createGridCoverage("FlowDirection", outputImage);
     }
-}
\ No newline at end of file
+}
@@ -21,7 +21,6 @@ import java.util.logging.Logger;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
@@ -29,7 +28,6 @@ import org.geotools.process.spatialstatistics.enumeration.FuzzyDirectionType;
 import org.geotools.process.spatialstatistics.enumeration.FuzzyFunctionType;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Performs fuzzy membership function on rasters.
@@ -80,15 +78,14 @@ public class RasterFuzzyOperation extends RasterProcessingOperation {
     }
 
     public GridCoverage2D execute(GridCoverage2D inputGc, double[] fuzzyValues) {
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
 
         PlanarImage inputImage = (PlanarImage) inputGc.getRenderedImage();
         final double inputNoData = RasterHelper.getNoDataValue(inputGc);
         this.NoData = RasterHelper.getDefaultNoDataValue(PixelType);
 
         RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        LineWriter writerIter = new LineWriter(outputImage);
 
         inputIter.startLines();
         writerIter.startLines();
@@ -21,14 +21,21 @@ import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.media.jai.Interpolation;
 import javax.media.jai.PlanarImage;
 
 import org.geotools.coverage.Category;
@@ -40,6 +47,7 @@ import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.GridFormatFinder;
+import org.geotools.coverage.processing.Operations;
 import org.geotools.data.DataSourceException;
 import org.geotools.gce.geotiff.GeoTiffReader;
 import org.geotools.geometry.DirectPosition2D;
@@ -47,6 +55,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.metadata.i18n.Vocabulary;
 import org.geotools.metadata.i18n.VocabularyKeys;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.referencing.CRS;
 import org.geotools.util.NumberRange;
 import org.geotools.util.factory.Hints;
 import org.geotools.util.logging.Logging;
@@ -56,6 +65,7 @@ import org.opengis.coverage.grid.GridGeometry;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
@@ -210,6 +220,60 @@ public class RasterHelper {
         return Math.max(cellSizeX, cellSizeY);
     }
 
+    /**
+     * Returns true if both coverages have the same dimension, cell size and extent (within a
+     * hundredth of a cell), and compatible coordinate reference systems.
+     */
+    public static boolean isSameGrid(GridCoverage2D coverage, GridCoverage2D other) {
+        RenderedImage image = coverage.getRenderedImage();
+        RenderedImage otherImage = other.getRenderedImage();
+        if (image.getWidth() != otherImage.getWidth()
+                || image.getHeight() != otherImage.getHeight()) {
+            return false;
+        }
+
+        CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem();
+        CoordinateReferenceSystem otherCrs = other.getCoordinateReferenceSystem();
+        if (crs != null && otherCrs != null && !CRS.equalsIgnoreMetadata(crs, otherCrs)) {
+            return false;
+        }
+
+        Envelope envelope = coverage.getEnvelope();
+        Envelope otherEnvelope = other.getEnvelope();
+        for (int dim = 0; dim < 2; dim++) {
+            int size = dim == 0 ? image.getWidth() : image.getHeight();
+            double tolerance = envelope.getSpan(dim) / size * 0.01;
+            double minDiff = Math.abs(envelope.getMinimum(dim) - otherEnvelope.getMinimum(dim));
+            double maxDiff = Math.abs(envelope.getMaximum(dim) - otherEnvelope.getMaximum(dim));
+            if (minDiff > tolerance || maxDiff > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the coverage resampled with nearest neighbor onto the grid of the template coverage,
+     * or the coverage itself if both already share the same grid. Cells outside the coverage are
+     * filled with its NoData value.
+     */
+    public static GridCoverage2D alignToGrid(GridCoverage2D coverage, GridCoverage2D template) {
+        if (isSameGrid(template, coverage)) {
+            return coverage;
+        }
+
+        LOGGER.log(Level.WARNING, "Resampling " + coverage.getName() + " to the grid of "
+                + template.getName());
+
+        double[] backgroundValues = new double[coverage.getNumSampleDimensions()];
+        Arrays.fill(backgroundValues, getNoDataValue(coverage));
+
+        Interpolation interpolation = Interpolation.getInstance(Interpolation.INTERP_NEAREST);
+        return (GridCoverage2D) Operations.DEFAULT.resample(coverage,
+                template.getCoordinateReferenceSystem(), template.getGridGeometry(),
+                interpolation, backgroundValues);
+    }
+
     public static double getSuggestedNoDataValue(GridCoverage2D srcCoverage) {
         double noDataValue = 0.0f;
 
@@ -449,4 +513,76 @@ public class RasterHelper {
         GridCoverageFactory factory = CoverageFactoryFinder.getGridCoverageFactory(null);
         return factory.create(name, tiledImage, coverageExtent, bands, null, properties);
     }
+
+    /**
+     * Reads the first band of a block of an image into a row-major buffer.
+     */
+    public static double[] readSamples(RenderedImage image, Rectangle block, double[] buffer) {
+        final Raster raster;
+        synchronized (image) {
+            raster = image.getData(block);
+        }
+        return raster.getSamples(block.x, block.y, block.width, block.height, 0, buffer);
+    }
+
+    /**
+     * Reads the first band of a block of an image into a row-major buffer.
+     */
+    public static int[] readSamples(RenderedImage image, Rectangle block, int[] buffer) {
+        final Raster raster;
+        synchronized (image) {
+            raster = image.getData(block);
+        }
+        return raster.getSamples(block.x, block.y, block.width, block.height, 0, buffer);
+    }
+
+    /**
+     * Writes a row-major block of int[], float[] or double[] samples into the first band of the
+     * tiles it overlaps.
+     */
+    public static void writeSamples(WritableRenderedImage image, Rectangle block, Object buffer) {
+        final int tileWidth = image.getTileWidth();
+        final int tileHeight = image.getTileHeight();
+        final int offsetX = image.getTileGridXOffset();
+        final int offsetY = image.getTileGridYOffset();
+
+        final int tx0 = Math.floorDiv(block.x - offsetX, tileWidth);
+        final int tx1 = Math.floorDiv(block.x + block.width - 1 - offsetX, tileWidth);
+        final int ty0 = Math.floorDiv(block.y - offsetY, tileHeight);
+        final int ty1 = Math.floorDiv(block.y + block.height - 1 - offsetY, tileHeight);
+
+        for (int tileY = ty0; tileY <= ty1; tileY++) {
+            for (int tileX = tx0; tileX <= tx1; tileX++) {
+                Rectangle tileRect = new Rectangle(offsetX + tileX * tileWidth, offsetY + tileY
+                        * tileHeight, tileWidth, tileHeight);
+                Rectangle part = tileRect.intersection(block);
+                if (part.isEmpty()) {
+                    continue;
+                }
+
+                // copy the rows of the block that fall into this tile
+                final int size = part.width * part.height;
+                Object samples = Array.newInstance(buffer.getClass().getComponentType(), size);
+                for (int row = 0; row < part.height; row++) {
+                    int src = (part.y - block.y + row) * block.width + part.x - block.x;
+                    System.arraycopy(buffer, src, samples, row * part.width, part.width);
+                }
+
+                synchronized (image) {
+                    WritableRaster raster = image.getWritableTile(tileX, tileY);
+                    if (samples instanceof int[]) {
+                        raster.setSamples(part.x, part.y, part.width, part.height, 0,
+                                (int[]) samples);
+                    } else if (samples instanceof float[]) {
+                        raster.setSamples(part.x, part.y, part.width, part.height, 0,
+                                (float[]) samples);
+                    } else {
+                        raster.setSamples(part.x, part.y, part.width, part.height, 0,
+                                (double[]) samples);
+                    }
+                    image.releaseWritableTile(tileX, tileY);
+                }
+            }
+        }
+    }
 }
@@ -18,15 +18,11 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Creates a shaded relief from a surface raster by considering the illumination source angle and shadows.
@@ -60,9 +56,8 @@ public class RasterHillshadeOperation extends AbstractSurfaceOperation {
             double zFactor) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        LineWriter writer = new LineWriter(outputImage);
 
         GridCoordinates2D pos = new GridCoordinates2D();
 
@@ -88,7 +83,7 @@ public class RasterHillshadeOperation extends AbstractSurfaceOperation {
         return createGridCoverage("Aspect", outputImage);
     }
 
-    private void visitHillShade(WritableRectIter writer, GridCoordinates2D pos,
+    private void visitHillShade(LineWriter writer, GridCoordinates2D pos,
             final double azimuth, final double altitude, final double zFactor) {
         // http://webhelp.esri.com/arcgisdesktop/9.2/index.cfm?TopicName=How%20Hillshade%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
@@ -22,15 +22,11 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Coordinate;
 
 /**
@@ -83,7 +79,7 @@ public class RasterInterpolationIDWOperation extends RasterInterpolationOperator
         final IDWInterpolator interpolator = new IDWInterpolator(pts, radius, power);
 
         // create image & write pixels
-        final DiskMemImage oi = createDiskMemImage(Extent, pixelType);
+        final MappedTileImage oi = createDiskMemImage(Extent, pixelType);
         final GridTransformer trans = new GridTransformer(Extent, CellSizeX, CellSizeY);
 
         // divide 500 pixels
@@ -125,7 +121,7 @@ public class RasterInterpolationIDWOperation extends RasterInterpolationOperator
     }
 
     final class PartialInterpolator implements Runnable {
-        private DiskMemImage oi;
+        private MappedTileImage oi;
 
         private java.awt.Rectangle rect;
 
@@ -133,7 +129,7 @@ public class RasterInterpolationIDWOperation extends RasterInterpolationOperator
 
         private GridTransformer trans;
 
-        public PartialInterpolator(DiskMemImage oi, Rectangle rect,
+        public PartialInterpolator(MappedTileImage oi, Rectangle rect,
                 AbstractInterpolator interpolator, GridTransformer trans) {
             this.oi = oi;
             this.rect = rect;
@@ -142,7 +138,7 @@ public class RasterInterpolationIDWOperation extends RasterInterpolationOperator
         }
 
         public void run() {
-            WritableRectIter writer = RectIterFactory.createWritable(oi, rect);
+            LineWriter writer = new LineWriter(oi, rect);
 
             writer.startLines();
             int y = rect.y;
@@ -22,15 +22,11 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Coordinate;
 
 /**
@@ -59,7 +55,7 @@ public class RasterInterpolationTPSOperation extends RasterInterpolationOperator
         final ThinPlateSplineInterpolator interpolator = new ThinPlateSplineInterpolator(pts);
 
         // create image & write pixels
-        final DiskMemImage oi = this.createDiskMemImage(Extent, pixelType);
+        final MappedTileImage oi = this.createDiskMemImage(Extent, pixelType);
         final GridTransformer trans = new GridTransformer(Extent, CellSizeX, CellSizeY);
 
         // divide 500 pixels
@@ -101,7 +97,7 @@ public class RasterInterpolationTPSOperation extends RasterInterpolationOperator
     }
 
     final class PartialInterpolator implements Runnable {
-        private DiskMemImage oi;
+        private MappedTileImage oi;
 
         private java.awt.Rectangle rect;
 
@@ -109,7 +105,7 @@ public class RasterInterpolationTPSOperation extends RasterInterpolationOperator
 
         private GridTransformer trans;
 
-        public PartialInterpolator(DiskMemImage oi, Rectangle rect,
+        public PartialInterpolator(MappedTileImage oi, Rectangle rect,
                 AbstractInterpolator interpolator, GridTransformer trans) {
             this.oi = oi;
             this.rect = rect;
@@ -118,7 +114,7 @@ public class RasterInterpolationTPSOperation extends RasterInterpolationOperator
         }
 
         public void run() {
-            WritableRectIter writer = RectIterFactory.createWritable(oi, rect);
+            LineWriter writer = new LineWriter(oi, rect);
 
             writer.startLines();
             int y = rect.y;
@@ -16,21 +16,15 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.awt.RenderingHints;
 import java.util.logging.Logger;
 
 import javax.measure.Unit;
-import javax.media.jai.BorderExtender;
-import javax.media.jai.JAI;
-import javax.media.jai.KernelJAI;
-import javax.media.jai.ParameterBlockJAI;
 import javax.media.jai.PlanarImage;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
-import org.jaitools.media.jai.kernel.KernelFactory;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.crs.GeographicCRS;
 
@@ -49,19 +43,11 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
 
     public GridCoverage2D execute(SimpleFeatureCollection lineFeatures, String polulationField,
             double searchRadius) {
-        // step 1 : convert line to gridcoverage
-        final PlanarImage outputImage = lineToRaster(lineFeatures, polulationField);
+        // step 1 : sum of the length of lines within the search radius of each cell
+        final PlanarImage outputImage = lineToRaster(lineFeatures, polulationField, searchRadius);
 
         // Density = ((L1 * V1) + (L2 * V2)) / (area_of_circle)
-        final KernelJAI kernel = getKernel(searchRadius);
-        final RenderingHints hints = new RenderingHints(JAI.KEY_BORDER_EXTENDER,
-                BorderExtender.createInstance(BorderExtender.BORDER_ZERO));
-
-        final ParameterBlockJAI pb = new ParameterBlockJAI("Convolve");
-        pb.setSource("source0", outputImage);
-        pb.setParameter("kernel", kernel);
-
-        PlanarImage densityImage = JAI.create("Convolve", pb, hints);
+        this.scaleArea = Math.PI * searchRadius * searchRadius;
 
         // If the linear unit is meters, the output area units will default to SQUARE_KILOMETERS
         // and the resulting line density units will convert to
@@ -79,33 +65,8 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
             }
         }
 
-        return createGridCoverage("LineDensity", scaleUnit(densityImage));
-    }
-
-    private KernelJAI getKernel(double searchRadius) {
-        scaleArea = 0.0;
-
-        // convert map unit to cell unit
-        double cellSize = Math.max(CellSizeX, CellSizeY);
-        int radius = (int) Math.floor(searchRadius / cellSize);
-
-        // Creates a circular kernel with width 2*radius + 1
-        KernelJAI kernel = KernelFactory.createConstantCircle(radius, (float) cellSize);
-
-        // calculate area
-        final double cellArea = CellSizeX * CellSizeY;
-        final float[] data = kernel.getKernelData();
-        int valid = 0;
-        for (int index = 0; index < data.length; index++) {
-            if (data[index] != 0.0) {
-                scaleArea += cellArea;
-                valid++;
-            }
-        }
-
-        this.MinValue = 0.0;
-        this.MaxValue = MaxValue * valid;
+        this.MaxValue = MaxValue / scaleArea;
 
-        return kernel;
+        return createGridCoverage("LineDensity", scaleUnit(outputImage));
     }
-}
\ No newline at end of file
+}
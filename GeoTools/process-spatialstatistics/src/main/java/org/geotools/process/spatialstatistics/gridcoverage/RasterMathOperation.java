@@ -16,30 +16,39 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.expression.Expression;
 
 /**
  * Performs mathematical operations on raster using expression.
+ * <p>
+ * The expression is compiled once into a {@link RasterAlgebra.Kernel} and evaluated over whole
+ * tiles in parallel. Expressions that cannot be compiled (e.g. functions of the cell geometry) are
+ * evaluated per pixel.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -48,18 +57,52 @@ import org.opengis.filter.expression.Expression;
 public class RasterMathOperation extends RasterProcessingOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterMathOperation.class);
 
+    static final String VALUE_FIELD = "Value";
+
     GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
     public GridCoverage2D execute(GridCoverage2D inputGc, Integer bandIndex, Expression expression) {
+        Map<String, GridCoverage2D> inputCoverages = new LinkedHashMap<String, GridCoverage2D>();
+        inputCoverages.put(inputGc.getName().toString(), inputGc);
+        return execute(inputCoverages, bandIndex, expression);
+    }
+
+    /**
+     * Evaluates the expression on several coverages with the same grid. Property names of the
+     * expression refer to the keys of the map, "Value" refers to the first coverage.
+     */
+    public GridCoverage2D execute(Map<String, GridCoverage2D> inputCoverages, Integer bandIndex,
+            final Expression expression) {
+        final List<String> names = new ArrayList<String>(inputCoverages.keySet());
+        final int numInputs = names.size();
+        final GridCoverage2D inputGc = inputCoverages.get(names.get(0));
+
+        final Map<String, Integer> inputs = new LinkedHashMap<String, Integer>();
+        final RenderedImage[] inputImages = new RenderedImage[numInputs];
+        final int[] bands = new int[numInputs];
+        final double[] noDataValues = new double[numInputs];
+        boolean hasValueField = false;
+        int index = 0;
+        for (Entry<String, GridCoverage2D> entry : inputCoverages.entrySet()) {
+            if (index > 0 && !RasterHelper.isSameGrid(inputGc, entry.getValue())) {
+                throw new IllegalArgumentException(
+                        "All rasters must have the same extent, cell size and CRS!");
+            }
+            hasValueField |= VALUE_FIELD.equalsIgnoreCase(entry.getKey());
 
-        // prepare feature
-        SimpleFeature feature = super.createTemplateFeature(inputGc);
+            inputs.put(entry.getKey(), Integer.valueOf(index));
+            inputImages[index] = entry.getValue().getRenderedImage();
+            bands[index] = bandIndex.intValue();
+            noDataValues[index] = RasterHelper.getNoDataValue(entry.getValue());
+            index++;
+        }
+        if (!hasValueField) {
+            inputs.put(VALUE_FIELD, Integer.valueOf(0));
+        }
 
         // create image
         RasterPixelType pixelType = RasterPixelType.DOUBLE;
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, pixelType);
-
-        PlanarImage inputImage = (PlanarImage) inputGc.getRenderedImage();
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, pixelType);
         this.NoData = RasterHelper.getNoDataValue(inputGc);
 
         GridGeometry2D gridGeometry2D = inputGc.getGridGeometry();
@@ -68,50 +111,88 @@ public class RasterMathOperation extends RasterProcessingOperation {
 
         double dx = Math.abs(gridToWorld.getScaleX());
         double dy = Math.abs(gridToWorld.getScaleY());
-        GridTransformer trans = new GridTransformer(extent, dx, dy);
-        // GridTransformer trans = new GridTransformer(coverage);
-
-        java.awt.Rectangle inputBounds = inputImage.getBounds();
-        RectIter inputIter = RectIterFactory.create(inputImage, inputBounds);
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        int row = 0; // inputBounds.y
-        inputIter.startLines();
-        writerIter.startLines();
-        while (!inputIter.finishedLines() && !writerIter.finishedLines()) {
-            int column = 0; // inputBounds.x
-            inputIter.startPixels();
-            writerIter.startPixels();
-            while (!inputIter.finishedPixels() && !writerIter.finishedPixels()) {
-                final double gridVal = inputIter.getSampleDouble(bandIndex);
-
-                if (SSUtils.compareDouble(gridVal, this.NoData)) {
-                    writerIter.setSample(0, this.NoData);
+        final GridTransformer trans = new GridTransformer(extent, dx, dy);
+
+        final RasterAlgebra.Kernel kernel = RasterAlgebra.compile(expression, inputs);
+        final SimpleFeatureType templateType = kernel != null ? null : createTemplateType(
+                inputGc, names, !hasValueField);
+        final int outMinX = outputImage.getMinX();
+        final int outMinY = outputImage.getMinY();
+
+        RasterAlgebra.process(inputImages, bands, outputImage, new RasterAlgebra.TileKernel() {
+            @Override
+            public void compute(Rectangle bounds, double[][] values, double[] output) {
+                final int length = bounds.width * bounds.height;
+
+                boolean[] valid = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    valid[i] = true;
+                    for (int k = 0; k < numInputs; k++) {
+                        if (SSUtils.compareDouble(values[k][i], noDataValues[k])) {
+                            valid[i] = false;
+                            break;
+                        }
+                    }
+                }
+
+                if (kernel != null) {
+                    kernel.evaluate(values, length, output);
                 } else {
-                    Coordinate coord = trans.gridToWorldCoordinate(column, row);
-                    feature.setDefaultGeometry(gf.createPoint(coord));
-                    feature.setAttribute(1, gridVal); // raster name
-                    feature.setAttribute(2, gridVal); // Value
-
-                    Double value = expression.evaluate(feature, Double.class);
-                    if (value == null || value.isInfinite() || value.isNaN()) {
-                        writerIter.setSample(0, this.NoData);
+                    SimpleFeature feature = new SimpleFeatureBuilder(templateType)
+                            .buildFeature(null);
+                    for (int i = 0; i < length; i++) {
+                        if (!valid[i]) {
+                            continue;
+                        }
+
+                        int column = bounds.x - outMinX + (i % bounds.width);
+                        int row = bounds.y - outMinY + (i / bounds.width);
+                        Coordinate coord = trans.gridToWorldCoordinate(column, row);
+                        feature.setDefaultGeometry(gf.createPoint(coord));
+                        for (int k = 0; k < numInputs; k++) {
+                            feature.setAttribute(k + 1, values[k][i]); // raster name
+                        }
+                        if (templateType.getAttributeCount() > numInputs + 1) {
+                            feature.setAttribute(numInputs + 1, values[0][i]); // Value
+                        }
+
+                        Double value = expression.evaluate(feature, Double.class);
+                        output[i] = value == null ? Double.NaN : value.doubleValue();
+                    }
+                }
+
+                double minValue = Double.MAX_VALUE;
+                double maxValue = -Double.MAX_VALUE;
+                for (int i = 0; i < length; i++) {
+                    final double value = output[i];
+                    if (!valid[i] || Double.isInfinite(value) || Double.isNaN(value)) {
+                        output[i] = NoData;
                     } else {
-                        writerIter.setSample(0, value.doubleValue());
-                        updateStatistics(value);
+                        minValue = Math.min(minValue, value);
+                        maxValue = Math.max(maxValue, value);
                     }
                 }
 
-                column++;
-                inputIter.nextPixel();
-                writerIter.nextPixel();
+                if (minValue <= maxValue) {
+                    synchronized (RasterMathOperation.this) {
+                        updateStatistics(minValue);
+                        updateStatistics(maxValue);
+                    }
+                }
             }
-            row++;
-            inputIter.nextLine();
-            writerIter.nextLine();
-        }
+        });
 
         return createGridCoverage(inputGc.getName(), outputImage);
     }
+
+    private SimpleFeatureType createTemplateType(GridCoverage2D inputGc, List<String> names,
+            boolean addValueField) {
+        String typeName = inputGc.getName().toString();
+        SimpleFeatureType schema = FeatureTypes.getDefaultType(typeName, Point.class,
+                inputGc.getCoordinateReferenceSystem());
+        for (String name : names) {
+            schema = FeatureTypes.add(schema, name, Double.class);
+        }
+        return addValueField ? FeatureTypes.add(schema, VALUE_FIELD, Double.class) : schema;
+    }
 }
@@ -22,7 +22,6 @@ import java.util.logging.Logger;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
@@ -32,7 +31,6 @@ import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.enumeration.ResampleType;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -126,15 +124,14 @@ public class RasterNDVIOperation extends RasterProcessingOperation {
 
     private GridCoverage2D executeNDVI(GridCoverage2D nirCoverage, Integer nirIndex,
             GridCoverage2D redCoverage, Integer redIndex) {
-        DiskMemImage outputImage = this.createDiskMemImage(nirCoverage, RasterPixelType.DOUBLE);
+        MappedTileImage outputImage = this.createDiskMemImage(nirCoverage, RasterPixelType.DOUBLE);
 
         PlanarImage nirImage = (PlanarImage) nirCoverage.getRenderedImage();
         PlanarImage redImage = (PlanarImage) redCoverage.getRenderedImage();
 
         RectIter nirIter = RectIterFactory.create(nirImage, nirImage.getBounds());
         RectIter redIter = RectIterFactory.create(redImage, redImage.getBounds());
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        LineWriter writerIter = new LineWriter(outputImage);
 
         nirIter.startLines();
         redIter.startLines();
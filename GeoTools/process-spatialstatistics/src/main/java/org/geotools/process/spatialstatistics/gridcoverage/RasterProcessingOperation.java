@@ -66,6 +66,7 @@ import org.geotools.metadata.i18n.Vocabulary;
 import org.geotools.metadata.i18n.VocabularyKeys;
 import org.geotools.process.ProcessException;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.storage.FeatureInserter;
@@ -74,7 +75,6 @@ import org.geotools.process.spatialstatistics.storage.RasterExportOperation;
 import org.geotools.referencing.CRS;
 import org.geotools.util.NumberRange;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.simple.SimpleFeature;
@@ -96,6 +96,9 @@ import org.opengis.util.ProgressListener;
 public abstract class RasterProcessingOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterProcessingOperation.class);
 
+    // untiled or stripped sources must not produce huge intermediate tiles
+    static final int MAX_TILE_SIZE = 1024;
+
     private RasterEnvironment rasterEnvironment = new RasterEnvironment();
 
     public void setRasterEnvironment(RasterEnvironment rasterEnvironment) {
@@ -108,6 +111,28 @@ public abstract class RasterProcessingOperation {
 
     public ProgressListener Progress = new NullProgressListener();
 
+    public ProgressListener getProgressListener() {
+        return Progress;
+    }
+
+    /**
+     * Sets the listener that receives progress and is polled for cancellation.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        if (progressListener == null) {
+            this.Progress = new NullProgressListener();
+        } else {
+            this.Progress = progressListener;
+        }
+    }
+
+    /**
+     * Throws a ProcessException if the progress listener has been canceled.
+     */
+    protected void checkCanceled() {
+        ProgressTracker.checkCanceled(Progress);
+    }
+
     protected int MIN_CELL_COUNT = 600;
 
     // it is the shorter of the width or the height of the extent of the input point features
@@ -182,21 +207,26 @@ public abstract class RasterProcessingOperation {
     /**
      * Fill the specified raster with the provided background values
      * 
-     * @param writableImage WritableRenderedImage like DiskMemImage
+     * @param writableImage WritableRenderedImage like MappedTileImage
      * @param initValue Background value
      */
-    protected void initializeDefaultValue(DiskMemImage writableImage, Double initValue) {
+    protected void initializeDefaultValue(MappedTileImage writableImage, Double initValue) {
         final int numBands = writableImage.getSampleModel().getNumBands();
         final double[] backgroundValues = new double[numBands];
         for (int index = 0; index < numBands; index++) {
             backgroundValues[index] = initValue;
         }
 
-        // raw level
-        WritableRaster raster = (WritableRaster) writableImage.getData();
-        // ImageUtil.fillBackground(raster, raster.getBounds(), backgroundValues);
-        this.fillBackground(raster, raster.getBounds(), backgroundValues);
-        writableImage.setData(raster);
+        // raw level, one tile at a time
+        final int maxTileX = writableImage.getMaxTileX();
+        final int maxTileY = writableImage.getMaxTileY();
+        for (int tileY = writableImage.getMinTileY(); tileY <= maxTileY; tileY++) {
+            for (int tileX = writableImage.getMinTileX(); tileX <= maxTileX; tileX++) {
+                WritableRaster raster = writableImage.getWritableTile(tileX, tileY);
+                this.fillBackground(raster, raster.getBounds(), backgroundValues);
+                writableImage.releaseWritableTile(tileX, tileY);
+            }
+        }
     }
 
     private boolean isBinary(SampleModel sm) {
@@ -424,7 +454,7 @@ public abstract class RasterProcessingOperation {
         }
     }
 
-    protected DiskMemImage createDiskMemImage(GridCoverage2D srcCoverage,
+    protected MappedTileImage createDiskMemImage(GridCoverage2D srcCoverage,
             RasterPixelType transferType) {
         Extent = new ReferencedEnvelope(srcCoverage.getEnvelope());
         GridGeometry2D gridGeometry2D = srcCoverage.getGridGeometry();
@@ -434,10 +464,13 @@ public abstract class RasterProcessingOperation {
         CellSizeY = Math.abs(gridToWorld.getScaleY());
 
         final RenderedImage img = srcCoverage.getRenderedImage();
-        return createDiskMemImage(Extent, transferType, img.getTileWidth(), img.getTileHeight());
+        final int tw = Math.min(img.getTileWidth(), MAX_TILE_SIZE);
+        final int th = Math.min(img.getTileHeight(), MAX_TILE_SIZE);
+
+        return createDiskMemImage(Extent, transferType, tw, th);
     }
 
-    protected DiskMemImage createDiskMemImage(ReferencedEnvelope extent,
+    protected MappedTileImage createDiskMemImage(ReferencedEnvelope extent,
             RasterPixelType transferType) {
         final int tw = 64;
         final int th = 64;
@@ -445,7 +478,7 @@ public abstract class RasterProcessingOperation {
         return createDiskMemImage(extent, transferType, tw, th);
     }
 
-    protected DiskMemImage createDiskMemImage(ReferencedEnvelope extent,
+    protected MappedTileImage createDiskMemImage(ReferencedEnvelope extent,
             RasterPixelType transferType, int tw, int th) {
         // set pixel type
         PixelType = transferType;
@@ -491,12 +524,9 @@ public abstract class RasterProcessingOperation {
         // Create a TiledImage using the SampleModel.
         Dimension dm = RasterHelper.getDimension(Extent, CellSizeX, CellSizeY);
 
-        DiskMemImage diskMemImage = null;
-        diskMemImage = new DiskMemImage(0, 0, dm.width, dm.height, 0, 0, sampleModel, cm);
-        diskMemImage.setUseCommonCache(true);
-
-        // Get a raster for the single tile.
-        return diskMemImage;
+        // tiles over the memory budget of the environment are kept in memory-mapped files
+        return new MappedTileImage(0, 0, dm.width, dm.height, 0, 0, sampleModel, cm,
+                getRasterEnvironment().getTileCache());
     }
 
     protected IFeatureInserter getTransactionFeatureStore(SimpleFeatureType featureType) {
@@ -513,7 +543,9 @@ public abstract class RasterProcessingOperation {
                 featureStore = (SimpleFeatureStore) sfs;
                 Transaction transaction = new DefaultTransaction(typeName);
                 featureStore.setTransaction(transaction);
-                return new FeatureInserter(featureStore);
+                IFeatureInserter featureWriter = new FeatureInserter(featureStore);
+                featureWriter.setProgressListener(Progress);
+                return featureWriter;
             } else {
                 LOGGER.log(Level.FINE, sfs.getName().toString()
                         + " does not support SimpleFeatureStore interface!");
@@ -16,27 +16,24 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.logging.Level;
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.metadata.i18n.ErrorKeys;
 import org.geotools.metadata.i18n.Errors;
 import org.geotools.process.ProcessException;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Reclassifies a raster data.
+ * <p>
+ * The ranges are compiled into a {@link ReclassTable} (lookup table for 8 and 16 bit rasters,
+ * binary search otherwise) and the tiles are reclassified in parallel. In lazy mode the result is
+ * backed by a {@link ReclassOpImage} and tiles are computed on demand.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -45,119 +42,71 @@ import org.jaitools.tiledimage.DiskMemImage;
 public class RasterReclassOperation extends RasterProcessingOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterReclassOperation.class);
 
-    private SortedMap<Double, ReclassRange> reclassRange = new TreeMap<Double, ReclassRange>();
+    private boolean lazy = false;
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * If true, the result is computed on demand when its tiles are requested.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
 
     public GridCoverage2D execute(GridCoverage2D inputGc, Integer bandIndex, String ranges,
-            boolean retainMissingValues) {
+            final boolean retainMissingValues) {
         // ranges: "0.00 30.00 1; 30.00 270.00 2; 270.00 365.00 3"
-        if (!prepareRanges(ranges)) {
+        final ReclassTable table = ReclassTable.parse(ranges);
+        if (table == null) {
             throw new ProcessException(Errors.format(ErrorKeys.ILLEGAL_ARGUMENT_$1, "ranges"));
         }
 
-        // output will always be of integer type.
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.INTEGER);
-        this.NoData = Integer.MIN_VALUE;
-
         final double inputNoData = RasterHelper.getNoDataValue(inputGc);
-        PlanarImage inputImage = (PlanarImage) inputGc.getRenderedImage();
+        RenderedImage inputImage = inputGc.getRenderedImage();
+        table.prepareLookupTable(inputImage.getSampleModel().getDataType());
 
-        RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        inputIter.startLines();
-        writerIter.startLines();
-        while (!inputIter.finishedLines() && !writerIter.finishedLines()) {
-            inputIter.startPixels();
-            writerIter.startPixels();
-            while (!inputIter.finishedPixels() && !writerIter.finishedPixels()) {
-                double value = inputIter.getSampleDouble(bandIndex);
-                if (SSUtils.compareDouble(inputNoData, value)) {
-                    writerIter.setSample(0, NoData);
-                    inputIter.nextPixel();
-                    writerIter.nextPixel();
-                    continue;
-                }
+        // output will always be of integer type.
+        if (lazy) {
+            this.NoData = Integer.MIN_VALUE;
+            this.PixelType = RasterPixelType.INTEGER;
+            this.Extent = new ReferencedEnvelope(inputGc.getEnvelope());
+            this.MinValue = table.getMinimumClass();
+            this.MaxValue = table.getMaximumClass();
+
+            ReclassOpImage outputImage = new ReclassOpImage(inputImage, bandIndex, table,
+                    inputNoData, NoData, retainMissingValues);
+            return createGridCoverage("Reclass", outputImage, 0, NoData, MinValue, MaxValue,
+                    Extent);
+        }
 
-                double classValue = this.NoData;
-                boolean isMissing = true;
-                for (ReclassRange range : reclassRange.values()) {
-                    if (range.contains(value)) {
-                        classValue = range.key;
-                        isMissing = false;
-                        updateStatistics(classValue);
-                        break;
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.INTEGER);
+        this.NoData = Integer.MIN_VALUE;
+        final double outputNoData = this.NoData;
+
+        final double[] statistics = new double[] { Double.MAX_VALUE, -Double.MAX_VALUE };
+        RasterAlgebra.process(new RenderedImage[] { inputImage }, new int[] { bandIndex },
+                outputImage, new RasterAlgebra.TileKernel() {
+                    @Override
+                    public void compute(Rectangle bounds, double[][] values, double[] output) {
+                        double[] tileStatistics = new double[] { Double.MAX_VALUE,
+                                -Double.MAX_VALUE };
+                        table.reclass(values[0], bounds.width * bounds.height, output, inputNoData,
+                                outputNoData, retainMissingValues, tileStatistics);
+
+                        synchronized (statistics) {
+                            statistics[0] = Math.min(statistics[0], tileStatistics[0]);
+                            statistics[1] = Math.max(statistics[1], tileStatistics[1]);
+                        }
                     }
-                }
+                });
 
-                if (retainMissingValues && isMissing) {
-                    writerIter.setSample(0, value);
-                } else {
-                    writerIter.setSample(0, classValue);
-                }
-
-                inputIter.nextPixel();
-                writerIter.nextPixel();
-            }
-            inputIter.nextLine();
-            writerIter.nextLine();
+        if (statistics[0] <= statistics[1]) {
+            updateStatistics(statistics[0]);
+            updateStatistics(statistics[1]);
         }
 
         return createGridCoverage("Reclass", outputImage, 0, NoData, MinValue, MaxValue, Extent);
     }
-
-    private boolean prepareRanges(String ranges) {
-        // remove duplicate space
-        while (ranges.contains("  ")) {
-            ranges = ranges.replace("  ", " ");
-        }
-
-        String[] reclassIntervals = ranges.split(";");
-        for (String reclass : reclassIntervals) {
-            try {
-                String[] vals = reclass.trim().split(" ");
-                ReclassRange key = new ReclassRange();
-                if (vals.length >= 3) {
-                    key.minimum = Double.valueOf(vals[0]);
-                    key.maximum = Double.valueOf(vals[1]);
-                    key.key = Double.valueOf(vals[2]);
-                } else if (vals.length == 2) {
-                    key.minimum = Double.valueOf(vals[0]);
-                    key.key = Double.valueOf(vals[1]);
-                }
-                reclassRange.put(key.key, key);
-            } catch (NumberFormatException e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    final class ReclassRange {
-        public Double key = null;
-
-        public Double minimum = Double.MIN_VALUE;
-
-        public Double maximum = Double.MAX_VALUE;
-
-        public ReclassRange() {
-        }
-
-        public ReclassRange(Double key, Double min, Double max) {
-            this.key = key;
-            this.minimum = min;
-            this.maximum = max;
-        }
-
-        public boolean contains(double value) {
-            return value >= minimum && value < (maximum + SSUtils.DOUBLE_COMPARE_TOLERANCE);
-        }
-
-        @Override
-        public String toString() {
-            return key + " : " + minimum + " ~ " + maximum;
-        }
-    }
 }
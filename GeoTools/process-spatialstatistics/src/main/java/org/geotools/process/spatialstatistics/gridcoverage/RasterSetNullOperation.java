@@ -21,13 +21,11 @@ import java.util.logging.Logger;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.Filter;
 
@@ -66,9 +64,8 @@ public class RasterSetNullOperation extends RasterProcessingOperation {
         PlanarImage inputImage = (PlanarImage) inputCoverage.getRenderedImage();
         RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputCoverage, pixelType);
-        WritableRectIter writerIter = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputCoverage, pixelType);
+        LineWriter writerIter = new LineWriter(outputImage);
 
         inputIter.startLines();
         writerIter.startLines();
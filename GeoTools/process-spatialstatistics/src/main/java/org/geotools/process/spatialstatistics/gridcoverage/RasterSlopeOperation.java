@@ -18,16 +18,12 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.enumeration.SlopeType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Identifies the slope (gradient, or rate of maximum change in z-value) from each cell of a raster surface.
@@ -52,9 +48,8 @@ public class RasterSlopeOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc, SlopeType slopeType, double zFactor) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        LineWriter writer = new LineWriter(outputImage);
 
         GridCoordinates2D pos = new GridCoordinates2D();
 
@@ -80,7 +75,7 @@ public class RasterSlopeOperation extends AbstractSurfaceOperation {
         return createGridCoverage("Slope", outputImage);
     }
 
-    private void visitSlope(WritableRectIter writer, GridCoordinates2D pos, SlopeType slopeType,
+    private void visitSlope(LineWriter writer, GridCoordinates2D pos, SlopeType slopeType,
             double zFactor) {
         // http://webhelp.esri.com/arcgisdesktop/9.3/index.cfm?TopicName=How%20Slope%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
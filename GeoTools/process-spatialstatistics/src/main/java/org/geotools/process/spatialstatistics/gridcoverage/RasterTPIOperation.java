@@ -18,15 +18,11 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
 import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
-import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * TPI - Topographic Position Index follows the description in Wilson et al (2007), following Weiss (2001). <br>
@@ -46,9 +42,8 @@ public class RasterTPIOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
+        MappedTileImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
+        LineWriter writer = new LineWriter(outputImage);
 
         GridCoordinates2D pos = new GridCoordinates2D();
 
@@ -74,7 +69,7 @@ public class RasterTPIOperation extends AbstractSurfaceOperation {
         return createGridCoverage("TPI", outputImage);
     }
 
-    private void visitTPI(WritableRectIter writer, GridCoordinates2D pos) {
+    private void visitTPI(LineWriter writer, GridCoordinates2D pos) {
         // +-------+ +-------+
         // | 0 1 2 | | a b c |
         // | 3 4 5 |>| d e f |
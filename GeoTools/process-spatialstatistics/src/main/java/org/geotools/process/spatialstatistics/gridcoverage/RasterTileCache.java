@@ -0,0 +1,244 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Random access to the first band of a tiled image through a bounded cache of primitive block
+ * buffers.
+ * <p>
+ * Blocks follow the tile grid of the image but are at most 1024 cells wide and high, so an
+ * untiled or striped image is read in clamped windows instead of one huge tile. Blocks are copied
+ * into double arrays on first access and evicted in least recently used order; modified blocks of
+ * a writable image are written back on eviction and on {@link #flush()}. Cell coordinates are
+ * relative to the upper left corner of the image. Instances are not thread-safe.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+class RasterTileCache {
+    protected static final Logger LOGGER = Logging.getLogger(RasterTileCache.class);
+
+    // cells kept in memory, 512 MB of doubles
+    static final int DEFAULT_CAPACITY = 1024 * 256 * 256;
+
+    static final class Block {
+        final int blockX;
+
+        final int blockY;
+
+        final Rectangle bounds;
+
+        double[] data;
+
+        boolean dirty = false;
+
+        Block(int blockX, int blockY, Rectangle bounds, double[] data) {
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.bounds = bounds;
+            this.data = data;
+        }
+    }
+
+    private final RenderedImage image;
+
+    private final WritableRenderedImage writableImage;
+
+    private final int minX;
+
+    private final int minY;
+
+    private final Rectangle imageBounds;
+
+    private final int tileWidth;
+
+    private final int tileHeight;
+
+    private final int blockWidth;
+
+    private final int blockHeight;
+
+    private final int offsetX;
+
+    private final int offsetY;
+
+    private final LinkedHashMap<Long, Block> blocks;
+
+    private Block last;
+
+    /**
+     * Creates a read-only cache.
+     */
+    public RasterTileCache(RenderedImage image) {
+        this(image, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache that keeps at most about capacity cells in memory.
+     */
+    public RasterTileCache(RenderedImage image, int capacity) {
+        this.image = image;
+        this.writableImage = image instanceof WritableRenderedImage ? (WritableRenderedImage) image
+                : null;
+        this.minX = image.getMinX();
+        this.minY = image.getMinY();
+        this.tileWidth = image.getTileWidth();
+        this.tileHeight = image.getTileHeight();
+        this.offsetX = image.getTileGridXOffset();
+        this.offsetY = image.getTileGridYOffset();
+        this.imageBounds = new Rectangle(minX, minY, image.getWidth(), image.getHeight());
+        this.blockWidth = Math.min(tileWidth, RasterProcessingOperation.MAX_TILE_SIZE);
+        this.blockHeight = Math.min(tileHeight, RasterProcessingOperation.MAX_TILE_SIZE);
+
+        final int maxBlocks = Math.max(1, capacity / (blockWidth * blockHeight));
+        this.blocks = new LinkedHashMap<Long, Block>(64, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+                if (size() > maxBlocks) {
+                    writeBack(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    public boolean contains(int col, int row) {
+        return col >= 0 && row >= 0 && col < image.getWidth() && row < image.getHeight();
+    }
+
+    public double get(int col, int row) {
+        final int x = col + minX;
+        final int y = row + minY;
+        Block block = getBlock(x, y);
+        return block.data[(y - block.bounds.y) * block.bounds.width + x - block.bounds.x];
+    }
+
+    public void set(int col, int row, double value) {
+        if (writableImage == null) {
+            throw new UnsupportedOperationException("The image is not writable!");
+        }
+
+        final int x = col + minX;
+        final int y = row + minY;
+        Block block = getBlock(x, y);
+        block.data[(y - block.bounds.y) * block.bounds.width + x - block.bounds.x] = value;
+        block.dirty = true;
+    }
+
+    /**
+     * Writes all modified blocks back to the image.
+     */
+    public void flush() {
+        Iterator<Block> iter = blocks.values().iterator();
+        while (iter.hasNext()) {
+            writeBack(iter.next());
+        }
+    }
+
+    private Block getBlock(int x, int y) {
+        final int blockX = Math.floorDiv(x - offsetX, blockWidth);
+        final int blockY = Math.floorDiv(y - offsetY, blockHeight);
+        if (last != null && last.blockX == blockX && last.blockY == blockY) {
+            return last;
+        }
+
+        final Long key = Long.valueOf(((long) blockY << 32) | (blockX & 0xFFFFFFFFL));
+        Block block = blocks.get(key);
+        if (block == null) {
+            block = load(blockX, blockY);
+            blocks.put(key, block);
+        }
+
+        last = block;
+        return block;
+    }
+
+    private Block load(int blockX, int blockY) {
+        final Rectangle bounds = new Rectangle(offsetX + blockX * blockWidth, offsetY + blockY
+                * blockHeight, blockWidth, blockHeight).intersection(imageBounds);
+
+        final Raster raster;
+        final int tileX = Math.floorDiv(bounds.x - offsetX, tileWidth);
+        final int tileY = Math.floorDiv(bounds.y - offsetY, tileHeight);
+        if (tileX == Math.floorDiv(bounds.x + bounds.width - 1 - offsetX, tileWidth)
+                && tileY == Math.floorDiv(bounds.y + bounds.height - 1 - offsetY, tileHeight)) {
+            raster = image.getTile(tileX, tileY); // inside one tile, no copy
+        } else {
+            raster = image.getData(bounds);
+        }
+
+        double[] data = raster.getSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                (double[]) null);
+        return new Block(blockX, blockY, bounds, data);
+    }
+
+    private void writeBack(Block block) {
+        if (!block.dirty) {
+            return;
+        }
+
+        // copy the block into every tile it overlaps
+        final Rectangle bounds = block.bounds;
+        final int minTileX = Math.floorDiv(bounds.x - offsetX, tileWidth);
+        final int minTileY = Math.floorDiv(bounds.y - offsetY, tileHeight);
+        final int maxTileX = Math.floorDiv(bounds.x + bounds.width - 1 - offsetX, tileWidth);
+        final int maxTileY = Math.floorDiv(bounds.y + bounds.height - 1 - offsetY, tileHeight);
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                WritableRaster raster = writableImage.getWritableTile(tileX, tileY);
+                Rectangle rect = raster.getBounds().intersection(bounds);
+                if (rect.equals(bounds)) {
+                    raster.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                            block.data);
+                } else {
+                    for (int y = rect.y; y < rect.y + rect.height; y++) {
+                        for (int x = rect.x; x < rect.x + rect.width; x++) {
+                            raster.setSample(x, y, 0, block.data[(y - bounds.y) * bounds.width + x
+                                    - bounds.x]);
+                        }
+                    }
+                }
+                writableImage.releaseWritableTile(tileX, tileY);
+            }
+        }
+        block.dirty = false;
+    }
+}
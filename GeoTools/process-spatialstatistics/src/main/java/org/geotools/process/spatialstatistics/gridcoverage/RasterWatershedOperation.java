@@ -0,0 +1,199 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import javax.media.jai.PlanarImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Determines the contributing area above a set of pour points from a D8 flow direction raster.
+ * <p>
+ * Every cell is traced downstream until it reaches a pour point or a cell whose watershed is
+ * already known, and the whole path is then labeled at once, so each cell is traced only once.
+ * Cells that drain out of the raster, into NoData or into a sink without reaching a pour point
+ * are NoData.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterWatershedOperation extends RasterProcessingOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RasterWatershedOperation.class);
+
+    static final int[] DX = RasterFlowDirectionOperation.DX;
+
+    static final int[] DY = RasterFlowDirectionOperation.DY;
+
+    static final int STRIP_SIZE = RasterFlowDirectionOperation.STRIP_SIZE;
+
+    static final int NONE = Integer.MIN_VALUE;
+
+    static final int UNRESOLVED = Integer.MIN_VALUE + 1;
+
+    static final int IN_PATH = Integer.MIN_VALUE + 2;
+
+    public GridCoverage2D execute(GridCoverage2D flowDirection,
+            SimpleFeatureCollection pourPointFeatures) {
+        // rasterize the pour points with their ids on the grid of the flow direction raster
+        FeaturesToRasterOperation process = new FeaturesToRasterOperation();
+        process.getRasterEnvironment().setExtent(
+                new ReferencedEnvelope(flowDirection.getEnvelope()));
+        process.getRasterEnvironment().setCellSizeX(RasterHelper.getCellSize(flowDirection));
+        process.getRasterEnvironment().setCellSizeY(RasterHelper.getCellSize(flowDirection));
+
+        GridCoverage2D pourPointCoverage = process.execute(pourPointFeatures);
+
+        return execute(flowDirection, pourPointCoverage);
+    }
+
+    /**
+     * @param flowDirection D8 flow direction raster (1 - 128)
+     * @param pourPointCoverage integer raster of pour points; the value of each pour point is
+     *        the value of its watershed
+     */
+    public GridCoverage2D execute(GridCoverage2D flowDirection, GridCoverage2D pourPointCoverage) {
+        final PlanarImage pourPointImage = (PlanarImage) pourPointCoverage.getRenderedImage();
+        final double pourPointNoData = RasterHelper.getNoDataValue(pourPointCoverage);
+
+        NoData = NONE;
+        final MappedTileImage outputImage = createDiskMemImage(flowDirection,
+                RasterPixelType.INTEGER);
+        ScanlineRasterizer.fill(outputImage, UNRESOLVED);
+
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        RasterTileCache directions = new RasterTileCache(flowDirection.getRenderedImage());
+        RasterTileCache labels = new RasterTileCache(outputImage);
+
+        // pour points
+        final int rows = Math.min(height, pourPointImage.getHeight());
+        final int cols = Math.min(width, pourPointImage.getWidth());
+        for (int row = 0; row < rows; row++) {
+            double[] values = RasterHelper.readSamples(pourPointImage, new Rectangle(
+                    pourPointImage.getMinX(), pourPointImage.getMinY() + row, cols, 1),
+                    (double[]) null);
+            for (int col = 0; col < cols; col++) {
+                if (!RasterFillOperation.isNoData(values[col], pourPointNoData)) {
+                    labels.set(col, row, (int) values[col]);
+                }
+            }
+        }
+
+        // trace every unresolved cell downstream and label its path
+        final ProgressTracker tracker = new ProgressTracker(Progress, (long) width * height);
+        long visited = 0;
+        long[] path = new long[1024];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (labels.get(col, row) != UNRESOLVED) {
+                    continue;
+                }
+
+                int count = 0;
+                int label = NONE;
+                int c = col;
+                int r = row;
+                while (true) {
+                    final double current = labels.get(c, r);
+                    if (current != UNRESOLVED) {
+                        label = current == IN_PATH ? NONE : (int) current; // cycle
+                        break;
+                    }
+
+                    if (count == path.length) {
+                        path = Arrays.copyOf(path, count * 2);
+                    }
+                    path[count++] = (long) r * width + c;
+                    labels.set(c, r, IN_PATH);
+                    if (++visited % ProgressTracker.CHECK_INTERVAL == 0) {
+                        tracker.worked(ProgressTracker.CHECK_INTERVAL);
+                    }
+
+                    int k = RasterFlowDirectionOperation.toIndex(directions.get(c, r));
+                    if (k == -1) {
+                        break; // NoData, sink or invalid code
+                    }
+
+                    c += DX[k];
+                    r += DY[k];
+                    if (c < 0 || r < 0 || c >= width || r >= height) {
+                        break;
+                    }
+                }
+
+                for (int i = 0; i < count; i++) {
+                    labels.set((int) (path[i] % width), (int) (path[i] / width), label);
+                }
+            }
+        }
+
+        labels.flush();
+
+        double[] range = statistics(outputImage);
+        MinValue = range[0];
+        MaxValue = range[1];
+
+        return createGridCoverage("Watershed", outputImage);
+    }
+
+    private double[] statistics(final MappedTileImage outputImage) {
+        final int width = outputImage.getWidth();
+        final int height = outputImage.getHeight();
+
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+        for (int y = 0; y < height; y += STRIP_SIZE) {
+            final Rectangle block = new Rectangle(0, y, width, Math.min(STRIP_SIZE, height - y));
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() throws Exception {
+                    int[] values = RasterHelper.readSamples(outputImage, block, (int[]) null);
+
+                    double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+                    for (int value : values) {
+                        if (value != NONE) {
+                            range[0] = Math.min(range[0], value);
+                            range[1] = Math.max(range[1], value);
+                        }
+                    }
+                    return range;
+                }
+            });
+        }
+
+        double[] range = { Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (double[] result : ParallelUtils.invokeAll(tasks, Progress)) {
+            range[0] = Math.min(range[0], result[0]);
+            range[1] = Math.max(range[1], result[1]);
+        }
+        return range;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.logging.Logger;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.PointOpImage;
+import javax.media.jai.RasterFactory;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Lazy reclassification of one band of an image into a single band integer image. Tiles are
+ * computed on demand, so reclassified images can be chained without materializing them.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ReclassOpImage extends PointOpImage {
+    protected static final Logger LOGGER = Logging.getLogger(ReclassOpImage.class);
+
+    private final ReclassTable table;
+
+    private final int bandIndex;
+
+    private final double inputNoData;
+
+    private final double outputNoData;
+
+    private final boolean retainMissingValues;
+
+    public ReclassOpImage(RenderedImage source, int bandIndex, ReclassTable table,
+            double inputNoData, double outputNoData, boolean retainMissingValues) {
+        super(source, createLayout(source), null, true);
+        this.table = table;
+        this.bandIndex = bandIndex;
+        this.inputNoData = inputNoData;
+        this.outputNoData = outputNoData;
+        this.retainMissingValues = retainMissingValues;
+    }
+
+    private static ImageLayout createLayout(RenderedImage source) {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_INT,
+                source.getTileWidth(), source.getTileHeight(), 1);
+
+        ImageLayout layout = new ImageLayout(source);
+        layout.setSampleModel(sampleModel);
+        layout.setColorModel(PlanarImage.createColorModel(sampleModel));
+        return layout;
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        final int length = destRect.width * destRect.height;
+        double[] values = sources[0].getSamples(destRect.x, destRect.y, destRect.width,
+                destRect.height, bandIndex, new double[length]);
+
+        double[] output = new double[length];
+        table.reclass(values, length, output, inputNoData, outputNoData, retainMissingValues,
+                null);
+        dest.setSamples(destRect.x, destRect.y, destRect.width, destRect.height, 0, output);
+    }
+}
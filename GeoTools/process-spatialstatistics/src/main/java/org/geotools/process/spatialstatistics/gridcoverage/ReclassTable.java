@@ -0,0 +1,271 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.image.DataBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Compiled reclassification table.
+ * <p>
+ * Ranges are kept in priority order and flattened into sorted, non-overlapping intervals, so a
+ * value is reclassified with a binary search over the interval breaks. Integer rasters of 8 or 16
+ * bits use a direct lookup table instead.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ReclassTable {
+    protected static final Logger LOGGER = Logging.getLogger(ReclassTable.class);
+
+    // sorted interval breaks: value in [breaks[i], breaks[i + 1]) maps to classes[i]
+    private final double[] breaks;
+
+    // NaN means missing
+    private final double[] classes;
+
+    private double minimumClass = Double.MAX_VALUE;
+
+    private double maximumClass = -Double.MAX_VALUE;
+
+    private double[] lookupTable = null;
+
+    private int lookupOffset = 0;
+
+    /**
+     * Builds the table. A value belongs to range k if minimums[k] &lt;= value &lt; maximums[k] +
+     * tolerance; the first matching range wins.
+     * 
+     * @param minimums lower bounds in priority order
+     * @param maximums upper bounds in priority order
+     * @param keys class values in priority order
+     */
+    public ReclassTable(double[] minimums, double[] maximums, double[] keys) {
+        final int numRanges = keys.length;
+
+        double[] uppers = new double[numRanges];
+        double[] allBreaks = new double[numRanges * 2];
+        for (int k = 0; k < numRanges; k++) {
+            uppers[k] = maximums[k] + SSUtils.DOUBLE_COMPARE_TOLERANCE;
+            allBreaks[k * 2] = minimums[k];
+            allBreaks[k * 2 + 1] = uppers[k];
+
+            minimumClass = Math.min(minimumClass, keys[k]);
+            maximumClass = Math.max(maximumClass, keys[k]);
+        }
+
+        // unique sorted breaks
+        Arrays.sort(allBreaks);
+        int count = 0;
+        for (int i = 0; i < allBreaks.length; i++) {
+            if (count == 0 || allBreaks[i] != allBreaks[count - 1]) {
+                allBreaks[count++] = allBreaks[i];
+            }
+        }
+        this.breaks = Arrays.copyOf(allBreaks, count);
+
+        // an elementary interval is either fully inside or outside of every range
+        this.classes = new double[Math.max(0, count - 1)];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = Double.NaN;
+            final double lower = breaks[i];
+            for (int k = 0; k < numRanges; k++) {
+                if (lower >= minimums[k] && lower < uppers[k]) {
+                    classes[i] = keys[k];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses ranges like "0.00 30.00 1; 30.00 270.00 2; 270.00 365.00 3". Ranges with two values
+     * have no upper bound. Ranges are prioritized by their class value and a later range replaces
+     * an earlier range with the same class value.
+     * 
+     * @return the table or null if the ranges are invalid
+     */
+    public static ReclassTable parse(String ranges) {
+        // remove duplicate space
+        while (ranges.contains("  ")) {
+            ranges = ranges.replace("  ", " ");
+        }
+
+        List<double[]> rangeList = new ArrayList<double[]>();
+        for (String reclass : ranges.split(";")) {
+            if (reclass.trim().isEmpty()) {
+                continue;
+            }
+
+            double[] range = new double[] { Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN };
+            try {
+                String[] vals = reclass.trim().split(" ");
+                if (vals.length >= 3) {
+                    range[0] = Double.parseDouble(vals[0]);
+                    range[1] = Double.parseDouble(vals[1]);
+                    range[2] = Double.parseDouble(vals[2]);
+                } else if (vals.length == 2) {
+                    range[0] = Double.parseDouble(vals[0]);
+                    range[2] = Double.parseDouble(vals[1]);
+                } else {
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            // replace the range with the same key
+            for (int k = 0; k < rangeList.size(); k++) {
+                if (rangeList.get(k)[2] == range[2]) {
+                    rangeList.remove(k);
+                    break;
+                }
+            }
+            rangeList.add(range);
+        }
+
+        if (rangeList.size() == 0) {
+            return null;
+        }
+
+        // priority is the order of the class values
+        double[][] sorted = rangeList.toArray(new double[rangeList.size()][]);
+        Arrays.sort(sorted, new Comparator<double[]>() {
+            @Override
+            public int compare(double[] o1, double[] o2) {
+                return Double.compare(o1[2], o2[2]);
+            }
+        });
+
+        double[] minimums = new double[sorted.length];
+        double[] maximums = new double[sorted.length];
+        double[] keys = new double[sorted.length];
+        for (int k = 0; k < sorted.length; k++) {
+            minimums[k] = sorted[k][0];
+            maximums[k] = sorted[k][1];
+            keys[k] = sorted[k][2];
+        }
+
+        return new ReclassTable(minimums, maximums, keys);
+    }
+
+    /**
+     * Builds a direct lookup table for 8 and 16 bit integer rasters.
+     * 
+     * @param dataType java.awt.image.DataBuffer type of the input raster
+     */
+    public void prepareLookupTable(int dataType) {
+        int minValue = 0;
+        int maxValue = 0;
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            maxValue = 255;
+            break;
+        case DataBuffer.TYPE_USHORT:
+            maxValue = 65535;
+            break;
+        case DataBuffer.TYPE_SHORT:
+            minValue = Short.MIN_VALUE;
+            maxValue = Short.MAX_VALUE;
+            break;
+        default:
+            lookupTable = null;
+            return;
+        }
+
+        double[] table = new double[maxValue - minValue + 1];
+        for (int value = minValue; value <= maxValue; value++) {
+            table[value - minValue] = search(value);
+        }
+
+        this.lookupOffset = minValue;
+        this.lookupTable = table;
+    }
+
+    public double getMinimumClass() {
+        return minimumClass;
+    }
+
+    public double getMaximumClass() {
+        return maximumClass;
+    }
+
+    /**
+     * Returns the class value or NaN if the value is missing.
+     */
+    public double lookup(double value) {
+        if (lookupTable != null) {
+            final int index = (int) value - lookupOffset;
+            if (index >= 0 && index < lookupTable.length && index + lookupOffset == value) {
+                return lookupTable[index];
+            }
+        }
+        return search(value);
+    }
+
+    private double search(double value) {
+        if (classes.length == 0 || !(value >= breaks[0]) || value >= breaks[breaks.length - 1]) {
+            return Double.NaN;
+        }
+
+        int index = Arrays.binarySearch(breaks, value);
+        if (index < 0) {
+            index = -index - 2; // insertion point - 1
+        }
+        return classes[index];
+    }
+
+    /**
+     * Reclassifies a block of pixels.
+     * 
+     * @param statistics minimum and maximum of the matched classes, updated if not null
+     */
+    public void reclass(double[] values, int length, double[] output, double inputNoData,
+            double outputNoData, boolean retainMissingValues, double[] statistics) {
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            final double value = values[i];
+            if (SSUtils.compareDouble(inputNoData, value)) {
+                output[i] = outputNoData;
+                continue;
+            }
+
+            final double classValue = lookup(value);
+            if (Double.isNaN(classValue)) {
+                output[i] = retainMissingValues ? value : outputNoData;
+            } else {
+                output[i] = classValue;
+                minValue = Math.min(minValue, classValue);
+                maxValue = Math.max(maxValue, classValue);
+            }
+        }
+
+        if (statistics != null && minValue <= maxValue) {
+            statistics[0] = Math.min(statistics[0], minValue);
+            statistics[1] = Math.max(statistics[1], maxValue);
+        }
+    }
+}
@@ -0,0 +1,604 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.WritableRaster;
+import java.awt.image.WritableRenderedImage;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Scanline rasterizer that converts geometries into runs of grid cells.
+ * <p>
+ * Polygons are filled with the even-odd rule over all rings, so holes are preserved, and a cell is
+ * filled when its center is inside the polygon. If all touched is enabled, the cells crossed by
+ * the rings are added as well. Lines set every cell they pass through and points set the cell that
+ * contains them. Rasterization produces {@link Spans} that are then written into the tiles of a
+ * writable image in parallel, in the order of the geometries.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ScanlineRasterizer {
+    protected static final Logger LOGGER = Logging.getLogger(ScanlineRasterizer.class);
+
+    private final double minX;
+
+    private final double maxY;
+
+    private final double cellSizeX;
+
+    private final double cellSizeY;
+
+    private final int width;
+
+    private final int height;
+
+    private boolean allTouched = false;
+
+    /**
+     * Horizontal runs of cells, sorted by row then start column. Columns are inclusive.
+     */
+    public static final class Spans {
+        int count = 0;
+
+        int[] rows = new int[16];
+
+        int[] starts = new int[16];
+
+        int[] ends = new int[16];
+
+        public int size() {
+            return count;
+        }
+
+        public int getRow(int index) {
+            return rows[index];
+        }
+
+        public int getStart(int index) {
+            return starts[index];
+        }
+
+        public int getEnd(int index) {
+            return ends[index];
+        }
+
+        void add(int row, int start, int end) {
+            if (count == rows.length) {
+                int capacity = count * 2;
+                rows = Arrays.copyOf(rows, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            rows[count] = row;
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        /**
+         * Sorts the runs and merges overlapping or adjacent runs of the same row.
+         */
+        void normalize() {
+            if (count < 2) {
+                return;
+            }
+
+            final long[] keys = new long[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                keys[i] = ((long) rows[i] << 32) | (starts[i] & 0xFFFFFFFFL);
+                sorted = sorted && (i == 0 || keys[i - 1] <= keys[i]);
+            }
+
+            if (!sorted) {
+                Integer[] order = new Integer[count];
+                for (int i = 0; i < count; i++) {
+                    order[i] = Integer.valueOf(i);
+                }
+
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        return Long.compare(keys[o1.intValue()], keys[o2.intValue()]);
+                    }
+                });
+
+                int[] oldEnds = Arrays.copyOf(ends, count);
+                for (int i = 0; i < count; i++) {
+                    int src = order[i].intValue();
+                    rows[i] = (int) (keys[src] >> 32);
+                    starts[i] = (int) keys[src];
+                    ends[i] = oldEnds[src];
+                }
+            }
+
+            int merged = 0;
+            for (int i = 1; i < count; i++) {
+                if (rows[i] == rows[merged] && starts[i] <= ends[merged] + 1) {
+                    ends[merged] = Math.max(ends[merged], ends[i]);
+                } else {
+                    merged++;
+                    rows[merged] = rows[i];
+                    starts[merged] = starts[i];
+                    ends[merged] = ends[i];
+                }
+            }
+            count = merged + 1;
+        }
+
+        /**
+         * Returns the index of the first run whose row is greater than or equal to the row.
+         */
+        int lowerBound(int row) {
+            int low = 0, high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rows[mid] < row) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    public ScanlineRasterizer(Envelope extent, double cellSizeX, double cellSizeY, int width,
+            int height) {
+        this.minX = extent.getMinX();
+        this.maxY = extent.getMaxY();
+        this.cellSizeX = cellSizeX;
+        this.cellSizeY = cellSizeY;
+        this.width = width;
+        this.height = height;
+    }
+
+    public boolean isAllTouched() {
+        return allTouched;
+    }
+
+    /**
+     * If true, polygons also set every cell their boundary touches; otherwise only cells whose
+     * center is inside. Lines and points always set the cells they touch.
+     */
+    public void setAllTouched(boolean allTouched) {
+        this.allTouched = allTouched;
+    }
+
+    /**
+     * Rasterizes a geometry of any type, including multi-geometries and collections.
+     */
+    public Spans rasterize(Geometry geometry) {
+        Spans spans = new Spans();
+        if (geometry != null && !geometry.isEmpty()) {
+            rasterize(geometry, spans);
+            spans.normalize();
+        }
+        return spans;
+    }
+
+    private void rasterize(Geometry geometry, Spans spans) {
+        if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            fillPolygon(polygon, spans);
+            if (allTouched) {
+                traceLine(polygon.getExteriorRing().getCoordinateSequence(), spans);
+                for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                    traceLine(polygon.getInteriorRingN(i).getCoordinateSequence(), spans);
+                }
+            }
+        } else if (geometry instanceof LineString) {
+            traceLine(((LineString) geometry).getCoordinateSequence(), spans);
+        } else if (geometry instanceof Point) {
+            Coordinate coordinate = geometry.getCoordinate();
+            double px = (coordinate.x - minX) / cellSizeX;
+            double py = (maxY - coordinate.y) / cellSizeY;
+            int col = (int) Math.floor(px);
+            int row = (int) Math.floor(py);
+            if (col >= 0 && col < width && row >= 0 && row < height) {
+                spans.add(row, col, col);
+            }
+        } else {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry part = geometry.getGeometryN(i);
+                if (part != geometry && !part.isEmpty()) {
+                    rasterize(part, spans);
+                }
+            }
+        }
+    }
+
+    // even-odd scanline fill, sampled at cell centers
+    private void fillPolygon(Polygon polygon, Spans spans) {
+        int numEdges = polygon.getExteriorRing().getNumPoints();
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            numEdges += polygon.getInteriorRingN(i).getNumPoints();
+        }
+
+        // edges in pixel space, top (y0) to bottom (y1)
+        double[] x0 = new double[numEdges];
+        double[] y0 = new double[numEdges];
+        double[] slope = new double[numEdges];
+        int[] firstRow = new int[numEdges];
+        int[] lastRow = new int[numEdges];
+
+        int edgeCount = addEdges(polygon.getExteriorRing().getCoordinateSequence(), 0, x0, y0,
+                slope, firstRow, lastRow);
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            edgeCount = addEdges(polygon.getInteriorRingN(i).getCoordinateSequence(), edgeCount,
+                    x0, y0, slope, firstRow, lastRow);
+        }
+
+        if (edgeCount == 0) {
+            return;
+        }
+
+        // edge table ordered by first row
+        long[] order = new long[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            order[i] = ((long) firstRow[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] active = new int[edgeCount];
+        double[] crossings = new double[edgeCount];
+        int activeCount = 0;
+        int next = 0;
+
+        int startRow = (int) (order[0] >> 32);
+        for (int row = startRow; row < height; row++) {
+            // remove finished edges, add starting edges
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (lastRow[active[i]] >= row) {
+                    active[kept++] = active[i];
+                }
+            }
+            activeCount = kept;
+
+            while (next < edgeCount && (int) (order[next] >> 32) == row) {
+                active[activeCount++] = (int) order[next++];
+            }
+
+            if (activeCount == 0) {
+                if (next == edgeCount) {
+                    break;
+                }
+                row = (int) (order[next] >> 32) - 1;
+                continue;
+            }
+
+            final double center = row + 0.5;
+            for (int i = 0; i < activeCount; i++) {
+                int edge = active[i];
+                crossings[i] = x0[edge] + (center - y0[edge]) * slope[edge];
+            }
+            Arrays.sort(crossings, 0, activeCount);
+
+            for (int i = 0; i + 1 < activeCount; i += 2) {
+                // cells whose center lies in [left, right)
+                int start = Math.max(0, (int) Math.ceil(crossings[i] - 0.5));
+                int end = Math.min(width - 1, (int) Math.ceil(crossings[i + 1] - 0.5) - 1);
+                if (start <= end) {
+                    spans.add(row, start, end);
+                }
+            }
+        }
+    }
+
+    private int addEdges(CoordinateSequence ring, int offset, double[] x0, double[] y0,
+            double[] slope, int[] firstRow, int[] lastRow) {
+        final int size = ring.size();
+        if (size < 3) {
+            return offset;
+        }
+
+        int count = offset;
+        for (int i = 0; i < size; i++) {
+            // an unclosed ring is closed implicitly
+            int j = i + 1 == size ? 0 : i + 1;
+            double ax = (ring.getX(i) - minX) / cellSizeX;
+            double ay = (maxY - ring.getY(i)) / cellSizeY;
+            double bx = (ring.getX(j) - minX) / cellSizeX;
+            double by = (maxY - ring.getY(j)) / cellSizeY;
+            if (ay == by) {
+                continue; // horizontal edges never cross a scanline
+            }
+
+            if (ay > by) {
+                double tx = ax;
+                ax = bx;
+                bx = tx;
+                double ty = ay;
+                ay = by;
+                by = ty;
+            }
+
+            // scanlines at row + 0.5 in [ay, by)
+            int first = Math.max(0, (int) Math.ceil(ay - 0.5));
+            int last = Math.min(height - 1, (int) Math.ceil(by - 0.5) - 1);
+            if (first > last) {
+                continue;
+            }
+
+            x0[count] = ax;
+            y0[count] = ay;
+            slope[count] = (bx - ax) / (by - ay);
+            firstRow[count] = first;
+            lastRow[count] = last;
+            count++;
+        }
+        return count;
+    }
+
+    // cells crossed by each segment (Amanatides-Woo traversal), clipped to the grid
+    private void traceLine(CoordinateSequence line, Spans spans) {
+        final int size = line.size();
+        if (size == 1) {
+            double px = (line.getX(0) - minX) / cellSizeX;
+            double py = (maxY - line.getY(0)) / cellSizeY;
+            addCell(spans, (int) Math.floor(px), (int) Math.floor(py));
+            return;
+        }
+
+        final double[] segment = new double[4];
+        for (int i = 0; i + 1 < size; i++) {
+            segment[0] = (line.getX(i) - minX) / cellSizeX;
+            segment[1] = (maxY - line.getY(i)) / cellSizeY;
+            segment[2] = (line.getX(i + 1) - minX) / cellSizeX;
+            segment[3] = (maxY - line.getY(i + 1)) / cellSizeY;
+            if (clip(segment)) {
+                traceSegment(segment[0], segment[1], segment[2], segment[3], spans);
+            }
+        }
+    }
+
+    private void traceSegment(double ax, double ay, double bx, double by, Spans spans) {
+        int col = Math.min(width - 1, (int) Math.floor(ax));
+        int row = Math.min(height - 1, (int) Math.floor(ay));
+        final int endCol = Math.min(width - 1, (int) Math.floor(bx));
+        final int endRow = Math.min(height - 1, (int) Math.floor(by));
+
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final int stepX = dx > 0 ? 1 : -1;
+        final int stepY = dy > 0 ? 1 : -1;
+        final double tDeltaX = dx == 0 ? Double.MAX_VALUE : Math.abs(1.0 / dx);
+        final double tDeltaY = dy == 0 ? Double.MAX_VALUE : Math.abs(1.0 / dy);
+        double tMaxX = dx == 0 ? Double.MAX_VALUE : (dx > 0 ? col + 1 - ax : ax - col) * tDeltaX;
+        double tMaxY = dy == 0 ? Double.MAX_VALUE : (dy > 0 ? row + 1 - ay : ay - row) * tDeltaY;
+
+        int steps = Math.abs(endCol - col) + Math.abs(endRow - row);
+        addCell(spans, col, row);
+        for (int i = 0; i < steps; i++) {
+            if (tMaxX < tMaxY) {
+                tMaxX += tDeltaX;
+                col += stepX;
+            } else {
+                tMaxY += tDeltaY;
+                row += stepY;
+            }
+            addCell(spans, col, row);
+        }
+    }
+
+    private void addCell(Spans spans, int col, int row) {
+        if (col < 0 || col >= width || row < 0 || row >= height) {
+            return;
+        }
+
+        // extend the previous run when walking along a row
+        int last = spans.count - 1;
+        if (last >= 0 && spans.rows[last] == row) {
+            if (spans.ends[last] + 1 == col) {
+                spans.ends[last] = col;
+                return;
+            } else if (spans.starts[last] - 1 == col) {
+                spans.starts[last] = col;
+                return;
+            } else if (spans.starts[last] <= col && col <= spans.ends[last]) {
+                return;
+            }
+        }
+        spans.add(row, col, col);
+    }
+
+    // Liang-Barsky clipping of {x0, y0, x1, y1} to [0, width] x [0, height]
+    private boolean clip(double[] segment) {
+        final double dx = segment[2] - segment[0];
+        final double dy = segment[3] - segment[1];
+        final double[] p = { -dx, dx, -dy, dy };
+        final double[] q = { segment[0], width - segment[0], segment[1], height - segment[1] };
+
+        double t0 = 0.0, t1 = 1.0;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+
+        if (t0 > t1) {
+            return false;
+        }
+
+        final double x0 = segment[0], y0 = segment[1];
+        segment[0] = x0 + t0 * dx;
+        segment[1] = y0 + t0 * dy;
+        segment[2] = x0 + t1 * dx;
+        segment[3] = y0 + t1 * dy;
+        return true;
+    }
+
+    /**
+     * Fills all tiles of an image with a value, in parallel.
+     */
+    public static void fill(final WritableRenderedImage image, final double value) {
+        final int numXTiles = image.getNumXTiles();
+        final int numTiles = numXTiles * image.getNumYTiles();
+
+        ParallelUtils.forEach(numTiles, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] buffer = null;
+                for (int index = start; index < end; index++) {
+                    final int tileX = image.getMinTileX() + index % numXTiles;
+                    final int tileY = image.getMinTileY() + index / numXTiles;
+
+                    synchronized (image) {
+                        WritableRaster raster = image.getWritableTile(tileX, tileY);
+                        Rectangle bounds = raster.getBounds();
+                        int size = bounds.width * bounds.height;
+                        if (buffer == null || buffer.length < size) {
+                            buffer = new double[size];
+                            Arrays.fill(buffer, value);
+                        }
+                        raster.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                                buffer);
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes rasterized geometries into the first band of an image. Geometries are applied in list
+     * order, so later geometries overwrite earlier ones; tiles are processed in parallel.
+     */
+    public static void write(final WritableRenderedImage image, final List<Spans> spansList,
+            final double[] values) {
+        final int tileWidth = image.getTileWidth();
+        final int tileHeight = image.getTileHeight();
+        final int minTileX = image.getMinTileX();
+        final int minTileY = image.getMinTileY();
+        final int numXTiles = image.getNumXTiles();
+        final int numYTiles = image.getNumYTiles();
+        final int offsetX = image.getTileGridXOffset();
+        final int offsetY = image.getTileGridYOffset();
+
+        // geometries per tile, in list order
+        final int[][] tileItems = new int[numXTiles * numYTiles][];
+        final int[] tileCounts = new int[tileItems.length];
+        for (int item = 0; item < spansList.size(); item++) {
+            Spans spans = spansList.get(item);
+            if (spans.count == 0) {
+                continue;
+            }
+
+            int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+            for (int i = 0; i < spans.count; i++) {
+                minCol = Math.min(minCol, spans.starts[i]);
+                maxCol = Math.max(maxCol, spans.ends[i]);
+            }
+
+            int tx0 = Math.floorDiv(minCol - offsetX, tileWidth) - minTileX;
+            int tx1 = Math.floorDiv(maxCol - offsetX, tileWidth) - minTileX;
+            int ty0 = Math.floorDiv(spans.rows[0] - offsetY, tileHeight) - minTileY;
+            int ty1 = Math.floorDiv(spans.rows[spans.count - 1] - offsetY, tileHeight)
+                    - minTileY;
+            for (int ty = Math.max(0, ty0); ty <= Math.min(numYTiles - 1, ty1); ty++) {
+                for (int tx = Math.max(0, tx0); tx <= Math.min(numXTiles - 1, tx1); tx++) {
+                    int tile = ty * numXTiles + tx;
+                    if (tileItems[tile] == null) {
+                        tileItems[tile] = new int[4];
+                    } else if (tileCounts[tile] == tileItems[tile].length) {
+                        tileItems[tile] = Arrays.copyOf(tileItems[tile], tileCounts[tile] * 2);
+                    }
+                    tileItems[tile][tileCounts[tile]++] = item;
+                }
+            }
+        }
+
+        ParallelUtils.forEach(tileItems.length, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                double[] buffer = null;
+                for (int tile = start; tile < end; tile++) {
+                    if (tileCounts[tile] == 0) {
+                        continue;
+                    }
+
+                    final int tileX = minTileX + tile % numXTiles;
+                    final int tileY = minTileY + tile / numXTiles;
+                    final Rectangle bounds;
+
+                    // copy the tile, update it without holding the lock, then write it back
+                    synchronized (image) {
+                        WritableRaster raster = image.getWritableTile(tileX, tileY);
+                        bounds = raster.getBounds();
+                        buffer = raster.getSamples(bounds.x, bounds.y, bounds.width,
+                                bounds.height, 0, buffer);
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+
+                    final int maxRow = bounds.y + bounds.height - 1;
+                    final int maxCol = bounds.x + bounds.width - 1;
+                    for (int k = 0; k < tileCounts[tile]; k++) {
+                        final int item = tileItems[tile][k];
+                        final Spans spans = spansList.get(item);
+                        final double value = values[item];
+                        for (int i = spans.lowerBound(bounds.y); i < spans.count; i++) {
+                            final int row = spans.rows[i];
+                            if (row > maxRow) {
+                                break;
+                            }
+
+                            final int from = Math.max(bounds.x, spans.starts[i]);
+                            final int to = Math.min(maxCol, spans.ends[i]);
+                            if (from <= to) {
+                                final int base = (row - bounds.y) * bounds.width - bounds.x;
+                                Arrays.fill(buffer, base + from, base + to + 1, value);
+                            }
+                        }
+                    }
+
+                    synchronized (image) {
+                        WritableRaster raster = image.getWritableTile(tileX, tileY);
+                        raster.setSamples(bounds.x, bounds.y, bounds.width, bounds.height, 0,
+                                buffer);
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        });
+    }
+}
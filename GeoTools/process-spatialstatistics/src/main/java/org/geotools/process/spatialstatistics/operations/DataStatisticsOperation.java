@@ -17,17 +17,14 @@
 package org.geotools.process.spatialstatistics.operations;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.MultiFieldStatistics;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
@@ -36,9 +33,7 @@ import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
 import org.geotools.process.spatialstatistics.operations.DataStatisticsOperation.DataStatisticsResult.DataStatisticsItem;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Geometry;
-import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.expression.Expression;
 
 import com.thoughtworks.xstream.annotations.XStreamImplicit;
 
@@ -105,88 +100,62 @@ public class DataStatisticsOperation extends GeneralOperation {
             return execute(inputFeatures, fieldNames);
         }
 
-        DataStatisticsResult result = new DataStatisticsResult();
-
         SimpleFeatureType featureType = inputFeatures.getSchema();
-        String typeName = featureType.getTypeName();
         caseField = FeatureTypes.validateProperty(featureType, caseField);
         if (featureType.indexOf(caseField) == -1) {
             throw new NullPointerException(caseField + " does not exist!");
         }
 
-        Expression expression = ff.property(caseField);
+        return execute(inputFeatures, parseFields(featureType, fieldNames), caseField);
+    }
 
-        String[] fields = fieldNames.split(",");
-        for (int idx = 0; idx < fields.length; idx++) {
-            String propertyName = fields[idx].trim();
-            propertyName = FeatureTypes.validateProperty(featureType, propertyName);
-            if (featureType.indexOf(propertyName) == -1) {
-                LOGGER.log(Level.FINER, propertyName + " does not exist!");
-                continue;
-            }
+    public DataStatisticsResult execute(SimpleFeatureCollection inputFeatures, String fieldNames) {
+        SimpleFeatureType featureType = inputFeatures.getSchema();
+        return execute(inputFeatures, parseFields(featureType, fieldNames), null);
+    }
 
-            // calculate
-            SimpleFeatureIterator featureIter = inputFeatures.features();
-            try {
-                Hashtable<String, StatisticsVisitor> map = new Hashtable<String, StatisticsVisitor>();
-                while (featureIter.hasNext()) {
-                    SimpleFeature feature = featureIter.next();
-                    Object caseValue = expression.evaluate(feature);
-                    caseValue = caseValue == null ? "Null" : caseValue.toString();
-
-                    StatisticsVisitor visitor = map.get(caseValue);
-                    if (visitor == null) {
-                        visitor = new StatisticsVisitor(featureType, propertyName);
-                        map.put((String) caseValue, visitor);
-                    }
-                    visitor.visit(feature);
-                }
+    private DataStatisticsResult execute(SimpleFeatureCollection inputFeatures,
+            List<String> fields, String caseField) {
+        DataStatisticsResult result = new DataStatisticsResult();
+        if (fields.size() == 0) {
+            return result;
+        }
+
+        // calculate all fields and cases in a single pass
+        SimpleFeatureType featureType = inputFeatures.getSchema();
+        MultiFieldStatistics statistics = new MultiFieldStatistics(featureType, fields,
+                caseField, true, false);
+        statistics.visit(inputFeatures);
 
-                // sort by key
-                List<String> caseKeys = Collections.list(map.keys());
-                Collections.sort(caseKeys);
-
-                // add result
-                Iterator<String> keyIter = caseKeys.iterator();
-                while (keyIter.hasNext()) {
-                    String caseValue = keyIter.next();
-                    DataStatisticsItem item = remap(map.get(caseValue).getResult(), typeName,
-                            propertyName, caseValue);
-                    result.add(item);
+        // remap for WPS PPIO
+        String typeName = featureType.getTypeName();
+        List<String> caseValues = statistics.getCaseValues();
+        for (int field = 0; field < fields.size(); field++) {
+            String propertyName = fields.get(field);
+            if (caseField == null) {
+                result.add(remap(statistics.getResult(field), typeName, propertyName, null));
+            } else {
+                for (String caseValue : caseValues) {
+                    StatisticsVisitorResult ret = statistics.getResult(caseValue, field);
+                    result.add(remap(ret, typeName, propertyName, caseValue));
                 }
-            } finally {
-                featureIter.close();
             }
         }
+
         return result;
     }
 
-    public DataStatisticsResult execute(SimpleFeatureCollection inputFeatures, String fieldNames) {
-        DataStatisticsResult result = new DataStatisticsResult();
-
-        SimpleFeatureType featureType = inputFeatures.getSchema();
-        String typeName = featureType.getTypeName();
-
-        String[] fields = fieldNames.split(",");
-        for (int idx = 0; idx < fields.length; idx++) {
-            String propertyName = fields[idx].trim();
-            propertyName = FeatureTypes.validateProperty(featureType, propertyName);
+    private List<String> parseFields(SimpleFeatureType featureType, String fieldNames) {
+        List<String> fields = new ArrayList<String>();
+        for (String fieldName : fieldNames.split(",")) {
+            String propertyName = FeatureTypes.validateProperty(featureType, fieldName.trim());
             if (featureType.indexOf(propertyName) == -1) {
                 LOGGER.log(Level.FINER, propertyName + " does not exist!");
                 continue;
             }
-
-            // calculate
-            StatisticsVisitor visitor = new StatisticsVisitor(featureType, propertyName);
-            visitor.visit(inputFeatures);
-
-            // remap for WPS PPIO
-            DataStatisticsItem item = remap(visitor.getResult(), typeName, propertyName, null);
-
-            result.add(item);
+            fields.add(propertyName);
         }
-
-        return result;
+        return fields;
     }
 
     private DataStatisticsItem remap(StatisticsVisitorResult ret, String typeName,
@@ -19,20 +19,24 @@ package org.geotools.process.spatialstatistics.operations;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.GeometryComponentFilter;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.LinearRing;
-import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.util.LinearComponentExtracter;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
 import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.index.strtree.STRtree;
@@ -52,6 +56,9 @@ import org.opengis.filter.Filter;
 public class EliminateOperation extends GeneralOperation {
     protected static final Logger LOGGER = Logging.getLogger(EliminateOperation.class);
 
+    // relative tolerance of collinear boundary segments
+    static final double TOLERANCE = 1.0E-9;
+
     public enum EliminateOption {
         /*
          * The neighboring polygon is the one with the longest shared border.
@@ -71,10 +78,20 @@ public class EliminateOperation extends GeneralOperation {
 
     private STRtree spatialIndex;
 
+    // boundary segments of the input polygons, used to measure shared borders
+    private STRtree edgeIndex;
+
     private EliminateOption option = EliminateOption.Length;
 
     private Filter exception = Filter.EXCLUDE;
 
+    // geometries, areas and exception flags of the input features, in iteration order
+    private List<Geometry> geometries;
+
+    private double[] areas;
+
+    private boolean[] exceptions;
+
     public EliminateOperation() {
 
     }
@@ -86,63 +103,39 @@ public class EliminateOperation extends GeneralOperation {
 
         buildSpatialIndex(inputFeatures);
 
+        // 1. find all slivers from a single union of the polygons
+        final List<Geometry> slivers = findSlivers();
+
+        // 2. assign every sliver to its receiving polygon
+        final int[] receivers = new int[slivers.size()];
+        ParallelUtils.forEach(slivers.size(), 16, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int index = start; index < end; index++) {
+                    receivers[index] = findReceiver(slivers.get(index));
+                }
+            }
+        }, progressListener);
+
+        // 3. union each receiving polygon once with all of its slivers
+        Geometry[] eliminated = mergeSlivers(slivers, receivers);
+
         // prepare transactional feature store
         SimpleFeatureType featureType = inputFeatures.getSchema();
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
         SimpleFeatureIterator featureIter = inputFeatures.features();
         try {
-            List<Geometry> neighbors = new ArrayList<Geometry>();
+            int featureIndex = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
-                if (this.exception.evaluate(feature)) {
+                Geometry merged = eliminated[featureIndex++];
+                if (merged == null) {
                     // insert source feature
                     insertFeature(featureWriter, feature, true, null);
-                    continue;
+                } else if (!merged.isEmpty()) {
+                    insertFeature(featureWriter, feature, false, merged);
                 }
-
-                String id = feature.getID();
-
-                Geometry source = (Geometry) feature.getDefaultGeometry();
-                PreparedGeometry prepared = PreparedGeometryFactory.prepare(source);
-                GeometryFactory factory = source.getFactory();
-
-                // query
-                neighbors.clear();
-                for (@SuppressWarnings("unchecked")
-                Iterator<NeighborFeature> iter = (Iterator<NeighborFeature>) spatialIndex.query(
-                        source.getEnvelopeInternal()).iterator(); iter.hasNext();) {
-                    NeighborFeature sample = iter.next();
-                    if (sample.id.equals(id) || prepared.disjoint(sample.location)) {
-                        continue;
-                    }
-
-                    // explode & only use exterior ring
-                    for (int index = 0; index < sample.location.getNumGeometries(); index++) {
-                        Polygon poly = (Polygon) sample.location.getGeometryN(index);
-                        if (prepared.disjoint(poly)) {
-                            continue;
-                        }
-                        LinearRing linearRing = (LinearRing) poly.getExteriorRing();
-                        Geometry exterior = factory.createPolygon(linearRing, null);
-                        neighbors.add(exterior);
-                    }
-                }
-
-                if (neighbors.size() == 0) {
-                    // insert source feature
-                    insertFeature(featureWriter, feature, true, null);
-                    continue;
-                }
-
-                // post process
-                Geometry eliminated = eliminateSilver(source, neighbors);
-                if (eliminated == null || eliminated.isEmpty()) {
-                    continue;
-                }
-
-                // insert source feature
-                insertFeature(featureWriter, feature, false, eliminated);
             }
         } catch (IOException e) {
             featureWriter.rollback(e);
@@ -153,123 +146,215 @@ public class EliminateOperation extends GeneralOperation {
         return featureWriter.getFeatureCollection();
     }
 
-    private Geometry eliminateSilver(Geometry source, List<Geometry> neighbors) {
-        Geometry eliminated = source;
+    private List<Geometry> findSlivers() {
+        List<Geometry> slivers = new ArrayList<Geometry>();
 
-        PreparedGeometry prepared = PreparedGeometryFactory.prepare(source);
-        GeometryFactory factory = source.getFactory();
+        List<Geometry> polygons = new ArrayList<Geometry>();
+        for (Geometry geometry : geometries) {
+            if (geometry != null) {
+                polygons.add(geometry);
+            }
+        }
 
-        // find sliver polygons
-        List<Geometry> slivers = new ArrayList<Geometry>();
-        Geometry union = source.union(CascadedPolygonUnion.union(neighbors));
+        if (polygons.size() == 0) {
+            return slivers;
+        }
+
+        // every interior ring of the union is a gap between neighboring polygons
+        GeometryFactory factory = polygons.get(0).getFactory();
+        Geometry union = CascadedPolygonUnion.union(polygons);
         for (int index = 0; index < union.getNumGeometries(); index++) {
             Polygon poly = (Polygon) union.getGeometryN(index);
             for (int i = 0; i < poly.getNumInteriorRing(); i++) {
                 LinearRing hole = (LinearRing) poly.getInteriorRingN(i);
-                if (prepared.disjoint(hole)) {
-                    continue;
-                }
                 slivers.add(factory.createPolygon((LinearRing) hole.reverse()));
             }
         }
 
-        if (slivers.size() == 0) {
-            return eliminated;
-        }
+        return slivers;
+    }
 
-        // build result
-        List<Geometry> owns = new ArrayList<Geometry>();
+    private int findReceiver(Geometry sliver) {
         if (option == EliminateOption.Length) {
-            for (Geometry sliver : slivers) {
-                Geometry intersection = lineIntersection(source, sliver);
-                double sourceLength = intersection.getLength();
-
-                double targetLength = Double.MIN_VALUE;
-                for (Geometry neighbor : neighbors) {
-                    if (sliver.disjoint(neighbor)) {
-                        continue;
-                    }
+            return findLongestBorder(sliver);
+        }
 
-                    Geometry neigoborIntersecton = lineIntersection(neighbor, sliver);
-                    targetLength = Math.max(targetLength, neigoborIntersecton.getLength());
-                }
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(sliver);
+        boolean smallest = option == EliminateOption.SmallArea;
 
-                if (sourceLength > targetLength) {
-                    owns.add(sliver);
-                }
+        int receiver = -1;
+        boolean tie = false;
+        double bestValue = 0d;
+
+        for (@SuppressWarnings("unchecked")
+        Iterator<Integer> iter = (Iterator<Integer>) spatialIndex.query(
+                sliver.getEnvelopeInternal()).iterator(); iter.hasNext();) {
+            int candidate = iter.next().intValue();
+            Geometry neighbor = geometries.get(candidate);
+            if (prepared.disjoint(neighbor)) {
+                continue;
             }
-        } else {
-            double sourceArea = source.getArea();
-            boolean largest = option == EliminateOption.LargeArea;
-
-            List<Double> neighborAreas = new ArrayList<Double>();
-            for (int index = 0; index < neighbors.size(); index++) {
-                Geometry neighbor = neighbors.get(index);
-                neighborAreas.add(neighbor.getArea());
+
+            double value = areas[candidate];
+            if (receiver == -1 || (smallest ? value < bestValue : value > bestValue)) {
+                receiver = candidate;
+                bestValue = value;
+                tie = false;
+            } else if (value == bestValue) {
+                tie = true;
             }
+        }
 
-            for (Geometry sliver : slivers) {
-                double targetArea = largest ? Double.MIN_VALUE : Double.MAX_VALUE;
-                for (int index = 0; index < neighbors.size(); index++) {
-                    Geometry neighbor = neighbors.get(index);
-                    if (sliver.disjoint(neighbor)) {
-                        continue;
-                    }
+        // ties or exception polygons leave the sliver as it is
+        if (receiver == -1 || tie || exceptions[receiver]) {
+            return -1;
+        }
 
-                    if (largest) {
-                        targetArea = Math.max(targetArea, neighborAreas.get(index));
-                    } else {
-                        targetArea = Math.min(targetArea, neighborAreas.get(index));
-                    }
+        return receiver;
+    }
+
+    /**
+     * Measures the border shared with every neighbor by matching the sliver's boundary segments
+     * against the indexed boundary segments of the polygons, without overlay operations.
+     */
+    private int findLongestBorder(Geometry sliver) {
+        final Map<Integer, Double> lengths = new LinkedHashMap<Integer, Double>();
+
+        for (Object line : LinearComponentExtracter.getLines(sliver)) {
+            Coordinate[] coordinates = ((LineString) line).getCoordinates();
+            for (int i = 1; i < coordinates.length; i++) {
+                Coordinate a = coordinates[i - 1];
+                Coordinate b = coordinates[i];
+                double length = a.distance(b);
+                if (length == 0) {
+                    continue;
                 }
 
-                if (largest && sourceArea > targetArea) {
-                    owns.add(sliver);
-                } else if (!largest && sourceArea < targetArea) {
-                    owns.add(sliver);
+                double tolerance = TOLERANCE * (Math.abs(a.x) + Math.abs(a.y) + length);
+                Envelope searchEnv = new Envelope(a, b);
+                searchEnv.expandBy(tolerance);
+
+                for (Object item : edgeIndex.query(searchEnv)) {
+                    Edge edge = (Edge) item;
+                    double shared = edge.overlap(a, b, length, tolerance);
+                    if (shared > 0) {
+                        Double sum = lengths.get(edge.owner);
+                        lengths.put(edge.owner, sum == null ? shared : sum + shared);
+                    }
                 }
             }
         }
 
-        if (owns.size() > 0) {
-            eliminated = source.union(CascadedPolygonUnion.union(owns));
+        int receiver = -1;
+        boolean tie = false;
+        double bestValue = 0d;
+        for (Map.Entry<Integer, Double> entry : lengths.entrySet()) {
+            double value = entry.getValue().doubleValue();
+            if (receiver == -1 || value > bestValue) {
+                receiver = entry.getKey().intValue();
+                bestValue = value;
+                tie = false;
+            } else if (value == bestValue) {
+                tie = true;
+            }
+        }
 
-            // post process
-            List<Geometry> interiors = new ArrayList<Geometry>();
-            for (int index = 0; index < source.getNumGeometries(); index++) {
-                Polygon poly = (Polygon) source.getGeometryN(index);
-                for (int i = 0; i < poly.getNumInteriorRing(); i++) {
-                    LinearRing hole = (LinearRing) poly.getInteriorRingN(i);
-                    interiors.add(factory.createPolygon((LinearRing) hole.reverse()));
-                }
+        // ties or exception polygons leave the sliver as it is
+        if (receiver == -1 || tie || exceptions[receiver]) {
+            return -1;
+        }
+
+        return receiver;
+    }
+
+    static final class Edge {
+        final double x0, y0, x1, y1;
+
+        final Integer owner;
+
+        Edge(Coordinate from, Coordinate to, Integer owner) {
+            this.x0 = from.x;
+            this.y0 = from.y;
+            this.x1 = to.x;
+            this.y1 = to.y;
+            this.owner = owner;
+        }
+
+        /**
+         * Returns the length of this edge that lies on the segment a-b.
+         */
+        double overlap(Coordinate a, Coordinate b, double length, double tolerance) {
+            final double ux = (b.x - a.x) / length;
+            final double uy = (b.y - a.y) / length;
+
+            // both end points must lie on the line through a and b
+            if (Math.abs((x0 - a.x) * uy - (y0 - a.y) * ux) > tolerance
+                    || Math.abs((x1 - a.x) * uy - (y1 - a.y) * ux) > tolerance) {
+                return 0d;
+            }
+
+            double t0 = (x0 - a.x) * ux + (y0 - a.y) * uy;
+            double t1 = (x1 - a.x) * ux + (y1 - a.y) * uy;
+            double start = Math.max(0d, Math.min(t0, t1));
+            double end = Math.min(length, Math.max(t0, t1));
+            return end - start > tolerance ? end - start : 0d;
+        }
+    }
+
+    private Geometry[] mergeSlivers(List<Geometry> slivers, int[] receivers) {
+        final Geometry[] eliminated = new Geometry[geometries.size()];
+
+        final Map<Integer, List<Geometry>> owns = new LinkedHashMap<Integer, List<Geometry>>();
+        for (int index = 0; index < receivers.length; index++) {
+            if (receivers[index] == -1) {
+                continue;
             }
 
-            if (interiors.size() > 0) {
-                eliminated = eliminated.difference(source.getFactory().buildGeometry(interiors));
+            List<Geometry> list = owns.get(receivers[index]);
+            if (list == null) {
+                list = new ArrayList<Geometry>();
+                owns.put(receivers[index], list);
             }
+            list.add(slivers.get(index));
         }
 
+        final List<Integer> targets = new ArrayList<Integer>(owns.keySet());
+        ParallelUtils.forEach(targets.size(), 16, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int index = start; index < end; index++) {
+                    int target = targets.get(index).intValue();
+                    eliminated[target] = eliminateSilver(geometries.get(target), owns.get(target));
+                }
+            }
+        }, progressListener);
+
         return eliminated;
     }
 
-    private Geometry lineIntersection(Geometry source, Geometry sliver) {
-        final List<LineString> list = new ArrayList<LineString>();
+    private Geometry eliminateSilver(Geometry source, List<Geometry> owns) {
+        GeometryFactory factory = source.getFactory();
 
-        Geometry intersection = source.getBoundary().intersection(sliver.getBoundary());
-        intersection.apply(new GeometryComponentFilter() {
-            @Override
-            public void filter(Geometry geom) {
-                if (geom instanceof LineString) {
-                    list.add((LineString) geom);
-                } else if (geom instanceof MultiLineString) {
-                    for (int i = 0; i < geom.getNumGeometries(); i++) {
-                        list.add((LineString) geom.getGeometryN(i));
-                    }
-                }
+        List<Geometry> parts = new ArrayList<Geometry>(owns.size() + 1);
+        parts.add(source);
+        parts.addAll(owns);
+        Geometry eliminated = CascadedPolygonUnion.union(parts);
+
+        // post process: keep the source's own holes
+        List<Geometry> interiors = new ArrayList<Geometry>();
+        for (int index = 0; index < source.getNumGeometries(); index++) {
+            Polygon poly = (Polygon) source.getGeometryN(index);
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                LinearRing hole = (LinearRing) poly.getInteriorRingN(i);
+                interiors.add(factory.createPolygon((LinearRing) hole.reverse()));
             }
-        });
+        }
+
+        if (interiors.size() > 0) {
+            eliminated = eliminated.difference(factory.buildGeometry(interiors));
+        }
 
-        return source.getFactory().createMultiLineString(GeometryFactory.toLineStringArray(list));
+        return eliminated;
     }
 
     private void insertFeature(IFeatureInserter featureWriter, SimpleFeature source,
@@ -284,28 +369,54 @@ public class EliminateOperation extends GeneralOperation {
 
     private void buildSpatialIndex(SimpleFeatureCollection features) {
         spatialIndex = new STRtree();
+        edgeIndex = new STRtree();
+        geometries = new ArrayList<Geometry>();
+        List<Boolean> flags = new ArrayList<Boolean>();
+
         SimpleFeatureIterator featureIter = features.features();
         try {
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
                 Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                NeighborFeature nearFeature = new NeighborFeature(geometry, feature.getID());
-                spatialIndex.insert(geometry.getEnvelopeInternal(), nearFeature);
+                if (geometry != null && geometry.isEmpty()) {
+                    geometry = null;
+                }
+
+                if (geometry != null) {
+                    Integer index = Integer.valueOf(geometries.size());
+                    spatialIndex.insert(geometry.getEnvelopeInternal(), index);
+                    if (option == EliminateOption.Length) {
+                        insertEdges(geometry, index);
+                    }
+                }
+                geometries.add(geometry);
+                flags.add(Boolean.valueOf(exception.evaluate(feature)));
             }
         } finally {
             featureIter.close();
         }
-    }
-
-    static final class NeighborFeature {
 
-        public Geometry location;
+        areas = new double[geometries.size()];
+        exceptions = new boolean[geometries.size()];
+        for (int index = 0; index < geometries.size(); index++) {
+            Geometry geometry = geometries.get(index);
+            areas[index] = geometry == null ? 0d : geometry.getArea();
+            exceptions[index] = flags.get(index).booleanValue();
+        }
 
-        public Object id;
+        spatialIndex.build();
+        edgeIndex.build();
+    }
 
-        public NeighborFeature(Geometry location, Object id) {
-            this.location = location;
-            this.id = id;
+    private void insertEdges(Geometry geometry, Integer index) {
+        for (Object line : LinearComponentExtracter.getLines(geometry)) {
+            Coordinate[] coordinates = ((LineString) line).getCoordinates();
+            for (int i = 1; i < coordinates.length; i++) {
+                if (!coordinates[i - 1].equals2D(coordinates[i])) {
+                    edgeIndex.insert(new Envelope(coordinates[i - 1], coordinates[i]), new Edge(
+                            coordinates[i - 1], coordinates[i], index));
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -26,9 +26,11 @@ import org.geotools.data.directory.DirectoryDataStore;
 import org.geotools.data.shapefile.ShapefileDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.data.util.NullProgressListener;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.process.spatialstatistics.storage.FeatureInserter;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.process.spatialstatistics.storage.MemoryFeatureInserter;
@@ -38,6 +40,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
+import org.opengis.util.ProgressListener;
 
 /**
  * Abstract General Operation
@@ -55,6 +58,8 @@ public abstract class GeneralOperation {
 
     private DataStore outputDataStore = null;
 
+    protected ProgressListener progressListener = new NullProgressListener();
+
     public void setOutputDataStore(DataStore outputDataStore) {
         this.outputDataStore = outputDataStore;
     }
@@ -63,6 +68,29 @@ public abstract class GeneralOperation {
         return outputDataStore;
     }
 
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Sets the listener that receives progress and is polled for cancellation. The listener is
+     * also handed to the feature writers created by this operation.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        if (progressListener == null) {
+            this.progressListener = new NullProgressListener();
+        } else {
+            this.progressListener = progressListener;
+        }
+    }
+
+    /**
+     * Throws a ProcessException if the progress listener has been canceled.
+     */
+    protected void checkCanceled() {
+        ProgressTracker.checkCanceled(progressListener);
+    }
+
     protected boolean isShapefileDataStore(DataStore dataStore) {
         if (dataStore instanceof DirectoryDataStore) {
             return true;
@@ -73,8 +101,9 @@ public abstract class GeneralOperation {
     }
 
     protected IFeatureInserter getFeatureWriter(SimpleFeatureType schema) throws IOException {
+        IFeatureInserter featureWriter = null;
         if (getOutputDataStore() == null) {
-            return new MemoryFeatureInserter(schema);
+            featureWriter = new MemoryFeatureInserter(schema);
         } else {
             // create schema
             SimpleFeatureStore featureStore = null;
@@ -91,8 +120,11 @@ public abstract class GeneralOperation {
                 featureStore = (SimpleFeatureStore) featureSource;
             }
 
-            return new FeatureInserter(featureStore);
+            featureWriter = new FeatureInserter(featureStore);
         }
+
+        featureWriter.setProgressListener(progressListener);
+        return featureWriter;
     }
 
     protected Filter getIntersectsFilter(String geomField, Geometry searchGeometry) {
@@ -21,14 +21,12 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.MultiFieldStatistics;
 import org.geotools.process.spatialstatistics.operations.PearsonOperation.PearsonResult.PropertyName;
 import org.geotools.process.spatialstatistics.operations.PearsonOperation.PearsonResult.PropertyName.PearsonItem;
 import org.geotools.util.logging.Logging;
-import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.expression.Expression;
 import org.opengis.parameter.InvalidParameterValueException;
 
 import com.thoughtworks.xstream.annotations.XStreamAsAttribute;
@@ -57,19 +55,11 @@ public class PearsonOperation extends GeneralOperation {
                     inputFields);
         }
 
-        // calculate
-        double[][] values = new double[fieldList.size()][fieldList.size()];
-        for (int firstIndex = 0; firstIndex < fieldList.size(); firstIndex++) {
-            String firstField = fieldList.get(firstIndex);
-            for (int secondIndex = firstIndex + 1; secondIndex < fieldList.size(); secondIndex++) {
-                String secondField = fieldList.get(secondIndex);
-                double pearson = execute(inputFeatures, firstField, secondField);
-
-                // firstIndex, secondIndex
-                values[firstIndex][secondIndex] = pearson;
-                values[secondIndex][firstIndex] = pearson;
-            }
-        }
+        // calculate all pairs in a single pass
+        MultiFieldStatistics statistics = new MultiFieldStatistics(inputFeatures.getSchema(),
+                fieldList, null, false, true);
+        statistics.visit(inputFeatures);
+        double[][] values = statistics.getCorrelationMatrix();
 
         // result
         for (int firstIndex = 0; firstIndex < fieldList.size(); firstIndex++) {
@@ -91,67 +81,6 @@ public class PearsonOperation extends GeneralOperation {
         return result;
     }
 
-    private double execute(SimpleFeatureCollection inputFeatures, String fieldName1,
-            String fieldName2) {
-        double sumX = 0.0;
-        double sumY = 0.0;
-
-        double sumXSq = 0.0;
-        double sumYSq = 0.0;
-        double pSum = 0.0;
-        int rowCount = 0;
-
-        Expression obsExpression = ff.property(fieldName1);
-        Expression popExpression = ff.property(fieldName2);
-
-        SimpleFeatureIterator featureIter = inputFeatures.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-
-                // evaluate and validate
-                Double dxVal = obsExpression.evaluate(feature, Double.class);
-                Double dyVal = popExpression.evaluate(feature, Double.class);
-                if (dxVal == null || dyVal == null) {
-                    continue;
-                }
-
-                double dx = dxVal.doubleValue();
-                double dy = dyVal.doubleValue();
-                if (Double.isNaN(dx) || Double.isInfinite(dx) || Double.isNaN(dy)
-                        || Double.isInfinite(dy)) {
-                    continue;
-                }
-
-                sumX += dx;
-                sumY += dy;
-
-                sumXSq += Math.pow(dx, 2.0);
-                sumYSq += Math.pow(dy, 2.0);
-
-                pSum += dx * dy;
-
-                rowCount++;
-            }
-        } finally {
-            featureIter.close();
-        }
-
-        if (rowCount == 0) {
-            return 0;
-        }
-
-        double x = (sumXSq - Math.pow(sumX, 2) / rowCount);
-        double y = (sumYSq - Math.pow(sumY, 2) / rowCount);
-        double den = Math.pow(x * y, 0.5);
-        if (den == 0) {
-            return 0;
-        }
-
-        double num = pSum - ((sumX * sumY) / rowCount);
-        return num / den;
-    }
-
     private List<String> parseFields(SimpleFeatureType schema, String inputFields) {
         List<String> fieldList = new ArrayList<String>();
 
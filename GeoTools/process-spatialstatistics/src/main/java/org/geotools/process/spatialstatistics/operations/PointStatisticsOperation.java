@@ -17,10 +17,9 @@
 package org.geotools.process.spatialstatistics.operations;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,11 +28,9 @@ import javax.measure.quantity.Length;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.process.spatialstatistics.core.DataUtils;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.PointInPolygonAggregator;
 import org.geotools.process.spatialstatistics.core.StatisticsField;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
 import org.geotools.process.spatialstatistics.core.SummaryFieldBuilder;
 import org.geotools.process.spatialstatistics.core.UnitConverter;
 import org.geotools.process.spatialstatistics.enumeration.DistanceUnit;
@@ -45,7 +42,6 @@ import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.filter.Filter;
 import org.opengis.parameter.InvalidParameterValueException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -71,6 +67,8 @@ public class PointStatisticsOperation extends GeneralOperation {
 
     private int quadrantSegments = 12; // JTS default = 8
 
+    private boolean parallel = false;
+
     public double getBufferDistance() {
         return bufferDistance;
     }
@@ -90,6 +88,14 @@ public class PointStatisticsOperation extends GeneralOperation {
         this.quadrantSegments = quadrantSegments;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     public DistanceUnit getDistanceUnit() {
         return distanceUnit;
     }
@@ -129,13 +135,6 @@ public class PointStatisticsOperation extends GeneralOperation {
 
         schema = addAttributes(schema, statFields);
 
-        // build unique fields
-        final List<String> uvFields = new ArrayList<String>();
-        for (StatisticsField curField : statFields) {
-            if (!uvFields.contains(curField.getSrcField())) {
-                uvFields.add(curField.getSrcField());
-            }
-        }
         // check coordinate reference system
         CoordinateReferenceSystem crsT = polygons.getSchema().getCoordinateReferenceSystem();
         CoordinateReferenceSystem crsS = points.getSchema().getCoordinateReferenceSystem();
@@ -160,12 +159,13 @@ public class PointStatisticsOperation extends GeneralOperation {
             }
         }
 
-        // use SpatialIndexFeatureCollection
-        points = DataUtils.toSpatialIndexFeatureCollection(points);
+        // index polygons once, then aggregate the points in a single scan
+        PointInPolygonAggregator aggregator = new PointInPolygonAggregator(points.getSchema(),
+                statFields);
+        aggregator.setParallel(parallel);
 
-        // prepare transactional feature store
-        final String the_geom = points.getSchema().getGeometryDescriptor().getLocalName();
-        IFeatureInserter featureWriter = getFeatureWriter(schema);
+        // the second pass may return the polygons in another order, so match them by feature ID
+        Map<String, Integer> polygonIndexes = new HashMap<String, Integer>();
 
         SimpleFeatureIterator featureIter = polygons.features();
         try {
@@ -176,7 +176,6 @@ public class PointStatisticsOperation extends GeneralOperation {
                     continue;
                 }
 
-                MultipleStatVisitor visitor = new MultipleStatVisitor(points.getSchema());
                 if (radius > 0) {
                     if (distanceUnit != DistanceUnit.Default && isGeographicCRS) {
                         geometry = geodetic.buffer(geometry, radius);
@@ -185,27 +184,30 @@ public class PointStatisticsOperation extends GeneralOperation {
                     }
                 }
 
-                Filter filter = getIntersectsFilter(the_geom, geometry);
-
-                int featureCount = 0;
-                if (statFields.size() > 0) {
-                    SimpleFeatureIterator pointIter = null;
-                    try {
-                        pointIter = points.subCollection(filter).features();
-                        while (pointIter.hasNext()) {
-                            SimpleFeature pointFeature = pointIter.next();
-                            featureCount++;
-                            for (String srcField : uvFields) {
-                                visitor.visit(srcField, pointFeature);
-                            }
-                        }
-                    } finally {
-                        pointIter.close();
-                    }
-                } else {
-                    featureCount = points.subCollection(filter).size();
+                polygonIndexes.put(feature.getID(),
+                        Integer.valueOf(aggregator.addPolygon(geometry)));
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        aggregator.aggregate(points);
+
+        // prepare transactional feature store
+        IFeatureInserter featureWriter = getFeatureWriter(schema);
+
+        featureIter = polygons.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Integer index = polygonIndexes.get(feature.getID());
+                if (index == null) {
+                    continue;
                 }
 
+                final int polygonIndex = index.intValue();
+                int featureCount = aggregator.getCount(polygonIndex);
+
                 // create & insert feature
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 featureWriter.copyAttributes(feature, newFeature, true);
@@ -214,11 +216,9 @@ public class PointStatisticsOperation extends GeneralOperation {
                     newFeature.setAttribute(cntField, featureCount);
                 }
 
-                if (visitor.getResult().size() > 0) {
-                    HashMap<Object, StatisticsVisitor> stat = visitor.getResult();
+                if (featureCount > 0) {
                     for (StatisticsField field : statFields) {
-                        StatisticsVisitorResult ret = stat.get(field.getSrcField()).getResult();
-                        Object value = ret.getValue(field.getStatType());
+                        Object value = aggregator.getValue(polygonIndex, field);
                         newFeature.setAttribute(field.getTargetField(), value);
                     }
                 }
@@ -243,34 +243,4 @@ public class PointStatisticsOperation extends GeneralOperation {
 
         return schema;
     }
-
-    static final class MultipleStatVisitor {
-
-        static final String CASE_ALL = "ALL";
-
-        SimpleFeatureType schema;
-
-        HashMap<Object, StatisticsVisitor> resuleMap = new LinkedHashMap<Object, StatisticsVisitor>();
-
-        public MultipleStatVisitor(SimpleFeatureType schema) {
-            this.schema = schema;
-        }
-
-        public HashMap<Object, StatisticsVisitor> getResult() {
-            return resuleMap;
-        }
-
-        public void visit(String propertyName, SimpleFeature feature) {
-            propertyName = propertyName == null ? CASE_ALL : propertyName;
-            StatisticsVisitor visitor = resuleMap.get(propertyName);
-
-            if (visitor == null) {
-                visitor = new StatisticsVisitor(schema, propertyName);
-                resuleMap.put(propertyName, visitor);
-            }
-
-            visitor.visit(feature);
-        }
-    }
-
 }
@@ -19,6 +19,7 @@ package org.geotools.process.spatialstatistics.operations;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,13 +27,15 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.PolygonPointSampler;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.Converters;
 import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.operation.union.CascadedPolygonUnion;
-import org.locationtech.jts.shape.random.RandomPointsBuilder;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.expression.Expression;
@@ -49,55 +52,71 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 public class RandomPointsOperation extends GeneralOperation {
     protected static final Logger LOGGER = Logging.getLogger(RandomPointsOperation.class);
 
-    private RandomPointsBuilder builder;
+    // number of points generated by one task, each task has its own seeded generator
+    static final int BATCH_SIZE = 8192;
+
+    // number of points generated before they are written
+    static final int CHUNK_SIZE = BATCH_SIZE * 16;
 
     private CoordinateReferenceSystem crs;
 
+    private long randomSeed = new Random().nextLong();
+
     public RandomPointsOperation() {
 
     }
 
+    /**
+     * Points are generated from this seed, so the same seed and input give the same points.
+     */
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
     public SimpleFeatureCollection execute(ReferencedEnvelope extent, int pointCount)
             throws IOException {
-        builder = new RandomPointsBuilder(gf);
         crs = extent.getCoordinateReferenceSystem();
-        builder.setExtent(extent);
 
-        return execute(pointCount);
+        return execute(new PolygonPointSampler(extent), pointCount);
     }
 
     public SimpleFeatureCollection execute(SimpleFeatureCollection boundsSource, int pointCount)
             throws IOException {
-        builder = new RandomPointsBuilder(gf);
         crs = boundsSource.getSchema().getCoordinateReferenceSystem();
         Geometry maskPolygon = unionFeatures(boundsSource);
-        if (maskPolygon == null || maskPolygon.isEmpty()) {
-            builder.setExtent(boundsSource.getBounds());
+
+        PolygonPointSampler sampler = null;
+        if (maskPolygon != null && !maskPolygon.isEmpty()) {
+            sampler = new PolygonPointSampler(maskPolygon);
+        }
+
+        if (sampler == null || sampler.isEmpty()) {
+            sampler = new PolygonPointSampler(boundsSource.getBounds());
             LOGGER.log(Level.WARNING,
                     "Failed to create mask polygon, random points builder will use feature's boundary");
-        } else {
-            builder.setExtent(maskPolygon);
         }
 
-        return execute(pointCount);
+        return execute(sampler, pointCount);
     }
 
-    private SimpleFeatureCollection execute(int pointCount) throws IOException {
-        builder.setNumPoints(pointCount);
-
+    private SimpleFeatureCollection execute(PolygonPointSampler sampler, int pointCount)
+            throws IOException {
         SimpleFeatureType schema = createSchema(false);
         IFeatureInserter featureWriter = getFeatureWriter(schema);
         try {
-            Geometry multiPoints = builder.getGeometry();
-            for (int i = 0; i < multiPoints.getNumGeometries(); i++) {
-                Point point = (Point) multiPoints.getGeometryN(i);
+            for (int start = 0; start < pointCount; start += CHUNK_SIZE) {
+                int count = Math.min(CHUNK_SIZE, pointCount - start);
+                double[] coords = generate(sampler, randomSeed, start, count);
+                for (int k = 0; k < count; k++) {
+                    Point point = gf.createPoint(new Coordinate(coords[k * 2], coords[k * 2 + 1]));
 
-                // create feature and set geometry
-                SimpleFeature newFeature = featureWriter.buildFeature();
-                newFeature.setAttribute("weight", 1);
-                newFeature.setDefaultGeometry(point);
+                    // create feature and set geometry
+                    SimpleFeature newFeature = featureWriter.buildFeature();
+                    newFeature.setAttribute("weight", 1);
+                    newFeature.setDefaultGeometry(point);
 
-                featureWriter.write(newFeature);
+                    featureWriter.write(newFeature);
+                }
             }
         } catch (Exception e) {
             featureWriter.rollback(e);
@@ -108,6 +127,32 @@ public class RandomPointsOperation extends GeneralOperation {
         return featureWriter.getFeatureCollection();
     }
 
+    /**
+     * Generates the points [first, first + count) of the sequence defined by the seed. The points
+     * are split into batches generated in parallel, each by a generator seeded from the batch
+     * number, so the result does not depend on the number of threads.
+     */
+    private double[] generate(final PolygonPointSampler sampler, final long seed,
+            final long first, final int count) {
+        final double[] coords = new double[count * 2];
+        final int numBatches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+
+        ParallelUtils.forEach(numBatches, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int batch = start; batch < end; batch++) {
+                    long batchIndex = first / BATCH_SIZE + batch;
+                    Random random = new Random(seed + batchIndex * 0x9E3779B97F4A7C15L);
+                    int offset = batch * BATCH_SIZE;
+                    int size = Math.min(BATCH_SIZE, count - offset);
+                    sampler.sample(random, size, coords, offset * 2);
+                }
+            }
+        }, progressListener);
+
+        return coords;
+    }
+
     public SimpleFeatureCollection executeperFeatures(SimpleFeatureCollection polygonFeatures,
             int pointCount) throws IOException {
         return executeperFeatures(polygonFeatures, ff.literal(pointCount));
@@ -115,12 +160,17 @@ public class RandomPointsOperation extends GeneralOperation {
 
     public SimpleFeatureCollection executeperFeatures(SimpleFeatureCollection polygonFeatures,
             Expression expression) throws IOException {
-        builder = new RandomPointsBuilder(gf);
         crs = polygonFeatures.getSchema().getCoordinateReferenceSystem();
 
         SimpleFeatureType schema = createSchema(true);
         IFeatureInserter featureWriter = getFeatureWriter(schema);
 
+        List<String> ids = new ArrayList<String>();
+        List<Geometry> geometries = new ArrayList<Geometry>();
+        List<Integer> counts = new ArrayList<Integer>();
+        long featureIndex = 0;
+        int pending = 0;
+
         SimpleFeatureIterator featureIter = polygonFeatures.features();
         try {
             while (featureIter.hasNext()) {
@@ -136,33 +186,98 @@ public class RandomPointsOperation extends GeneralOperation {
                 }
 
                 Integer pointCount = Converters.convert(value, Integer.class);
-                if (pointCount == null || pointCount == 0) {
+                if (pointCount == null || pointCount <= 0) {
                     continue;
                 }
 
-                builder.setExtent(geometry);
-                builder.setNumPoints(pointCount);
+                ids.add(feature.getID());
+                geometries.add(geometry);
+                counts.add(pointCount);
+                pending += Math.min(pointCount, CHUNK_SIZE);
 
-                Geometry multiPoints = builder.getGeometry();
-                for (int i = 0; i < multiPoints.getNumGeometries(); i++) {
-                    Point point = (Point) multiPoints.getGeometryN(i);
+                if (pending >= CHUNK_SIZE || ids.size() >= BATCH_SIZE) {
+                    writeFeatures(featureWriter, ids, geometries, counts, featureIndex);
+                    featureIndex += ids.size();
+                    ids.clear();
+                    geometries.clear();
+                    counts.clear();
+                    pending = 0;
+                }
+            }
+
+            writeFeatures(featureWriter, ids, geometries, counts, featureIndex);
+        } catch (Exception e) {
+            featureWriter.rollback(e);
+        } finally {
+            featureWriter.close(featureIter);
+        }
+
+        return featureWriter.getFeatureCollection();
+    }
+
+    /**
+     * Triangulates the features of a batch and generates their points in parallel, then writes
+     * them in feature order. The generator of a feature is seeded from its position in the input.
+     */
+    private void writeFeatures(IFeatureInserter featureWriter, List<String> ids,
+            final List<Geometry> geometries, final List<Integer> counts, final long featureIndex)
+            throws IOException {
+        final int size = ids.size();
+        final PolygonPointSampler[] samplers = new PolygonPointSampler[size];
+        final double[][] coords = new double[size][];
+
+        ParallelUtils.forEach(size, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int index = start; index < end; index++) {
+                    samplers[index] = new PolygonPointSampler(geometries.get(index));
+                    int count = counts.get(index).intValue();
+                    if (samplers[index].isEmpty() || count > CHUNK_SIZE) {
+                        continue; // large features are generated in parallel batches below
+                    }
+
+                    Random random = new Random(featureSeed(featureIndex + index));
+                    coords[index] = new double[count * 2];
+                    samplers[index].sample(random, count, coords[index], 0);
+                }
+            }
+        }, progressListener);
+
+        for (int index = 0; index < size; index++) {
+            if (samplers[index].isEmpty()) {
+                LOGGER.log(Level.FINE, ids.get(index) + " is not a polygon, skipped");
+                continue;
+            }
+
+            int count = counts.get(index).intValue();
+            for (int start = 0; start < count; start += CHUNK_SIZE) {
+                int chunk = Math.min(CHUNK_SIZE, count - start);
+                double[] points = coords[index];
+                if (points == null) {
+                    points = generate(samplers[index], featureSeed(featureIndex + index), start,
+                            chunk);
+                }
+
+                for (int k = 0; k < chunk; k++) {
+                    Point point = gf.createPoint(new Coordinate(points[k * 2], points[k * 2 + 1]));
 
                     // create feature and set geometry
                     SimpleFeature newFeature = featureWriter.buildFeature();
-                    newFeature.setAttribute("id", feature.getID());
+                    newFeature.setAttribute("id", ids.get(index));
                     newFeature.setAttribute("weight", 1);
                     newFeature.setDefaultGeometry(point);
 
                     featureWriter.write(newFeature);
                 }
             }
-        } catch (Exception e) {
-            featureWriter.rollback(e);
-        } finally {
-            featureWriter.close(featureIter);
+
+            samplers[index] = null;
+            coords[index] = null;
         }
+    }
 
-        return featureWriter.getFeatureCollection();
+    private long featureSeed(long featureIndex) {
+        return randomSeed ^ (featureIndex * 0xC2B2AE3D27D4EB4FL);
     }
 
     private SimpleFeatureType createSchema(boolean createID) {
@@ -16,19 +16,14 @@
  */
 package org.geotools.process.spatialstatistics.pattern;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.Point;
-import org.opengis.feature.simple.SimpleFeature;
 
 /**
  * k-means clustering
@@ -46,19 +41,59 @@ public class KMeansCluster implements Cluster {
 
     private PointEvent[] points = null;
 
+    private double[] x = null;
+
+    private double[] y = null;
+
+    private int[] clusters = null;
+
     private ReferencedEnvelope extent = null;
 
+    /**
+     * Returns the input points with their cluster ids. Points loaded from features or an event
+     * store are materialized on demand, use {@link #getClusters()} for large inputs.
+     */
     public PointEvent[] getPoints() {
+        if (points == null) {
+            points = new PointEvent[x.length];
+            for (int i = 0; i < x.length; i++) {
+                points[i] = new PointEvent(x[i], y[i], 1.0);
+                points[i].id = i;
+                points[i].cluster = clusters[i];
+            }
+        }
         return this.points;
     }
 
+    /**
+     * Returns the cluster id of each point in load order.
+     */
+    public int[] getClusters() {
+        return clusters;
+    }
+
     public KMeansCluster(SimpleFeatureCollection pointFeatures) {
-        loadPoints(pointFeatures, null);
+        this(SpatialEventStore.loadCentroids(pointFeatures), pointFeatures.getBounds());
+    }
+
+    public KMeansCluster(SpatialEventStore events, ReferencedEnvelope extent) {
+        this.x = events.getX();
+        this.y = events.getY();
+        this.clusters = new int[events.size()];
+        this.extent = extent;
     }
 
     public KMeansCluster(PointEvent[] points, ReferencedEnvelope extent) {
         this.points = points;
         this.extent = extent;
+
+        this.x = new double[points.length];
+        this.y = new double[points.length];
+        this.clusters = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            x[i] = points[i].x;
+            y[i] = points[i].y;
+        }
     }
 
     private PointEvent getRandomPoint() {
@@ -81,20 +116,25 @@ public class KMeansCluster implements Cluster {
     public PointEvent[] cluster(int numClusters) {
         boolean converged = false;
         boolean dirty;
+        double dx, dy;
         double distance;
         double curMinDistance;
         int loopCount = 0;
-        PointEvent point;
+        final int numPoints = x.length;
 
         // randomly pick some points to be the centroids of the groups, for the first pass
         PointEvent[] means = new PointEvent[numClusters];
+        double[] meanX = new double[numClusters];
+        double[] meanY = new double[numClusters];
         for (int i = 0; i < numClusters; ++i) {
             means[i] = getRandomPoint();
             means[i].cluster = i;
+            meanX[i] = means[i].x;
+            meanY[i] = means[i].y;
         }
 
-        // initialize data
-        double[] distances = new double[points.length];
+        // initialize data, squared distances are enough to find the closest mean
+        double[] distances = new double[numPoints];
         Arrays.fill(distances, Double.MAX_VALUE);
 
         double[] sumX = new double[numClusters];
@@ -106,16 +146,17 @@ public class KMeansCluster implements Cluster {
             dirty = false;
 
             // compute which group each point is closest to
-            for (int i = 0; i < points.length; ++i) {
-                point = points[i];
+            for (int i = 0; i < numPoints; ++i) {
                 curMinDistance = distances[i];
-                for (PointEvent mean : means) {
-                    distance = computeDistance(point, mean);
+                for (int k = 0; k < numClusters; ++k) {
+                    dx = x[i] - meanX[k];
+                    dy = y[i] - meanY[k];
+                    distance = (dx * dx) + (dy * dy);
                     if (distance < curMinDistance) {
                         dirty = true;
                         distances[i] = distance;
                         curMinDistance = distance;
-                        point.cluster = mean.cluster;
+                        clusters[i] = k;
                     }
                 }
             }
@@ -127,28 +168,26 @@ public class KMeansCluster implements Cluster {
             }
 
             // compute the new centroids of the groups, since contents have changed
-            for (int i = 0; i < numClusters; ++i) {
-                sumX[i] = sumY[i] = clusterSizes[i] = 0;
-            }
-
-            for (int i = 0; i < points.length; ++i) {
-                point = points[i];
-                sumX[point.cluster] += point.x;
-                sumY[point.cluster] += point.y;
-                clusterSizes[point.cluster] += 1;
+            Arrays.fill(sumX, 0d);
+            Arrays.fill(sumY, 0d);
+            Arrays.fill(clusterSizes, 0);
+
+            for (int i = 0; i < numPoints; ++i) {
+                sumX[clusters[i]] += x[i];
+                sumY[clusters[i]] += y[i];
+                clusterSizes[clusters[i]] += 1;
             }
 
             for (int i = 0; i < numClusters; ++i) {
-                try {
-                    means[i].x = sumX[i] / clusterSizes[i];
-                    means[i].y = sumY[i] / clusterSizes[i];
-                } catch (ArithmeticException e) {
-                    // means a Divide-By-Zero error, b/c no points were associated with this
-                    // cluster.
+                if (clusterSizes[i] == 0) {
+                    // no points were associated with this cluster.
                     // rare, so reset the cluster to have a new random center
                     PointEvent p = getRandomPoint();
-                    means[i].x = p.x;
-                    means[i].y = p.y;
+                    meanX[i] = p.x;
+                    meanY[i] = p.y;
+                } else {
+                    meanX[i] = sumX[i] / clusterSizes[i];
+                    meanY[i] = sumY[i] / clusterSizes[i];
                 }
             }
 
@@ -157,39 +196,17 @@ public class KMeansCluster implements Cluster {
             converged = converged || (loopCount > MAX_LOOP_COUNT);
         }
 
-        return means;
-    }
-
-    /**
-     * Computes the Cartesian distance between two points.
-     */
-    private double computeDistance(PointEvent a, PointEvent b) {
-        double dx = a.x - b.x;
-        double dy = a.y - b.y;
-        return Math.sqrt((dx * dx) + (dy * dy));
-    }
-
-    private void loadPoints(SimpleFeatureCollection pointFeatures, String weightField) {
-        this.extent = pointFeatures.getBounds();
-
-        List<Cluster.PointEvent> ptList = new ArrayList<Cluster.PointEvent>();
-        SimpleFeatureIterator featureIter = pointFeatures.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                if (geometry == null || geometry.isEmpty()) {
-                    continue;
-                }
+        for (int i = 0; i < numClusters; ++i) {
+            means[i].x = meanX[i];
+            means[i].y = meanY[i];
+        }
 
-                Point coord = geometry.getCentroid();
-                ptList.add(new PointEvent(coord.getX(), coord.getY(), 1.0, feature));
+        if (points != null) {
+            for (int i = 0; i < numPoints; ++i) {
+                points[i].cluster = clusters[i];
             }
-        } finally {
-            featureIter.close();
         }
 
-        points = new PointEvent[ptList.size()];
-        ptList.toArray(points);
+        return means;
     }
 }
@@ -27,7 +27,6 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
-import org.geotools.process.spatialstatistics.pattern.Cluster.PointEvent;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.algorithm.MinimumBoundingCircle;
@@ -54,7 +53,7 @@ public class KMeansClusterOperation extends GeneralOperation {
             int numClusters) throws IOException {
         KMeansCluster cluster = new KMeansCluster(features);
         cluster.cluster(numClusters);
-        PointEvent[] originPoints = cluster.getPoints();
+        int[] clusterIDs = cluster.getClusters();
 
         String typeName = features.getSchema().getTypeName();
         SimpleFeatureType featureType = FeatureTypes.build(features, typeName);
@@ -62,16 +61,26 @@ public class KMeansClusterOperation extends GeneralOperation {
 
         // prepare transactional feature store
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
+        SimpleFeatureIterator featureIter = features.features();
         try {
-            for (PointEvent cp : originPoints) {
+            // the cluster ids follow the load order of the non-empty geometries
+            int index = 0;
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
                 SimpleFeature newFeature = featureWriter.buildFeature();
-                featureWriter.copyAttributes(cp.feature, newFeature, true);
-                newFeature.setAttribute(targetField, cp.cluster);
+                featureWriter.copyAttributes(feature, newFeature, true);
+                newFeature.setAttribute(targetField, clusterIDs[index++]);
                 featureWriter.write(newFeature);
             }
         } catch (IOException e) {
             featureWriter.rollback(e);
         } finally {
+            featureIter.close();
             featureWriter.close();
         }
 
@@ -82,15 +91,27 @@ public class KMeansClusterOperation extends GeneralOperation {
             String targetField, int numClusters) throws IOException {
         KMeansCluster cluster = new KMeansCluster(features);
         cluster.cluster(numClusters);
-        PointEvent[] originPoints = cluster.getPoints();
+        int[] clusterIDs = cluster.getClusters();
 
         Hashtable<Integer, List<Geometry>> clusters = new Hashtable<Integer, List<Geometry>>();
-        for (PointEvent cp : originPoints) {
-            final Integer clusterID = Integer.valueOf(cp.cluster);
-            if (!clusters.containsKey(clusterID)) {
-                clusters.put(clusterID, new ArrayList<Geometry>());
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            int index = 0;
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                final Integer clusterID = Integer.valueOf(clusterIDs[index++]);
+                if (!clusters.containsKey(clusterID)) {
+                    clusters.put(clusterID, new ArrayList<Geometry>());
+                }
+                clusters.get(clusterID).add(geometry);
             }
-            clusters.get(clusterID).add((Geometry) cp.feature.getDefaultGeometry());
+        } finally {
+            featureIter.close();
         }
 
         CoordinateReferenceSystem crs = features.getSchema().getCoordinateReferenceSystem();
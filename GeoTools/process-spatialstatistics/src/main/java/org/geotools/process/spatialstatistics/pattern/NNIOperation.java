@@ -22,24 +22,19 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.process.spatialstatistics.core.DistanceFactory;
 import org.geotools.process.spatialstatistics.core.FormatUtils;
+import org.geotools.process.spatialstatistics.core.PointGridIndex;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.algorithm.ConvexHull;
 import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.index.strtree.ItemBoundable;
-import org.locationtech.jts.index.strtree.ItemDistance;
-import org.locationtech.jts.index.strtree.STRtree;
-import org.opengis.feature.simple.SimpleFeature;
 
 /**
  * Calculates a nearest neighbor index based on the average distance from each feature to its nearest neighboring feature.
@@ -51,8 +46,6 @@ import org.opengis.feature.simple.SimpleFeature;
 public class NNIOperation extends GeneralOperation {
     protected static final Logger LOGGER = Logging.getLogger(NNIOperation.class);
 
-    private final DistanceFactory factory = DistanceFactory.newInstance();
-
     private DistanceMethod distanceMethod = DistanceMethod.Euclidean;
 
     private int featureCount = 0;
@@ -80,31 +73,77 @@ public class NNIOperation extends GeneralOperation {
         return convexHull.getArea();
     }
 
+    /**
+     * Computes the convex hull area from the coordinate arrays. Points strictly inside the
+     * quadrilateral of the extreme points cannot be on the hull and are skipped, so only a small
+     * fraction of the events is handed to the hull algorithm.
+     */
+    public double getConvexHullArea(SpatialEventStore events) {
+        final double[] x = events.getX();
+        final double[] y = events.getY();
+        final int size = events.size();
+        if (size < 3) {
+            return 0d;
+        }
+
+        // extreme points: min x, min y, max x, max y (counter-clockwise)
+        int[] extremes = new int[4];
+        for (int k = 1; k < size; k++) {
+            if (x[k] < x[extremes[0]]) {
+                extremes[0] = k;
+            }
+            if (y[k] < y[extremes[1]]) {
+                extremes[1] = k;
+            }
+            if (x[k] > x[extremes[2]]) {
+                extremes[2] = k;
+            }
+            if (y[k] > y[extremes[3]]) {
+                extremes[3] = k;
+            }
+        }
+
+        List<Coordinate> candidates = new ArrayList<Coordinate>();
+        for (int k = 0; k < size; k++) {
+            if (!insideQuadrilateral(x, y, extremes, x[k], y[k])) {
+                candidates.add(new Coordinate(x[k], y[k]));
+            }
+        }
+
+        Coordinate[] coordinates = candidates.toArray(new Coordinate[candidates.size()]);
+        ConvexHull cbxBuidler = new ConvexHull(coordinates, new GeometryFactory());
+        Geometry convexHull = cbxBuidler.getConvexHull();
+
+        return convexHull.getArea();
+    }
+
+    private boolean insideQuadrilateral(double[] x, double[] y, int[] extremes, double px,
+            double py) {
+        for (int i = 0; i < 4; i++) {
+            int a = extremes[i];
+            int b = extremes[(i + 1) % 4];
+            double cross = (x[b] - x[a]) * (py - y[a]) - (y[b] - y[a]) * (px - x[a]);
+            if (cross <= 0) {
+                return false; // on or right of the edge, may belong to the hull
+            }
+        }
+        return true;
+    }
+
     public NearestNeighborResult execute(SimpleFeatureCollection features) {
         return execute(features, 0d);
     }
 
     public NearestNeighborResult execute(SimpleFeatureCollection features, double studyArea) {
         typeName = features.getSchema().getTypeName();
-        factory.setDistanceType(distanceMethod);
 
+        return execute(SpatialEventStore.loadCentroids(features), studyArea);
+    }
+
+    public NearestNeighborResult execute(SpatialEventStore events, double studyArea) {
         // build spatial index
-        final List<SpatialEvent> events = new ArrayList<SpatialEvent>();
-        final STRtree spatialIndex = new STRtree();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate centroid = geometry.getCentroid().getCoordinate();
-
-                SpatialEvent event = new SpatialEvent(feature.getID(), centroid);
-                events.add(event);
-                spatialIndex.insert(new Envelope(centroid), event);
-            }
-        } finally {
-            featureIter.close();
-        }
+        PointGridIndex spatialIndex = new PointGridIndex(events.getX(), events.getY(),
+                events.size());
 
         // calculate area
         featureCount = events.size();
@@ -115,22 +154,12 @@ public class NNIOperation extends GeneralOperation {
         }
 
         // calculate nearest neighbor index
+        double[] distances = spatialIndex.getNearestDistances(distanceMethod, progressListener);
         double distanceSum = 0.0;
-        for (SpatialEvent source : events) {
-            SpatialEvent nearest = (SpatialEvent) spatialIndex.nearestNeighbour(new Envelope(
-                    source.coordinate), source, new ItemDistance() {
-                @Override
-                public double distance(ItemBoundable item1, ItemBoundable item2) {
-                    SpatialEvent s1 = (SpatialEvent) item1.getItem();
-                    SpatialEvent s2 = (SpatialEvent) item2.getItem();
-                    if (s1.id.equals(s2.id)) {
-                        return Double.MAX_VALUE;
-                    }
-                    return s1.distance(s2);
-                }
-            });
-
-            distanceSum += factory.getDistance(source, nearest);
+        for (int source = 0; source < featureCount; source++) {
+            if (!Double.isNaN(distances[source])) {
+                distanceSum += distances[source];
+            }
         }
 
         observedMeanDist = distanceSum / featureCount;
@@ -16,18 +16,19 @@
  */
 package org.geotools.process.spatialstatistics.pattern;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.opengis.feature.simple.SimpleFeature;
 
 /**
  * Performs a point pattern analysis using quadrat method.
@@ -41,6 +42,13 @@ import org.opengis.feature.simple.SimpleFeature;
 public class QuadratOperation extends GeneralOperation {
     protected static final Logger LOGGER = Logging.getLogger(QuadratOperation.class);
 
+    static final int BATCH_SIZE = 8192;
+
+    // dense counting is used while the number of quadrats is at most this times the event count
+    static final int DENSE_FACTOR = 4;
+
+    static final int DENSE_LIMIT = 1 << 24;
+
     public QuadratResult execute(SimpleFeatureCollection features) {
         return execute(features, Double.valueOf(0d));
     }
@@ -48,64 +56,76 @@ public class QuadratOperation extends GeneralOperation {
     public QuadratResult execute(SimpleFeatureCollection features, Double cellSize) {
         QuadratResult result = new QuadratResult(features.getSchema().getTypeName());
 
-        // 1. calculate extent and feature count
-        Envelope bounds = null;
-        List<Coordinate> coordinates = new ArrayList<Coordinate>();
-
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                coordinates.add(geometry.getCentroid().getCoordinate());
-
-                if (bounds == null) {
-                    bounds = geometry.getEnvelopeInternal();
-                } else {
-                    bounds.expandToInclude(geometry.getEnvelopeInternal());
-                }
-            }
-        } finally {
-            featureIter.close();
+        // 1. extent and feature count from the collection metadata
+        Envelope bounds = features.getBounds();
+        int featureCount = features.size();
+        if (bounds == null || bounds.isNull() || featureCount <= 0) {
+            LOGGER.warning("Input features are empty!");
+            return result;
         }
 
         // 2. prepare variables
         double area = bounds.getArea();
-        if (cellSize == null || cellSize <= 0 || cellSize.isNaN() || cellSize.isInfinite()) {
-            cellSize = Math.sqrt((area * 2) / coordinates.size());
-        }
+        final boolean defaultCellSize = cellSize == null || cellSize <= 0 || cellSize.isNaN()
+                || cellSize.isInfinite();
+
+        // 3. count events per quadrat in one pass. The default cell size depends on the number of
+        // events, so if some features have no geometry the grid is sized again and counted once
+        // more with the number of events actually found.
+        final double minX = bounds.getMinX();
+        final double minY = bounds.getMinY();
+        int eventCount = featureCount;
+        int columns = 0;
+        int rows = 0;
+        long quadratCount = 0;
+        QuadratCounter counter = null;
+        while (true) {
+            if (defaultCellSize) {
+                cellSize = Math.sqrt((area * 2) / eventCount);
+            }
+            if (!(cellSize > 0)) {
+                cellSize = Math.max(Math.max(bounds.getWidth(), bounds.getHeight()), 1.0);
+            }
+
+            columns = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+            rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+            quadratCount = (long) columns * rows;
+            if (quadratCount > Integer.MAX_VALUE) {
+                throw new ProcessException("Too many quadrats(" + quadratCount
+                        + "), use a larger cell size!");
+            }
 
-        double minX = bounds.getMinX();
-        double minY = bounds.getMinY();
-        int columns = (int) Math.ceil(bounds.getWidth() / cellSize);
-        int rows = (int) Math.ceil(bounds.getHeight() / cellSize);
+            // a dense array when the grid is small enough compared to the number of events, a
+            // sparse map otherwise
+            if (quadratCount <= Math.min(DENSE_LIMIT, DENSE_FACTOR * (long) eventCount)) {
+                counter = new DenseCounter((int) quadratCount);
+            } else {
+                counter = new SparseCounter(eventCount);
+            }
 
-        // 3. calculate grids & count
-        int iQuadratCount[][] = new int[rows][columns];
-        for (Coordinate coordinate : coordinates) {
-            int col = (int) Math.floor((coordinate.x - minX) / cellSize);
-            int row = (int) Math.floor((coordinate.y - minY) / cellSize);
-            iQuadratCount[row][col]++;
-        }
+            int counted = count(features, featureCount, counter, minX, minY, cellSize, columns,
+                    rows);
+            if (counted == 0) {
+                LOGGER.warning("Input features are empty!");
+                return result;
+            }
 
-        // 4. builds array
-        final int quadrats[] = new int[rows * columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                quadrats[j + i * columns] = iQuadratCount[i][j];
+            boolean resize = defaultCellSize && counted != eventCount;
+            eventCount = counted;
+            if (!resize) {
+                break;
             }
         }
 
+        // 4. frequency distribution: empty quadrats are the ones never counted
+        final long[] quadratsFreq = counter.getFrequencies(quadratCount);
+
         // 5. calculate statistics
-        int quadratCount = quadrats.length;
-        int maxVal = 0;
         double sumOfVals = 0;
         double sumOfSqrs = 0;
-
-        for (int i = 0; i < quadratCount; i++) {
-            sumOfVals += quadrats[i];
-            sumOfSqrs += quadrats[i] * quadrats[i];
-            maxVal = Math.max(maxVal, quadrats[i]);
+        for (int i = 1; i < quadratsFreq.length; i++) {
+            sumOfVals += (double) i * quadratsFreq[i];
+            sumOfSqrs += (double) i * i * quadratsFreq[i];
         }
 
         double mean = sumOfVals / quadratCount;
@@ -113,17 +133,16 @@ public class QuadratOperation extends GeneralOperation {
         double VMR = variance / mean;
 
         // 6. test
-        final int quadratsFreq[] = new int[maxVal + 1];
-        for (int i = 0; i < quadratCount; i++) {
-            quadratsFreq[quadrats[i]]++;
-        }
-
         double dObsProb = 0d;
         double dPoissonProb = 0d;
         double dMaxDiff = 0d;
+        double poisson = Math.exp(-mean); // P(0), then P(i) = P(i - 1) * mean / i
         for (int i = 0; i < quadratsFreq.length; i++) {
+            if (i > 0) {
+                poisson = poisson * mean / i;
+            }
             dObsProb += (double) quadratsFreq[i] / (double) quadratCount;
-            dPoissonProb += Math.pow(mean, i) * Math.exp(-mean) / factorial((double) i);
+            dPoissonProb += poisson;
             dMaxDiff = Math.max(dMaxDiff, Math.abs(dObsProb - dPoissonProb));
         }
 
@@ -131,7 +150,7 @@ public class QuadratOperation extends GeneralOperation {
 
         // finally, build result
         result.setArea(area);
-        result.setFeatureCount(coordinates.size());
+        result.setFeatureCount(eventCount);
         result.setCellSize(cellSize);
         result.setColumns(columns);
         result.setRows(rows);
@@ -140,19 +159,190 @@ public class QuadratOperation extends GeneralOperation {
         result.setVariance(variance);
         result.setVariance_Mean_Ratio(VMR);
 
-        result.setNumber_of_Quadrats(quadratCount);
+        result.setNumber_of_Quadrats((int) quadratCount);
         result.setKolmogorov_Smirnov_Test(dMaxDiff);
         result.setCritical_Value_at_5percent(dKS);
 
         return result;
     }
 
-    private double factorial(final double n) {
-        double f = 1.0d;
-        for (int i = 1; i <= n; i++) {
-            f *= i;
+    /**
+     * Counts the centroid of each non empty geometry in its quadrat and returns the number of
+     * events. Centroids are located in parallel batches; the counter is updated serially, which
+     * is one increment per event and small next to the centroid computation.
+     */
+    private int count(SimpleFeatureCollection features, int featureCount,
+            QuadratCounter counter, double minX, double minY, double cellSize, int columns,
+            int rows) {
+        final Geometry[] geometries = new Geometry[BATCH_SIZE];
+        final long[] keys = new long[BATCH_SIZE];
+        final ProgressTracker tracker = new ProgressTracker(progressListener, featureCount);
+
+        int eventCount = 0;
+        int batchCount = 0;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                Geometry geometry = (Geometry) featureIter.next().getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                geometries[batchCount++] = geometry;
+                if (batchCount == BATCH_SIZE) {
+                    locate(geometries, keys, batchCount, minX, minY, cellSize, columns, rows);
+                    counter.add(keys, batchCount);
+                    tracker.worked(batchCount);
+                    eventCount += batchCount;
+                    batchCount = 0;
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        if (batchCount > 0) {
+            locate(geometries, keys, batchCount, minX, minY, cellSize, columns, rows);
+            counter.add(keys, batchCount);
+            tracker.worked(batchCount);
+            eventCount += batchCount;
+        }
+        return eventCount;
+    }
+
+    private void locate(final Geometry[] geometries, final long[] keys, int batchCount,
+            final double minX, final double minY, final double cellSize, final int columns,
+            final int rows) {
+        ParallelUtils.forEach(batchCount, 512, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    Coordinate centroid = geometries[i].getCentroid().getCoordinate();
+                    int col = (int) Math.floor((centroid.x - minX) / cellSize);
+                    int row = (int) Math.floor((centroid.y - minY) / cellSize);
+                    col = Math.max(0, Math.min(col, columns - 1));
+                    row = Math.max(0, Math.min(row, rows - 1));
+                    keys[i] = (long) row * columns + col;
+                    geometries[i] = null;
+                }
+            }
+        }, progressListener);
+    }
+
+    static abstract class QuadratCounter {
+
+        public abstract void add(long[] keys, int count);
+
+        /**
+         * Returns the number of quadrats for each event count, including the empty quadrats.
+         */
+        public abstract long[] getFrequencies(long quadratCount);
+
+        protected long[] toFrequencies(int[] counts, int length, int maxCount, long quadratCount) {
+            long[] frequencies = new long[maxCount + 1];
+            long occupied = 0;
+            for (int i = 0; i < length; i++) {
+                if (counts[i] > 0) {
+                    frequencies[counts[i]]++;
+                    occupied++;
+                }
+            }
+            frequencies[0] = quadratCount - occupied;
+            return frequencies;
+        }
+    }
+
+    static final class DenseCounter extends QuadratCounter {
+        private final int[] counts;
+
+        private int maxCount = 0;
+
+        public DenseCounter(int quadratCount) {
+            this.counts = new int[quadratCount];
+        }
+
+        @Override
+        public void add(long[] keys, int count) {
+            for (int i = 0; i < count; i++) {
+                maxCount = Math.max(maxCount, ++counts[(int) keys[i]]);
+            }
+        }
+
+        @Override
+        public long[] getFrequencies(long quadratCount) {
+            return toFrequencies(counts, counts.length, maxCount, quadratCount);
+        }
+    }
+
+    /**
+     * Open addressing map from quadrat key to event count, sized by the occupied quadrats only.
+     */
+    static final class SparseCounter extends QuadratCounter {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+
+        private int[] counts;
+
+        private int size = 0;
+
+        private int maxCount = 0;
+
+        public SparseCounter(int expected) {
+            int capacity = 16;
+            while (capacity < Math.min(expected, 1 << 20) * 2) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int slot(long key, long[] table) {
+            int mask = table.length - 1;
+            int pos = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (table[pos] != EMPTY && table[pos] != key) {
+                pos = (pos + 1) & mask;
+            }
+            return pos;
+        }
+
+        @Override
+        public void add(long[] batch, int count) {
+            for (int i = 0; i < count; i++) {
+                int pos = slot(batch[i], keys);
+                if (keys[pos] == EMPTY) {
+                    keys[pos] = batch[i];
+                    if (++size * 2 > keys.length) {
+                        rehash();
+                        pos = slot(batch[i], keys);
+                    }
+                }
+                maxCount = Math.max(maxCount, ++counts[pos]);
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int pos = slot(oldKeys[i], keys);
+                    keys[pos] = oldKeys[i];
+                    counts[pos] = oldCounts[i];
+                }
+            }
+        }
+
+        @Override
+        public long[] getFrequencies(long quadratCount) {
+            return toFrequencies(counts, counts.length, maxCount, quadratCount);
         }
-        return f;
     }
 
     public static final class QuadratResult {
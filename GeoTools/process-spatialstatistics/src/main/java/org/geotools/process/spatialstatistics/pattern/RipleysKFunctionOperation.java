@@ -0,0 +1,452 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.pattern;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.core.FormatUtils;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.core.PointGridIndex;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
+import org.geotools.process.spatialstatistics.core.SpatialEventStore;
+import org.geotools.process.spatialstatistics.operations.GeneralOperation;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Determines whether features exhibit statistically significant clustering or dispersion over a
+ * range of distances (Multi-Distance Spatial Cluster Analysis, Ripley's K function).
+ * <p>
+ * The transformed L(d) = sqrt(K(d) / PI) is reported for each distance band, so that the expected
+ * value under complete spatial randomness equals the distance. Pairs are counted once per event
+ * with a uniform grid index, the study area is the extent of the events, and Ripley's isotropic
+ * edge correction weights each pair by the inverse share of the circle that lies inside the study
+ * area. The confidence envelope is the minimum and maximum L(d) of random point sets generated in
+ * the study area, and the permutations are computed in parallel.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RipleysKFunctionOperation extends GeneralOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RipleysKFunctionOperation.class);
+
+    static final int CHUNK_SIZE = 4096;
+
+    private int numberOfBands = 10;
+
+    private double beginDistance = 0d;
+
+    private double distanceIncrement = 0d;
+
+    private boolean edgeCorrection = true;
+
+    private int permutations = 9;
+
+    private long randomSeed = 1L;
+
+    private String typeName = "Ripley's K Function";
+
+    public void setNumberOfBands(int numberOfBands) {
+        this.numberOfBands = numberOfBands;
+    }
+
+    /**
+     * @param beginDistance the first distance band, if 0 the distance increment is used
+     */
+    public void setBeginDistance(double beginDistance) {
+        this.beginDistance = beginDistance;
+    }
+
+    /**
+     * @param distanceIncrement the band width, if 0 a quarter of the longer side of the study
+     *        area is divided by the number of bands
+     */
+    public void setDistanceIncrement(double distanceIncrement) {
+        this.distanceIncrement = distanceIncrement;
+    }
+
+    public void setEdgeCorrection(boolean edgeCorrection) {
+        this.edgeCorrection = edgeCorrection;
+    }
+
+    /**
+     * @param permutations the number of random point sets used for the confidence envelope, 0
+     *        disables the envelope
+     */
+    public void setPermutations(int permutations) {
+        this.permutations = permutations;
+    }
+
+    /**
+     * Random point sets of a permutation are generated from this seed, so results are repeatable.
+     */
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public RipleysKResult execute(SimpleFeatureCollection features) {
+        typeName = features.getSchema().getTypeName();
+
+        return execute(SpatialEventStore.loadCentroids(features));
+    }
+
+    public RipleysKResult execute(SpatialEventStore events) {
+        final int size = events.size();
+        final Envelope studyArea = events.getExtent();
+
+        // distance bands
+        int bands = Math.max(1, numberOfBands);
+        double increment = distanceIncrement;
+        if (increment <= 0 || Double.isNaN(increment) || Double.isInfinite(increment)) {
+            increment = Math.max(studyArea.getWidth(), studyArea.getHeight()) * 0.25 / bands;
+        }
+
+        double begin = beginDistance <= 0 ? increment : beginDistance;
+        final double[] distances = new double[bands];
+        for (int band = 0; band < bands; band++) {
+            distances[band] = begin + band * increment;
+        }
+
+        RipleysKResult result = new RipleysKResult(typeName);
+        result.setFeatureCount(size);
+        result.setArea(FormatUtils.round(studyArea.getArea()));
+        result.setPermutations(permutations);
+
+        if (size < 2 || studyArea.getArea() <= 0 || !(increment > 0)) {
+            LOGGER.warning("At least two events in a non-degenerate extent are required!");
+            for (int band = 0; band < bands; band++) {
+                result.getBands().add(new DistanceBand(distances[band]));
+            }
+            return result;
+        }
+
+        final int totalWork = size * (1 + Math.max(0, permutations));
+        final ProgressTracker tracker = new ProgressTracker(progressListener, totalWork);
+
+        // observed L(d), parallel over chunks of events
+        final double[] observed = computeL(events.getX(), events.getY(), size, studyArea,
+                distances, tracker, true);
+
+        // confidence envelope, parallel over permutations
+        final double[] lowerL = new double[bands];
+        final double[] upperL = new double[bands];
+        if (permutations > 0) {
+            List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+            for (int index = 0; index < permutations; index++) {
+                final long seed = randomSeed + index;
+                tasks.add(new Callable<double[]>() {
+                    @Override
+                    public double[] call() throws Exception {
+                        Random random = new Random(seed);
+                        double[] x = new double[size];
+                        double[] y = new double[size];
+                        for (int k = 0; k < size; k++) {
+                            x[k] = studyArea.getMinX() + random.nextDouble() * studyArea.getWidth();
+                            y[k] = studyArea.getMinY() + random.nextDouble()
+                                    * studyArea.getHeight();
+                        }
+                        return computeL(x, y, size, studyArea, distances, tracker, false);
+                    }
+                });
+            }
+
+            boolean first = true;
+            for (double[] simulated : ParallelUtils.invokeAll(tasks, progressListener)) {
+                for (int band = 0; band < bands; band++) {
+                    if (first || simulated[band] < lowerL[band]) {
+                        lowerL[band] = simulated[band];
+                    }
+                    if (first || simulated[band] > upperL[band]) {
+                        upperL[band] = simulated[band];
+                    }
+                }
+                first = false;
+            }
+        }
+
+        for (int band = 0; band < bands; band++) {
+            DistanceBand distanceBand = new DistanceBand(distances[band]);
+            distanceBand.setObservedL(FormatUtils.round(observed[band]));
+            distanceBand.setDifference(FormatUtils.round(observed[band] - distances[band]));
+            if (permutations > 0) {
+                distanceBand.setLowerEnvelope(FormatUtils.round(lowerL[band]));
+                distanceBand.setUpperEnvelope(FormatUtils.round(upperL[band]));
+            }
+            result.getBands().add(distanceBand);
+        }
+
+        return result;
+    }
+
+    private double[] computeL(final double[] x, final double[] y, final int size,
+            final Envelope studyArea, final double[] distances, final ProgressTracker tracker,
+            boolean parallel) {
+        final PointGridIndex index = new PointGridIndex(x, y, size);
+        final int bands = distances.length;
+        final double maxDistance = distances[bands - 1];
+
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+        final int chunkSize = parallel ? CHUNK_SIZE : size;
+        for (int start = 0; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(size, start + chunkSize);
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() throws Exception {
+                    final double[] sums = new double[bands];
+                    for (int source = from; source < to; source++) {
+                        final double xVal = x[source];
+                        final double yVal = y[source];
+                        final double[] edges = new double[] {
+                                Math.max(0d, xVal - studyArea.getMinX()),
+                                Math.max(0d, yVal - studyArea.getMinY()),
+                                Math.max(0d, studyArea.getMaxX() - xVal),
+                                Math.max(0d, studyArea.getMaxY() - yVal) };
+                        final double minEdge = Math.min(Math.min(edges[0], edges[1]),
+                                Math.min(edges[2], edges[3]));
+
+                        index.visitNeighbors(source, maxDistance,
+                                new PointGridIndex.NeighborVisitor() {
+                                    @Override
+                                    public void visit(int src, int target, double distance) {
+                                        int band = bandOf(distances, distance);
+                                        if (edgeCorrection && distance > minEdge) {
+                                            sums[band] += edgeWeight(edges, distance);
+                                        } else {
+                                            sums[band] += 1.0;
+                                        }
+                                    }
+                                });
+
+                        if ((source - from) % ProgressTracker.CHECK_INTERVAL == 0) {
+                            tracker.checkCanceled();
+                        }
+                    }
+                    tracker.worked(to - from);
+                    return sums;
+                }
+            });
+        }
+
+        final double[] pairs = new double[bands];
+        List<double[]> partials = parallel ? ParallelUtils.invokeAll(tasks, progressListener)
+                : ParallelUtils.invokeAll(tasks);
+        for (double[] sums : partials) {
+            for (int band = 0; band < bands; band++) {
+                pairs[band] += sums[band];
+            }
+        }
+
+        // K(d) = A * sum(w) / (n * (n - 1)), L(d) = sqrt(K(d) / PI)
+        final double scale = studyArea.getArea() / ((double) size * (size - 1));
+        final double[] values = new double[bands];
+        double cumulative = 0d;
+        for (int band = 0; band < bands; band++) {
+            cumulative += pairs[band];
+            values[band] = Math.sqrt(cumulative * scale / Math.PI);
+        }
+        return values;
+    }
+
+    private static int bandOf(double[] distances, double distance) {
+        int low = 0;
+        int high = distances.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distances[mid] < distance) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Ripley's isotropic edge correction for a rectangular study area: the inverse of the share
+     * of the circumference of the circle that lies inside the rectangle.
+     * 
+     * @param edges distances to the left, bottom, right and top edges
+     */
+    static double edgeWeight(double[] edges, double radius) {
+        double[] alpha = new double[4];
+        double outside = 0d;
+        for (int i = 0; i < 4; i++) {
+            if (edges[i] < radius) {
+                alpha[i] = Math.acos(edges[i] / radius);
+                outside += 2.0 * alpha[i];
+            }
+        }
+
+        // the arcs beyond two adjacent edges overlap when the corner is inside the circle
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            if (edges[i] * edges[i] + edges[j] * edges[j] < radius * radius) {
+                outside -= alpha[i] + alpha[j] - Math.PI / 2.0;
+            }
+        }
+
+        double inside = 1.0 - outside / (2.0 * Math.PI);
+        return inside <= 0.25 ? 4.0 : 1.0 / inside;
+    }
+
+    public static final class DistanceBand {
+
+        double distance;
+
+        double expectedL;
+
+        double observedL = 0;
+
+        double difference = 0;
+
+        double lowerEnvelope = 0;
+
+        double upperEnvelope = 0;
+
+        public DistanceBand(double distance) {
+            this.distance = FormatUtils.round(distance);
+            this.expectedL = this.distance;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        public double getExpectedL() {
+            return expectedL;
+        }
+
+        public double getObservedL() {
+            return observedL;
+        }
+
+        public void setObservedL(double observedL) {
+            this.observedL = observedL;
+        }
+
+        public double getDifference() {
+            return difference;
+        }
+
+        public void setDifference(double difference) {
+            this.difference = difference;
+        }
+
+        public double getLowerEnvelope() {
+            return lowerEnvelope;
+        }
+
+        public void setLowerEnvelope(double lowerEnvelope) {
+            this.lowerEnvelope = lowerEnvelope;
+        }
+
+        public double getUpperEnvelope() {
+            return upperEnvelope;
+        }
+
+        public void setUpperEnvelope(double upperEnvelope) {
+            this.upperEnvelope = upperEnvelope;
+        }
+    }
+
+    public static final class RipleysKResult {
+
+        String typeName;
+
+        int featureCount = 0;
+
+        double area = 0;
+
+        int permutations = 0;
+
+        List<DistanceBand> bands = new ArrayList<DistanceBand>();
+
+        public RipleysKResult(String typeName) {
+            this.typeName = typeName;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public void setTypeName(String typeName) {
+            this.typeName = typeName;
+        }
+
+        public int getFeatureCount() {
+            return featureCount;
+        }
+
+        public void setFeatureCount(int featureCount) {
+            this.featureCount = featureCount;
+        }
+
+        public double getArea() {
+            return area;
+        }
+
+        public void setArea(double area) {
+            this.area = area;
+        }
+
+        public int getPermutations() {
+            return permutations;
+        }
+
+        public void setPermutations(int permutations) {
+            this.permutations = permutations;
+        }
+
+        public List<DistanceBand> getBands() {
+            return bands;
+        }
+
+        @Override
+        public String toString() {
+            final String separator = System.getProperty("line.separator");
+            final DecimalFormat df = new DecimalFormat("##.######");
+
+            StringBuffer sb = new StringBuffer();
+            sb.append("|| Multi-Distance Spatial Cluster Analysis (Ripley's K Function)")
+                    .append(separator);
+            sb.append("|| Observed Point Count: ").append(df.format(getFeatureCount()))
+                    .append(separator);
+            sb.append("|| Study Area: ").append(df.format(getArea())).append(separator);
+            sb.append("|| Permutations: ").append(getPermutations()).append(separator);
+            sb.append("|| Distance, ExpectedL, ObservedL, Difference, LowConfEnv, HighConfEnv")
+                    .append(separator);
+            for (DistanceBand band : bands) {
+                sb.append("|| ").append(df.format(band.getDistance()));
+                sb.append(", ").append(df.format(band.getExpectedL()));
+                sb.append(", ").append(df.format(band.getObservedL()));
+                sb.append(", ").append(df.format(band.getDifference()));
+                sb.append(", ").append(df.format(band.getLowerEnvelope()));
+                sb.append(", ").append(df.format(band.getUpperEnvelope())).append(separator);
+            }
+
+            return sb.toString();
+        }
+    }
+}
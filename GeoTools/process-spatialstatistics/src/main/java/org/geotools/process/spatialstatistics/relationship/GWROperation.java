@@ -0,0 +1,890 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.relationship;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.operations.GeneralOperation;
+import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Performs Geographically Weighted Regression (GWR).
+ * <p>
+ * A weighted least squares model is fitted at every observation using the neighbours found in a
+ * STRtree. Neighbour lists are built once and shared by all candidate bandwidths of the AICc
+ * search, and local models are solved in parallel with per-thread matrices, so a local solve does
+ * not allocate.
+ * <p>
+ * Supported kernels are {@link KernelType#Gaussian} and {@link KernelType#Quartic} (bisquare). A
+ * fixed bandwidth is a distance; an adaptive bandwidth is a number of nearest neighbours. Fixed
+ * Gaussian weights are truncated at {@link #GAUSSIAN_CUTOFF} bandwidths, and adaptive Gaussian
+ * weights are limited to the nearest neighbours.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ * 
+ * @reference Fotheringham, A.S., Brunsdon, C., Charlton, M. (2002) Geographically Weighted
+ *            Regression: the analysis of spatially varying relationships. Wiley.
+ */
+public class GWROperation extends GeneralOperation {
+    protected static final Logger LOGGER = Logging.getLogger(GWROperation.class);
+
+    public static final double GAUSSIAN_CUTOFF = 3.0;
+
+    public static final int DEFAULT_MAX_NEIGHBORS = 200;
+
+    static final int MAX_SEARCH_ITERATIONS = 50;
+
+    static final double SEARCH_TOLERANCE = 1.0e-4;
+
+    static final double GOLDEN_RATIO = (Math.sqrt(5.0) - 1.0) / 2.0;
+
+    private KernelType kernelType = KernelType.Quartic;
+
+    private boolean adaptive = false;
+
+    private double bandwidth = 0.0; // 0 = AICc search
+
+    private int maxNeighbors = DEFAULT_MAX_NEIGHBORS;
+
+    private SimpleFeatureCollection residualFeatures;
+
+    // observations
+    private int n, p;
+
+    private double[] xs, ys; // locations
+
+    private double[] X; // n x p, column 0 = 1
+
+    private double[] Y;
+
+    private String[] propertyNames; // dependent, independents...
+
+    // neighbour lists sorted by distance
+    private int[][] neighbors;
+
+    private double[][] distances;
+
+    private boolean completeLists;
+
+    // diagnostics
+    private double RSS, traceS, sigma, AICc, R2, R2adjusted;
+
+    public GWROperation() {
+
+    }
+
+    public KernelType getKernelType() {
+        return kernelType;
+    }
+
+    /**
+     * Gaussian or Quartic (bisquare), default is Quartic
+     */
+    public void setKernelType(KernelType kernelType) {
+        if (kernelType != KernelType.Gaussian && kernelType != KernelType.Quartic) {
+            throw new IllegalArgumentException(
+                    "GWR supports Gaussian and Quartic (bisquare) kernels only!");
+        }
+        this.kernelType = kernelType;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the bandwidth: a distance, or a number of neighbours if adaptive.
+     */
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * Sets the bandwidth: a distance, or a number of neighbours if adaptive. If 0 or less, the
+     * bandwidth that minimises AICc is searched.
+     */
+    public void setBandwidth(double bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public int getMaxNeighbors() {
+        return maxNeighbors;
+    }
+
+    /**
+     * Sets the size of the neighbour lists used by the bandwidth search. It bounds both the
+     * adaptive search range and the largest fixed distance examined.
+     */
+    public void setMaxNeighbors(int maxNeighbors) {
+        this.maxNeighbors = maxNeighbors;
+    }
+
+    public SimpleFeatureCollection getResidualFeatures() {
+        return residualFeatures;
+    }
+
+    public int getNumberOfObservations() {
+        return n;
+    }
+
+    public double getResidualSquares() {
+        return RSS;
+    }
+
+    public double getEffectiveNumber() {
+        return traceS;
+    }
+
+    public double getSigma() {
+        return sigma;
+    }
+
+    public double getAICc() {
+        return AICc;
+    }
+
+    public double getRSquared() {
+        return R2;
+    }
+
+    public double getAdjustedRSquared() {
+        return R2adjusted;
+    }
+
+    public SimpleFeatureCollection execute(SimpleFeatureCollection features,
+            String dependentVariable, String independentVariables) throws IOException {
+        List<String> fields = new ArrayList<String>();
+        for (String field : independentVariables.split(",")) {
+            fields.add(field.trim());
+        }
+        return execute(features, dependentVariable, fields);
+    }
+
+    public SimpleFeatureCollection execute(SimpleFeatureCollection features,
+            String dependentVariable, List<String> independentVariables) throws IOException {
+        // check fields
+        SimpleFeatureType schema = features.getSchema();
+        Map<String, String> fieldMap = new LinkedHashMap<String, String>();
+        dependentVariable = FeatureTypes.validateProperty(schema, dependentVariable);
+        fieldMap.put(dependentVariable, dependentVariable);
+        for (String field : independentVariables) {
+            field = FeatureTypes.validateProperty(schema, field.trim());
+            if (fieldMap.containsKey(field)) {
+                LOGGER.log(Level.WARNING, field + " property already exist!");
+            } else {
+                fieldMap.put(field, field);
+            }
+        }
+        propertyNames = fieldMap.keySet().toArray(new String[fieldMap.size()]);
+        p = propertyNames.length; // intercept + independent variables
+
+        // load observations
+        loadObservations(features);
+        if (n <= p + 1) {
+            throw new IllegalArgumentException("Not enough observations: " + n);
+        }
+
+        // neighbour lists & bandwidth
+        if (bandwidth > 0 && !adaptive) {
+            buildDistanceLists(bandwidth * cutoff());
+        } else {
+            int size = Math.min(n, Math.max(maxNeighbors, p + 2));
+            if (adaptive && bandwidth > 0) {
+                size = Math.min(n, (int) Math.round(bandwidth));
+            }
+            buildNearestLists(size);
+
+            if (bandwidth <= 0) {
+                bandwidth = adaptive ? searchAdaptiveBandwidth() : searchFixedBandwidth();
+            }
+        }
+
+        // final fit
+        final double[] outputs = new double[n * (4 + 2 * p)];
+        if (!fit(bandwidth, outputs)) {
+            LOGGER.log(Level.WARNING, "Some local models are singular, bandwidth = " + bandwidth);
+        }
+
+        buildFeatures(features, outputs);
+
+        return residualFeatures;
+    }
+
+    private double cutoff() {
+        return kernelType == KernelType.Gaussian ? GAUSSIAN_CUTOFF : 1.0;
+    }
+
+    private void loadObservations(SimpleFeatureCollection features) {
+        SimpleFeatureType schema = features.getSchema();
+        int[] attributeIndexes = new int[p];
+        for (int index = 0; index < p; index++) {
+            attributeIndexes[index] = schema.indexOf(propertyNames[index]);
+        }
+
+        int capacity = Math.max(16, features.size());
+        xs = new double[capacity];
+        ys = new double[capacity];
+        X = new double[capacity * p];
+        Y = new double[capacity];
+
+        n = 0;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                if (n == xs.length) {
+                    capacity = xs.length * 2;
+                    xs = Arrays.copyOf(xs, capacity);
+                    ys = Arrays.copyOf(ys, capacity);
+                    X = Arrays.copyOf(X, capacity * p);
+                    Y = Arrays.copyOf(Y, capacity);
+                }
+
+                Coordinate coordinate = geometry instanceof Point ? geometry.getCoordinate()
+                        : geometry.getCentroid().getCoordinate();
+                xs[n] = coordinate.x;
+                ys[n] = coordinate.y;
+
+                X[n * p] = 1.0;
+                for (int index = 0; index < p; index++) {
+                    Object value = null;
+                    if (attributeIndexes[index] != -1) {
+                        value = feature.getAttribute(attributeIndexes[index]);
+                    }
+
+                    Double dblVal = Converters.convert(value, Double.class);
+                    double curVal = 0.0d;
+                    if (dblVal == null) {
+                        LOGGER.log(Level.WARNING, feature.getID() + "'s " + propertyNames[index]
+                                + " value is null. Replaced null to zero!");
+                    } else {
+                        curVal = dblVal.doubleValue();
+                    }
+
+                    if (index == 0) {
+                        Y[n] = curVal;
+                    } else {
+                        X[n * p + index] = curVal;
+                    }
+                }
+                n++;
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    private STRtree buildSpatialIndex() {
+        STRtree spatialIndex = new STRtree();
+        for (int i = 0; i < n; i++) {
+            spatialIndex.insert(new Envelope(xs[i], xs[i], ys[i], ys[i]), Integer.valueOf(i));
+        }
+        spatialIndex.build();
+        return spatialIndex;
+    }
+
+    /**
+     * Builds the lists of all neighbours within a distance.
+     */
+    private void buildDistanceLists(final double radius) {
+        final STRtree spatialIndex = buildSpatialIndex();
+        neighbors = new int[n][];
+        distances = new double[n][];
+        completeLists = true;
+
+        ParallelUtils.forEach(n, 256, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    queryNeighbors(spatialIndex, i, radius, Integer.MAX_VALUE);
+                }
+            }
+        }, progressListener);
+    }
+
+    /**
+     * Builds the lists of the k nearest neighbours, including the observation itself.
+     */
+    private void buildNearestLists(final int k) {
+        final STRtree spatialIndex = buildSpatialIndex();
+        neighbors = new int[n][];
+        distances = new double[n][];
+        completeLists = k >= n;
+
+        // initial search radius from the average density
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        double area = (maxX - minX) * (maxY - minY);
+        double diagonal = Math.hypot(maxX - minX, maxY - minY);
+        final double initialRadius = area > 0 ? 1.5 * Math.sqrt(k * area / (Math.PI * n))
+                : Math.max(diagonal, 1.0);
+
+        ParallelUtils.forEach(n, 256, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    double radius = initialRadius;
+                    while (!queryNeighbors(spatialIndex, i, radius, k)) {
+                        radius *= 2.0;
+                    }
+                }
+            }
+        }, progressListener);
+    }
+
+    /**
+     * Finds up to k nearest neighbours within the radius. Returns false if fewer than k
+     * observations are in the radius and the radius must grow.
+     */
+    private boolean queryNeighbors(STRtree spatialIndex, int i, double radius, int k) {
+        final double x = xs[i];
+        final double y = ys[i];
+
+        @SuppressWarnings("unchecked")
+        List<Integer> candidates = spatialIndex.query(new Envelope(x - radius, x + radius, y
+                - radius, y + radius));
+
+        // sort key: float bits of the distance (order preserving for d >= 0), then index
+        long[] keys = new long[candidates.size()];
+        int count = 0;
+        for (Integer candidate : candidates) {
+            int j = candidate.intValue();
+            double distance = Math.hypot(xs[j] - x, ys[j] - y);
+            if (distance <= radius) {
+                keys[count++] = ((long) Float.floatToIntBits((float) distance) << 32) | j;
+            }
+        }
+
+        if (k != Integer.MAX_VALUE && count < Math.min(k, n)) {
+            return false;
+        }
+
+        Arrays.sort(keys, 0, count);
+        int size = Math.min(count, k);
+        int[] indexes = new int[size];
+        double[] dists = new double[size];
+        for (int m = 0; m < size; m++) {
+            int j = (int) (keys[m] & 0xFFFFFFFFL);
+            indexes[m] = j;
+            dists[m] = Math.hypot(xs[j] - x, ys[j] - y);
+        }
+
+        // restore the exact order of ties broken by float rounding
+        for (int m = 1; m < size; m++) {
+            int j = indexes[m];
+            double d = dists[m];
+            int q = m - 1;
+            while (q >= 0 && dists[q] > d) {
+                indexes[q + 1] = indexes[q];
+                dists[q + 1] = dists[q];
+                q--;
+            }
+            indexes[q + 1] = j;
+            dists[q + 1] = d;
+        }
+
+        neighbors[i] = indexes;
+        distances[i] = dists;
+        return true;
+    }
+
+    private double searchAdaptiveBandwidth() {
+        final Map<Integer, Double> cache = new HashMap<Integer, Double>();
+        int lower = p + 2;
+        int upper = 0;
+        for (int i = 0; i < n; i++) {
+            upper = i == 0 ? neighbors[i].length : Math.min(upper, neighbors[i].length);
+        }
+
+        if (upper <= lower) {
+            return upper;
+        }
+
+        double a = lower, b = upper;
+        int c = (int) Math.round(b - GOLDEN_RATIO * (b - a));
+        int d = (int) Math.round(a + GOLDEN_RATIO * (b - a));
+        for (int iter = 0; iter < MAX_SEARCH_ITERATIONS && b - a > 1.0; iter++) {
+            if (evaluate(c, cache) < evaluate(d, cache)) {
+                b = d;
+            } else {
+                a = c;
+            }
+            c = (int) Math.round(b - GOLDEN_RATIO * (b - a));
+            d = (int) Math.round(a + GOLDEN_RATIO * (b - a));
+        }
+
+        // best of the final bracket
+        int best = (int) Math.round(a);
+        for (int k = (int) Math.floor(a); k <= (int) Math.ceil(b); k++) {
+            if (k >= lower && k <= upper && evaluate(k, cache) < evaluate(best, cache)) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private double evaluate(int k, Map<Integer, Double> cache) {
+        Integer key = Integer.valueOf(k);
+        Double value = cache.get(key);
+        if (value == null) {
+            value = Double.valueOf(fit(k, null) ? AICc : Double.MAX_VALUE);
+            cache.put(key, value);
+        }
+        return value.doubleValue();
+    }
+
+    private double searchFixedBandwidth() {
+        // every neighbourhood must be complete within the lists
+        double lower = 0.0;
+        double upper = completeLists ? 0.0 : Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            double[] dists = distances[i];
+            lower = Math.max(lower, dists[Math.min(dists.length, p + 2) - 1]);
+            if (completeLists) {
+                upper = Math.max(upper, dists[dists.length - 1]);
+            } else {
+                upper = Math.min(upper, dists[dists.length - 1] / cutoff());
+            }
+        }
+
+        if (kernelType == KernelType.Quartic) {
+            lower *= 1.0 + SEARCH_TOLERANCE; // the bisquare weight is 0 at the bandwidth
+        }
+
+        if (upper <= lower) {
+            LOGGER.log(Level.WARNING, "Bandwidth search range is empty, increase maxNeighbors!");
+            return lower;
+        }
+
+        double a = lower, b = upper;
+        double c = b - GOLDEN_RATIO * (b - a);
+        double d = a + GOLDEN_RATIO * (b - a);
+        double fc = fit(c, null) ? AICc : Double.MAX_VALUE;
+        double fd = fit(d, null) ? AICc : Double.MAX_VALUE;
+        for (int iter = 0; iter < MAX_SEARCH_ITERATIONS; iter++) {
+            if (b - a < SEARCH_TOLERANCE * upper) {
+                break;
+            }
+
+            if (fc < fd) {
+                b = d;
+                d = c;
+                fd = fc;
+                c = b - GOLDEN_RATIO * (b - a);
+                fc = fit(c, null) ? AICc : Double.MAX_VALUE;
+            } else {
+                a = c;
+                c = d;
+                fc = fd;
+                d = a + GOLDEN_RATIO * (b - a);
+                fd = fit(d, null) ? AICc : Double.MAX_VALUE;
+            }
+        }
+        return fc < fd ? c : d;
+    }
+
+    /**
+     * Fits all local models and updates the diagnostics. If outputs is not null, it receives per
+     * observation: {Predicted, Residual, S_ii, LocalR2, coefficients..., standard errors...}.
+     * Returns false if a local model is singular.
+     */
+    private boolean fit(final double bw, final double[] outputs) {
+        final int stride = 4 + 2 * p;
+        final double[] residuals = new double[n];
+        final double[] leverages = new double[n];
+        final boolean[] singular = new boolean[1];
+
+        ParallelUtils.forEach(n, 256, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int start, int end) {
+                LocalModel model = new LocalModel(p);
+                for (int i = start; i < end; i++) {
+                    if (!model.solve(i, bw, outputs != null)) {
+                        singular[0] = true;
+                        residuals[i] = Double.NaN;
+                        if (outputs != null) {
+                            Arrays.fill(outputs, i * stride, (i + 1) * stride, Double.NaN);
+                        }
+                        continue;
+                    }
+
+                    residuals[i] = model.residual;
+                    leverages[i] = model.leverage;
+                    if (outputs != null) {
+                        int offset = i * stride;
+                        outputs[offset] = Y[i] - model.residual;
+                        outputs[offset + 1] = model.residual;
+                        outputs[offset + 2] = model.leverage;
+                        outputs[offset + 3] = model.localR2;
+                        System.arraycopy(model.beta, 0, outputs, offset + 4, p);
+                        System.arraycopy(model.variances, 0, outputs, offset + 4 + p, p);
+                    }
+                }
+            }
+        }, progressListener);
+
+        // diagnostics, reduced in observation order
+        double sumY = 0.0, sumY2 = 0.0;
+        RSS = 0.0;
+        traceS = 0.0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(residuals[i])) {
+                RSS += residuals[i] * residuals[i];
+                traceS += leverages[i];
+            }
+            sumY += Y[i];
+            sumY2 += Y[i] * Y[i];
+        }
+
+        double SST = sumY2 - sumY * sumY / n;
+        sigma = Math.sqrt(RSS / n);
+        R2 = 1.0 - RSS / SST;
+        R2adjusted = 1.0 - (1.0 - R2) * (n - 1) / (n - traceS - 1);
+        if (n - 2 - traceS <= 0) {
+            AICc = Double.MAX_VALUE;
+        } else {
+            AICc = 2.0 * n * Math.log(sigma) + n * Math.log(2.0 * Math.PI) + n * (n + traceS)
+                    / (n - 2 - traceS);
+        }
+
+        if (outputs != null) {
+            // standard errors & standardized residuals
+            double sigma2 = RSS / (n - traceS);
+            for (int i = 0; i < n; i++) {
+                int offset = i * stride;
+                for (int j = 0; j < p; j++) {
+                    outputs[offset + 4 + p + j] = Math.sqrt(outputs[offset + 4 + p + j] * sigma2);
+                }
+                double leverage = outputs[offset + 2];
+                outputs[offset + 2] = outputs[offset + 1] / Math.sqrt(sigma2 * (1.0 - leverage));
+            }
+        }
+
+        return !singular[0];
+    }
+
+    private double weight(double distance, double h) {
+        if (h <= 0) {
+            return distance <= 0 ? 1.0 : 0.0;
+        }
+
+        double u = distance / h;
+        if (kernelType == KernelType.Gaussian) {
+            return Math.exp(-0.5 * u * u);
+        }
+        return u < 1.0 ? (1.0 - u * u) * (1.0 - u * u) : 0.0;
+    }
+
+    /**
+     * Weighted least squares of one observation with preallocated p x p matrices.
+     */
+    final class LocalModel {
+        final int dim;
+
+        final double[] A; // X'WX, then its Cholesky factor
+
+        final double[] B; // X'W^2X
+
+        final double[] b;
+
+        final double[] v;
+
+        final double[] beta;
+
+        final double[] variances; // diagonal of A^-1 B A^-1
+
+        final double[] inverse;
+
+        double residual, leverage, localR2;
+
+        LocalModel(int dim) {
+            this.dim = dim;
+            this.A = new double[dim * dim];
+            this.B = new double[dim * dim];
+            this.b = new double[dim];
+            this.v = new double[dim];
+            this.beta = new double[dim];
+            this.variances = new double[dim];
+            this.inverse = new double[dim * dim];
+        }
+
+        boolean solve(int i, double bw, boolean details) {
+            final int[] indexes = neighbors[i];
+            final double[] dists = distances[i];
+
+            int count = indexes.length;
+            double h = bw;
+            if (adaptive) {
+                count = Math.min(count, (int) Math.round(bw));
+                h = dists[count - 1];
+            } else {
+                final double radius = bw * cutoff();
+                while (count > 0 && dists[count - 1] > radius) {
+                    count--;
+                }
+            }
+
+            Arrays.fill(A, 0.0);
+            Arrays.fill(b, 0.0);
+            if (details) {
+                Arrays.fill(B, 0.0);
+            }
+
+            for (int m = 0; m < count; m++) {
+                final int j = indexes[m];
+                final double w = weight(dists[m], h);
+                if (w == 0) {
+                    continue;
+                }
+
+                final int row = j * p;
+                for (int r = 0; r < dim; r++) {
+                    final double wx = w * X[row + r];
+                    b[r] += wx * Y[j];
+                    for (int c = 0; c <= r; c++) {
+                        A[r * dim + c] += wx * X[row + c];
+                    }
+                    if (details) {
+                        for (int c = 0; c <= r; c++) {
+                            B[r * dim + c] += w * wx * X[row + c];
+                        }
+                    }
+                }
+            }
+
+            if (!cholesky()) {
+                return false;
+            }
+
+            // beta = A^-1 X'Wy
+            System.arraycopy(b, 0, beta, 0, dim);
+            substitute(beta);
+
+            // residual & hat matrix diagonal, S_ii = w_ii * x_i' A^-1 x_i with w_ii = 1
+            final int row = i * p;
+            double estimated = 0.0;
+            for (int r = 0; r < dim; r++) {
+                estimated += X[row + r] * beta[r];
+                v[r] = X[row + r];
+            }
+            substitute(v);
+
+            leverage = 0.0;
+            for (int r = 0; r < dim; r++) {
+                leverage += X[row + r] * v[r];
+            }
+            leverage *= weight(0.0, h);
+            residual = Y[i] - estimated;
+
+            if (details) {
+                details(indexes, dists, count, h);
+            }
+            return true;
+        }
+
+        private void details(int[] indexes, double[] dists, int count, double h) {
+            // A^-1, column by column
+            for (int c = 0; c < dim; c++) {
+                Arrays.fill(v, 0.0);
+                v[c] = 1.0;
+                substitute(v);
+                for (int r = 0; r < dim; r++) {
+                    inverse[r * dim + c] = v[r];
+                }
+            }
+
+            // diag(A^-1 B A^-1), B stored in the lower triangle
+            for (int r = 0; r < dim; r++) {
+                double sum = 0.0;
+                for (int s = 0; s < dim; s++) {
+                    for (int t = 0; t < dim; t++) {
+                        double bst = s >= t ? B[s * dim + t] : B[t * dim + s];
+                        sum += inverse[r * dim + s] * bst * inverse[t * dim + r];
+                    }
+                }
+                variances[r] = sum;
+            }
+
+            // local R2
+            double sumW = 0.0, sumWY = 0.0;
+            for (int m = 0; m < count; m++) {
+                final double w = weight(dists[m], h);
+                sumW += w;
+                sumWY += w * Y[indexes[m]];
+            }
+
+            final double meanWY = sumWY / sumW;
+            double sse = 0.0, sst = 0.0;
+            for (int m = 0; m < count; m++) {
+                final int j = indexes[m];
+                final double w = weight(dists[m], h);
+                double estimated = 0.0;
+                for (int r = 0; r < dim; r++) {
+                    estimated += X[j * p + r] * beta[r];
+                }
+                sse += w * (Y[j] - estimated) * (Y[j] - estimated);
+                sst += w * (Y[j] - meanWY) * (Y[j] - meanWY);
+            }
+            localR2 = sst == 0 ? 0.0 : 1.0 - sse / sst;
+        }
+
+        // in place Cholesky factorization of the lower triangle of A
+        private boolean cholesky() {
+            for (int r = 0; r < dim; r++) {
+                for (int c = 0; c <= r; c++) {
+                    double sum = A[r * dim + c];
+                    for (int k = 0; k < c; k++) {
+                        sum -= A[r * dim + k] * A[c * dim + k];
+                    }
+
+                    if (r == c) {
+                        if (sum <= 1.0e-12 * Math.abs(A[r * dim + r]) || sum <= 0) {
+                            return false;
+                        }
+                        A[r * dim + r] = Math.sqrt(sum);
+                    } else {
+                        A[r * dim + c] = sum / A[c * dim + c];
+                    }
+                }
+            }
+            return true;
+        }
+
+        // solves L L' x = x in place
+        private void substitute(double[] x) {
+            for (int r = 0; r < dim; r++) {
+                double sum = x[r];
+                for (int k = 0; k < r; k++) {
+                    sum -= A[r * dim + k] * x[k];
+                }
+                x[r] = sum / A[r * dim + r];
+            }
+
+            for (int r = dim - 1; r >= 0; r--) {
+                double sum = x[r];
+                for (int k = r + 1; k < dim; k++) {
+                    sum -= A[k * dim + r] * x[k];
+                }
+                x[r] = sum / A[r * dim + r];
+            }
+        }
+    }
+
+    private void buildFeatures(SimpleFeatureCollection features, double[] outputs)
+            throws IOException {
+        // create schema
+        List<String> fields = new ArrayList<String>();
+        fields.add("Predicted");
+        fields.add("Residual");
+        fields.add("StdResid");
+        fields.add("LocalR2");
+        fields.add("Intercept");
+        for (int index = 1; index < p; index++) {
+            fields.add(fieldName("C" + index + "_", propertyNames[index]));
+        }
+        fields.add("SE_Int");
+        for (int index = 1; index < p; index++) {
+            fields.add(fieldName("SE" + index + "_", propertyNames[index]));
+        }
+
+        SimpleFeatureType featureType = features.getSchema();
+        for (String field : fields) {
+            featureType = FeatureTypes.add(featureType, field, Double.class, 19);
+        }
+
+        IFeatureInserter featureWriter = getFeatureWriter(featureType);
+
+        final int stride = 4 + 2 * p;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            int row = 0;
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                // create & insert feature
+                SimpleFeature newFeature = featureWriter.buildFeature();
+                featureWriter.copyAttributes(feature, newFeature, true);
+
+                final int offset = row * stride;
+                // Predicted, Residual, StdResid, LocalR2, coefficients and standard errors
+                // singular local models have no estimates and are written as null
+                for (int index = 0; index < stride; index++) {
+                    double value = outputs[offset + index];
+                    newFeature.setAttribute(fields.get(index), Double.isNaN(value) ? null : value);
+                }
+
+                featureWriter.write(newFeature);
+                row++;
+            }
+        } catch (IOException e) {
+            featureWriter.rollback(e);
+        } finally {
+            featureWriter.close(featureIter);
+        }
+
+        this.residualFeatures = featureWriter.getFeatureCollection();
+    }
+
+    private String fieldName(String prefix, String propertyName) {
+        String name = prefix + propertyName;
+        return name.length() > 10 ? name.substring(0, 10) : name;
+    }
+}
@@ -22,8 +22,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +34,7 @@ import org.ejml.simple.SimpleMatrix;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
@@ -52,6 +53,9 @@ import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
  * Performs Ordinary Least Squares (OLS) linear regression
+ * <p>
+ * The features are streamed twice: once to accumulate means and cross products, and once to write
+ * the residuals. Memory use does not depend on the number of observations.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -60,21 +64,23 @@ import org.opengis.feature.simple.SimpleFeatureType;
 public class OLSOperation extends GeneralOperation {
     protected static final Logger LOGGER = Logging.getLogger(OLSOperation.class);
 
+    static final int BATCH_SIZE = 8192;
+
+    static final int CHUNK_SIZE = 1024;
+
     private double SST, SSE, SSR, MSR, MSE, STDERR, F, sigF;
 
     private double meanY, R, R2, R2adjusted, AIC, AICc;
 
     private int n, k, dof1, dof2;
 
-    private SimpleMatrix Y; // Dependent
-
-    private SimpleMatrix X; // Independent
-
     private SimpleMatrix ST; // Variance
 
-    private SimpleMatrix residuals; // Residual
+    private double[] beta; // Coefficient, beta[0] = intercept
+
+    private String[] propertyNames; // dependent, independents...
 
-    private int rowCount = 0;
+    private int[] attributeIndexes;
 
     private Map<String, String> fieldMap;
 
@@ -126,63 +132,48 @@ public class OLSOperation extends GeneralOperation {
         // check fields
         fieldMap = checkPropertyName(features.getSchema(), dependentVariable, independentVariables);
 
-        // load dataset
-        Map<String, double[]> sampleMap = this.loadSamples(features, fieldMap);
-
-        // create matrix
-        int inVarCount = fieldMap.size() - 1; // duplicated fields removed
-        Y = new SimpleMatrix(rowCount, 1);
-        X = new SimpleMatrix(rowCount, inVarCount + 1);
-        X.fill(1.0); // Sets all the elements in this matrix equal to 1
-
-        int column = 0;
-        double sumOfY = 0.0d;
-        for (Entry<String, double[]> entry : sampleMap.entrySet()) {
-            double[] data = entry.getValue();
-            if (column == 0) {
-                for (int row = 0; row < rowCount; row++) {
-                    Y.set(row, column, data[row]);
-                    sumOfY += data[row];
-                }
-            } else {
-                for (int row = 0; row < rowCount; row++) {
-                    X.set(row, column, data[row]);
-                }
-            }
-            column++;
+        SimpleFeatureType schema = features.getSchema();
+        propertyNames = fieldMap.keySet().toArray(new String[fieldMap.size()]);
+        attributeIndexes = new int[propertyNames.length];
+        for (int index = 0; index < propertyNames.length; index++) {
+            attributeIndexes[index] = schema.indexOf(propertyNames[index]);
         }
 
-        // clear
-        sampleMap.clear();
+        // accumulate means and cross products in a single pass
+        CrossProducts crossProducts = accumulate(features);
 
-        n = X.numRows(); // # of observations
-        k = X.numCols() - 1; // # of independent variables
-        meanY = sumOfY / n;
+        n = crossProducts.count; // # of observations
+        k = propertyNames.length - 1; // # of independent variables
+        meanY = crossProducts.mean[k];
 
         // regression
-        return analyze();
+        return analyze(crossProducts);
     }
 
-    private OLSResult analyze() throws IOException {
+    private OLSResult analyze(CrossProducts crossProducts) throws IOException {
         // Step 1: Computes linear regression via Ordinary Least Squares
-        // create Z matrix
-        SimpleMatrix Z = new SimpleMatrix(n, k + 2);
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < k; j++) {
-                Z.set(i, j + 1, X.get(i, j + 1));
+        // Cholesky decomposition of the centered cross product matrix [Sxx Sxy; Syx Syy]
+        final int dim = k + 1;
+        SimpleMatrix S = new SimpleMatrix(dim, dim);
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                S.set(i, j, crossProducts.get(i, j));
             }
-            Z.set(i, 0, 1);
-            Z.set(i, k + 1, Y.get(i, 0));
         }
 
-        SimpleMatrix ZtrZ = Z.transpose().mult(Z);
-        SimpleMatrix ss = Y.minus(meanY);
+        CholeskyDecomposition<DMatrixRMaj> chol = null;
+        chol = DecompositionFactory_DDRM.chol(dim, true);
+        if (!chol.decompose(S.getMatrix().copy())) {
+            throw new RuntimeException("Cholesky failed!");
+        }
+
+        SimpleMatrix L = SimpleMatrix.wrap(chol.getT(null));
 
         dof1 = k;
         dof2 = n - k - 1;
 
-        SST = ss.transpose().mult(ss).get(0, 0);
-        SSE = Math.pow(ZtrZ.invert().get(k + 1, k + 1), -1);
+        SST = S.get(k, k);
+        SSE = L.get(k, k) * L.get(k, k);
         SSR = SST - SSE;
 
         MSR = SSR / dof1;
@@ -212,29 +203,33 @@ public class OLSOperation extends GeneralOperation {
         AIC = -2.0 * logLik + 2.0 * k2;
         AICc = -2.0 * logLik + 2.0 * k2 * (double) (n / (n - k2 - 1));
 
-        // Step 2: Cholesky Decomposition
-        CholeskyDecomposition<DMatrixRMaj> chol = null;
-        chol = DecompositionFactory_DDRM.chol(ZtrZ.numRows(), true);
-        if (!chol.decompose(ZtrZ.getMatrix().copy())) {
-            throw new RuntimeException("Cholesky failed!");
+        // Step 2: Coefficient, L11 * L11' = Sxx, L11 * l21 = Sxy
+        SimpleMatrix invL11 = L.extractMatrix(0, k, 0, k).invert();
+        SimpleMatrix l21 = L.extractMatrix(k, k + 1, 0, k).transpose();
+        SimpleMatrix slopes = invL11.transpose().mult(l21);
+        SimpleMatrix invSxx = invL11.transpose().mult(invL11);
+
+        SimpleMatrix meanX = new SimpleMatrix(k, 1);
+        beta = new double[k + 1];
+        beta[0] = meanY;
+        for (int i = 0; i < k; i++) {
+            meanX.set(i, 0, crossProducts.mean[i]);
+            beta[i + 1] = slopes.get(i, 0);
+            beta[0] -= beta[i + 1] * crossProducts.mean[i];
         }
 
-        SimpleMatrix L = SimpleMatrix.wrap(chol.getT(null));
-        SimpleMatrix invS = new SimpleMatrix(k + 2, k + 2);
-        for (int i = 0; i < k + 2; i++) {
-            invS.set(i, i, 1.0 / L.get(i, i));
-        }
-        SimpleMatrix UnitL = L.mult(invS).invert().extractMatrix(k + 1, k + 2, 0, k + 1);
-
-        // Coefficient
-        SimpleMatrix beta = UnitL.transpose().scale(-1.0);
-        SimpleMatrix xxi = X.transpose().mult(X).invert().scale(MSE);
-
         // Columns = {Coefficient, StdError, t-Statistic, Probability}
-        ST = new SimpleMatrix(beta.numRows(), 4);
+        ST = new SimpleMatrix(k + 1, 4);
         for (int i = 0; i < k + 1; i++) {
-            double coefficient = beta.get(i, 0); // Coefficient
-            double stdError = Math.sqrt(xxi.get(i, i)); // StdError
+            double variance = 0.0;
+            if (i == 0) {
+                variance = 1.0 / n + meanX.transpose().mult(invSxx).mult(meanX).get(0, 0);
+            } else {
+                variance = invSxx.get(i - 1, i - 1);
+            }
+
+            double coefficient = beta[i]; // Coefficient
+            double stdError = Math.sqrt(variance * MSE); // StdError
             double tStatistics = coefficient / stdError; // t-Statistic
             double pValue = SSUtils.tProb(dof2, Math.abs(tStatistics), StatEnum.BOTH); // Probability
 
@@ -250,38 +245,7 @@ public class OLSOperation extends GeneralOperation {
             return OLS;
         }
 
-        // Step 3: Residuals
-        // Columns = {Estimated, Residual, StdResid, StdResid2}
-        residuals = new SimpleMatrix(rowCount, 4);
-
-        double sumOfVals = 0.0d;
-        double sumOfSqrs = 0.0d;
-
-        final SimpleMatrix multXBeta = X.mult(beta);
-        for (int i = 0; i < n; i++) {
-            double residual = Y.get(i, 0) - multXBeta.get(i, 0);
-            double estimated = Y.get(i, 0) - residual;
-
-            sumOfVals += residual;
-            sumOfSqrs += residual * residual;
-
-            residuals.set(i, 0, estimated); // Estimated
-            residuals.set(i, 1, residual); // Residual
-        }
-
-        // 표준잔차 = 잔차 / 잔차의 표준편차
-        double meanRes = sumOfVals / n;
-        double stdDev = Math.sqrt((sumOfSqrs - Math.pow(sumOfVals, 2.0) / n) / (n - 1));
-        for (int i = 0; i < n; i++) {
-            double residual = residuals.get(i, 1);
-            double stdRes = (residual - meanRes) / STDERR;
-            double stdRes2 = residual / stdDev;
-
-            residuals.set(i, 2, stdRes); // StdResid = 내적 스튜던트 잔차
-            residuals.set(i, 3, stdRes2); // StdResid2 = 표준잔차
-        }
-
-        // finally build features
+        // Step 3: Residuals, written in a second pass
         buildFeatures();
 
         return OLS;
@@ -338,27 +302,38 @@ public class OLSOperation extends GeneralOperation {
             featureType = FeatureTypes.add(featureType, fields[index], Double.class, 19);
         }
 
+        // with an intercept, the residuals sum to zero and their sum of squares is SSE
+        final double meanRes = 0.0d;
+        final double stdDev = Math.sqrt(SSE / (n - 1));
+
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
         // write features
+        double[] row = new double[k + 1];
         SimpleFeatureIterator featureIter = features.features();
         try {
-            int row = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
+                readRow(feature, row, 0);
+
+                double estimated = beta[0];
+                for (int i = 0; i < k; i++) {
+                    estimated += beta[i + 1] * row[i];
+                }
+                double residual = row[k] - estimated;
 
                 // create & insert feature
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 featureWriter.copyAttributes(feature, newFeature, true);
 
-                newFeature.setAttribute(fields[0], residuals.get(row, 0));
-                newFeature.setAttribute(fields[1], residuals.get(row, 1));
-                newFeature.setAttribute(fields[2], residuals.get(row, 2));
-                newFeature.setAttribute(fields[3], residuals.get(row, 3));
+                newFeature.setAttribute(fields[0], estimated); // Estimated
+                newFeature.setAttribute(fields[1], residual); // Residual
+                // StdResid = 내적 스튜던트 잔차
+                newFeature.setAttribute(fields[2], (residual - meanRes) / STDERR);
+                // StdResid2 = 표준잔차
+                newFeature.setAttribute(fields[3], residual / stdDev);
 
                 featureWriter.write(newFeature);
-                row++;
-
             }
         } catch (IOException e) {
             featureWriter.rollback(e);
@@ -370,36 +345,171 @@ public class OLSOperation extends GeneralOperation {
         return this.residualFeatures != null;
     }
 
-    private Map<String, double[]> loadSamples(SimpleFeatureCollection features,
-            Map<String, String> fieldMap) {
-        rowCount = features.size();
-        Map<String, double[]> sampleMap = new LinkedHashMap<String, double[]>();
-        for (String key : fieldMap.keySet()) {
-            sampleMap.put(key, new double[rowCount]);
-        }
+    private CrossProducts accumulate(SimpleFeatureCollection features) {
+        final int dim = propertyNames.length;
+        final double[] rows = new double[BATCH_SIZE * dim];
+        final CrossProducts total = new CrossProducts(dim);
 
+        int batchCount = 0;
         SimpleFeatureIterator featureIter = features.features();
         try {
-            int index = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
-                for (String key : fieldMap.keySet()) {
-                    Double valueX = Converters.convert(feature.getAttribute(key), Double.class);
-                    if (valueX == null) {
-                        sampleMap.get(key)[index] = 0.0d;
-                        LOGGER.log(Level.WARNING, feature.getID() + "'s " + key
-                                + " value is null. Replaced null to zero!");
-                    } else {
-                        sampleMap.get(key)[index] = valueX.doubleValue();
-                    }
+                readRow(feature, rows, batchCount * dim);
+
+                if (++batchCount == BATCH_SIZE) {
+                    accumulate(total, rows, batchCount);
+                    batchCount = 0;
                 }
-                index++;
             }
         } finally {
             featureIter.close();
         }
 
-        return sampleMap;
+        if (batchCount > 0) {
+            accumulate(total, rows, batchCount);
+        }
+
+        return total;
+    }
+
+    private void accumulate(CrossProducts total, final double[] rows, int batchCount) {
+        final int dim = propertyNames.length;
+
+        // fixed size chunks merged in order, so results do not depend on the thread count
+        List<Callable<CrossProducts>> tasks = new ArrayList<Callable<CrossProducts>>();
+        for (int start = 0; start < batchCount; start += CHUNK_SIZE) {
+            final int from = start;
+            final int to = Math.min(batchCount, start + CHUNK_SIZE);
+            tasks.add(new Callable<CrossProducts>() {
+                @Override
+                public CrossProducts call() throws Exception {
+                    CrossProducts partial = new CrossProducts(dim);
+                    partial.add(rows, from, to);
+                    return partial;
+                }
+            });
+        }
+
+        for (CrossProducts partial : ParallelUtils.invokeAll(tasks, progressListener)) {
+            total.merge(partial);
+        }
+    }
+
+    // row = {independent variables..., dependent variable}
+    private void readRow(SimpleFeature feature, double[] row, int offset) {
+        final int dim = propertyNames.length;
+        for (int index = 0; index < dim; index++) {
+            int column = index == 0 ? dim - 1 : index - 1;
+            Object value = null;
+            if (attributeIndexes[index] != -1) {
+                value = feature.getAttribute(attributeIndexes[index]);
+            }
+
+            Double valueX = Converters.convert(value, Double.class);
+            if (valueX == null) {
+                row[offset + column] = 0.0d;
+                LOGGER.log(Level.WARNING, feature.getID() + "'s " + propertyNames[index]
+                        + " value is null. Replaced null to zero!");
+            } else {
+                row[offset + column] = valueX.doubleValue();
+            }
+        }
+    }
+
+    /**
+     * Means and centered cross products (co-moments) of a set of rows. Partial results are merged
+     * with the pairwise update of Chan et al., which avoids the cancellation of raw sums of squares.
+     */
+    static final class CrossProducts {
+        final int dim;
+
+        int count = 0;
+
+        final double[] mean;
+
+        final double[] comoments; // dim x dim, row major
+
+        public CrossProducts(int dim) {
+            this.dim = dim;
+            this.mean = new double[dim];
+            this.comoments = new double[dim * dim];
+        }
+
+        public double get(int i, int j) {
+            return comoments[i * dim + j];
+        }
+
+        public void add(double[] rows, int from, int to) {
+            // two pass over the chunk: means, then centered products
+            final int chunkCount = to - from;
+            final double[] chunkMean = new double[dim];
+            for (int row = from; row < to; row++) {
+                for (int i = 0; i < dim; i++) {
+                    chunkMean[i] += rows[row * dim + i];
+                }
+            }
+
+            for (int i = 0; i < dim; i++) {
+                chunkMean[i] /= chunkCount;
+            }
+
+            final double[] chunkComoments = new double[dim * dim];
+            final double[] centered = new double[dim];
+            for (int row = from; row < to; row++) {
+                for (int i = 0; i < dim; i++) {
+                    centered[i] = rows[row * dim + i] - chunkMean[i];
+                }
+
+                for (int i = 0; i < dim; i++) {
+                    for (int j = i; j < dim; j++) {
+                        chunkComoments[i * dim + j] += centered[i] * centered[j];
+                    }
+                }
+            }
+
+            for (int i = 0; i < dim; i++) {
+                for (int j = 0; j < i; j++) {
+                    chunkComoments[i * dim + j] = chunkComoments[j * dim + i];
+                }
+            }
+
+            merge(chunkCount, chunkMean, chunkComoments);
+        }
+
+        public void merge(CrossProducts other) {
+            merge(other.count, other.mean, other.comoments);
+        }
+
+        private void merge(int otherCount, double[] otherMean, double[] otherComoments) {
+            if (otherCount == 0) {
+                return;
+            }
+
+            if (count == 0) {
+                count = otherCount;
+                System.arraycopy(otherMean, 0, mean, 0, dim);
+                System.arraycopy(otherComoments, 0, comoments, 0, comoments.length);
+                return;
+            }
+
+            final int total = count + otherCount;
+            final double factor = (double) count * otherCount / total;
+            final double[] delta = new double[dim];
+            for (int i = 0; i < dim; i++) {
+                delta[i] = otherMean[i] - mean[i];
+            }
+
+            for (int i = 0; i < dim; i++) {
+                for (int j = 0; j < dim; j++) {
+                    comoments[i * dim + j] += otherComoments[i * dim + j] + factor * delta[i]
+                            * delta[j];
+                }
+                mean[i] += delta[i] * otherCount / total;
+            }
+
+            count = total;
+        }
     }
 
     private Map<String, String> checkPropertyName(SimpleFeatureType schema,
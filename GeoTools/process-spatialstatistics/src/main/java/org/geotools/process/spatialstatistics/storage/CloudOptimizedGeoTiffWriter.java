@@ -0,0 +1,915 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.storage;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.process.spatialstatistics.core.ParallelUtils;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.referencing.CRS;
+import org.geotools.util.logging.Logging;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.operation.MathTransform2D;
+
+/**
+ * Writes a grid coverage as a Cloud Optimized GeoTIFF: a tiled GeoTIFF with internal overviews
+ * whose directories are all at the start of the file, followed by the tile data from the smallest
+ * overview to the full resolution image.
+ * <p>
+ * The source image is read once, one row of tiles at a time. Tiles are encoded, predicted and
+ * deflated in parallel while the overviews are decimated (nearest neighbour) from the same tiles,
+ * and the compressed tiles are appended to one temporary file per level. The final file is then
+ * assembled sequentially. BigTIFF is used when the output does not fit the 4 GB limit of classic
+ * TIFF.
+ * <p>
+ * The coordinate reference system is written as an EPSG code, so only coverages with a known EPSG
+ * code and a north-up grid are supported, see {@link #canWrite(GridCoverage2D)}.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CloudOptimizedGeoTiffWriter {
+    protected static final Logger LOGGER = Logging.getLogger(CloudOptimizedGeoTiffWriter.class);
+
+    public static final int COMPRESSION_NONE = 1;
+
+    public static final int COMPRESSION_DEFLATE = 8;
+
+    /** Horizontal differencing for integer samples, floating point predictor otherwise */
+    public static final int PREDICTOR_AUTO = 0;
+
+    public static final int PREDICTOR_NONE = 1;
+
+    public static final int PREDICTOR_HORIZONTAL = 2;
+
+    public static final int PREDICTOR_FLOATING_POINT = 3;
+
+    static final long CLASSIC_TIFF_LIMIT = 0xFFFFFFFFL;
+
+    // TIFF field types
+    static final int ASCII = 2;
+
+    static final int SHORT = 3;
+
+    static final int LONG = 4;
+
+    static final int DOUBLE = 12;
+
+    static final int LONG8 = 16;
+
+    private int tileSize = 512;
+
+    private int compression = COMPRESSION_DEFLATE;
+
+    private int deflateLevel = 6;
+
+    private int predictor = PREDICTOR_AUTO;
+
+    private int overviewLevels = -1;
+
+    private Boolean bigTiff = null;
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param tileSize the width and height of the tiles, a multiple of 16
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = Math.max(16, (tileSize + 15) / 16 * 16);
+    }
+
+    public int getCompression() {
+        return compression;
+    }
+
+    public void setCompression(int compression) {
+        this.compression = compression;
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public void setDeflateLevel(int deflateLevel) {
+        this.deflateLevel = Math.max(1, Math.min(9, deflateLevel));
+    }
+
+    public int getPredictor() {
+        return predictor;
+    }
+
+    public void setPredictor(int predictor) {
+        this.predictor = predictor;
+    }
+
+    public int getOverviewLevels() {
+        return overviewLevels;
+    }
+
+    /**
+     * @param overviewLevels the number of overviews, -1 creates overviews until the image fits in
+     *        one tile
+     */
+    public void setOverviewLevels(int overviewLevels) {
+        this.overviewLevels = overviewLevels;
+    }
+
+    public Boolean getBigTiff() {
+        return bigTiff;
+    }
+
+    /**
+     * @param bigTiff true or false to force the format, null to use BigTIFF only when needed
+     */
+    public void setBigTiff(Boolean bigTiff) {
+        this.bigTiff = bigTiff;
+    }
+
+    /**
+     * Returns true if the coverage has an EPSG code and a grid without rotation.
+     */
+    public static boolean canWrite(GridCoverage2D coverage) {
+        CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
+        if (crs == null || getEpsgCode(crs) == null) {
+            return false;
+        }
+
+        if (!(crs instanceof ProjectedCRS || crs instanceof GeographicCRS)) {
+            return false;
+        }
+
+        MathTransform2D gridToCRS = coverage.getGridGeometry().getGridToCRS2D();
+        if (!(gridToCRS instanceof AffineTransform)) {
+            return false;
+        }
+
+        AffineTransform affine = (AffineTransform) gridToCRS;
+        if (isNorthEast(crs)) {
+            return affine.getScaleX() == 0 && affine.getScaleY() == 0;
+        }
+        return affine.getShearX() == 0 && affine.getShearY() == 0;
+    }
+
+    private static Integer getEpsgCode(CoordinateReferenceSystem crs) {
+        try {
+            return CRS.lookupEpsgCode(crs, true);
+        } catch (FactoryException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private static boolean isNorthEast(CoordinateReferenceSystem crs) {
+        return CRS.getAxisOrder(crs) == CRS.AxisOrder.NORTH_EAST;
+    }
+
+    public void write(GridCoverage2D coverage, File outputFile) throws IOException {
+        if (!canWrite(coverage)) {
+            throw new IOException("The coverage requires an EPSG code and a north-up grid!");
+        }
+
+        final RenderedImage image = coverage.getRenderedImage();
+        final ImageLayout layout = new ImageLayout(image, tileSize, overviewLevels);
+        final int levels = layout.levels;
+
+        // encoded tiles of every level go to a temporary file, overviews are decimated in memory
+        File[] tempFiles = new File[levels];
+        FileChannel[] channels = new FileChannel[levels];
+        RandomAccessFile[] files = new RandomAccessFile[levels];
+        try {
+            for (int level = 0; level < levels; level++) {
+                tempFiles[level] = File.createTempFile("cog", ".tmp", outputFile
+                        .getAbsoluteFile().getParentFile());
+                files[level] = new RandomAccessFile(tempFiles[level], "rw");
+                channels[level] = files[level].getChannel();
+            }
+
+            encodeTiles(image, layout, channels);
+
+            writeFile(coverage, layout, channels, outputFile);
+        } finally {
+            for (int level = 0; level < levels; level++) {
+                if (files[level] != null) {
+                    files[level].close();
+                }
+                if (tempFiles[level] != null && !tempFiles[level].delete()) {
+                    tempFiles[level].deleteOnExit();
+                }
+            }
+        }
+    }
+
+    private void encodeTiles(final RenderedImage image, final ImageLayout layout,
+            FileChannel[] channels) throws IOException {
+        final int levels = layout.levels;
+        final int bpp = layout.bytesPerPixel;
+
+        // one row of tiles per overview level
+        final byte[][] buffers = new byte[levels][];
+        for (int level = 1; level < levels; level++) {
+            buffers[level] = new byte[layout.tilesAcross[level] * tileSize * tileSize * bpp];
+        }
+
+        final int strips = layout.tilesDown[0];
+        for (int strip = 0; strip < strips; strip++) {
+            final int tileRow = strip;
+            List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+            for (int col = 0; col < layout.tilesAcross[0]; col++) {
+                final int tileCol = col;
+                tasks.add(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        byte[] tile = readTile(image, layout, tileCol, tileRow);
+                        for (int level = 1; level < layout.levels; level++) {
+                            decimate(tile, layout, tileCol, tileRow, level, buffers[level]);
+                        }
+                        return encode(tile, layout);
+                    }
+                });
+            }
+            append(channels[0], layout, 0, ParallelUtils.invokeAll(tasks));
+
+            // flush the overview tile rows this strip completes
+            for (int level = 1; level < levels; level++) {
+                int step = 1 << level;
+                if ((strip + 1) % step != 0 && strip != strips - 1) {
+                    continue;
+                }
+
+                final byte[] buffer = buffers[level];
+                final int across = layout.tilesAcross[level];
+                List<Callable<byte[]>> levelTasks = new ArrayList<Callable<byte[]>>();
+                for (int col = 0; col < across; col++) {
+                    final int tileCol = col;
+                    levelTasks.add(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws Exception {
+                            byte[] tile = new byte[tileSize * tileSize * bpp];
+                            int rowBytes = tileSize * bpp;
+                            for (int row = 0; row < tileSize; row++) {
+                                System.arraycopy(buffer, (row * across * tileSize + tileCol
+                                        * tileSize) * bpp, tile, row * rowBytes, rowBytes);
+                            }
+                            return encode(tile, layout);
+                        }
+                    });
+                }
+                append(channels[level], layout, level, ParallelUtils.invokeAll(levelTasks));
+                Arrays.fill(buffer, (byte) 0);
+            }
+        }
+    }
+
+    private void append(FileChannel channel, ImageLayout layout, int level, List<byte[]> tiles)
+            throws IOException {
+        for (byte[] tile : tiles) {
+            int index = layout.tileCounts[level]++;
+            layout.offsets[level][index] = channel.position();
+            layout.byteCounts[level][index] = tile.length;
+
+            ByteBuffer buffer = ByteBuffer.wrap(tile);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a full resolution tile as pixel interleaved little endian samples, padded to the tile
+     * size.
+     */
+    private byte[] readTile(RenderedImage image, ImageLayout layout, int tileCol, int tileRow) {
+        final int x = tileCol * tileSize;
+        final int y = tileRow * tileSize;
+        final int w = Math.min(tileSize, layout.width - x);
+        final int h = Math.min(tileSize, layout.height - y);
+        final int bands = layout.bands;
+        final int sampleBytes = layout.sampleBytes;
+
+        Raster raster = image.getData(new Rectangle(image.getMinX() + x, image.getMinY() + y, w,
+                h));
+        byte[] tile = new byte[tileSize * tileSize * layout.bytesPerPixel];
+        ByteBuffer buffer = ByteBuffer.wrap(tile).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int band = 0; band < bands; band++) {
+            switch (layout.dataType) {
+            case DataBuffer.TYPE_FLOAT:
+                float[] floats = raster.getSamples(raster.getMinX(), raster.getMinY(), w, h,
+                        band, (float[]) null);
+                for (int row = 0; row < h; row++) {
+                    for (int col = 0; col < w; col++) {
+                        int pos = ((row * tileSize + col) * bands + band) * sampleBytes;
+                        buffer.putFloat(pos, floats[row * w + col]);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                double[] doubles = raster.getSamples(raster.getMinX(), raster.getMinY(), w, h,
+                        band, (double[]) null);
+                for (int row = 0; row < h; row++) {
+                    for (int col = 0; col < w; col++) {
+                        int pos = ((row * tileSize + col) * bands + band) * sampleBytes;
+                        buffer.putDouble(pos, doubles[row * w + col]);
+                    }
+                }
+                break;
+            default:
+                int[] ints = raster.getSamples(raster.getMinX(), raster.getMinY(), w, h, band,
+                        (int[]) null);
+                for (int row = 0; row < h; row++) {
+                    for (int col = 0; col < w; col++) {
+                        int pos = ((row * tileSize + col) * bands + band) * sampleBytes;
+                        int value = ints[row * w + col];
+                        if (sampleBytes == 1) {
+                            buffer.put(pos, (byte) value);
+                        } else if (sampleBytes == 2) {
+                            buffer.putShort(pos, (short) value);
+                        } else {
+                            buffer.putInt(pos, value);
+                        }
+                    }
+                }
+                break;
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Copies the pixels of a full resolution tile whose row and column are multiples of 2^level
+     * into the tile row buffer of the overview. Tiles of one strip write disjoint pixels.
+     */
+    private void decimate(byte[] tile, ImageLayout layout, int tileCol, int tileRow, int level,
+            byte[] buffer) {
+        final int step = 1 << level;
+        final int bpp = layout.bytesPerPixel;
+        final int x0 = tileCol * tileSize;
+        final int y0 = tileRow * tileSize;
+        final int w = Math.min(tileSize, layout.width - x0);
+        final int h = Math.min(tileSize, layout.height - y0);
+        final int bufferWidth = layout.tilesAcross[level] * tileSize;
+        final int firstLevelRow = (tileRow / step) * tileSize;
+
+        for (int row = (step - y0 % step) % step; row < h; row += step) {
+            int bufferRow = (y0 + row) / step - firstLevelRow;
+            for (int col = (step - x0 % step) % step; col < w; col += step) {
+                int bufferCol = (x0 + col) / step;
+                System.arraycopy(tile, (row * tileSize + col) * bpp, buffer,
+                        (bufferRow * bufferWidth + bufferCol) * bpp, bpp);
+            }
+        }
+    }
+
+    private byte[] encode(byte[] tile, ImageLayout layout) {
+        if (compression != COMPRESSION_DEFLATE) {
+            return tile;
+        }
+
+        int rowBytes = tileSize * layout.bytesPerPixel;
+        if (layout.predictor == PREDICTOR_HORIZONTAL) {
+            for (int row = 0; row < tileSize; row++) {
+                horizontalDifferencing(tile, row * rowBytes, rowBytes, layout.bands,
+                        layout.sampleBytes);
+            }
+        } else if (layout.predictor == PREDICTOR_FLOATING_POINT) {
+            byte[] temp = new byte[rowBytes];
+            for (int row = 0; row < tileSize; row++) {
+                floatingPointDifferencing(tile, row * rowBytes, rowBytes, layout.bands,
+                        layout.sampleBytes, temp);
+            }
+        }
+
+        Deflater deflater = new Deflater(deflateLevel);
+        try {
+            deflater.setInput(tile);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(tile.length / 4 + 64);
+            byte[] chunk = new byte[65536];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                out.write(chunk, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * TIFF predictor 2: each sample is replaced by its difference to the same band of the
+     * previous pixel, in little endian integer arithmetic of the sample size.
+     */
+    static void horizontalDifferencing(byte[] data, int offset, int length, int bands,
+            int sampleBytes) {
+        final int stride = bands * sampleBytes;
+        for (int pos = offset + length - sampleBytes; pos >= offset + stride; pos -= sampleBytes) {
+            long current = 0;
+            long previous = 0;
+            for (int b = sampleBytes - 1; b >= 0; b--) {
+                current = (current << 8) | (data[pos + b] & 0xFF);
+                previous = (previous << 8) | (data[pos - stride + b] & 0xFF);
+            }
+
+            long difference = current - previous;
+            for (int b = 0; b < sampleBytes; b++) {
+                data[pos + b] = (byte) (difference >>> (8 * b));
+            }
+        }
+    }
+
+    /**
+     * TIFF predictor 3: the bytes of a row are regrouped from the most to the least significant
+     * byte of every sample, then differenced byte by byte.
+     */
+    static void floatingPointDifferencing(byte[] data, int offset, int length, int bands,
+            int sampleBytes, byte[] temp) {
+        final int samples = length / sampleBytes;
+        System.arraycopy(data, offset, temp, 0, length);
+        for (int sample = 0; sample < samples; sample++) {
+            for (int b = 0; b < sampleBytes; b++) {
+                data[offset + (sampleBytes - b - 1) * samples + sample] = temp[sample
+                        * sampleBytes + b];
+            }
+        }
+
+        for (int pos = offset + length - 1; pos >= offset + bands; pos--) {
+            data[pos] = (byte) (data[pos] - data[pos - bands]);
+        }
+    }
+
+    private void writeFile(GridCoverage2D coverage, ImageLayout layout, FileChannel[] channels,
+            File outputFile) throws IOException {
+        final int levels = layout.levels;
+
+        // total size of the tile data, smallest overview first
+        long[] dataStart = new long[levels];
+        long dataSize = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            dataStart[level] = dataSize;
+            dataSize += channels[level].size();
+        }
+
+        // directories, their size does not depend on the offsets
+        List<TiffDirectory> directories = new ArrayList<TiffDirectory>();
+        for (int level = 0; level < levels; level++) {
+            directories.add(createDirectory(coverage, layout, level));
+        }
+
+        boolean useBigTiff = bigTiff == null ? false : bigTiff.booleanValue();
+        if (bigTiff == null && headerSize(false, directories) + dataSize > CLASSIC_TIFF_LIMIT) {
+            useBigTiff = true;
+        } else if (!useBigTiff
+                && headerSize(false, directories) + dataSize > CLASSIC_TIFF_LIMIT) {
+            throw new IOException("The output exceeds 4 GB, BigTIFF is required!");
+        }
+
+        final long tileDataOffset = headerSize(useBigTiff, directories);
+        for (int level = 0; level < levels; level++) {
+            long[] offsets = layout.offsets[level];
+            long[] tileOffsets = new long[offsets.length];
+            for (int index = 0; index < offsets.length; index++) {
+                tileOffsets[index] = tileDataOffset + dataStart[level] + offsets[index];
+            }
+
+            int offsetType = useBigTiff ? LONG8 : LONG;
+            directories.get(level).add(324, offsetType, tileOffsets); // TileOffsets
+            directories.get(level).add(325, offsetType, layout.byteCounts[level]); // TileByteCounts
+        }
+
+        RandomAccessFile output = new RandomAccessFile(outputFile, "rw");
+        try {
+            output.setLength(0);
+            FileChannel channel = output.getChannel();
+
+            // header
+            ByteBuffer header = ByteBuffer.allocate(useBigTiff ? 16 : 8).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) 'I').put((byte) 'I');
+            long firstDirectory = header.capacity();
+            if (useBigTiff) {
+                header.putShort((short) 43).putShort((short) 8).putShort((short) 0);
+                header.putLong(firstDirectory);
+            } else {
+                header.putShort((short) 42).putInt((int) firstDirectory);
+            }
+            header.flip();
+            writeFully(channel, header);
+
+            // directories
+            long position = firstDirectory;
+            for (int index = 0; index < directories.size(); index++) {
+                TiffDirectory directory = directories.get(index);
+                long size = directory.size(useBigTiff);
+                long next = index == directories.size() - 1 ? 0 : position + size;
+                writeFully(channel, directory.encode(position, next, useBigTiff));
+                position += size;
+            }
+
+            // tile data, smallest overview first
+            for (int level = levels - 1; level >= 0; level--) {
+                FileChannel source = channels[level];
+                long size = source.size();
+                long copied = 0;
+                while (copied < size) {
+                    copied += source.transferTo(copied, size - copied, channel);
+                }
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private long headerSize(boolean useBigTiff, List<TiffDirectory> directories) {
+        long size = useBigTiff ? 16 : 8;
+        for (TiffDirectory directory : directories) {
+            size += directory.size(useBigTiff);
+
+            // tile offsets and byte counts are added later
+            int valueSize = useBigTiff ? 8 : 4;
+            size += useBigTiff ? 40 : 24;
+            if (directory.tileCount > 1) {
+                size += 2L * directory.tileCount * valueSize;
+            }
+        }
+        return size;
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private TiffDirectory createDirectory(GridCoverage2D coverage, ImageLayout layout, int level) {
+        final int bands = layout.bands;
+        TiffDirectory directory = new TiffDirectory();
+        directory.tileCount = layout.tilesAcross[level] * layout.tilesDown[level];
+
+        long[] bitsPerSample = new long[bands];
+        long[] sampleFormat = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            bitsPerSample[band] = layout.sampleBytes * 8;
+            sampleFormat[band] = layout.sampleFormat;
+        }
+
+        directory.add(254, LONG, level == 0 ? 0 : 1); // NewSubfileType
+        directory.add(256, LONG, layout.levelWidth[level]); // ImageWidth
+        directory.add(257, LONG, layout.levelHeight[level]); // ImageLength
+        directory.add(258, SHORT, bitsPerSample); // BitsPerSample
+        directory.add(259, SHORT, compression); // Compression
+        directory.add(262, SHORT, 1); // PhotometricInterpretation: BlackIsZero
+        directory.add(277, SHORT, bands); // SamplesPerPixel
+        directory.add(284, SHORT, 1); // PlanarConfiguration: chunky
+        if (compression == COMPRESSION_DEFLATE && layout.predictor != PREDICTOR_NONE) {
+            directory.add(317, SHORT, layout.predictor); // Predictor
+        }
+        directory.add(322, LONG, tileSize); // TileWidth
+        directory.add(323, LONG, tileSize); // TileLength
+        if (bands > 1) {
+            directory.add(338, SHORT, new long[bands - 1]); // ExtraSamples: unspecified
+        }
+        directory.add(339, SHORT, sampleFormat); // SampleFormat
+
+        if (level == 0) {
+            addGeoKeys(coverage, layout, directory);
+        }
+
+        return directory;
+    }
+
+    private void addGeoKeys(GridCoverage2D coverage, ImageLayout layout, TiffDirectory directory) {
+        CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
+        Envelope2D extent = coverage.getEnvelope2D();
+
+        // GeoTIFF is always easting, northing
+        boolean swap = isNorthEast(crs);
+        double minX = swap ? extent.getMinY() : extent.getMinX();
+        double maxY = swap ? extent.getMaxX() : extent.getMaxY();
+        double width = swap ? extent.getHeight() : extent.getWidth();
+        double height = swap ? extent.getWidth() : extent.getHeight();
+
+        directory.add(33550, new double[] { width / layout.width, height / layout.height, 0 });
+        directory.add(33922, new double[] { 0, 0, 0, minX, maxY, 0 });
+
+        int epsgCode = getEpsgCode(crs).intValue();
+        boolean geographic = crs instanceof GeographicCRS;
+        directory.add(34735, SHORT, new long[] { 1, 1, 0, 3, //
+                1024, 0, 1, geographic ? 2 : 1, // GTModelTypeGeoKey
+                1025, 0, 1, 1, // GTRasterTypeGeoKey: PixelIsArea
+                geographic ? 2048 : 3072, 0, 1, epsgCode }); // GeographicType or ProjectedCSType
+
+        double noData = RasterHelper.getNoDataValue(coverage);
+        String text = noData == Math.rint(noData) && !Double.isInfinite(noData) ? Long
+                .toString((long) noData) : Double.toString(noData);
+        directory.add(42113, text); // GDAL_NODATA
+    }
+
+    /**
+     * Tile grid of the full resolution image and its overviews.
+     */
+    final class ImageLayout {
+        final int width;
+
+        final int height;
+
+        final int bands;
+
+        final int dataType;
+
+        final int sampleBytes;
+
+        final int bytesPerPixel;
+
+        final int sampleFormat;
+
+        final int predictor;
+
+        final int levels;
+
+        final int[] levelWidth;
+
+        final int[] levelHeight;
+
+        final int[] tilesAcross;
+
+        final int[] tilesDown;
+
+        final int[] tileCounts;
+
+        final long[][] offsets;
+
+        final long[][] byteCounts;
+
+        ImageLayout(RenderedImage image, int tileSize, int overviewLevels) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.bands = image.getSampleModel().getNumBands();
+            this.dataType = image.getSampleModel().getDataType();
+
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                sampleBytes = 1;
+                sampleFormat = 1;
+                break;
+            case DataBuffer.TYPE_USHORT:
+                sampleBytes = 2;
+                sampleFormat = 1;
+                break;
+            case DataBuffer.TYPE_SHORT:
+                sampleBytes = 2;
+                sampleFormat = 2;
+                break;
+            case DataBuffer.TYPE_INT:
+                sampleBytes = 4;
+                sampleFormat = 2;
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                sampleBytes = 4;
+                sampleFormat = 3;
+                break;
+            default:
+                sampleBytes = 8;
+                sampleFormat = 3;
+                break;
+            }
+            this.bytesPerPixel = bands * sampleBytes;
+
+            if (CloudOptimizedGeoTiffWriter.this.predictor == PREDICTOR_AUTO) {
+                this.predictor = sampleFormat == 3 ? PREDICTOR_FLOATING_POINT
+                        : PREDICTOR_HORIZONTAL;
+            } else {
+                this.predictor = CloudOptimizedGeoTiffWriter.this.predictor;
+            }
+
+            int count = 1;
+            while ((overviewLevels < 0 || count <= overviewLevels)
+                    && Math.max(width, height) > (long) tileSize << (count - 1)
+                    && count < 30) {
+                count++;
+            }
+            this.levels = count;
+
+            levelWidth = new int[levels];
+            levelHeight = new int[levels];
+            tilesAcross = new int[levels];
+            tilesDown = new int[levels];
+            tileCounts = new int[levels];
+            offsets = new long[levels][];
+            byteCounts = new long[levels][];
+            for (int level = 0; level < levels; level++) {
+                int step = 1 << level;
+                levelWidth[level] = (width + step - 1) / step;
+                levelHeight[level] = (height + step - 1) / step;
+                tilesAcross[level] = (levelWidth[level] + tileSize - 1) / tileSize;
+                tilesDown[level] = (levelHeight[level] + tileSize - 1) / tileSize;
+                offsets[level] = new long[tilesAcross[level] * tilesDown[level]];
+                byteCounts[level] = new long[offsets[level].length];
+            }
+        }
+    }
+
+    /**
+     * A TIFF image file directory, serialized with its out-of-line values right after it.
+     */
+    static final class TiffDirectory {
+        final List<Object[]> entries = new ArrayList<Object[]>();
+
+        int tileCount;
+
+        void add(int tag, int type, long value) {
+            add(tag, type, new long[] { value });
+        }
+
+        void add(int tag, int type, long[] values) {
+            entries.add(new Object[] { Integer.valueOf(tag), Integer.valueOf(type), values });
+        }
+
+        void add(int tag, double[] values) {
+            entries.add(new Object[] { Integer.valueOf(tag), Integer.valueOf(DOUBLE), values });
+        }
+
+        void add(int tag, String text) {
+            byte[] ascii = (text + '\0').getBytes(StandardCharsets.US_ASCII);
+            entries.add(new Object[] { Integer.valueOf(tag), Integer.valueOf(ASCII), ascii });
+        }
+
+        private static int typeSize(int type) {
+            switch (type) {
+            case ASCII:
+                return 1;
+            case SHORT:
+                return 2;
+            case LONG:
+                return 4;
+            default:
+                return 8;
+            }
+        }
+
+        private static int count(Object values) {
+            if (values instanceof long[]) {
+                return ((long[]) values).length;
+            } else if (values instanceof double[]) {
+                return ((double[]) values).length;
+            }
+            return ((byte[]) values).length;
+        }
+
+        private long valueSize(Object[] entry) {
+            return (long) count(entry[2]) * typeSize(((Integer) entry[1]).intValue());
+        }
+
+        long size(boolean bigTiff) {
+            int inline = bigTiff ? 8 : 4;
+            long size = bigTiff ? 8 + entries.size() * 20L + 8 : 2 + entries.size() * 12L + 4;
+            for (Object[] entry : entries) {
+                long valueSize = valueSize(entry);
+                if (valueSize > inline) {
+                    size += (valueSize + 1) & ~1L; // word aligned
+                }
+            }
+            return size;
+        }
+
+        ByteBuffer encode(long position, long next, boolean bigTiff) {
+            // entries must be sorted by tag
+            Collections.sort(entries, new Comparator<Object[]>() {
+                @Override
+                public int compare(Object[] o1, Object[] o2) {
+                    return ((Integer) o1[0]).compareTo((Integer) o2[0]);
+                }
+            });
+
+            final int inline = bigTiff ? 8 : 4;
+            ByteBuffer buffer = ByteBuffer.allocate((int) size(bigTiff)).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            long external = position + (bigTiff ? 8 + entries.size() * 20L + 8
+                    : 2 + entries.size() * 12L + 4);
+            ByteBuffer values = ByteBuffer.allocate((int) (buffer.capacity() - (external - position)))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (bigTiff) {
+                buffer.putLong(entries.size());
+            } else {
+                buffer.putShort((short) entries.size());
+            }
+
+            for (Object[] entry : entries) {
+                int tag = ((Integer) entry[0]).intValue();
+                int type = ((Integer) entry[1]).intValue();
+                long valueSize = valueSize(entry);
+
+                buffer.putShort((short) tag);
+                buffer.putShort((short) type);
+                if (bigTiff) {
+                    buffer.putLong(count(entry[2]));
+                } else {
+                    buffer.putInt(count(entry[2]));
+                }
+
+                ByteBuffer target;
+                int start = buffer.position();
+                if (valueSize > inline) {
+                    long offset = external + values.position();
+                    if (bigTiff) {
+                        buffer.putLong(offset);
+                    } else {
+                        buffer.putInt((int) offset);
+                    }
+                    target = values;
+                } else {
+                    target = buffer;
+                }
+
+                putValues(target, type, entry[2]);
+
+                if (target == values) {
+                    if ((values.position() & 1) == 1) {
+                        values.put((byte) 0);
+                    }
+                } else {
+                    // pad the inline value
+                    while (buffer.position() < start + inline) {
+                        buffer.put((byte) 0);
+                    }
+                }
+            }
+
+            if (bigTiff) {
+                buffer.putLong(next);
+            } else {
+                buffer.putInt((int) next);
+            }
+
+            values.flip();
+            buffer.put(values);
+            buffer.flip();
+            return buffer;
+        }
+
+        private void putValues(ByteBuffer target, int type, Object values) {
+            if (values instanceof double[]) {
+                for (double value : (double[]) values) {
+                    target.putDouble(value);
+                }
+            } else if (values instanceof byte[]) {
+                target.put((byte[]) values);
+            } else {
+                for (long value : (long[]) values) {
+                    if (type == SHORT) {
+                        target.putShort((short) value);
+                    } else if (type == LONG) {
+                        target.putInt((int) value);
+                    } else {
+                        target.putLong(value);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -33,9 +33,12 @@ import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.util.ProgressListener;
 
 /**
  * General Feature Inserter
@@ -63,6 +66,8 @@ public class FeatureInserter implements IFeatureInserter {
 
     Boolean writeMode = Boolean.FALSE;
 
+    ProgressListener progressListener;
+
     FeatureWriter<SimpleFeatureType, SimpleFeature> writer;
 
     DataStore dataStore;
@@ -176,6 +181,12 @@ public class FeatureInserter implements IFeatureInserter {
 
     @Override
     public void write(SimpleFeature newFeature) throws IOException {
+        if (progressListener != null && (featureCount % ProgressTracker.CHECK_INTERVAL) == 0
+                && progressListener.isCanceled()) {
+            rollback();
+            throw new ProcessException(ProgressTracker.CANCELED_MESSAGE);
+        }
+
         featureCount++;
 
         if (writeMode) {
@@ -212,6 +223,9 @@ public class FeatureInserter implements IFeatureInserter {
     @Override
     public void rollback(Exception e) throws IOException {
         rollback();
+        if (ProgressTracker.isCancellation(e)) {
+            throw (ProcessException) e;
+        }
         LOGGER.log(Level.WARNING, e.getMessage(), e);
     }
 
@@ -256,6 +270,11 @@ public class FeatureInserter implements IFeatureInserter {
         return target;
     }
 
+    @Override
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
     @Override
     public void clearFieldMaps() {
         this.fieldMaps.clear();
@@ -24,6 +24,7 @@ import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.util.ProgressListener;
 
 /**
  * IFeatureInserter interface
@@ -54,6 +55,10 @@ public interface IFeatureInserter {
 
     public abstract void rollback() throws IOException;
 
+    /**
+     * Rolls back the written features and logs the cause. A ProcessException raised by
+     * cancellation is rethrown so that the operation does not return partial results.
+     */
     public abstract void rollback(Exception e) throws IOException;
 
     public abstract void close() throws IOException;
@@ -65,4 +70,13 @@ public interface IFeatureInserter {
 
     public abstract void clearFieldMaps();
 
+    /**
+     * Sets the listener that is polled while features are written. Once it is canceled, the
+     * written features are rolled back and a ProcessException is thrown. The default
+     * implementation ignores the listener.
+     */
+    public default void setProgressListener(ProgressListener listener) {
+        // nothing to do
+    }
+
 }
\ No newline at end of file
@@ -28,9 +28,12 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.util.ProgressListener;
 
 /**
  * General Feature Inserter
@@ -46,6 +49,8 @@ public class MemoryFeatureInserter implements IFeatureInserter {
 
     int featureCount = 0;
 
+    ProgressListener progressListener;
+
     String typeName;
 
     SimpleFeatureBuilder builder;
@@ -112,18 +117,29 @@ public class MemoryFeatureInserter implements IFeatureInserter {
 
     @Override
     public void write(SimpleFeature newFeature) throws IOException {
+        if (progressListener != null && (featureCount % ProgressTracker.CHECK_INTERVAL) == 0
+                && progressListener.isCanceled()) {
+            rollback();
+            throw new ProcessException(ProgressTracker.CANCELED_MESSAGE);
+        }
+
         featureCount++;
         features.add(newFeature);
     }
 
     @Override
     public void rollback() throws IOException {
-        // nothing to do
+        features.clear();
+        featureCount = 0;
     }
 
     @Override
     public void rollback(Exception e) throws IOException {
-        // nothing to do
+        // other failures keep the collected features, as before
+        if (ProgressTracker.isCancellation(e)) {
+            rollback();
+            throw (ProcessException) e;
+        }
     }
 
     @Override
@@ -160,6 +176,11 @@ public class MemoryFeatureInserter implements IFeatureInserter {
         return target;
     }
 
+    @Override
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
     @Override
     public void clearFieldMaps() {
         this.fieldMaps.clear();
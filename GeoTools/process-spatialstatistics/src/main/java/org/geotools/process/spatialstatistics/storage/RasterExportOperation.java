@@ -16,6 +16,8 @@
  */
 package org.geotools.process.spatialstatistics.storage;
 
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -66,6 +68,14 @@ public class RasterExportOperation {
 
     private boolean useCompressionMode = false; // default
 
+    private boolean cloudOptimized = false; // default
+
+    private int overviewLevels = -1; // default, until the image fits in one tile
+
+    private int predictor = CloudOptimizedGeoTiffWriter.PREDICTOR_AUTO; // default
+
+    private Boolean bigTIFF = null; // default, only when the output exceeds 4 GB
+
     public boolean isCompressionMode() {
         return useCompressionMode;
     }
@@ -114,10 +124,55 @@ public class RasterExportOperation {
         this.useTileMode = useTileMode;
     }
 
+    public boolean isCloudOptimized() {
+        return cloudOptimized;
+    }
+
+    /**
+     * Writes tiled, deflated GeoTIFF with internal overviews laid out as a Cloud Optimized GeoTIFF.
+     * Coverages without an EPSG code or with a rotated grid use the standard GeoTIFF writer.
+     */
+    public void setCloudOptimized(boolean cloudOptimized) {
+        this.cloudOptimized = cloudOptimized;
+    }
+
+    public int getOverviewLevels() {
+        return overviewLevels;
+    }
+
+    public void setOverviewLevels(int overviewLevels) {
+        this.overviewLevels = overviewLevels;
+    }
+
+    public int getPredictor() {
+        return predictor;
+    }
+
+    public void setPredictor(int predictor) {
+        this.predictor = predictor;
+    }
+
+    public Boolean getBigTIFF() {
+        return bigTIFF;
+    }
+
+    public void setBigTIFF(Boolean bigTIFF) {
+        this.bigTIFF = bigTIFF;
+    }
+
     public GridCoverage2D saveAsGeoTiff(GridCoverage2D sourceCoverage, String tiffFile)
             throws IllegalArgumentException, IndexOutOfBoundsException, IOException {
+        if (cloudOptimized && CloudOptimizedGeoTiffWriter.canWrite(sourceCoverage)) {
+            return saveAsCloudOptimizedGeoTiff(sourceCoverage, tiffFile);
+        }
+
         // getting the write parameters
         final GeoTiffWriteParams wp = new GeoTiffWriteParams();
+        if (bigTIFF == null) {
+            wp.setForceToBigTIFF(estimateSize(sourceCoverage.getRenderedImage()) > 0xFFFFFFFFL);
+        } else {
+            wp.setForceToBigTIFF(bigTIFF.booleanValue());
+        }
         if (useCompressionMode) {
             wp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
             wp.setCompressionType(compressionType);
@@ -166,4 +221,29 @@ public class RasterExportOperation {
             writer.dispose();
         }
     }
+
+    private GridCoverage2D saveAsCloudOptimizedGeoTiff(GridCoverage2D sourceCoverage,
+            String tiffFile) throws IOException {
+        CloudOptimizedGeoTiffWriter writer = new CloudOptimizedGeoTiffWriter();
+        if (useTileMode) {
+            writer.setTileSize(Math.max(tileWidth, tileHeight));
+        }
+        writer.setOverviewLevels(overviewLevels);
+        writer.setPredictor(predictor);
+        writer.setBigTiff(bigTIFF);
+
+        File outputFile = new File(tiffFile);
+        writer.write(sourceCoverage, outputFile);
+
+        // open GridCoverage2D
+        Hints hints = new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.TRUE);
+        GeoTiffReader reader = new GeoTiffReader(outputFile, hints);
+        return reader.read(null);
+    }
+
+    private long estimateSize(RenderedImage image) {
+        int sampleSize = DataBuffer.getDataTypeSize(image.getSampleModel().getDataType()) / 8;
+        return (long) image.getWidth() * image.getHeight()
+                * image.getSampleModel().getNumBands() * Math.max(1, sampleSize);
+    }
 }
@@ -46,6 +46,8 @@ import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.core.ProgressTracker;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
@@ -54,6 +56,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.ProgressListener;
 
 /**
  * Shapefile Feature Inserter
@@ -89,6 +92,8 @@ public class ShapefileFeatureInserter implements IFeatureInserter {
 
     private int numberOfFeatures = 0;
 
+    private ProgressListener progressListener;
+
     private ShapeHandler handler;
 
     private ShapefileWriter shpWriter;
@@ -187,6 +192,12 @@ public class ShapefileFeatureInserter implements IFeatureInserter {
 
     @Override
     public void write(SimpleFeature newFeature) throws IOException {
+        if (progressListener != null && (numberOfFeatures % ProgressTracker.CHECK_INTERVAL) == 0
+                && progressListener.isCanceled()) {
+            rollback();
+            throw new ProcessException(ProgressTracker.CANCELED_MESSAGE);
+        }
+
         Geometry geometry = (Geometry) newFeature.getDefaultGeometry();
         geometry = JTSUtilities.convertToCollection(geometry, shapeType);
         if (geometry == null || geometry.isEmpty()) {
@@ -245,11 +256,18 @@ public class ShapefileFeatureInserter implements IFeatureInserter {
     @Override
     public void rollback(Exception e) throws IOException {
         rollback();
+        if (ProgressTracker.isCancellation(e)) {
+            throw (ProcessException) e;
+        }
         LOGGER.log(Level.WARNING, e.getMessage(), e);
     }
 
     @Override
     public void close() throws IOException {
+        if (shpWriter == null) {
+            return; // already closed or rolled back
+        }
+
         if (numberOfFeatures > 0) {
             // rewrite header
             shpWriter.writeHeaders(bounds, shapeType, numberOfFeatures, shapefileLength);
@@ -302,6 +320,11 @@ public class ShapefileFeatureInserter implements IFeatureInserter {
         return target;
     }
 
+    @Override
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
     @Override
     public void clearFieldMaps() {
         this.fieldMaps.clear();
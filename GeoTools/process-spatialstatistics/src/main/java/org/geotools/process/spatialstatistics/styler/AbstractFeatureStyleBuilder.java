@@ -19,10 +19,12 @@ package org.geotools.process.spatialstatistics.styler;
 import java.awt.Color;
 import java.util.logging.Logger;
 
+import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.function.RangedClassifier;
 import org.geotools.process.spatialstatistics.core.StringHelper;
+import org.geotools.process.spatialstatistics.transformation.CoverageToPointFeatureCollection;
 import org.geotools.styling.StyleFactory;
 import org.geotools.util.logging.Logging;
 import org.opengis.filter.FilterFactory2;
@@ -136,6 +138,66 @@ public abstract class AbstractFeatureStyleBuilder {
         return (RangedClassifier) function.evaluate(inputFeatures);
     }
 
+    /**
+     * Returns the class breaks of a field, optionally normalized, computed in a single pass by
+     * {@link ClassBreaksCalculator} and cached per layer, field and method.
+     */
+    protected double[] getClassBreaks(SimpleFeatureCollection inputFeatures, String propertyName,
+            String normalPropertyName, String methodName, int numClass) {
+        boolean normalize = normalPropertyName != null && !normalPropertyName.isEmpty();
+
+        String functionName = getFunctionName(methodName);
+        if (!"UniqueInterval".equals(functionName)) {
+            String key = ClassBreaksCalculator.getCacheKey(propertyName, normalPropertyName,
+                    functionName, numClass);
+            double[] classBreaks = ClassBreaksCalculator.getCachedBreaks(inputFeatures, key);
+            if (classBreaks == null) {
+                ClassBreaksCalculator calculator = new ClassBreaksCalculator();
+                calculator.addFeatures(inputFeatures, propertyName, normalPropertyName);
+                classBreaks = calculator.getBreaks(functionName, numClass);
+                if (classBreaks != null) {
+                    ClassBreaksCalculator.putCachedBreaks(inputFeatures, key, classBreaks);
+                }
+            }
+
+            if (classBreaks != null) {
+                return classBreaks;
+            }
+        }
+
+        RangedClassifier classifier = null;
+        if (normalize) {
+            classifier = getClassifier(inputFeatures, propertyName, normalPropertyName,
+                    methodName, numClass);
+        } else {
+            classifier = getClassifier(inputFeatures, propertyName, methodName, numClass);
+        }
+        return getClassBreaks(classifier);
+    }
+
+    /**
+     * Returns the class breaks of the first band of a coverage, excluding NoData.
+     */
+    protected double[] getClassBreaks(GridCoverage2D coverage, String methodName, int numClass) {
+        String functionName = getFunctionName(methodName);
+        if ("UniqueInterval".equals(functionName)) {
+            SimpleFeatureCollection features = new CoverageToPointFeatureCollection(coverage);
+            return getClassBreaks(getClassifier(features, "Value", methodName, numClass)); //$NON-NLS-1$
+        }
+
+        String key = ClassBreaksCalculator.getCacheKey(functionName, numClass);
+        double[] classBreaks = ClassBreaksCalculator.getCachedBreaks(coverage, key);
+        if (classBreaks == null) {
+            ClassBreaksCalculator calculator = new ClassBreaksCalculator();
+            calculator.addCoverage(coverage);
+            classBreaks = calculator.getBreaks(functionName, numClass);
+            if (classBreaks != null) {
+                ClassBreaksCalculator.putCachedBreaks(coverage, key, classBreaks);
+            }
+        }
+        return classBreaks;
+    }
+
     private String getFunctionName(String methodName) {
         if (StringHelper.isNullOrEmpty(methodName)) {
             methodName = "Jenks";
@@ -0,0 +1,363 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.styler;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.core.RasterResolution;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.core.StreamingStatistics;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Computes class breaks from a single pass over the values.
+ * <p>
+ * Quantile breaks come from a quantile sketch (rank error about 1%), while equal interval and
+ * standard deviation breaks are exact. Jenks natural breaks are optimized on a reservoir sample of
+ * up to 10,000 values grouped into at most 1,000 equal count bins: data with fewer values are
+ * classified exactly, otherwise every break lies on a bin boundary, within 0.1% of the sample
+ * ranks of the optimal break, and the sample adds a rank error of about 1%.
+ * <p>
+ * Breaks can be cached per layer instance (feature collection or coverage), field and method, so
+ * styling the same layer again is free. Entries are dropped when the layer is garbage collected.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ClassBreaksCalculator {
+    protected static final Logger LOGGER = Logging.getLogger(ClassBreaksCalculator.class);
+
+    public static final int DEFAULT_SAMPLE_SIZE = 10000;
+
+    static final int JENKS_BINS = 1000;
+
+    static final int STRIP_SAMPLES = 1 << 20;
+
+    static final int CACHE_SIZE = 16;
+
+    // breaks per layer instance, then per classification parameters
+    private static final Map<Object, Map<String, double[]>> CACHE = new WeakHashMap<Object, Map<String, double[]>>();
+
+    private final StreamingStatistics statistics = new StreamingStatistics();
+
+    private final double[] reservoir;
+
+    private final Random random = new Random(1000);
+
+    private int sampled = 0;
+
+    public ClassBreaksCalculator() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    public ClassBreaksCalculator(int sampleSize) {
+        this.reservoir = new double[Math.max(1, sampleSize)];
+    }
+
+    public long getCount() {
+        return statistics.getCount();
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+
+        // reservoir sampling (algorithm R)
+        long count = statistics.getCount();
+        if (sampled < reservoir.length) {
+            reservoir[sampled++] = value;
+        } else {
+            long slot = (long) (random.nextDouble() * (count + 1));
+            if (slot < reservoir.length) {
+                reservoir[(int) slot] = value;
+            }
+        }
+
+        statistics.add(value);
+    }
+
+    /**
+     * Adds the values of a field, optionally divided by a normalization field.
+     */
+    public void addFeatures(SimpleFeatureCollection features, String propertyName,
+            String normalPropertyName) {
+        boolean normalize = normalPropertyName != null && !normalPropertyName.isEmpty();
+
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Double value = Converters.convert(feature.getAttribute(propertyName),
+                        Double.class);
+                if (value == null) {
+                    continue;
+                }
+
+                if (normalize) {
+                    Double normal = Converters.convert(feature.getAttribute(normalPropertyName),
+                            Double.class);
+                    if (normal == null || normal == 0) {
+                        continue;
+                    }
+                    add(value / normal);
+                } else {
+                    add(value);
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    /**
+     * Adds the values of the first band, except NoData. Large coverages are read from an overview,
+     * see {@link RasterResolution#PREVIEW}.
+     */
+    public void addCoverage(GridCoverage2D coverage) {
+        final double noData = RasterHelper.getNoDataValue(coverage);
+        final RenderedImage image = RasterResolution.PREVIEW.select(coverage).getRenderedImage();
+        final int width = image.getWidth();
+        final int rows = Math.max(1, STRIP_SAMPLES / Math.max(1, width));
+
+        double[] samples = null;
+        for (int y = 0; y < image.getHeight(); y += rows) {
+            Rectangle strip = new Rectangle(image.getMinX(), image.getMinY() + y, width,
+                    Math.min(rows, image.getHeight() - y));
+            Raster raster = image.getData(strip);
+            samples = raster.getSamples(strip.x, strip.y, strip.width, strip.height, 0, samples);
+            for (int i = 0, size = strip.width * strip.height; i < size; i++) {
+                if (!SSUtils.compareDouble(noData, samples[i])) {
+                    add(samples[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns numClasses + 1 increasing breaks for Jenks, Quantile, EqualInterval or
+     * StandardDeviation, or null if no values were added. Duplicate breaks are removed, so fewer
+     * classes are returned when the data has fewer distinct values.
+     */
+    public double[] getBreaks(String functionName, int numClasses) {
+        if (statistics.getCount() == 0) {
+            return null;
+        }
+
+        final double minimum = statistics.getMinimum();
+        final double maximum = statistics.getMaximum();
+        numClasses = Math.max(1, numClasses);
+
+        double[] breaks = new double[numClasses + 1];
+        breaks[0] = minimum;
+        breaks[numClasses] = maximum;
+        if ("Quantile".equalsIgnoreCase(functionName)) {
+            for (int k = 1; k < numClasses; k++) {
+                breaks[k] = statistics.getQuantile(k / (double) numClasses);
+            }
+        } else if ("EqualInterval".equalsIgnoreCase(functionName)) {
+            double interval = (maximum - minimum) / numClasses;
+            for (int k = 1; k < numClasses; k++) {
+                breaks[k] = minimum + k * interval;
+            }
+        } else if ("StandardDeviation".equalsIgnoreCase(functionName)) {
+            // classes one standard deviation wide, centered on the mean
+            double mean = statistics.getMean();
+            double stdDev = statistics.getStandardDeviation();
+            for (int k = 1; k < numClasses; k++) {
+                breaks[k] = mean + (k - numClasses / 2.0) * stdDev;
+            }
+        } else {
+            double[] sample = Arrays.copyOf(reservoir, sampled);
+            Arrays.sort(sample);
+            double[] natural = jenks(sample, numClasses);
+            breaks = new double[natural.length + 2];
+            breaks[0] = minimum;
+            System.arraycopy(natural, 0, breaks, 1, natural.length);
+            breaks[breaks.length - 1] = maximum;
+        }
+
+        return unique(breaks, minimum, maximum);
+    }
+
+    private double[] unique(double[] breaks, double minimum, double maximum) {
+        double[] result = new double[breaks.length];
+        int size = 0;
+        for (double value : breaks) {
+            value = Math.max(minimum, Math.min(maximum, value));
+            if (size == 0 || value > result[size - 1]) {
+                result[size++] = value;
+            }
+        }
+
+        if (size == 1) {
+            result[size++] = maximum; // a single value
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Fisher-Jenks optimal classification of sorted values grouped into weighted bins. Returns
+     * the lower bounds of classes 1 to k - 1.
+     */
+    static double[] jenks(double[] sorted, int numClasses) {
+        final int n = sorted.length;
+
+        // group equal values, then merge neighbors into equal count bins
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                distinct++;
+            }
+        }
+
+        final double binSize = distinct <= JENKS_BINS ? 0 : n / (double) JENKS_BINS;
+        double[] lower = new double[Math.min(distinct, JENKS_BINS + 1)];
+        double[] weights = new double[lower.length + 1];
+        double[] sums = new double[lower.length + 1];
+        double[] sumOfSqrs = new double[lower.length + 1];
+
+        int bins = 0;
+        for (int i = 0; i < n; i++) {
+            boolean open = bins == 0 || sorted[i] != sorted[i - 1]
+                    && (binSize == 0 || i >= Math.round(bins * binSize));
+            if (open) {
+                if (bins == lower.length) {
+                    open = false; // all remaining values go to the last bin
+                } else {
+                    lower[bins] = sorted[i];
+                    weights[bins + 1] = weights[bins];
+                    sums[bins + 1] = sums[bins];
+                    sumOfSqrs[bins + 1] = sumOfSqrs[bins];
+                    bins++;
+                }
+            }
+
+            // cumulative sums over the bins
+            weights[bins] += 1;
+            sums[bins] += sorted[i];
+            sumOfSqrs[bins] += sorted[i] * sorted[i];
+        }
+
+        final int k = Math.min(numClasses, bins);
+        if (k <= 1) {
+            return new double[0];
+        }
+
+        // cost[j]: minimal sum of squared deviations of bins 0..j in c + 1 classes
+        double[] cost = new double[bins];
+        int[][] starts = new int[k][bins];
+        for (int j = 0; j < bins; j++) {
+            cost[j] = deviation(weights, sums, sumOfSqrs, 0, j);
+        }
+
+        for (int c = 1; c < k; c++) {
+            double[] next = new double[bins];
+            Arrays.fill(next, Double.MAX_VALUE);
+            for (int j = c; j < bins; j++) {
+                for (int i = c; i <= j; i++) {
+                    double candidate = cost[i - 1] + deviation(weights, sums, sumOfSqrs, i, j);
+                    if (candidate < next[j]) {
+                        next[j] = candidate;
+                        starts[c][j] = i;
+                    }
+                }
+            }
+            cost = next;
+        }
+
+        double[] breaks = new double[k - 1];
+        int end = bins - 1;
+        for (int c = k - 1; c >= 1; c--) {
+            int start = starts[c][end];
+            breaks[c - 1] = lower[start];
+            end = start - 1;
+        }
+        return breaks;
+    }
+
+    private static double deviation(double[] weights, double[] sums, double[] sumOfSqrs,
+            int from, int to) {
+        double weight = weights[to + 1] - weights[from];
+        double sum = sums[to + 1] - sums[from];
+        return (sumOfSqrs[to + 1] - sumOfSqrs[from]) - sum * sum / weight;
+    }
+
+    /**
+     * Builds the cache key of the classification parameters of a layer.
+     */
+    public static String getCacheKey(Object... parameters) {
+        StringBuilder sb = new StringBuilder();
+        for (Object parameter : parameters) {
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            sb.append(parameter);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the cached breaks of a layer instance, or null if they were not computed yet.
+     */
+    public static double[] getCachedBreaks(Object layer, String key) {
+        synchronized (CACHE) {
+            Map<String, double[]> layerBreaks = CACHE.get(layer);
+            double[] breaks = layerBreaks == null ? null : layerBreaks.get(key);
+            return breaks == null ? null : breaks.clone();
+        }
+    }
+
+    public static void putCachedBreaks(Object layer, String key, double[] breaks) {
+        synchronized (CACHE) {
+            Map<String, double[]> layerBreaks = CACHE.get(layer);
+            if (layerBreaks == null) {
+                layerBreaks = new LinkedHashMap<String, double[]>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+                        return size() > CACHE_SIZE;
+                    }
+                };
+                CACHE.put(layer, layerBreaks);
+            }
+            layerBreaks.put(key, breaks.clone());
+        }
+    }
+
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+}
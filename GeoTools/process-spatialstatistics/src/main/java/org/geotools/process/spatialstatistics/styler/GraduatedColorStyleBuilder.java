@@ -26,11 +26,9 @@ import org.geotools.brewer.color.BrewerPalette;
 import org.geotools.brewer.color.ColorBrewer;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.filter.function.RangedClassifier;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FeatureTypes.SimpleShapeType;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
-import org.geotools.process.spatialstatistics.transformation.CoverageToPointFeatureCollection;
 import org.geotools.styling.ColorMap;
 import org.geotools.styling.ColorMapEntry;
 import org.geotools.styling.FeatureTypeStyle;
@@ -94,10 +92,7 @@ public class GraduatedColorStyleBuilder extends AbstractFeatureStyleBuilder {
             String brewerPaletteName, boolean reverse, double opacity) {
         numClasses = checkNumClasses(numClasses);
 
-        SimpleFeatureCollection inputFeatures = new CoverageToPointFeatureCollection(coverage);
-
-        RangedClassifier classifier = getClassifier(inputFeatures, "Value", methodName, numClasses); //$NON-NLS-1$
-        double[] breaks = getClassBreaks(classifier);
+        double[] breaks = getClassBreaks(coverage, methodName, numClasses);
 
         BrewerPalette brewerPalette = brewer.getPalette(brewerPaletteName);
         Color[] colors = brewerPalette.getColors(breaks.length - 1);
@@ -149,16 +144,9 @@ public class GraduatedColorStyleBuilder extends AbstractFeatureStyleBuilder {
             String methodName, int numClasses, String brewerPaletteName, boolean reverse) {
         numClasses = checkNumClasses(numClasses);
 
-        // get classifier
-        RangedClassifier classifier = null;
-        if (normalProperty == null || normalProperty.isEmpty()) {
-            classifier = getClassifier(inputFeatures, propertyName, methodName, numClasses);
-        } else {
-            classifier = getClassifier(inputFeatures, propertyName, normalProperty, methodName,
-                    numClasses);
-        }
-
-        double[] classBreaks = getClassBreaks(classifier);
+        // get class breaks
+        double[] classBreaks = getClassBreaks(inputFeatures, propertyName, normalProperty,
+                methodName, numClasses);
 
         if (brewerPaletteName == null || brewerPaletteName.isEmpty()) {
             brewerPaletteName = "OrRd"; // default
@@ -24,7 +24,6 @@ import java.util.logging.Logger;
 import org.geotools.brewer.color.BrewerPalette;
 import org.geotools.brewer.color.ColorBrewer;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.filter.function.RangedClassifier;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FeatureTypes.SimpleShapeType;
 import org.geotools.styling.FeatureTypeStyle;
@@ -192,16 +191,9 @@ public class GraduatedSymbolStyleBuilder extends AbstractFeatureStyleBuilder {
 
         numClasses = numClasses < 3 ? 3 : numClasses;
 
-        // get classifier
-        RangedClassifier classifier = null;
-        if (normalProperty == null || normalProperty.isEmpty()) {
-            classifier = getClassifier(inputFeatures, propertyName, methodName, numClasses);
-        } else {
-            classifier = getClassifier(inputFeatures, propertyName, normalProperty, methodName,
-                    numClasses);
-        }
-
-        double[] classBreaks = getClassBreaks(classifier);
+        // get class breaks
+        double[] classBreaks = getClassBreaks(inputFeatures, propertyName, normalProperty,
+                methodName, numClasses);
 
         ColorBrewer brewer = ColorBrewer.instance();
         BrewerPalette brewerPalette = brewer.getPalette(brewerPaletteName);
@@ -31,6 +31,7 @@ import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrat
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor.StatisticsStrategy;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
 import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.core.RasterResolution;
 import org.geotools.styling.ChannelSelection;
 import org.geotools.styling.ColorMap;
 import org.geotools.styling.ContrastEnhancement;
@@ -271,7 +272,7 @@ public class SSStyleBuilder {
             strategy.setNoData(RasterHelper.getNoDataValue(coverage));
 
             StatisticsVisitor visitor = new StatisticsVisitor(strategy);
-            visitor.visit(coverage, 0);
+            visitor.visit(coverage, 0, RasterResolution.PREVIEW);
             StatisticsVisitorResult ret = visitor.getResult();
 
             String[] descs = new String[] { "No Data", "LL", "LM", "M", "MH", "HH" };
@@ -0,0 +1,39 @@
+package org.geotools.process.spatialstatistics;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.styler.ClassBreaksCalculator;
+import org.geotools.process.spatialstatistics.styler.GraduatedColorStyleBuilder;
+import org.junit.Test;
+
+public class ClassBreaksCacheTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void test() throws Exception {
+        ClassBreaksCalculator.clearCache();
+
+        SimpleFeatureCollection features = DataUtilities.collection(dataStore.getFeatureSource(
+                "hexa").getFeatures());
+        String key = ClassBreaksCalculator.getCacheKey("a", null, "Jenks", 5);
+        assertNull(ClassBreaksCalculator.getCachedBreaks(features, key));
+
+        GraduatedColorStyleBuilder builder = new GraduatedColorStyleBuilder();
+        assertNotNull(builder.createStyle(features, "a", "Jenks", 5, "OrRd"));
+        double[] breaks = ClassBreaksCalculator.getCachedBreaks(features, key);
+        assertNotNull(breaks);
+
+        // styling the same layer again reads the cached breaks
+        ClassBreaksCalculator.putCachedBreaks(features, key, new double[] { 0, 1, 2, 3, 4, 5 });
+        assertNotNull(builder.createStyle(features, "a", "Jenks", 5, "OrRd"));
+        assertEquals(5.0, ClassBreaksCalculator.getCachedBreaks(features, key)[5], 0.0);
+
+        // another field, method, class count or layer misses
+        assertNull(ClassBreaksCalculator.getCachedBreaks(features,
+                ClassBreaksCalculator.getCacheKey("b", null, "Jenks", 5)));
+        assertNull(ClassBreaksCalculator.getCachedBreaks(features,
+                ClassBreaksCalculator.getCacheKey("a", null, "Quantile", 5)));
+        assertNull(ClassBreaksCalculator.getCachedBreaks(features,
+                ClassBreaksCalculator.getCacheKey("a", null, "Jenks", 6)));
+        assertNull(ClassBreaksCalculator.getCachedBreaks(DataUtilities.collection(features), key));
+    }
+}
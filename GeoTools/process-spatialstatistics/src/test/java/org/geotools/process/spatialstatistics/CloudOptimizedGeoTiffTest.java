@@ -0,0 +1,144 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.io.File;
+import java.util.Random;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.storage.CloudOptimizedGeoTiffWriter;
+import org.geotools.referencing.CRS;
+import org.geotools.util.factory.Hints;
+import org.junit.Test;
+
+import it.geosolutions.imageio.stream.input.FileImageInputStreamExtImpl;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReaderSpi;
+
+public class CloudOptimizedGeoTiffTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void test() throws Exception {
+        File file = File.createTempFile("cog", ".tif");
+        try {
+            GridCoverage2D source = read(new File(FileUtils.toFile(url(this, null)), "sfdem.tif"));
+            assertTrue(CloudOptimizedGeoTiffWriter.canWrite(source));
+
+            CloudOptimizedGeoTiffWriter writer = new CloudOptimizedGeoTiffWriter();
+            writer.setTileSize(128);
+            writer.write(source, file);
+            assertRoundTrip(source, file, 128);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        // not a multiple of the tile size, so the last tiles are partial
+        Random random = new Random(48L);
+        TiledImage image = createImage(150, 100);
+        for (int row = 0; row < 100; row++) {
+            for (int col = 0; col < 150; col++) {
+                image.setSample(col, row, 0, random.nextInt(20) == 0 ? -9999f
+                        : (float) (row * 0.25 - col * 1.5 + random.nextGaussian()));
+            }
+        }
+        ReferencedEnvelope extent = new ReferencedEnvelope(1000, 2500, 2000, 3000,
+                CRS.decode("EPSG:32652"));
+        GridCoverage2D coverage = RasterHelper.createGridCoverage("float", image, 1, -9999,
+                -300, 100, extent);
+
+        int[] predictors = { CloudOptimizedGeoTiffWriter.PREDICTOR_NONE,
+                CloudOptimizedGeoTiffWriter.PREDICTOR_FLOATING_POINT };
+        File file = File.createTempFile("cog", ".tif");
+        try {
+            for (int predictor : predictors) {
+                CloudOptimizedGeoTiffWriter writer = new CloudOptimizedGeoTiffWriter();
+                writer.setTileSize(64);
+                writer.setPredictor(predictor);
+                writer.write(coverage, file);
+                assertRoundTrip(coverage, file, 64);
+            }
+
+            CloudOptimizedGeoTiffWriter writer = new CloudOptimizedGeoTiffWriter();
+            writer.setTileSize(64);
+            writer.setBigTiff(Boolean.TRUE);
+            writer.setCompression(CloudOptimizedGeoTiffWriter.COMPRESSION_NONE);
+            writer.write(coverage, file);
+            assertRoundTrip(coverage, file, 64);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private TiledImage createImage(int width, int height) {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                width, height, 1);
+        return new TiledImage(0, 0, width, height, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+    }
+
+    private GridCoverage2D read(File file) throws Exception {
+        GeoTiffReader reader = new GeoTiffReader(file, new Hints(
+                Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.TRUE));
+        try {
+            return reader.read(null);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    // same pixels, and overviews decimated until the smallest fits in one tile
+    private void assertRoundTrip(GridCoverage2D expected, File file, int tileSize)
+            throws Exception {
+        GridCoverage2D actual = read(file);
+        assertEquals(RasterHelper.getNoDataValue(expected), RasterHelper.getNoDataValue(actual),
+                0.0);
+        assertEquals(expected.getEnvelope2D().getMinX(), actual.getEnvelope2D().getMinX(), 1.0E-6);
+        assertEquals(expected.getEnvelope2D().getMaxY(), actual.getEnvelope2D().getMaxY(), 1.0E-6);
+
+        Raster raster = expected.getRenderedImage().getData();
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+
+        int levels = 1;
+        while (Math.max(width, height) > tileSize << (levels - 1)) {
+            levels++;
+        }
+
+        ImageInputStream stream = new FileImageInputStreamExtImpl(file);
+        ImageReader reader = new TIFFImageReaderSpi().createReaderInstance();
+        try {
+            reader.setInput(stream);
+            assertEquals(levels, reader.getNumImages(true));
+            for (int level = 0; level < levels; level++) {
+                final int step = 1 << level;
+                Raster overview = reader.read(level).getRaster();
+                assertEquals((width + step - 1) / step, overview.getWidth());
+                assertEquals((height + step - 1) / step, overview.getHeight());
+                for (int row = 0; row < overview.getHeight(); row++) {
+                    for (int col = 0; col < overview.getWidth(); col++) {
+                        assertEquals("level " + level + " pixel " + col + ", " + row,
+                                raster.getSampleDouble(raster.getMinX() + col * step,
+                                        raster.getMinY() + row * step, 0),
+                                overview.getSampleDouble(col, row, 0), 0.0);
+                    }
+                }
+            }
+        } finally {
+            reader.dispose();
+            stream.close();
+        }
+    }
+}
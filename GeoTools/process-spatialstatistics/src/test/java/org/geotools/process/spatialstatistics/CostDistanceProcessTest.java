@@ -0,0 +1,165 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterCostDistanceOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.referencing.CRS;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class CostDistanceProcessTest extends SpatialStatisticsTestCase {
+
+    static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
+
+    static final int[] DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    static final int WIDTH = 60;
+
+    static final int HEIGHT = 40;
+
+    static final float NODATA = -9999f;
+
+    private ReferencedEnvelope extent;
+
+    private float[][] costs;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // cells of 10 x 10, random costs with a barrier wall along column 30 open at rows 18 .. 20
+        extent = new ReferencedEnvelope(0, WIDTH * 10.0, 0, HEIGHT * 10.0,
+                CRS.decode("EPSG:32652"));
+        costs = new float[HEIGHT][WIDTH];
+        Random random = new Random(39L);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                boolean wall = col == 30 && (row < 18 || row > 20);
+                costs[row][col] = wall ? NODATA : 1f + random.nextInt(5);
+            }
+        }
+    }
+
+    @Test
+    public void test() throws Exception {
+        SimpleFeatureType schema = DataUtilities.createType("sources", "geom:Point:srid=32652");
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        GeometryFactory gf = new GeometryFactory();
+        int[][] sources = { { 4, 6 }, { 50, 30 }, { 10, 35 } };
+        for (int[] source : sources) {
+            Coordinate center = new Coordinate(source[0] * 10 + 5, (HEIGHT - source[1]) * 10 - 5);
+            features.add(SimpleFeatureBuilder.build(schema,
+                    new Object[] { gf.createPoint(center) }, null));
+        }
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(CostDistanceProcessFactory.inputFeatures.key, features);
+        input.put(CostDistanceProcessFactory.costCoverage.key, createCoverage(costs));
+        Map<String, Object> resultMap = new CostDistanceProcessFactory().create().execute(input,
+                null);
+        GridCoverage2D distance = (GridCoverage2D) resultMap
+                .get(CostDistanceProcessFactory.RESULT.key);
+        assertShortestPaths(distance,
+                (GridCoverage2D) resultMap.get(CostDistanceProcessFactory.BACKLINK.key),
+                Double.MAX_VALUE);
+        for (int[] source : sources) {
+            assertEquals(0.0, toMatrix(distance)[source[1]][source[0]], 0.0);
+        }
+
+        // sources on a grid with twice the cell size, and a maximum distance
+        float[][] coarse = new float[HEIGHT / 2][WIDTH / 2];
+        for (float[] line : coarse) {
+            Arrays.fill(line, NODATA);
+        }
+        coarse[3][2] = 1f;
+        coarse[15][25] = 1f;
+        RasterCostDistanceOperation operation = new RasterCostDistanceOperation();
+        distance = operation.execute(createCoverage(coarse), createCoverage(costs), 150.0);
+        assertEquals(WIDTH, distance.getRenderedImage().getWidth());
+        assertEquals(0.0, toMatrix(distance)[7][5], 0.0);
+        assertShortestPaths(distance, operation.getBacklinkCoverage(), 150.0);
+    }
+
+    // no neighbor offers a shorter path and each back-link follows an optimal step
+    private void assertShortestPaths(GridCoverage2D distance, GridCoverage2D backlink,
+            double maximumDistance) {
+        double noData = RasterHelper.getNoDataValue(distance);
+        double[][] distances = toMatrix(distance);
+        double[][] backlinks = toMatrix(backlink);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                if (costs[row][col] == NODATA) {
+                    continue;
+                }
+                double best = Double.MAX_VALUE;
+                for (int k = 0; k < DX.length; k++) {
+                    int nc = col + DX[k], nr = row + DY[k];
+                    if (nc >= 0 && nr >= 0 && nc < WIDTH && nr < HEIGHT
+                            && costs[nr][nc] != NODATA && distances[nr][nc] != noData) {
+                        double step = Math.hypot(DX[k], DY[k]) * 10.0
+                                * (costs[row][col] + costs[nr][nc]) / 2.0;
+                        best = Math.min(best, distances[nr][nc] + step);
+                        if (backlinks[row][col] == k + 1) {
+                            assertClose(distances[nr][nc] + step, distances[row][col]);
+                        }
+                    }
+                }
+
+                if (distances[row][col] == noData) {
+                    assertTrue("cell " + col + ", " + row, best == Double.MAX_VALUE
+                            || best > maximumDistance - 1.0E-3);
+                } else if (backlinks[row][col] == 0) {
+                    assertEquals(0.0, distances[row][col], 0.0);
+                } else {
+                    assertClose(best, distances[row][col]);
+                }
+            }
+        }
+    }
+
+    private void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, Math.max(1.0E-3, Math.abs(expected) * 1.0E-5));
+    }
+
+    private double[][] toMatrix(GridCoverage2D coverage) {
+        Raster raster = coverage.getRenderedImage().getData();
+        double[][] matrix = new double[raster.getHeight()][raster.getWidth()];
+        for (int row = 0; row < matrix.length; row++) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + row, matrix[row].length, 1,
+                    0, matrix[row]);
+        }
+        return matrix;
+    }
+
+    private GridCoverage2D createCoverage(float[][] matrix) {
+        int height = matrix.length, width = matrix[0].length;
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                width, height, 1);
+        TiledImage image = new TiledImage(0, 0, width, height, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                image.setSample(col, row, 0, matrix[row][col]);
+            }
+        }
+        return RasterHelper.createGridCoverage("grid", image, 1, NODATA, 0, 10, extent);
+    }
+}
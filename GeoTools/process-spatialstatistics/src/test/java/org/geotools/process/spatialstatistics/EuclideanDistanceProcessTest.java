@@ -0,0 +1,42 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.junit.Test;
+
+public class EuclideanDistanceProcessTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void test() throws Exception {
+        SimpleFeatureSource source = dataStore.getFeatureSource("point");
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(EuclideanDistanceProcessFactory.inputFeatures.key, source.getFeatures());
+
+        org.geotools.process.Process process = new EuclideanDistanceProcessFactory().create();
+        Map<String, Object> resultMap = process.execute(input, null);
+        assertNotNull(resultMap.get(EuclideanDistanceProcessFactory.RESULT.key));
+        assertNull(resultMap.get(EuclideanDistanceProcessFactory.ALLOCATION.key));
+        assertNull(resultMap.get(EuclideanDistanceProcessFactory.DIRECTION.key));
+
+        // optional outputs
+        input.put(EuclideanDistanceProcessFactory.outputAllocation.key, Boolean.TRUE);
+        input.put(EuclideanDistanceProcessFactory.outputDirection.key, Boolean.TRUE);
+        resultMap = process.execute(input, null);
+        GridCoverage2D distance = (GridCoverage2D) resultMap
+                .get(EuclideanDistanceProcessFactory.RESULT.key);
+        GridCoverage2D allocation = (GridCoverage2D) resultMap
+                .get(EuclideanDistanceProcessFactory.ALLOCATION.key);
+        GridCoverage2D direction = (GridCoverage2D) resultMap
+                .get(EuclideanDistanceProcessFactory.DIRECTION.key);
+        assertNotNull(allocation);
+        assertNotNull(direction);
+        assertEquals(distance.getRenderedImage().getWidth(), allocation.getRenderedImage()
+                .getWidth());
+        assertEquals(distance.getRenderedImage().getHeight(), direction.getRenderedImage()
+                .getHeight());
+    }
+}
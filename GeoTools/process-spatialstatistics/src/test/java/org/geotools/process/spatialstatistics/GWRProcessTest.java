@@ -0,0 +1,132 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class GWRProcessTest extends SpatialStatisticsTestCase {
+
+    static final double TOLERANCE = 1.0E-6;
+
+    @Test
+    public void test() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("hexa").getFeatures();
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(GWRProcessFactory.inputFeatures.key, features);
+        input.put(GWRProcessFactory.dependentVariable.key, "c");
+        input.put(GWRProcessFactory.explanatoryVariables.key, "a, b");
+        input.put(GWRProcessFactory.kernelType.key, KernelType.Quartic);
+        input.put(GWRProcessFactory.adaptive.key, Boolean.FALSE);
+        input.put(GWRProcessFactory.bandwidth.key, Double.valueOf(10.0));
+
+        org.geotools.process.Process process = new GWRProcessFactory().create();
+        Map<String, Object> resultMap = process.execute(input, null);
+        SimpleFeatureCollection result = (SimpleFeatureCollection) resultMap
+                .get(GWRProcessFactory.result.key);
+        assertEquals(37, result.size());
+
+        // reference: weighted least squares over the centroids with bisquare weights
+        List<double[]> rows = new ArrayList<double[]>();
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Point centroid = ((Geometry) feature.getDefaultGeometry()).getCentroid();
+                rows.add(new double[] { centroid.getX(), centroid.getY(), value(feature, "a"),
+                        value(feature, "b"), value(feature, "c") });
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        featureIter = result.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Point centroid = ((Geometry) feature.getDefaultGeometry()).getCentroid();
+                double[] beta = solveLocalModel(rows, centroid.getX(), centroid.getY(), 10.0);
+                double predicted = beta[0] + beta[1] * value(feature, "a") + beta[2]
+                        * value(feature, "b");
+                assertEquals(predicted, value(feature, "Predicted"), TOLERANCE);
+                assertEquals(value(feature, "c") - predicted, value(feature, "Residual"),
+                        TOLERANCE);
+                assertEquals(beta[0], value(feature, "Intercept"), TOLERANCE);
+                assertEquals(beta[1], value(feature, "C1_a"), TOLERANCE);
+                assertEquals(beta[2], value(feature, "C2_b"), TOLERANCE);
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    @Test
+    public void testSingularModels() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("hexa").getFeatures();
+
+        // a bandwidth below the cell spacing leaves one observation per local model
+        SimpleFeatureCollection result = GWRProcess.process(features, "c", "a, b",
+                KernelType.Quartic, Boolean.FALSE, Double.valueOf(0.5), null);
+        assertEquals(37, result.size());
+
+        SimpleFeatureIterator featureIter = result.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                assertNull(feature.getAttribute("Predicted"));
+                assertNull(feature.getAttribute("Intercept"));
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    private double value(SimpleFeature feature, String field) {
+        return ((Number) feature.getAttribute(field)).doubleValue();
+    }
+
+    // {x, y, a, b, c} rows, solved with Cramer's rule
+    private double[] solveLocalModel(List<double[]> rows, double x, double y, double bandwidth) {
+        double[][] m = new double[3][4];
+        for (double[] row : rows) {
+            double u = Math.hypot(row[0] - x, row[1] - y) / bandwidth;
+            if (u >= 1.0) {
+                continue;
+            }
+            double w = (1.0 - u * u) * (1.0 - u * u);
+            double[] v = { 1.0, row[2], row[3], row[4] };
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 4; c++) {
+                    m[r][c] += w * v[r] * v[c];
+                }
+            }
+        }
+
+        double det = determinant(m, -1);
+        return new double[] { determinant(m, 0) / det, determinant(m, 1) / det,
+                determinant(m, 2) / det };
+    }
+
+    // determinant of the 3 x 3 system, with column replaced by the right hand side
+    private double determinant(double[][] m, int column) {
+        double[][] a = new double[3][];
+        for (int r = 0; r < 3; r++) {
+            a[r] = m[r].clone();
+            if (column >= 0) {
+                a[r][column] = m[r][3];
+            }
+        }
+        return a[0][0] * (a[1][1] * a[2][2] - a[1][2] * a[2][1])
+                - a[0][1] * (a[1][0] * a[2][2] - a[1][2] * a[2][0])
+                + a[0][2] * (a[1][0] * a[2][1] - a[1][1] * a[2][0]);
+    }
+}
@@ -0,0 +1,158 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterFlowAccumulationOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterWatershedOperation;
+import org.geotools.referencing.CRS;
+import org.junit.Test;
+
+public class HydrologyProcessTest extends SpatialStatisticsTestCase {
+
+    static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
+
+    static final int[] DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    // more rows than one strip of the parallel operations
+    static final int WIDTH = 50;
+
+    static final int HEIGHT = 150;
+
+    static final float NODATA = -9999f;
+
+    private ReferencedEnvelope extent;
+
+    @Test
+    public void test() throws Exception {
+        // tilted noisy surface with many pits and a NoData hole
+        extent = new ReferencedEnvelope(0, WIDTH * 10.0, 0, HEIGHT * 10.0,
+                CRS.decode("EPSG:32652"));
+        float[][] dem = new float[HEIGHT][WIDTH];
+        Random random = new Random(40L);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                boolean hole = row >= 70 && row < 75 && col >= 20 && col < 25;
+                dem[row][col] = hole ? NODATA : (float) (100.0 - row * 0.5 + col * 0.2 + random
+                        .nextDouble() * 3.0);
+            }
+        }
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(RasterFillProcessFactory.inputCoverage.key, createCoverage(dem));
+        Map<String, Object> resultMap = new RasterFillProcessFactory().create().execute(input,
+                null);
+        double[][] filled = toMatrix((GridCoverage2D) resultMap
+                .get(RasterFillProcessFactory.RESULT.key));
+        GridCoverage2D direction = (GridCoverage2D) resultMap
+                .get(RasterFillProcessFactory.FLOW_DIRECTION.key);
+        double[][] directions = toMatrix(direction);
+
+        // filled cells are not lower than the dem and drain without climbing
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                if (dem[row][col] == NODATA) {
+                    continue;
+                }
+                assertTrue(filled[row][col] >= dem[row][col]);
+                int k = downstream(directions, col, row);
+                assertTrue("direction at " + col + ", " + row, k >= 0);
+                int nc = col + DX[k], nr = row + DY[k];
+                assertTrue(isOutside(nc, nr) || dem[nr][nc] == NODATA
+                        || filled[nr][nc] <= filled[row][col]);
+            }
+        }
+
+        // each cell accumulates its upstream cells, plus one for each of them
+        double[][] accumulation = toMatrix(new RasterFlowAccumulationOperation()
+                .execute(direction));
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                if (dem[row][col] == NODATA) {
+                    continue;
+                }
+                double expected = 0;
+                for (int k = 0; k < DX.length; k++) {
+                    int nc = col + DX[k], nr = row + DY[k];
+                    if (!isOutside(nc, nr) && downstream(directions, nc, nr) == (k + 4) % 8) {
+                        expected += accumulation[nr][nc] + 1;
+                    }
+                }
+                assertEquals("cell " + col + ", " + row, expected, accumulation[row][col], 1.0E-4);
+            }
+        }
+
+        // cells share the watershed of their downstream cell, pour points start their own
+        float[][] pourPoints = new float[HEIGHT][WIDTH];
+        for (float[] line : pourPoints) {
+            Arrays.fill(line, NODATA);
+        }
+        pourPoints[140][10] = 1f;
+        pourPoints[100][25] = 2f;
+        GridCoverage2D watershed = new RasterWatershedOperation().execute(direction,
+                createCoverage(pourPoints));
+        double noData = RasterHelper.getNoDataValue(watershed);
+        double[][] labels = toMatrix(watershed);
+        assertEquals(1.0, labels[140][10], 0.0);
+        assertEquals(2.0, labels[100][25], 0.0);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                int k = downstream(directions, col, row);
+                if (pourPoints[row][col] == NODATA && k >= 0) {
+                    int nc = col + DX[k], nr = row + DY[k];
+                    double expected = isOutside(nc, nr) ? noData : labels[nr][nc];
+                    assertEquals("cell " + col + ", " + row, expected, labels[row][col], 0.0);
+                }
+            }
+        }
+    }
+
+    // index of the D8 code, -1 for NoData and sinks
+    private int downstream(double[][] directions, int col, int row) {
+        for (int k = 0; k < DX.length; k++) {
+            if (directions[row][col] == (1 << k)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isOutside(int col, int row) {
+        return col < 0 || row < 0 || col >= WIDTH || row >= HEIGHT;
+    }
+
+    private double[][] toMatrix(GridCoverage2D coverage) {
+        Raster raster = coverage.getRenderedImage().getData();
+        double[][] matrix = new double[raster.getHeight()][raster.getWidth()];
+        for (int row = 0; row < matrix.length; row++) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + row, matrix[row].length, 1,
+                    0, matrix[row]);
+        }
+        return matrix;
+    }
+
+    private GridCoverage2D createCoverage(float[][] matrix) {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                WIDTH, HEIGHT, 1);
+        TiledImage image = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                image.setSample(col, row, 0, matrix[row][col]);
+            }
+        }
+        return RasterHelper.createGridCoverage("grid", image, 1, NODATA, 0, 200, extent);
+    }
+}
@@ -0,0 +1,150 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.media.jai.iterator.RectIterFactory;
+import javax.media.jai.iterator.WritableRectIter;
+
+import org.geotools.process.spatialstatistics.gridcoverage.MappedTileCache;
+import org.geotools.process.spatialstatistics.gridcoverage.MappedTileImage;
+import org.junit.Test;
+
+public class MappedTileImageTest extends SpatialStatisticsTestCase {
+
+    static final int TILE_SIZE = 256;
+
+    // larger than the minimum memory budget for all types but byte
+    static final int WIDTH = 3000;
+
+    static final int HEIGHT = 2100;
+
+    private File directory;
+
+    private MappedTileCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        directory = Files.createTempDirectory("tiles").toFile();
+        cache = new MappedTileCache(0, directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+
+        super.tearDown();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        int[] dataTypes = { DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+                DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE };
+
+        for (int dataType : dataTypes) {
+            MappedTileImage image = createImage(dataType, 2);
+
+            // write every tile once, in order
+            for (int tileY = image.getMinTileY(); tileY <= image.getMaxTileY(); tileY++) {
+                for (int tileX = image.getMinTileX(); tileX <= image.getMaxTileX(); tileX++) {
+                    WritableRaster tile = image.getWritableTile(tileX, tileY);
+                    Rectangle bounds = tile.getBounds().intersection(image.getBounds());
+                    for (int band = 0; band < 2; band++) {
+                        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                            for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                                tile.setSample(x, y, band, expected(x, y, band));
+                            }
+                        }
+                    }
+                    image.releaseWritableTile(tileX, tileY);
+                }
+            }
+            assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+
+            // read back in reverse order, so evicted tiles are loaded from the file
+            for (int tileY = image.getMaxTileY(); tileY >= image.getMinTileY(); tileY--) {
+                for (int tileX = image.getMaxTileX(); tileX >= image.getMinTileX(); tileX--) {
+                    Raster tile = image.getTile(tileX, tileY);
+                    Rectangle bounds = tile.getBounds().intersection(image.getBounds());
+                    for (int band = 0; band < 2; band++) {
+                        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                            for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                                assertEquals("type " + dataType + " pixel " + x + ", " + y,
+                                        expected(x, y, band), tile.getSampleDouble(x, y, band),
+                                        0.0);
+                            }
+                        }
+                    }
+                }
+            }
+            assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+
+            image.dispose();
+            assertEquals(0, cache.getMemoryUsed());
+        }
+    }
+
+    @Test
+    public void testWritableRectIter() throws Exception {
+        MappedTileImage image = createImage(DataBuffer.TYPE_DOUBLE, 1);
+
+        // JAI's writable iterators never release the tiles they write
+        WritableRectIter writer = RectIterFactory.createWritable(image, image.getBounds());
+        int y = 0;
+        writer.startLines();
+        while (!writer.finishedLines()) {
+            int x = 0;
+            writer.startPixels();
+            while (!writer.finishedPixels()) {
+                writer.setSample(0, expected(x++, y, 0));
+                writer.nextPixel();
+            }
+            writer.nextLine();
+            y++;
+        }
+        assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+
+        System.gc();
+        for (y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected(x, y, 0), image.getSampleDouble(x, y, 0), 0.0);
+            }
+        }
+
+        // a block across tile boundaries
+        Raster data = image.getData(new Rectangle(100, 100, 600, 600));
+        for (y = 100; y < 700; y++) {
+            for (int x = 100; x < 700; x++) {
+                assertEquals(expected(x, y, 0), data.getSampleDouble(x, y, 0), 0.0);
+            }
+        }
+        assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+
+        image.dispose();
+        assertEquals(0, cache.getMemoryUsed());
+    }
+
+    private MappedTileImage createImage(int dataType, int bands) {
+        SampleModel sampleModel = new BandedSampleModel(dataType, TILE_SIZE, TILE_SIZE, bands);
+        return new MappedTileImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel, null, cache);
+    }
+
+    // fits every data type
+    private double expected(int x, int y, int band) {
+        return (x * 31 + y * 17 + band * 7) % 127;
+    }
+}
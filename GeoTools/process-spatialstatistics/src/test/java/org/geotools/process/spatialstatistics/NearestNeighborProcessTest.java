@@ -0,0 +1,128 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.process.spatialstatistics.pattern.NNIOperation.NearestNeighborResult;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation.DistanceBand;
+import org.geotools.process.spatialstatistics.pattern.RipleysKFunctionOperation.RipleysKResult;
+import org.junit.Test;
+import org.locationtech.jts.algorithm.ConvexHull;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class NearestNeighborProcessTest extends SpatialStatisticsTestCase {
+
+    static GeometryFactory gf = new GeometryFactory();
+
+    @Test
+    public void test() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+        List<Coordinate> points = new ArrayList<Coordinate>();
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                Geometry geometry = (Geometry) featureIter.next().getDefaultGeometry();
+                points.add(geometry.getCentroid().getCoordinate());
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        // brute force nearest neighbors and the hull of all points
+        double sum = 0d;
+        for (Coordinate point : points) {
+            double minDistance = Double.MAX_VALUE;
+            for (Coordinate other : points) {
+                if (other != point) {
+                    minDistance = Math.min(minDistance, point.distance(other));
+                }
+            }
+            sum += minDistance;
+        }
+        int size = points.size();
+        double area = new ConvexHull(points.toArray(new Coordinate[size]), gf).getConvexHull()
+                .getArea();
+
+        NearestNeighborResult result = NearestNeighborProcess.process(features,
+                DistanceMethod.Euclidean, Double.valueOf(0d), null);
+        assertEquals(size, result.getObserved_Point_Count());
+        assertClose(area, result.getStudy_Area());
+        assertClose(sum / size, result.getObserved_Mean_Distance());
+        assertClose(0.5 * Math.sqrt(area / size), result.getExpected_Mean_Distance());
+    }
+
+    @Test
+    public void testRipleysKEdgeCorrection() throws Exception {
+        // 200 x 200 extent, one pair within 60: (100, 0) on the bottom edge and (130, 40)
+        SimpleFeatureCollection features = createPoints(new Coordinate(0, 0), new Coordinate(
+                200, 0), new Coordinate(0, 200), new Coordinate(200, 200), new Coordinate(100, 0),
+                new Coordinate(130, 40));
+
+        RipleysKFunctionOperation operation = new RipleysKFunctionOperation();
+        operation.setNumberOfBands(1);
+        operation.setBeginDistance(60.0);
+        operation.setDistanceIncrement(60.0);
+        operation.setPermutations(0);
+
+        // circles of the pair distance 50: half of the one around (100, 0) is inside, the arc
+        // below y = 0 is cut from the one around (130, 40)
+        double weights = 2.0 + 1.0 / (1.0 - Math.acos(40.0 / 50.0) / Math.PI);
+        operation.setEdgeCorrection(true);
+        DistanceBand band = operation.execute(features).getBands().get(0);
+        assertClose(Math.sqrt(40000.0 * weights / (6 * 5) / Math.PI), band.getObservedL());
+
+        operation.setEdgeCorrection(false);
+        band = operation.execute(features).getBands().get(0);
+        assertClose(Math.sqrt(40000.0 * 2.0 / (6 * 5) / Math.PI), band.getObservedL());
+    }
+
+    @Test
+    public void testRipleysKEnvelope() throws Exception {
+        Coordinate[] coordinates = new Coordinate[500];
+        Random random = new Random(7L);
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(random.nextDouble() * 500, random.nextDouble() * 500);
+        }
+
+        // complete spatial randomness stays within the envelope of 99 simulations
+        RipleysKFunctionOperation operation = new RipleysKFunctionOperation();
+        operation.setNumberOfBands(3);
+        operation.setDistanceIncrement(20.0);
+        operation.setPermutations(99);
+        operation.setRandomSeed(45L);
+        RipleysKResult result = operation.execute(createPoints(coordinates));
+
+        assertEquals(99, result.getPermutations());
+        for (DistanceBand band : result.getBands()) {
+            assertTrue(band.getLowerEnvelope() < band.getUpperEnvelope());
+            assertTrue(band.getLowerEnvelope() <= band.getObservedL());
+            assertTrue(band.getObservedL() <= band.getUpperEnvelope());
+        }
+    }
+
+    // results are rounded to 8 digits
+    private void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, Math.max(1.0E-7, Math.abs(expected) * 1.0E-9));
+    }
+
+    private SimpleFeatureCollection createPoints(Coordinate... coordinates) throws Exception {
+        SimpleFeatureType schema = DataUtilities.createType("points", "geom:Point");
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        for (Coordinate coordinate : coordinates) {
+            features.add(SimpleFeatureBuilder.build(schema,
+                    new Object[] { gf.createPoint(coordinate) }, null));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,93 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.relationship.OLSResult;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variables.Variable;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class OLSProcessTest extends SpatialStatisticsTestCase {
+
+    static final double TOLERANCE = 1.0E-6;
+
+    @Test
+    public void test() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("hexa").getFeatures();
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(OLSProcessFactory.inputFeatures.key, features);
+        input.put(OLSProcessFactory.dependentVariable.key, "c");
+        input.put(OLSProcessFactory.explanatoryVariables.key, "a, b");
+
+        org.geotools.process.Process process = new OLSProcessFactory().create();
+        Map<String, Object> resultMap = process.execute(input, null);
+        OLSResult report = (OLSResult) resultMap.get(OLSProcessFactory.report.key);
+        assertNotNull(report);
+
+        // reference: centered normal equations of c = b0 + b1 * a + b2 * b
+        double n = 0, ma = 0, mb = 0, mc = 0;
+        double saa = 0, sab = 0, sbb = 0, sac = 0, sbc = 0, scc = 0;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                double a = value(feature, "a"), b = value(feature, "b"), c = value(feature, "c");
+                n++;
+                double da = a - ma, db = b - mb, dc = c - mc;
+                ma += da / n;
+                mb += db / n;
+                mc += dc / n;
+                saa += da * (a - ma);
+                sab += da * (b - mb);
+                sbb += db * (b - mb);
+                sac += da * (c - mc);
+                sbc += db * (c - mc);
+                scc += dc * (c - mc);
+            }
+        } finally {
+            featureIter.close();
+        }
+        double det = saa * sbb - sab * sab;
+        double b1 = (sbb * sac - sab * sbc) / det;
+        double b2 = (saa * sbc - sab * sac) / det;
+        double b0 = mc - b1 * ma - b2 * mb;
+        double sse = scc - b1 * sac - b2 * sbc;
+
+        assertEquals(37, report.getDiagnostics().getNumberOfObservations().intValue());
+        assertEquals(1.0 - sse / scc, report.getDiagnostics().getRSquared(), TOLERANCE);
+        assertEquals(sse, report.getVariance().getResidual().getSumOfSquare(), TOLERANCE);
+        assertEquals(scc, report.getVariance().getSum().getSumOfSquare(), TOLERANCE);
+
+        List<Variable> variables = report.getVariables().getItems();
+        assertEquals(3, variables.size());
+        assertEquals(b0, variables.get(0).getCoefficient(), TOLERANCE);
+        assertEquals(b1, variables.get(1).getCoefficient(), TOLERANCE);
+        assertEquals(b2, variables.get(2).getCoefficient(), TOLERANCE);
+
+        // residual features
+        SimpleFeatureCollection olsFeatures = (SimpleFeatureCollection) resultMap
+                .get(OLSProcessFactory.olsFeatures.key);
+        assertEquals(37, olsFeatures.size());
+        featureIter = olsFeatures.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                double estimated = b0 + b1 * value(feature, "a") + b2 * value(feature, "b");
+                assertEquals(estimated, value(feature, "Estimated"), TOLERANCE);
+                assertEquals(value(feature, "c") - estimated, value(feature, "Residual"),
+                        TOLERANCE);
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    private double value(SimpleFeature feature, String field) {
+        return ((Number) feature.getAttribute(field)).doubleValue();
+    }
+}
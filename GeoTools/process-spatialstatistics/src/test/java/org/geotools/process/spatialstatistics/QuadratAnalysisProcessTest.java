@@ -0,0 +1,88 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.spatialstatistics.pattern.QuadratOperation.QuadratResult;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class QuadratAnalysisProcessTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void test() throws Exception {
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(QuadratAnalysisProcessFactory.inputFeatures.key,
+                dataStore.getFeatureSource("point").getFeatures());
+
+        org.geotools.process.Process process = new QuadratAnalysisProcessFactory().create();
+        Map<String, Object> resultMap = process.execute(input, null);
+        QuadratResult result = (QuadratResult) resultMap
+                .get(QuadratAnalysisProcessFactory.RESULT.key);
+        assertNotNull(result);
+        assertEquals(16, result.getFeatureCount());
+        assertEquals(16.0 / result.getNumber_of_Quadrats(), result.getMean(), 1.0E-9);
+    }
+
+    @Test
+    public void testDenseAndSparseCounters() throws Exception {
+        // 1000 x 600 extent with its corners set, and a few features without geometry
+        SimpleFeatureType schema = DataUtilities.createType("points", "geom:Point");
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(46L);
+        Coordinate[] coordinates = new Coordinate[5000];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = i < 2 ? new Coordinate(i * 1000, i * 600) : new Coordinate(
+                    random.nextDouble() * 1000, random.nextDouble() * 600);
+            features.add(SimpleFeatureBuilder.build(schema,
+                    new Object[] { gf.createPoint(coordinates[i]) }, null));
+            if (i % 500 == 0) {
+                features.add(SimpleFeatureBuilder.build(schema, new Object[] { null }, null));
+            }
+        }
+
+        // default cell size from the events only: dense counter
+        QuadratResult result = QuadratAnalysisProcess.process(features, 0d, null);
+        assertEquals(Math.sqrt(1000 * 600 * 2.0 / coordinates.length), result.getCellSize(),
+                1.0E-9);
+        assertResult(coordinates, result);
+
+        // many more quadrats than events: sparse counter
+        result = QuadratAnalysisProcess.process(features, 2.5, null);
+        assertTrue(result.getNumber_of_Quadrats() > 4 * coordinates.length);
+        assertResult(coordinates, result);
+    }
+
+    private void assertResult(Coordinate[] coordinates, QuadratResult result) {
+        double cellSize = result.getCellSize();
+        int columns = (int) Math.ceil(1000 / cellSize);
+        int rows = (int) Math.ceil(600 / cellSize);
+        int[] counts = new int[columns * rows];
+        for (Coordinate coordinate : coordinates) {
+            int col = Math.min((int) Math.floor(coordinate.x / cellSize), columns - 1);
+            int row = Math.min((int) Math.floor(coordinate.y / cellSize), rows - 1);
+            counts[row * columns + col]++;
+        }
+
+        double sumOfSqrs = 0;
+        for (int count : counts) {
+            sumOfSqrs += (double) count * count;
+        }
+        double mean = (double) coordinates.length / counts.length;
+        double variance = sumOfSqrs / counts.length - mean * mean;
+
+        assertEquals(coordinates.length, result.getFeatureCount());
+        assertEquals(columns, result.getColumns());
+        assertEquals(rows, result.getRows());
+        assertEquals(mean, result.getMean(), 1.0E-9);
+        assertEquals(variance, result.getVariance(), 1.0E-9);
+        assertEquals(variance / mean, result.getVariance_Mean_Ratio(), 1.0E-9);
+    }
+}
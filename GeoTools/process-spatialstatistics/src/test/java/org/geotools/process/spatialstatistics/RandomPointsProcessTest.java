@@ -0,0 +1,65 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class RandomPointsProcessTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void test() throws Exception {
+        // a square with a hole and a thin strip, 6400 + 800 in area
+        Geometry mask = new WKTReader().read("MULTIPOLYGON (((0 0, 100 0, 100 100, 0 100, 0 0), "
+                + "(20 20, 80 20, 80 80, 20 80, 20 20)), ((200 0, 1000 0, 1000 1, 200 1, 200 0)))");
+        SimpleFeatureType schema = DataUtilities.createType("mask", "geom:MultiPolygon");
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        features.add(SimpleFeatureBuilder.build(schema, new Object[] { mask }, "mask.1"));
+
+        SimpleFeatureCollection result = RandomPointsProcess.process(9000, features, 7L, null);
+        List<Geometry> points = toList(result);
+        assertEquals(9000, points.size());
+        assertEquals(points, toList(RandomPointsProcess.process(9000, features, 7L, null)));
+
+        int strip = 0;
+        for (Geometry point : points) {
+            assertTrue(point.toText(), mask.covers(point));
+            if (point.getCoordinate().x > 100) {
+                strip++;
+            }
+        }
+        assertEquals(1000, strip, 150); // one ninth of the area, about 5 standard deviations
+
+        // per features
+        SimpleFeatureCollection polygons = dataStore.getFeatureSource("polygon").getFeatures();
+        result = RandomPointsPerFeaturesProcess.process(polygons, CommonFactoryFinder
+                .getFilterFactory2(null).literal(50), 3L, null);
+        assertEquals(polygons.size() * 50, result.size());
+        assertEquals(toList(result), toList(RandomPointsPerFeaturesProcess.process(polygons,
+                CommonFactoryFinder.getFilterFactory2(null).literal(50), 3L, null)));
+    }
+
+    private List<Geometry> toList(SimpleFeatureCollection features) {
+        List<Geometry> geometries = new ArrayList<Geometry>();
+        SimpleFeatureIterator iter = features.features();
+        try {
+            while (iter.hasNext()) {
+                SimpleFeature feature = iter.next();
+                geometries.add((Geometry) feature.getDefaultGeometry());
+            }
+        } finally {
+            iter.close();
+        }
+        return geometries;
+    }
+}